@@ -0,0 +1,370 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Packs more blocks than fit to one grid to several identical grids.
+ * <p>
+ * The blocks are put to the grids largest first (first fit decreasing), each to the first grid
+ * with free cells for it. If there isn't such grid, the block is put to the first grid where a
+ * {@link PlacementSearch} finds places for it and the blocks already there. The searches are
+ * cached by the shapes of the blocks of the grid, as the same sets of shapes come up again and
+ * again.
+ * <p>
+ * The amount of grids can't be smaller than the cells of the blocks divided by the free cells
+ * of a grid, and no two blocks larger than half of the free cells can share a grid. If first
+ * fit decreasing needs more grids than that, packings to fewer grids are tried with the
+ * blocks in slightly different orders until the time budget is used.
+ */
+public class BinPacker
+{
+    private static final long DEFAULT_NODE_LIMIT = 20000;
+    private static final long DEFAULT_TIME_BUDGET = 2000;
+    private static final int ATTEMPTS = 20;
+    private static final int[] NO_FIT = new int[0];
+
+    private final int m_sideLength;
+    private final long[] m_blocked;
+    private final int m_freeCellCount;
+    private int m_gridCount;
+    private long m_nodeLimit = DEFAULT_NODE_LIMIT;
+    private long m_timeBudget = DEFAULT_TIME_BUDGET;
+    private int m_lowerBound;
+
+    // Per packing
+    private List<Block> m_blocks;
+    private PlacementTable m_table;
+    private int[] m_shapeIds;
+    private Map<String, int[]> m_cache;
+    private Random m_random;
+    private long m_deadline;
+
+    public BinPacker( int sideLength )
+    {
+        this( sideLength, Collections.emptySet() );
+    }
+
+    /**
+     * Creates a packer to grids where the given cells are blocked.
+     *
+     * @param sideLength
+     * @param blockedCells
+     */
+    public BinPacker( int sideLength, Set<Point> blockedCells )
+    {
+        m_sideLength = sideLength;
+        m_blocked = Puzzle.createBlockedMask( sideLength, blockedCells );
+        m_freeCellCount = sideLength * sideLength - CellMask.cardinality( m_blocked );
+    }
+
+    /**
+     * Sets the amount of grids to pack to.
+     *
+     * @param gridCount zero to use as few grids as possible, otherwise some of the grids may be left empty
+     */
+    public void setGridCount( int gridCount )
+    {
+        m_gridCount = gridCount;
+    }
+
+    /**
+     * Sets the maximum amount of placements tried when checking if blocks fit to one grid.
+     * Blocks that aren't fitted within the limit are taken as not fitting.
+     *
+     * @param nodeLimit
+     */
+    public void setNodeLimit( long nodeLimit )
+    {
+        m_nodeLimit = nodeLimit;
+    }
+
+    /**
+     * Sets the time the packing may take after the first packing with first fit decreasing.
+     * Packings to fewer grids, or to the given amount of grids, are tried until the time is up.
+     *
+     * @param timeBudget milliseconds, zero for no limit
+     */
+    public void setTimeBudget( long timeBudget )
+    {
+        m_timeBudget = timeBudget;
+    }
+
+    /**
+     * Gets the least amount of grids the blocks of the last packing need.
+     *
+     * @return
+     */
+    public int getLowerBound()
+    {
+        return m_lowerBound;
+    }
+
+    /**
+     * Packs the blocks to the grids.
+     *
+     * @param blocks
+     * @return the result of each grid, null if the blocks couldn't be packed to the given amount of grids
+     * @throws Exception if no blocks were given or some block doesn't fit to a grid alone
+     */
+    public List<FittingResult> pack( List<Block> blocks ) throws Exception
+    {
+        if ( blocks == null || blocks.isEmpty() )
+        {
+            throw new Exception( "No blocks were given." );
+        }
+
+        m_blocks = new ArrayList<>( blocks );
+        m_cache = new HashMap<>();
+        m_random = new Random( 1 );
+        m_deadline = m_timeBudget > 0 ? System.nanoTime() + m_timeBudget * 1000000L : Long.MAX_VALUE;
+
+        // All blocks to one table to give the same shapes the same ids
+        PlacementTable table = new PlacementTable( m_sideLength, m_sideLength, m_blocks, m_blocked );
+        m_table = table;
+        int pieceCount = m_blocks.size();
+        m_shapeIds = new int[pieceCount];
+        int cellCount = 0;
+        int largeCount = 0;
+
+        for ( int piece = 0; piece < pieceCount; piece++ )
+        {
+            if ( table.getPlacementCount( piece ) == 0 )
+            {
+                throw new Exception( "The block " + m_blocks.get( piece ).getName() + " doesn't fit the grid." );
+            }
+            m_shapeIds[piece] = table.getClassIndex( piece );
+            cellCount += m_blocks.get( piece ).getSize();
+            if ( m_blocks.get( piece ).getSize() * 2 > m_freeCellCount )
+            {
+                largeCount++;
+            }
+        }
+        m_lowerBound = Math.max( largeCount, ( cellCount + m_freeCellCount - 1 ) / m_freeCellCount );
+
+        // Largest first, then the ones with fewest placements
+        List<Integer> order = new ArrayList<>();
+        for ( int piece = 0; piece < pieceCount; piece++ )
+        {
+            order.add( piece );
+        }
+        order.sort( Comparator.<Integer>comparingInt( piece -> -m_blocks.get( piece ).getSize() )
+                .thenComparingInt( table::getPlacementCount ) );
+
+        List<Grid> best;
+        if ( m_gridCount > 0 )
+        {
+            best = m_gridCount < m_lowerBound ? null : packInto( order, m_gridCount );
+            while ( best != null && best.size() < m_gridCount )
+            {
+                best.add( new Grid() );
+            }
+        }
+        else
+        {
+            // Each grid less until no order fits
+            best = packInto( order, Integer.MAX_VALUE );
+            List<Grid> grids = best;
+            while ( grids != null && best.size() > m_lowerBound && System.nanoTime() < m_deadline )
+            {
+                grids = packInto( order, best.size() - 1 );
+                best = grids == null ? best : grids;
+            }
+        }
+
+        return best == null ? null : createResults( best );
+    }
+
+    /**
+     * Tries the order and its variations until the blocks fit to the grids or the time is up.
+     *
+     * @return the grids, null if no order fit
+     */
+    private List<Grid> packInto( List<Integer> order, int gridCount )
+    {
+        List<Integer> attemptOrder = new ArrayList<>( order );
+
+        for ( int attempt = 0; attempt < ATTEMPTS && ( attempt == 0 || System.nanoTime() < m_deadline ); attempt++ )
+        {
+            List<Grid> grids = firstFit( attemptOrder, gridCount );
+            if ( grids != null || gridCount == Integer.MAX_VALUE )
+            {
+                return grids;
+            }
+
+            // Swap some neighbouring blocks of the original order
+            attemptOrder = new ArrayList<>( order );
+            for ( int i = 0; i < order.size() / 4 + 1; i++ )
+            {
+                int index = m_random.nextInt( order.size() );
+                Collections.swap( attemptOrder, index, Math.min( order.size() - 1, index + 1 ) );
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Puts each block to the first grid it fits to without moving the other blocks, or if
+     * there isn't any, to the first grid it fits to when the other blocks are moved.
+     *
+     * @return the grids, null if some block didn't fit to the given amount of grids
+     */
+    private List<Grid> firstFit( List<Integer> order, int gridCount )
+    {
+        List<Grid> grids = new ArrayList<>();
+
+        for ( int piece : order )
+        {
+            int size = m_blocks.get( piece ).getSize();
+            Grid target = null;
+            for ( int pass = 0; pass < 2 && target == null; pass++ )
+            {
+                for ( int i = 0; i < grids.size() && target == null; i++ )
+                {
+                    if ( grids.get( i ).m_freeCellCount >= size
+                         && ( target = grids.get( i ).add( piece, pass == 1 ) ) != null )
+                    {
+                        grids.set( i, target );
+                    }
+                }
+            }
+
+            if ( target == null )
+            {
+                if ( grids.size() == gridCount )
+                {
+                    return null;
+                }
+                grids.add( new Grid().add( piece, false ) );
+            }
+        }
+        return grids;
+    }
+
+    private List<FittingResult> createResults( List<Grid> grids )
+    {
+        List<FittingResult> results = new ArrayList<>();
+        for ( Grid grid : grids )
+        {
+            results.add( createTable( grid.m_pieces ).createResult( grid.m_placements ) );
+        }
+        return results;
+    }
+
+    private PlacementTable createTable( int[] pieces )
+    {
+        List<Block> blocks = new ArrayList<>();
+        for ( int piece : pieces )
+        {
+            blocks.add( m_blocks.get( piece ) );
+        }
+        return new PlacementTable( m_sideLength, m_sideLength, blocks, m_blocked );
+    }
+
+    /**
+     * Blocks put to one grid and their placements. The blocks are ordered by shape, so that
+     * grids with the same shapes have the same placement tables. A shape has the same
+     * placements in every table of the grid size, so the placements of the table of all blocks
+     * are valid in the table of the grid.
+     */
+    private class Grid
+    {
+        private final int[] m_pieces;
+        private final int[] m_placements;
+        private final long[] m_occupied;
+        private final int m_freeCellCount;
+
+        Grid()
+        {
+            this( new int[0], new int[0], BinPacker.this.m_freeCellCount );
+        }
+
+        Grid( int[] pieces, int[] placements, int freeCellCount )
+        {
+            m_pieces = pieces;
+            m_placements = placements;
+            m_freeCellCount = freeCellCount;
+            m_occupied = m_blocked.clone();
+            for ( int i = 0; i < pieces.length; i++ )
+            {
+                m_table.place( pieces[i], placements[i], m_occupied );
+            }
+        }
+
+        /**
+         * Creates the grid with the block added.
+         *
+         * @param piece
+         * @param move true to move the other blocks, false to put the block to the free cells
+         * @return the new grid, null if the block doesn't fit
+         */
+        Grid add( int piece, boolean move )
+        {
+            int count = m_pieces.length;
+            int index = 0;
+            while ( index < count && m_shapeIds[m_pieces[index]] <= m_shapeIds[piece] )
+            {
+                index++;
+            }
+
+            int[] pieces = insert( m_pieces, index, piece );
+            int freeCellCount = m_freeCellCount - m_blocks.get( piece ).getSize();
+
+            if ( !move )
+            {
+                for ( int placement = 0; placement < m_table.getPlacementCount( piece ); placement++ )
+                {
+                    if ( m_table.fits( piece, placement, m_occupied ) )
+                    {
+                        return new Grid( pieces, insert( m_placements, index, placement ), freeCellCount );
+                    }
+                }
+                return null;
+            }
+
+            StringBuilder key = new StringBuilder();
+            for ( int other : pieces )
+            {
+                key.append( m_shapeIds[other] ).append( ',' );
+            }
+
+            int[] placements = m_cache.get( key.toString() );
+            if ( placements == null )
+            {
+                placements = fit( pieces );
+                m_cache.put( key.toString(), placements );
+            }
+            return placements == NO_FIT ? null : new Grid( pieces, placements, freeCellCount );
+        }
+
+        /**
+         * Searches the placements of all blocks of the grid, up to the node limit.
+         */
+        private int[] fit( int[] pieces )
+        {
+            PlacementTable table = createTable( pieces );
+            if ( FeasibilityCheck.check( table ) != null )
+            {
+                return NO_FIT;
+            }
+
+            PlacementSearch search = new PlacementSearch( table );
+            search.setNodeLimit( m_nodeLimit );
+            int[] placements = search.findFirst();
+            return placements == null ? NO_FIT : placements;
+        }
+
+        private int[] insert( int[] values, int index, int value )
+        {
+            int[] inserted = new int[values.length + 1];
+            System.arraycopy( values, 0, inserted, 0, index );
+            inserted[index] = value;
+            System.arraycopy( values, index, inserted, index + 1, values.length - index );
+            return inserted;
+        }
+    }
+}
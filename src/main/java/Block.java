@@ -2,30 +2,45 @@ import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
- * Represents a block.
+ * Represents a block. A block is identified by its id, the name is only for the input and
+ * output (see {@link PieceNames}).
  */
 public class Block implements Comparable<Block>
 {
     private Set<Point> m_points;
-    private char m_name;
+    private int m_id;
+    private String m_name;
     private int m_baseWidth;
     private List<Point> m_triedStartPoints = new ArrayList<>();
     private boolean m_isInGrid = false;
     private boolean m_hasBeenFirst = false;
     
     /**
-     * Creates a new block with the given name and points.
+     * Creates a new block with the given id, single character name and points.
      * 
+     * @param id
      * @param name
      * @param points
      */
-    public Block( char name, Set<Point> points )
+    public Block( int id, char name, Set<Point> points )
     {
+        this( id, String.valueOf( name ), points );
+    }
+    
+    /**
+     * Creates a new block with the given id, name and points.
+     * 
+     * @param id
+     * @param name
+     * @param points
+     */
+    public Block( int id, String name, Set<Point> points )
+    {
+        m_id = id;
         m_name = name;
         m_points = points;
         findBaseWidth();
@@ -38,6 +53,7 @@ public class Block implements Comparable<Block>
      */
     public Block( Block block )
     {
+        m_id = block.m_id;
         m_name = block.m_name;
         m_baseWidth = block.m_baseWidth;
         m_points = new HashSet<>();
@@ -74,14 +90,21 @@ public class Block implements Comparable<Block>
      */
     private void findBaseWidth()
     {
-        m_baseWidth = (int)(long)m_points
-                .stream()
-                .collect( Collectors.groupingBy( p -> p.getY(), Collectors.counting() ) )
-                .entrySet()
-                .stream()
-                .min( Comparator.comparing( Map.Entry::getKey ) )
-                .get()
-                .getValue();
+        int minY = Integer.MAX_VALUE;
+        int width = 0;
+        for ( Point point : m_points )
+        {
+            if ( point.getY() < minY )
+            {
+                minY = point.getY();
+                width = 0;
+            }
+            if ( point.getY() == minY )
+            {
+                width++;
+            }
+        }
+        m_baseWidth = width;
     }
 
     
@@ -102,7 +125,12 @@ public class Block implements Comparable<Block>
      */
     public int getMinXvalue()
     {
-        return m_points.stream().map( p -> p.getX() ).min( Comparator.naturalOrder() ).get();
+        int minX = Integer.MAX_VALUE;
+        for ( Point point : m_points )
+        {
+            minX = Math.min( minX, point.getX() );
+        }
+        return minX;
     }
     
     /**
@@ -113,24 +141,16 @@ public class Block implements Comparable<Block>
      */
     public Point getLowestLeftPoint()
     {
-        Comparator<Point> minX = Comparator.comparing( Point::getX );
-        
-        return m_points
-                .stream().
-                filter( p -> p.getY() == getMinYvalue() )
-                .sorted( minX )
-                .findFirst()
-                .get();
-    }
-    
-    /**
-     * Get the smallest value of y among the points of the block.
-     * 
-     * @return
-     */
-    private int getMinYvalue()
-    {
-        return m_points.stream().map( p -> p.getY() ).min( Comparator.naturalOrder() ).get();
+        Point lowestLeft = null;
+        for ( Point point : m_points )
+        {
+            if ( lowestLeft == null || point.getY() < lowestLeft.getY()
+                    || ( point.getY() == lowestLeft.getY() && point.getX() < lowestLeft.getX() ) )
+            {
+                lowestLeft = point;
+            }
+        }
+        return lowestLeft;
     }
 
     /* *
@@ -173,7 +193,7 @@ public class Block implements Comparable<Block>
     {
         final int prime = 31;
         int result = 1;
-        result = prime * result + m_name;
+        result = prime * result + m_id;
         return result;
     }
 
@@ -190,12 +210,17 @@ public class Block implements Comparable<Block>
         if ( getClass() != obj.getClass() )
             return false;
         Block other = (Block)obj;
-        if ( m_name != other.m_name )
+        if ( m_id != other.m_id )
             return false;
         return true;
     }
 
-    public char getName()
+    public int getId()
+    {
+        return m_id;
+    }
+
+    public String getName()
     {
         return m_name;
     }
@@ -237,6 +262,7 @@ public class Block implements Comparable<Block>
     public String toString()
     {
         return "Block [m_points=" + m_points 
+                + ", m_id=" + m_id 
                 + ", m_name=" + m_name 
                 + ", m_baseWidth=" + m_baseWidth 
                 + ", m_triedStartPoints=" + m_triedStartPoints 
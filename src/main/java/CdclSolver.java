@@ -0,0 +1,908 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A small conflict-driven clause learning SAT solver.
+ * <p>
+ * Variables are numbered from 1 and literals are given like in DIMACS: <code>v</code> is the
+ * variable being true and <code>-v</code> the variable being false. Internally a literal is
+ * <code>2 * v</code> (true) or <code>2 * v + 1</code> (false).
+ * <p>
+ * The solver uses two watched literals, first-UIP learning with clause minimization, activity based decisions with
+ * saved phases, Luby restarts and removes learnt clauses that don't seem useful. The binary clauses are watched
+ * apart with the other literal, so they are propagated without looking at the clause. Decision groups (see
+ * {@link #addDecisionGroup(int...)}) let the problem tell where to decide first.
+ */
+public class CdclSolver
+{
+    public enum Result
+    {
+        SATISFIABLE,
+        UNSATISFIABLE,
+        UNKNOWN
+    }
+
+    private static final int RESTART_BASE = 100;
+    private static final int REDUCE_BASE = 2000;
+    private static final int REDUCE_INCREMENT = 300;
+    private static final double ACTIVITY_DECAY = 0.95;
+
+    /**
+     * A clause. The literals at the positions 0 and 1 are watched, and the literal at 0 is
+     * the implied one when the clause is a reason.
+     */
+    private static class Clause
+    {
+        final int[] m_literals;
+        final boolean m_learnt;
+        int m_lbd;
+        boolean m_deleted;
+
+        Clause( int[] literals, boolean learnt )
+        {
+            m_literals = literals;
+            m_learnt = learnt;
+        }
+    }
+
+    private int m_variableCount;
+    private boolean m_unsatisfiable;
+    private final List<Clause> m_learnts = new ArrayList<>();
+    private final List<int[]> m_groups = new ArrayList<>();
+    // The groups before it have a true variable or no unassigned ones
+    private int m_groupCursor;
+
+    // Per literal
+    private byte[] m_values = new byte[4];
+    private Clause[][] m_watches = new Clause[4][];
+    // A literal of each watched clause, the clause is satisfied when it is true
+    private int[][] m_blockers = new int[4][];
+    private int[] m_watchCounts = new int[4];
+    // The binary clauses of the literal and their other literals, implied when the literal is false
+    private Clause[][] m_binaries = new Clause[4][];
+    private int[][] m_binaryOthers = new int[4][];
+    private int[] m_binaryCounts = new int[4];
+
+    // Per variable
+    private int[] m_levels = new int[2];
+    private Clause[] m_reasons = new Clause[2];
+    private double[] m_activity = new double[2];
+    private boolean[] m_phases = new boolean[2];
+    private boolean[] m_seen = new boolean[2];
+    private boolean[] m_model = new boolean[2];
+    private int[] m_heap = new int[2];
+    private int[] m_heapIndex = new int[2];
+    private int m_heapSize;
+
+    private int[] m_stack = new int[2];
+    private int[] m_toClear = new int[2];
+    private int m_clearCount;
+
+    private int[] m_trail = new int[2];
+    private int m_trailSize;
+    private int[] m_trailLimits = new int[2];
+    private int m_level;
+    private int m_propagated;
+
+    private double m_activityIncrement = 1;
+    private long m_conflictLimit = Long.MAX_VALUE;
+    private long m_conflicts;
+    private long m_decisions;
+
+    /**
+     * Creates a new variable.
+     *
+     * @return the number of the variable
+     */
+    public int newVariable()
+    {
+        int variable = ++m_variableCount;
+        ensureCapacity( variable );
+        m_heapIndex[variable] = -1;
+        heapInsert( variable );
+        return variable;
+    }
+
+    /**
+     * Sets the value tried first when the solver decides the variable.
+     *
+     * @param variable
+     * @param value
+     */
+    public void setPhase( int variable, boolean value )
+    {
+        m_phases[variable] = value;
+    }
+
+    /**
+     * Sets the initial activity of the variable. Variables with higher activity are decided first
+     * until the conflicts have changed the activities.
+     *
+     * @param variable
+     * @param activity a value between 0 and 1
+     */
+    public void setInitialActivity( int variable, double activity )
+    {
+        m_activity[variable] = activity;
+        if ( m_heapIndex[variable] >= 0 )
+        {
+            heapUp( m_heapIndex[variable] );
+            heapDown( m_heapIndex[variable] );
+        }
+    }
+
+    public int getVariableCount()
+    {
+        return m_variableCount;
+    }
+
+    /**
+     * Sets the maximum amount of conflicts before {@link #solve()} gives up.
+     *
+     * @param conflictLimit
+     */
+    public void setConflictLimit( long conflictLimit )
+    {
+        m_conflictLimit = conflictLimit;
+    }
+
+    public long getConflictCount()
+    {
+        return m_conflicts;
+    }
+
+    public long getDecisionCount()
+    {
+        return m_decisions;
+    }
+
+    /**
+     * Adds a clause. Clauses can only be added before solving.
+     *
+     * @param literals DIMACS literals of existing variables
+     */
+    public void addClause( int... literals )
+    {
+        if ( m_unsatisfiable )
+        {
+            return;
+        }
+
+        int[] clause = new int[literals.length];
+        int size = 0;
+
+        for ( int literal : literals )
+        {
+            int internal = toInternal( literal );
+            if ( m_values[internal] == 1 || contains( clause, size, internal ^ 1 ) )
+            {
+                // Already satisfied
+                return;
+            }
+            if ( m_values[internal] == 0 && !contains( clause, size, internal ) )
+            {
+                clause[size++] = internal;
+            }
+        }
+
+        if ( size == 0 )
+        {
+            m_unsatisfiable = true;
+        }
+        else if ( size == 1 )
+        {
+            enqueue( clause[0], null );
+            m_unsatisfiable = propagate() != null;
+        }
+        else
+        {
+            watch( new Clause( Arrays.copyOf( clause, size ), false ) );
+        }
+    }
+
+    /**
+     * Adds a decision group. As long as some group has no true variable but has unassigned
+     * ones, the solver decides the most active unassigned variable of the first such group
+     * true, in the order the groups were added. The other variables are decided after the
+     * groups. E.g. the groups of an exact cover are the placements covering each cell, so that
+     * the first uncovered cell is always covered next.
+     *
+     * @param variables
+     */
+    public void addDecisionGroup( int... variables )
+    {
+        m_groups.add( variables.clone() );
+    }
+
+    /**
+     * Solves the clauses added so far.
+     *
+     * @return
+     */
+    public Result solve()
+    {
+        if ( m_unsatisfiable )
+        {
+            return Result.UNSATISFIABLE;
+        }
+
+        long startConflicts = m_conflicts;
+        long nextRestart = m_conflicts + RESTART_BASE * luby( 0 );
+        long nextReduce = m_conflicts + REDUCE_BASE;
+        int restarts = 0;
+        int reductions = 0;
+        int[] learnt = new int[m_variableCount + 1];
+
+        while ( true )
+        {
+            Clause conflict = propagate();
+
+            if ( conflict != null )
+            {
+                m_conflicts++;
+                if ( m_level == 0 )
+                {
+                    m_unsatisfiable = true;
+                    return Result.UNSATISFIABLE;
+                }
+
+                int size = analyze( conflict, learnt );
+                int backjumpLevel = size == 1 ? 0 : m_levels[learnt[1] >> 1];
+                backtrack( backjumpLevel );
+
+                if ( size == 1 )
+                {
+                    enqueue( learnt[0], null );
+                }
+                else
+                {
+                    Clause clause = new Clause( Arrays.copyOf( learnt, size ), true );
+                    clause.m_lbd = computeLbd( clause.m_literals );
+                    watch( clause );
+                    if ( size > 2 )
+                    {
+                        // The binary clauses are kept
+                        m_learnts.add( clause );
+                    }
+                    enqueue( learnt[0], clause );
+                }
+                m_activityIncrement /= ACTIVITY_DECAY;
+
+                if ( m_conflicts - startConflicts >= m_conflictLimit )
+                {
+                    backtrack( 0 );
+                    return Result.UNKNOWN;
+                }
+                if ( m_conflicts >= nextRestart )
+                {
+                    backtrack( 0 );
+                    nextRestart = m_conflicts + RESTART_BASE * luby( ++restarts );
+                }
+                if ( m_conflicts >= nextReduce )
+                {
+                    reduceLearnts();
+                    nextReduce = m_conflicts + REDUCE_BASE + REDUCE_INCREMENT * ++reductions;
+                }
+            }
+            else
+            {
+                int literal = pickGroupLiteral();
+                int variable = literal >> 1;
+                if ( literal == 0 )
+                {
+                    variable = pickBranchVariable();
+                    literal = 2 * variable + ( m_phases[variable] ? 0 : 1 );
+                }
+                if ( variable == 0 )
+                {
+                    for ( int v = 1; v <= m_variableCount; v++ )
+                    {
+                        m_model[v] = m_values[2 * v] == 1;
+                    }
+                    backtrack( 0 );
+                    return Result.SATISFIABLE;
+                }
+
+                m_decisions++;
+                newLevel();
+                enqueue( literal, null );
+            }
+        }
+    }
+
+    /**
+     * Gets the value of the variable in the model found by the last successful {@link #solve()}.
+     *
+     * @param variable
+     * @return
+     */
+    public boolean getValue( int variable )
+    {
+        return m_model[variable];
+    }
+
+    private Clause propagate()
+    {
+        while ( m_propagated < m_trailSize )
+        {
+            int falseLiteral = m_trail[m_propagated++] ^ 1;
+
+            Clause[] binaries = m_binaries[falseLiteral];
+            int[] others = m_binaryOthers[falseLiteral];
+            for ( int i = 0; i < m_binaryCounts[falseLiteral]; i++ )
+            {
+                int other = others[i];
+                if ( m_values[other] == 1 )
+                {
+                    continue;
+                }
+                if ( m_values[other] == -1 )
+                {
+                    m_propagated = m_trailSize;
+                    return binaries[i];
+                }
+                // The implied literal goes first in a reason
+                int[] literals = binaries[i].m_literals;
+                literals[0] = other;
+                literals[1] = falseLiteral;
+                enqueue( other, binaries[i] );
+            }
+
+            Clause[] watches = m_watches[falseLiteral];
+            int[] blockers = m_blockers[falseLiteral];
+            int count = m_watchCounts[falseLiteral];
+            int kept = 0;
+            int i = 0;
+
+            while ( i < count )
+            {
+                int blocker = blockers[i];
+                if ( m_values[blocker] == 1 )
+                {
+                    if ( kept < i )
+                    {
+                        watches[kept] = watches[i];
+                        blockers[kept] = blocker;
+                    }
+                    kept++;
+                    i++;
+                    continue;
+                }
+                Clause clause = watches[i++];
+                if ( clause.m_deleted )
+                {
+                    continue;
+                }
+
+                int[] literals = clause.m_literals;
+                if ( literals[0] == falseLiteral )
+                {
+                    literals[0] = literals[1];
+                    literals[1] = falseLiteral;
+                }
+
+                if ( m_values[literals[0]] == 1 )
+                {
+                    watches[kept] = clause;
+                    blockers[kept++] = literals[0];
+                    continue;
+                }
+
+                // Look for a new literal to watch
+                boolean moved = false;
+                for ( int k = 2; k < literals.length; k++ )
+                {
+                    if ( m_values[literals[k]] != -1 )
+                    {
+                        literals[1] = literals[k];
+                        literals[k] = falseLiteral;
+                        addWatch( literals[1], clause, literals[0] );
+                        moved = true;
+                        break;
+                    }
+                }
+                if ( moved )
+                {
+                    continue;
+                }
+
+                watches[kept] = clause;
+                blockers[kept++] = literals[0];
+                if ( m_values[literals[0]] == -1 )
+                {
+                    // Conflict, keep the rest of the watches
+                    while ( i < count )
+                    {
+                        watches[kept] = watches[i];
+                        blockers[kept++] = blockers[i++];
+                    }
+                    m_watchCounts[falseLiteral] = kept;
+                    m_propagated = m_trailSize;
+                    return clause;
+                }
+                enqueue( literals[0], clause );
+            }
+
+            m_watchCounts[falseLiteral] = kept;
+        }
+
+        return null;
+    }
+
+    /**
+     * Finds the first unique implication point of the conflict.
+     *
+     * @return the size of the learnt clause stored to <code>learnt</code>, the asserting
+     *         literal first and a literal of the highest remaining level second
+     */
+    private int analyze( Clause conflict, int[] learnt )
+    {
+        int size = 1;
+        int pathCount = 0;
+        int literal = -1;
+        int index = m_trailSize - 1;
+        Clause clause = conflict;
+
+        do
+        {
+            int[] literals = clause.m_literals;
+            for ( int k = literal == -1 ? 0 : 1; k < literals.length; k++ )
+            {
+                int variable = literals[k] >> 1;
+                if ( !m_seen[variable] && m_levels[variable] > 0 )
+                {
+                    bumpActivity( variable );
+                    m_seen[variable] = true;
+                    if ( m_levels[variable] >= m_level )
+                    {
+                        pathCount++;
+                    }
+                    else
+                    {
+                        learnt[size++] = literals[k];
+                    }
+                }
+            }
+
+            while ( !m_seen[m_trail[index] >> 1] )
+            {
+                index--;
+            }
+            literal = m_trail[index--];
+            clause = m_reasons[literal >> 1];
+            m_seen[literal >> 1] = false;
+            pathCount--;
+        }
+        while ( pathCount > 0 );
+
+        learnt[0] = literal ^ 1;
+
+        // Drop the literals implied by the other literals of the clause
+        int levels = 0;
+        for ( int k = 1; k < size; k++ )
+        {
+            levels |= abstractLevel( learnt[k] >> 1 );
+        }
+        m_clearCount = 0;
+        int kept = 1;
+        for ( int k = 1; k < size; k++ )
+        {
+            if ( m_reasons[learnt[k] >> 1] == null || !isRedundant( learnt[k], levels ) )
+            {
+                learnt[kept++] = learnt[k];
+            }
+            else
+            {
+                m_toClear[m_clearCount++] = learnt[k] >> 1;
+            }
+        }
+        for ( int k = 1; k < kept; k++ )
+        {
+            m_seen[learnt[k] >> 1] = false;
+        }
+        for ( int k = 0; k < m_clearCount; k++ )
+        {
+            m_seen[m_toClear[k]] = false;
+        }
+        size = kept;
+
+        int highest = 1;
+        for ( int k = 1; k < size; k++ )
+        {
+            if ( m_levels[learnt[k] >> 1] > m_levels[learnt[highest] >> 1] )
+            {
+                highest = k;
+            }
+        }
+        if ( size > 1 )
+        {
+            int swap = learnt[1];
+            learnt[1] = learnt[highest];
+            learnt[highest] = swap;
+        }
+
+        return size;
+    }
+
+    /**
+     * Checks if the literal of the learnt clause is implied by the other literals (marked as seen).
+     */
+    private boolean isRedundant( int literal, int levels )
+    {
+        int stackSize = 0;
+        int clearStart = m_clearCount;
+        m_stack[stackSize++] = literal;
+
+        while ( stackSize > 0 )
+        {
+            int[] literals = m_reasons[m_stack[--stackSize] >> 1].m_literals;
+            for ( int k = 1; k < literals.length; k++ )
+            {
+                int variable = literals[k] >> 1;
+                if ( !m_seen[variable] && m_levels[variable] > 0 )
+                {
+                    if ( m_reasons[variable] != null && ( abstractLevel( variable ) & levels ) != 0 )
+                    {
+                        m_seen[variable] = true;
+                        m_stack[stackSize++] = literals[k];
+                        m_toClear[m_clearCount++] = variable;
+                    }
+                    else
+                    {
+                        for ( int i = clearStart; i < m_clearCount; i++ )
+                        {
+                            m_seen[m_toClear[i]] = false;
+                        }
+                        m_clearCount = clearStart;
+                        return false;
+                    }
+                }
+            }
+        }
+
+        return true;
+    }
+
+    private int abstractLevel( int variable )
+    {
+        return 1 << ( m_levels[variable] & 31 );
+    }
+
+    private int computeLbd( int[] literals )
+    {
+        int[] levels = new int[literals.length];
+        int count = 0;
+
+        for ( int literal : literals )
+        {
+            int level = m_levels[literal >> 1];
+            if ( !contains( levels, count, level ) )
+            {
+                levels[count++] = level;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Removes half of the learnt clauses, the ones with the most different decision levels first.
+     */
+    private void reduceLearnts()
+    {
+        m_learnts.sort( ( c1, c2 ) -> Integer.compare( c2.m_lbd, c1.m_lbd ) );
+        int limit = m_learnts.size() / 2;
+        List<Clause> kept = new ArrayList<>();
+
+        for ( int i = 0; i < m_learnts.size(); i++ )
+        {
+            Clause clause = m_learnts.get( i );
+            if ( i < limit && clause.m_lbd > 2 && !isReason( clause ) )
+            {
+                clause.m_deleted = true;
+            }
+            else
+            {
+                kept.add( clause );
+            }
+        }
+
+        m_learnts.clear();
+        m_learnts.addAll( kept );
+    }
+
+    private boolean isReason( Clause clause )
+    {
+        int variable = clause.m_literals[0] >> 1;
+        return m_reasons[variable] == clause && m_values[clause.m_literals[0]] == 1;
+    }
+
+    private void enqueue( int literal, Clause reason )
+    {
+        int variable = literal >> 1;
+        m_values[literal] = 1;
+        m_values[literal ^ 1] = -1;
+        m_levels[variable] = m_level;
+        m_reasons[variable] = reason;
+        m_trail[m_trailSize++] = literal;
+    }
+
+    private void newLevel()
+    {
+        m_trailLimits[m_level++] = m_trailSize;
+    }
+
+    private void backtrack( int level )
+    {
+        if ( m_level <= level )
+        {
+            return;
+        }
+
+        int limit = m_trailLimits[level];
+        for ( int i = m_trailSize - 1; i >= limit; i-- )
+        {
+            int literal = m_trail[i];
+            int variable = literal >> 1;
+            m_phases[variable] = ( literal & 1 ) == 0;
+            m_values[literal] = 0;
+            m_values[literal ^ 1] = 0;
+            m_reasons[variable] = null;
+            if ( m_heapIndex[variable] < 0 )
+            {
+                heapInsert( variable );
+            }
+        }
+
+        m_trailSize = limit;
+        m_propagated = limit;
+        m_level = level;
+        m_groupCursor = 0;
+    }
+
+    /**
+     * Finds the decision of the first open decision group.
+     *
+     * @return the literal, 0 if no group is open
+     */
+    private int pickGroupLiteral()
+    {
+        for ( ; m_groupCursor < m_groups.size(); m_groupCursor++ )
+        {
+            int[] group = m_groups.get( m_groupCursor );
+            int best = 0;
+            for ( int variable : group )
+            {
+                byte value = m_values[2 * variable];
+                if ( value == 1 )
+                {
+                    best = 0;
+                    break;
+                }
+                if ( value == 0 && ( best == 0 || m_activity[variable] > m_activity[best] ) )
+                {
+                    best = variable;
+                }
+            }
+            if ( best != 0 )
+            {
+                return 2 * best;
+            }
+        }
+        return 0;
+    }
+
+    private int pickBranchVariable()
+    {
+        while ( m_heapSize > 0 )
+        {
+            int variable = heapRemoveMax();
+            if ( m_values[2 * variable] == 0 )
+            {
+                return variable;
+            }
+        }
+        return 0;
+    }
+
+    private void bumpActivity( int variable )
+    {
+        m_activity[variable] += m_activityIncrement;
+        if ( m_activity[variable] > 1e100 )
+        {
+            for ( int v = 1; v <= m_variableCount; v++ )
+            {
+                m_activity[v] *= 1e-100;
+            }
+            m_activityIncrement *= 1e-100;
+        }
+        if ( m_heapIndex[variable] >= 0 )
+        {
+            heapUp( m_heapIndex[variable] );
+        }
+    }
+
+    private void watch( Clause clause )
+    {
+        int[] literals = clause.m_literals;
+        if ( literals.length == 2 )
+        {
+            addBinary( literals[0], literals[1], clause );
+            addBinary( literals[1], literals[0], clause );
+        }
+        else
+        {
+            addWatch( literals[0], clause, literals[1] );
+            addWatch( literals[1], clause, literals[0] );
+        }
+    }
+
+    private void addBinary( int literal, int other, Clause clause )
+    {
+        int count = m_binaryCounts[literal];
+        if ( m_binaries[literal] == null )
+        {
+            m_binaries[literal] = new Clause[4];
+            m_binaryOthers[literal] = new int[4];
+        }
+        else if ( count == m_binaries[literal].length )
+        {
+            m_binaries[literal] = Arrays.copyOf( m_binaries[literal], count * 2 );
+            m_binaryOthers[literal] = Arrays.copyOf( m_binaryOthers[literal], count * 2 );
+        }
+        m_binaries[literal][count] = clause;
+        m_binaryOthers[literal][count] = other;
+        m_binaryCounts[literal]++;
+    }
+
+    private void addWatch( int literal, Clause clause, int blocker )
+    {
+        int count = m_watchCounts[literal];
+        if ( m_watches[literal] == null )
+        {
+            m_watches[literal] = new Clause[4];
+            m_blockers[literal] = new int[4];
+        }
+        else if ( count == m_watches[literal].length )
+        {
+            m_watches[literal] = Arrays.copyOf( m_watches[literal], count * 2 );
+            m_blockers[literal] = Arrays.copyOf( m_blockers[literal], count * 2 );
+        }
+        m_watches[literal][count] = clause;
+        m_blockers[literal][count] = blocker;
+        m_watchCounts[literal]++;
+    }
+
+    private void heapInsert( int variable )
+    {
+        m_heap[m_heapSize] = variable;
+        m_heapIndex[variable] = m_heapSize;
+        heapUp( m_heapSize++ );
+    }
+
+    private int heapRemoveMax()
+    {
+        int top = m_heap[0];
+        m_heapIndex[top] = -1;
+        int last = m_heap[--m_heapSize];
+        if ( m_heapSize > 0 )
+        {
+            m_heap[0] = last;
+            m_heapIndex[last] = 0;
+            heapDown( 0 );
+        }
+        return top;
+    }
+
+    private void heapUp( int index )
+    {
+        int variable = m_heap[index];
+        while ( index > 0 )
+        {
+            int parent = ( index - 1 ) >> 1;
+            if ( m_activity[m_heap[parent]] >= m_activity[variable] )
+            {
+                break;
+            }
+            m_heap[index] = m_heap[parent];
+            m_heapIndex[m_heap[index]] = index;
+            index = parent;
+        }
+        m_heap[index] = variable;
+        m_heapIndex[variable] = index;
+    }
+
+    private void heapDown( int index )
+    {
+        int variable = m_heap[index];
+        while ( true )
+        {
+            int child = 2 * index + 1;
+            if ( child >= m_heapSize )
+            {
+                break;
+            }
+            if ( child + 1 < m_heapSize && m_activity[m_heap[child + 1]] > m_activity[m_heap[child]] )
+            {
+                child++;
+            }
+            if ( m_activity[m_heap[child]] <= m_activity[variable] )
+            {
+                break;
+            }
+            m_heap[index] = m_heap[child];
+            m_heapIndex[m_heap[index]] = index;
+            index = child;
+        }
+        m_heap[index] = variable;
+        m_heapIndex[variable] = index;
+    }
+
+    private void ensureCapacity( int variable )
+    {
+        if ( variable < m_levels.length )
+        {
+            return;
+        }
+
+        int capacity = Math.max( variable + 1, m_levels.length * 2 );
+        m_values = Arrays.copyOf( m_values, 2 * capacity );
+        m_watches = Arrays.copyOf( m_watches, 2 * capacity );
+        m_blockers = Arrays.copyOf( m_blockers, 2 * capacity );
+        m_watchCounts = Arrays.copyOf( m_watchCounts, 2 * capacity );
+        m_binaries = Arrays.copyOf( m_binaries, 2 * capacity );
+        m_binaryOthers = Arrays.copyOf( m_binaryOthers, 2 * capacity );
+        m_binaryCounts = Arrays.copyOf( m_binaryCounts, 2 * capacity );
+        m_levels = Arrays.copyOf( m_levels, capacity );
+        m_reasons = Arrays.copyOf( m_reasons, capacity );
+        m_activity = Arrays.copyOf( m_activity, capacity );
+        m_phases = Arrays.copyOf( m_phases, capacity );
+        m_seen = Arrays.copyOf( m_seen, capacity );
+        m_model = Arrays.copyOf( m_model, capacity );
+        m_heap = Arrays.copyOf( m_heap, capacity );
+        m_heapIndex = Arrays.copyOf( m_heapIndex, capacity );
+        m_trail = Arrays.copyOf( m_trail, capacity );
+        m_stack = Arrays.copyOf( m_stack, capacity );
+        m_toClear = Arrays.copyOf( m_toClear, capacity );
+        m_trailLimits = Arrays.copyOf( m_trailLimits, capacity );
+    }
+
+    private static int toInternal( int literal )
+    {
+        return literal > 0 ? 2 * literal : -2 * literal + 1;
+    }
+
+    private static boolean contains( int[] values, int size, int value )
+    {
+        for ( int i = 0; i < size; i++ )
+        {
+            if ( values[i] == value )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The Luby sequence 1, 1, 2, 1, 1, 2, 4, ...
+     */
+    private static long luby( int index )
+    {
+        int size = 1;
+        int sequence = 0;
+
+        while ( size < index + 1 )
+        {
+            sequence++;
+            size = 2 * size + 1;
+        }
+        while ( size - 1 != index )
+        {
+            size = ( size - 1 ) >> 1;
+            sequence--;
+            index = index % size;
+        }
+        return 1L << sequence;
+    }
+}
@@ -0,0 +1,222 @@
+/**
+ * Helper methods for grid occupancy masks. A mask is a <code>long[]</code> where
+ * the cell (x,y) of a grid with the given width is the bit <code>y * width + x</code>.
+ */
+public final class CellMask
+{
+    private CellMask()
+    {
+    }
+
+    /**
+     * Creates an empty mask big enough for the given amount of cells.
+     *
+     * @param cellCount
+     * @return
+     */
+    public static long[] create( int cellCount )
+    {
+        return new long[wordCount( cellCount )];
+    }
+
+    /**
+     * Number of 64-bit words needed for the given amount of cells.
+     *
+     * @param cellCount
+     * @return
+     */
+    public static int wordCount( int cellCount )
+    {
+        return Math.max( 1, ( cellCount + 63 ) >>> 6 );
+    }
+
+    public static void set( long[] mask, int cell )
+    {
+        mask[cell >>> 6] |= 1L << cell;
+    }
+
+    public static void clear( long[] mask, int cell )
+    {
+        mask[cell >>> 6] &= ~( 1L << cell );
+    }
+
+    public static boolean get( long[] mask, int cell )
+    {
+        return ( mask[cell >>> 6] & ( 1L << cell ) ) != 0;
+    }
+
+    /**
+     * Sets the cells from <code>from</code> (inclusive) to <code>to</code> (exclusive).
+     *
+     * @param mask
+     * @param from
+     * @param to
+     */
+    public static void setRange( long[] mask, int from, int to )
+    {
+        if ( from >= to )
+        {
+            return;
+        }
+        int first = from >>> 6;
+        int last = ( to - 1 ) >>> 6;
+        long firstBits = -1L << from;
+        long lastBits = -1L >>> -to;
+        if ( first == last )
+        {
+            mask[first] |= firstBits & lastBits;
+            return;
+        }
+        mask[first] |= firstBits;
+        for ( int i = first + 1; i < last; i++ )
+        {
+            mask[i] = -1L;
+        }
+        mask[last] |= lastBits;
+    }
+
+    /**
+     * Sets to <code>target</code> the bits of <code>source</code> moved by the given amount
+     * (negative moves to smaller indexes). Bits moved outside of the array are dropped.
+     *
+     * @param source
+     * @param shift
+     * @param target
+     */
+    public static void shiftOr( long[] source, int shift, long[] target )
+    {
+        int words = shift >> 6;
+        int bits = shift & 63;
+        // Only the words the source moves on can change
+        int end = Math.min( target.length, source.length + words + 1 );
+
+        for ( int i = Math.max( 0, words ); i < end; i++ )
+        {
+            int from = i - words;
+            long low = from >= 0 && from < source.length ? source[from] : 0;
+            long lower = from - 1 >= 0 && from - 1 < source.length ? source[from - 1] : 0;
+            target[i] |= bits == 0 ? low : ( low << bits ) | ( lower >>> ( 64 - bits ) );
+        }
+    }
+
+    /**
+     * Checks if the mask stored at the given offset of <code>masks</code> shares any cell
+     * with <code>occupied</code>.
+     *
+     * @param masks
+     * @param offset
+     * @param occupied
+     * @return true if any cell is in both masks, false otherwise
+     */
+    public static boolean intersects( long[] masks, int offset, long[] occupied )
+    {
+        for ( int i = 0; i < occupied.length; i++ )
+        {
+            if ( ( masks[offset + i] & occupied[i] ) != 0 )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Adds the cells of the mask stored at the given offset to <code>occupied</code>.
+     *
+     * @param masks
+     * @param offset
+     * @param occupied
+     */
+    public static void or( long[] masks, int offset, long[] occupied )
+    {
+        for ( int i = 0; i < occupied.length; i++ )
+        {
+            occupied[i] |= masks[offset + i];
+        }
+    }
+
+    /**
+     * Removes the cells of the mask stored at the given offset from <code>occupied</code>.
+     *
+     * @param masks
+     * @param offset
+     * @param occupied
+     */
+    public static void andNot( long[] masks, int offset, long[] occupied )
+    {
+        for ( int i = 0; i < occupied.length; i++ )
+        {
+            occupied[i] &= ~masks[offset + i];
+        }
+    }
+
+    /**
+     * Finds the first cell not set in the mask, starting from the given cell.
+     *
+     * @param mask
+     * @param from
+     * @param cellCount
+     * @return index of the cell, -1 if all cells are set
+     */
+    public static int nextClear( long[] mask, int from, int cellCount )
+    {
+        int word = from >>> 6;
+        if ( word >= mask.length )
+        {
+            return -1;
+        }
+        long bits = ~mask[word] & ( -1L << from );
+        while ( true )
+        {
+            if ( bits != 0 )
+            {
+                int cell = ( word << 6 ) + Long.numberOfTrailingZeros( bits );
+                return cell < cellCount ? cell : -1;
+            }
+            if ( ++word == mask.length )
+            {
+                return -1;
+            }
+            bits = ~mask[word];
+        }
+    }
+
+    /**
+     * Finds the first cell set in the mask, starting from the given cell.
+     *
+     * @param mask
+     * @param from
+     * @return index of the cell, -1 if no cell is set
+     */
+    public static int nextSet( long[] mask, int from )
+    {
+        int word = from >>> 6;
+        if ( word >= mask.length )
+        {
+            return -1;
+        }
+        long bits = mask[word] & ( -1L << from );
+        while ( true )
+        {
+            if ( bits != 0 )
+            {
+                return ( word << 6 ) + Long.numberOfTrailingZeros( bits );
+            }
+            if ( ++word == mask.length )
+            {
+                return -1;
+            }
+            bits = mask[word];
+        }
+    }
+
+    public static int cardinality( long[] mask )
+    {
+        int count = 0;
+        for ( long word : mask )
+        {
+            count += Long.bitCount( word );
+        }
+        return count;
+    }
+}
@@ -1,35 +1,70 @@
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
 
 /**
  * Main class
  */
 public class CodeTest
 {
+    private static final String STREAM_OPTION = "-stream";
+    private static final String PACK_OPTION = "-pack";
+    private static final String COVER_OPTION = "-cover";
+    private static final String MIDDLE_OPTION = "-middle";
+    private static final String STRIP_OPTION = "-strip";
     
     /**
      * Runs the process of fitting blocks to the grid.
      * 
-     * @param args Text file containing the coordinates of the blocks
+     * @param args Text file containing the coordinates of the blocks, and optionally a
+     *             piece library file (see {@link PieceLibrary})
      */
     public static void main( String[] args )
     {
-        if ( args.length != 1 )
+        if ( args.length > 0 && args[0].equals( STREAM_OPTION ) )
+        {
+            runStream( args );
+            return;
+        }
+        if ( args.length > 0 && args[0].equals( PACK_OPTION ) )
+        {
+            runPack( args );
+            return;
+        }
+        if ( args.length > 0 && args[0].equals( COVER_OPTION ) )
+        {
+            runCover( args );
+            return;
+        }
+        if ( args.length > 0 && args[0].equals( MIDDLE_OPTION ) )
+        {
+            runMiddle( args );
+            return;
+        }
+        if ( args.length > 0 && args[0].equals( STRIP_OPTION ) )
+        {
+            runStrip( args );
+            return;
+        }
+        
+        if ( args.length < 1 || args.length > 2 )
         {
             System.err.println( "Missing input file." );
             return;
         }
         
-        List<Block> blocks = null;
+        Puzzle puzzle = null;
+        PieceLibrary library = null;
         
         try
         {
-            blocks = parseInputFile( args[0] );
+            puzzle = parseInputFile( args[0] );
         }
         catch ( Exception e )
         {
@@ -37,10 +72,24 @@ public class CodeTest
             return;
         }
         
+        if ( args.length == 2 )
+        {
+            try
+            {
+                library = PieceLibrary.open( Paths.get( args[1] ) );
+            }
+            catch ( Exception e )
+            {
+                System.err.println( "Failed to read piece library: " + e.getMessage() );
+                return;
+            }
+        }
+        
         try
         {
-            FitToGrid fitToGrid = new FitToGrid( 4 );
-            FittingResult fittingResult = fitToGrid.fitBlocks( blocks );
+            FitToGrid fitToGrid = new FitToGrid( puzzle.getSideLength(), puzzle.getBlockedCells() );
+            fitToGrid.setPieceLibrary( library );
+            FittingResult fittingResult = fitToGrid.fitBlocks( puzzle.getBlocks() );
             
             if ( fittingResult == null )
             {
@@ -61,37 +110,280 @@ public class CodeTest
     }
 
     /**
-     * Parse input file and create the block list from it.
+     * Solves the puzzles of the standard input to the standard output, see {@link StreamSolver}.
+     * 
+     * @param args -stream [-threads &lt;count&gt;] [-pending &lt;count&gt;] [-unordered] [-library &lt;file&gt;]
+     */
+    private static void runStream( String[] args )
+    {
+        StreamSolver solver = new StreamSolver();
+        
+        try
+        {
+            for ( int i = 1; i < args.length; i++ )
+            {
+                switch ( args[i] )
+                {
+                    case "-threads":
+                        solver.setThreadCount( Integer.parseInt( args[++i] ) );
+                        break;
+                    case "-pending":
+                        solver.setMaxPending( Integer.parseInt( args[++i] ) );
+                        break;
+                    case "-unordered":
+                        solver.setOrdered( false );
+                        break;
+                    case "-library":
+                        solver.setPieceLibrary( PieceLibrary.open( Paths.get( args[++i] ) ) );
+                        break;
+                    default:
+                        throw new Exception( "Unknown option " + args[i] );
+                }
+            }
+        }
+        catch ( Exception e )
+        {
+            System.err.println( "Invalid arguments: " + e.getMessage() );
+            return;
+        }
+        
+        try
+        {
+            BufferedReader input = new BufferedReader( new InputStreamReader( System.in, StandardCharsets.UTF_8 ) );
+            PrintWriter output = new PrintWriter( new OutputStreamWriter( System.out, StandardCharsets.UTF_8 ) );
+            solver.run( input, output );
+        }
+        catch ( Exception e )
+        {
+            System.err.println( "Failed to read the stream: " + e.getMessage() );
+        }
+    }
+
+    /**
+     * Packs the blocks of the input file to several grids of its side length, see {@link BinPacker}.
+     * 
+     * @param args -pack [-grids &lt;count&gt;] &lt;input file&gt;
+     */
+    private static void runPack( String[] args )
+    {
+        int gridCount = 0;
+        Puzzle puzzle;
+        
+        try
+        {
+            if ( args.length == 4 && args[1].equals( "-grids" ) )
+            {
+                gridCount = Integer.parseInt( args[2] );
+            }
+            else if ( args.length != 2 )
+            {
+                throw new Exception( "Usage: -pack [-grids <count>] <input file>" );
+            }
+            puzzle = parseInputFile( args[args.length - 1] );
+        }
+        catch ( Exception e )
+        {
+            System.err.println( "Invalid arguments: " + e.getMessage() );
+            return;
+        }
+        
+        try
+        {
+            BinPacker packer = new BinPacker( puzzle.getSideLength(), puzzle.getBlockedCells() );
+            packer.setGridCount( gridCount );
+            List<FittingResult> results = packer.pack( puzzle.getBlocks() );
+            
+            if ( results == null )
+            {
+                System.err.println( "The blocks does not fit " + gridCount + " grids." );
+                return;
+            }
+            for ( FittingResult result : results )
+            {
+                result.printGrid();
+                result.printCoordinates();
+                System.out.println();
+            }
+            System.out.println( results.size() + " grids, at least " + packer.getLowerBound() + " needed" );
+        }
+        catch ( Exception e )
+        {
+            System.err.println( "Got an exception while processing: " + e.getMessage() );
+        }
+    }
+
+    /**
+     * Fits the subset of the blocks of the input file that covers the most cells, see {@link MaxCoverageSearch}.
+     * 
+     * @param args -cover [-time &lt;milliseconds&gt;] &lt;input file&gt;
+     */
+    private static void runCover( String[] args )
+    {
+        MaxCoverageSearch search = new MaxCoverageSearch();
+        Puzzle puzzle;
+        
+        try
+        {
+            if ( args.length == 4 && args[1].equals( "-time" ) )
+            {
+                search.setTimeBudget( Long.parseLong( args[2] ) );
+            }
+            else if ( args.length != 2 )
+            {
+                throw new Exception( "Usage: -cover [-time <milliseconds>] <input file>" );
+            }
+            puzzle = parseInputFile( args[args.length - 1] );
+        }
+        catch ( Exception e )
+        {
+            System.err.println( "Invalid arguments: " + e.getMessage() );
+            return;
+        }
+        
+        FittingResult result = search.fit( puzzle );
+        result.printGrid();
+        result.printCoordinates();
+        if ( search.isOptimal() )
+        {
+            System.out.println( search.getBestValue() + " cells covered, optimal" );
+        }
+        else
+        {
+            System.out.println( search.getBestValue() + " cells covered, at most " + search.getUpperBound() + " possible" );
+        }
+    }
+
+    /**
+     * Fits the blocks of the input file by meeting in the middle, see {@link MeetInTheMiddleSearch}.
+     * 
+     * @param args -middle [-memory &lt;megabytes&gt;] &lt;input file&gt;
+     */
+    private static void runMiddle( String[] args )
+    {
+        long memoryLimit = -1;
+        Puzzle puzzle;
+        
+        try
+        {
+            if ( args.length == 4 && args[1].equals( "-memory" ) )
+            {
+                memoryLimit = Long.parseLong( args[2] ) << 20;
+            }
+            else if ( args.length != 2 )
+            {
+                throw new Exception( "Usage: -middle [-memory <megabytes>] <input file>" );
+            }
+            puzzle = parseInputFile( args[args.length - 1] );
+        }
+        catch ( Exception e )
+        {
+            System.err.println( "Invalid arguments: " + e.getMessage() );
+            return;
+        }
+        
+        MeetInTheMiddleSearch search = new MeetInTheMiddleSearch( puzzle.createPlacementTable() );
+        if ( memoryLimit >= 0 )
+        {
+            search.setMemoryLimit( memoryLimit );
+        }
+        FittingResult result = search.fit();
+        
+        if ( result == null )
+        {
+            System.err.println( "The blocks does not fit the grid." );
+        }
+        else
+        {
+            result.printGrid();
+            result.printCoordinates();
+        }
+        System.out.println( search.isFallbackUsed() ? "Solved by the depth-first search"
+                            : search.getStoredCount() + " layouts of the first half stored" );
+    }
+
+    /**
+     * Tiles a grid of any size with the blocks of the input file, each of them used any number
+     * of times, see {@link StripTiler}.
+     * 
+     * @param args -strip &lt;width&gt; &lt;height&gt; [-count] &lt;input file&gt;
+     */
+    private static void runStrip( String[] args )
+    {
+        boolean count = args.length == 5 && args[3].equals( "-count" );
+        StripTiler tiler;
+        
+        try
+        {
+            if ( args.length != 4 && !count )
+            {
+                throw new Exception( "Usage: -strip <width> <height> [-count] <input file>" );
+            }
+            int width = Integer.parseInt( args[1] );
+            int height = Integer.parseInt( args[2] );
+            Puzzle puzzle = parseInputFile( args[args.length - 1], Math.max( width, height ) );
+            tiler = new StripTiler( width, height, puzzle.getBlocks(), puzzle.getBlockedCells() );
+        }
+        catch ( Exception e )
+        {
+            System.err.println( "Invalid arguments: " + e.getMessage() );
+            return;
+        }
+        
+        if ( count )
+        {
+            System.out.println( tiler.count() + " tilings" );
+            return;
+        }
+        
+        FittingResult result = tiler.fit();
+        if ( result == null )
+        {
+            System.err.println( "The blocks does not fit the grid." );
+        }
+        else
+        {
+            result.printGrid();
+            result.printCoordinates();
+        }
+    }
+
+    /**
+     * Parse input file and create the block list and the blocked cells from it.
+     * 
+     * @param filename 
+     * @return the puzzle
+     * @throws Exception if any problems in the parsing or creation of the blocks
+     */
+    private static Puzzle parseInputFile( String filename ) throws Exception
+    {
+        return parseInputFile( filename, 4 );
+    }
+
+    /**
+     * Parse input file and create the block list and the blocked cells from it.
      * 
      * @param filename 
-     * @return list of blocks
+     * @param sideLength side length of the grid if the input doesn't give it
+     * @return the puzzle
      * @throws Exception if any problems in the parsing or creation of the blocks
      */
-    private static List<Block> parseInputFile( String filename ) throws Exception
+    private static Puzzle parseInputFile( String filename, int sideLength ) throws Exception
     {
+        SolverEvents.ParseEvent event = new SolverEvents.ParseEvent();
+        event.begin();
+        
         Path path = Paths.get( filename );
         List<String> inputLines = Files.readAllLines( path );
-        List<Block> blocks = new ArrayList<>();
+        Puzzle puzzle = Puzzle.parse( inputLines, sideLength );
         
-        for ( String line: inputLines )
+        if ( event.shouldCommit() )
         {
-            String[] values = line.split( ":" );
-            String[] points = values[1].split( ";" );
-            Set<Point> pointSet = new HashSet<>();
-                    
-            for ( String pointStr : points )
-            {
-                String[] coordinates = pointStr.split( "," );
-                Point point = new Point( 
-                        Integer.parseInt( coordinates[0] ), 
-                        Integer.parseInt( coordinates[1] ) );
-                pointSet.add( point );
-            }
-            
-            Block block = new Block( values[0].charAt( 0 ), pointSet );
-            blocks.add( block );
+            event.file = filename;
+            event.lineCount = inputLines.size();
+            event.blockCount = puzzle.getBlocks().size();
+            event.sideLength = puzzle.getSideLength();
+            event.commit();
         }
-    
-        return blocks;
+        return puzzle;
     }
 }
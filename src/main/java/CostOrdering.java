@@ -0,0 +1,71 @@
+/**
+ * Orders the blocks by an estimated cost of placing them late. A block is placed early if it
+ * has few placements, if it is large and if its shape is irregular, i.e. it leaves much of
+ * its bounding box empty. Such blocks are the hardest to fit to the cells left over by the
+ * other blocks.
+ * <p>
+ * The score is a weighted sum of the logarithm of the placements, the logarithm of the size
+ * and the irregularity, so that the weights don't depend on the size of the grid.
+ */
+public class CostOrdering implements OrderingPolicy
+{
+    private final boolean m_dynamic;
+    private double m_sizeWeight = 1.0;
+    private double m_irregularityWeight = 0.5;
+
+    /**
+     * @param dynamic true to score the classes again on every level of the search
+     */
+    public CostOrdering( boolean dynamic )
+    {
+        m_dynamic = dynamic;
+    }
+
+    /**
+     * Sets how much a larger block is preferred. One placement weighs 1.
+     *
+     * @param sizeWeight
+     */
+    public void setSizeWeight( double sizeWeight )
+    {
+        m_sizeWeight = sizeWeight;
+    }
+
+    /**
+     * Sets how much an irregular block is preferred. One placement weighs 1.
+     *
+     * @param irregularityWeight
+     */
+    public void setIrregularityWeight( double irregularityWeight )
+    {
+        m_irregularityWeight = irregularityWeight;
+    }
+
+    @Override
+    public double score( PlacementTable table, int pieceClass, int placements )
+    {
+        PieceShape shape = table.getPieceClass( pieceClass ).getShape();
+
+        return Math.log( 1 + placements )
+               - m_sizeWeight * Math.log( shape.getSize() )
+               - m_irregularityWeight * getIrregularity( shape );
+    }
+
+    @Override
+    public boolean isDynamic()
+    {
+        return m_dynamic;
+    }
+
+    /**
+     * Gets the empty cells of the bounding box per cell of the shape, zero for a rectangle.
+     *
+     * @param shape
+     * @return
+     */
+    static double getIrregularity( PieceShape shape )
+    {
+        int size = shape.getSize();
+        return (double)( shape.getWidth() * shape.getHeight() - size ) / size;
+    }
+}
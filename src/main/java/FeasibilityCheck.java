@@ -0,0 +1,248 @@
+import java.util.Arrays;
+
+/**
+ * Quick checks that prove the blocks can't be fitted to the grid without searching.
+ * The checks are only necessary conditions: passing them doesn't mean the blocks fit.
+ */
+public final class FeasibilityCheck
+{
+    /**
+     * Colour (0 or 1) of a cell. The colourings used here repeat every two cells in both
+     * directions, so the colours a placement covers depend only on the parity of its anchor.
+     */
+    private interface Colouring
+    {
+        int colour( int x, int y );
+    }
+
+    private static final Colouring CHECKERBOARD = ( x, y ) -> ( x + y ) & 1;
+    private static final Colouring COLUMNS = ( x, y ) -> x & 1;
+    private static final Colouring ROWS = ( x, y ) -> y & 1;
+
+    private FeasibilityCheck()
+    {
+    }
+
+    /**
+     * Runs all checks.
+     *
+     * @param table
+     * @return the reason why the blocks can't fit, null if none of the checks failed
+     */
+    public static InfeasibilityReason check( PlacementTable table )
+    {
+        int pieceCells = table.getPieceCellCount();
+        int freeCells = table.getFreeCellCount();
+
+        if ( pieceCells > freeCells )
+        {
+            return InfeasibilityReason.TOO_MANY_CELLS;
+        }
+
+        for ( int pieceClass = 0; pieceClass < table.getClassCount(); pieceClass++ )
+        {
+            if ( table.getPieceClass( pieceClass ).getPlacementCount() == 0 )
+            {
+                return InfeasibilityReason.NO_PLACEMENT;
+            }
+        }
+
+        boolean exactCover = pieceCells == freeCells;
+
+        // Colourings only help when every cell must be covered
+        if ( exactCover )
+        {
+            if ( !isBalanced( table, CHECKERBOARD ) )
+            {
+                return InfeasibilityReason.CHECKERBOARD_PARITY;
+            }
+            if ( !isBalanced( table, COLUMNS ) )
+            {
+                return InfeasibilityReason.COLUMN_PARITY;
+            }
+            if ( !isBalanced( table, ROWS ) )
+            {
+                return InfeasibilityReason.ROW_PARITY;
+            }
+        }
+
+        if ( !areRegionsFillable( table, exactCover ) )
+        {
+            return InfeasibilityReason.REGION_SIZE;
+        }
+
+        return null;
+    }
+
+    /**
+     * Checks if the blocks can cover exactly as many cells of colour 1 (minus colour 0) as the
+     * free cells have. Each block contributes one of the values its placements allow, so it's
+     * a subset sum over the blocks.
+     */
+    private static boolean isBalanced( PlacementTable table, Colouring colouring )
+    {
+        int width = table.getWidth();
+        long[] blocked = table.getBlocked();
+        int target = 0;
+
+        for ( int cell = 0; cell < table.getCellCount(); cell++ )
+        {
+            if ( !CellMask.get( blocked, cell ) )
+            {
+                target += colouring.colour( cell % width, cell / width ) == 1 ? 1 : -1;
+            }
+        }
+
+        // Bit (sum + offset) tells if the sum can be reached
+        int offset = table.getPieceCellCount();
+        long[] reachable = new long[( 2 * offset + 64 ) / 64];
+        CellMask.set( reachable, offset );
+
+        for ( int pieceClass = 0; pieceClass < table.getClassCount(); pieceClass++ )
+        {
+            PieceClass candidates = table.getPieceClass( pieceClass );
+            int[] values = getContributions( candidates, width, colouring );
+
+            for ( int i = 0; i < candidates.getMultiplicity(); i++ )
+            {
+                long[] next = new long[reachable.length];
+                for ( int value : values )
+                {
+                    CellMask.shiftOr( reachable, value, next );
+                }
+                reachable = next;
+            }
+        }
+
+        return Math.abs( target ) <= offset && CellMask.get( reachable, target + offset );
+    }
+
+    /**
+     * Gets the different values (colour 1 cells minus colour 0 cells) the placements of the class cover.
+     */
+    private static int[] getContributions( PieceClass pieceClass, int width, Colouring colouring )
+    {
+        PieceShape shape = pieceClass.getShape();
+        boolean[] parities = new boolean[4];
+
+        for ( int placement = 0; placement < pieceClass.getPlacementCount(); placement++ )
+        {
+            int anchor = pieceClass.getAnchor( placement );
+            parities[( anchor % width & 1 ) | ( ( anchor / width & 1 ) << 1 )] = true;
+        }
+
+        int[] values = new int[4];
+        int count = 0;
+        for ( int parity = 0; parity < 4; parity++ )
+        {
+            if ( parities[parity] )
+            {
+                int value = 0;
+                for ( int i = 0; i < shape.getSize(); i++ )
+                {
+                    int colour = colouring.colour( ( parity & 1 ) + shape.getX( i ), ( parity >> 1 ) + shape.getY( i ) );
+                    value += colour == 1 ? 1 : -1;
+                }
+                values[count++] = value;
+            }
+        }
+
+        return Arrays.stream( values, 0, count ).distinct().toArray();
+    }
+
+    /**
+     * Checks the areas the blocked cells split the free cells into. If all blocks are connected,
+     * every block must be put inside one area. With exact cover each area must be filled exactly
+     * by some blocks, otherwise the areas must have room for all blocks.
+     */
+    private static boolean areRegionsFillable( PlacementTable table, boolean exactCover )
+    {
+        int[] sizes = new int[table.getPieceCount()];
+        for ( int piece = 0; piece < sizes.length; piece++ )
+        {
+            if ( !table.getShape( piece ).isConnected() )
+            {
+                return true;
+            }
+            sizes[piece] = table.getShape( piece ).getSize();
+        }
+
+        int width = table.getWidth();
+        int height = table.getHeight();
+        int cellCount = table.getCellCount();
+        long[] visited = table.getBlocked();
+        int[] queue = new int[cellCount];
+        int room = 0;
+
+        for ( int start = CellMask.nextClear( visited, 0, cellCount ); start >= 0;
+              start = CellMask.nextClear( visited, start + 1, cellCount ) )
+        {
+            // Flood fill the area
+            int head = 0;
+            int tail = 0;
+            queue[tail++] = start;
+            CellMask.set( visited, start );
+            while ( head < tail )
+            {
+                int cell = queue[head++];
+                int x = cell % width;
+                int y = cell / width;
+                tail = visit( visited, queue, tail, x > 0, cell - 1 );
+                tail = visit( visited, queue, tail, x < width - 1, cell + 1 );
+                tail = visit( visited, queue, tail, y > 0, cell - width );
+                tail = visit( visited, queue, tail, y < height - 1, cell + width );
+            }
+
+            int fillable = getLargestSubsetSum( sizes, tail );
+            if ( exactCover && fillable != tail )
+            {
+                return false;
+            }
+            room += fillable;
+        }
+
+        return room >= table.getPieceCellCount();
+    }
+
+    private static int visit( long[] visited, int[] queue, int tail, boolean inside, int cell )
+    {
+        if ( inside && !CellMask.get( visited, cell ) )
+        {
+            CellMask.set( visited, cell );
+            queue[tail++] = cell;
+        }
+        return tail;
+    }
+
+    /**
+     * Finds the largest sum of the given sizes that doesn't exceed the limit.
+     */
+    private static int getLargestSubsetSum( int[] sizes, int limit )
+    {
+        long[] reachable = CellMask.create( limit + 1 );
+        CellMask.set( reachable, 0 );
+
+        for ( int size : sizes )
+        {
+            if ( size <= limit )
+            {
+                long[] next = reachable.clone();
+                CellMask.shiftOr( reachable, size, next );
+                reachable = next;
+                if ( CellMask.get( reachable, limit ) )
+                {
+                    return limit;
+                }
+            }
+        }
+
+        for ( int sum = limit; sum > 0; sum-- )
+        {
+            if ( CellMask.get( reachable, sum ) )
+            {
+                return sum;
+            }
+        }
+        return 0;
+    }
+}
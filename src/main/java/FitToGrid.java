@@ -1,20 +1,71 @@
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 public class FitToGrid
 {
-    private static final char EMPTY_VALUE = '-';
+    static final char EMPTY_VALUE = '-';
+    static final char BLOCKED_VALUE = '#';
+    // Any block in the grid, the result has the names
+    private static final char FILLED_VALUE = 'X';
     private int m_sideLength;
     private char[][] m_grid;
+    private char[][] m_initialGrid;
+    private long[] m_blocked;
+    private int m_blockedCount;
+    private InfeasibilityReason m_infeasibilityReason;
+    private OrderingPolicy m_ordering = OrderingPolicy.BASE_WIDTH;
+    private PieceLibrary m_library;
+    // The shapes of the blocks
+    private final Map<Block, PieceShape> m_shapes = new IdentityHashMap<>();
+    // The cell of the (0,0) corner of the shape of each block put to the grid
+    private final Map<Block, Integer> m_anchors = new IdentityHashMap<>();
+    // The blocks of the same shape as each block, including itself
+    private final Map<Block, List<Block>> m_identical = new IdentityHashMap<>();
+    // Blocks tried to the grid, for the branch events
+    private long m_nodeCount;
     
     public FitToGrid( int sideLength )
+    {
+        this( sideLength, Collections.emptySet() );
+    }
+    
+    /**
+     * Creates a grid where the given cells are blocked, i.e. no block can be put on them.
+     * 
+     * @param sideLength
+     * @param blockedCells
+     */
+    public FitToGrid( int sideLength, Set<Point> blockedCells )
     {
         m_sideLength = sideLength;
+        m_blocked = Puzzle.createBlockedMask( sideLength, blockedCells );
         m_grid = new char[sideLength][sideLength];
+        m_initialGrid = new char[sideLength][sideLength];
+        
+        for ( int i=0; i < m_sideLength; i++ )
+        {
+            Arrays.fill( m_initialGrid[i], EMPTY_VALUE );
+        }
+        
+        for ( Point point : blockedCells )
+        {
+            if ( m_initialGrid[point.getX()][point.getY()] != BLOCKED_VALUE )
+            {
+                m_initialGrid[point.getX()][point.getY()] = BLOCKED_VALUE;
+                m_blockedCount++;
+            }
+        }
+        
         //fill the grid with empty values
         emptyGrid();
     }
@@ -39,13 +90,29 @@ public class FitToGrid
         //places in the grid.
         int pointCount = blocks.stream().mapToInt( b -> b.getSize() ).sum();
         
-        if ( pointCount > ( m_sideLength * m_sideLength ) )
+        if ( pointCount > ( m_sideLength * m_sideLength - m_blockedCount ) )
         {
             throw new Exception( "The blocks are too big to fit the grid." );
         }
         
-        // Order blocks based on the width (on x-axis)
-        LinkedList<Block> orderedBlocks = orderByMaxWidth( blocks );
+        SolverEvents.PreprocessEvent preprocess = new SolverEvents.PreprocessEvent();
+        preprocess.begin();
+        m_shapes.clear();
+        m_anchors.clear();
+        
+        // Reject the blocks that can't fit without searching
+        PlacementTable table = createPlacementTable( blocks );
+        m_infeasibilityReason = FeasibilityCheck.check( table );
+        findIdenticalBlocks( table );
+        
+        // Order blocks by the ordering policy
+        LinkedList<Block> orderedBlocks = m_infeasibilityReason == null ? orderBlocks( table ) : null;
+        
+        commitPreprocessEvent( preprocess, table );
+        if ( m_infeasibilityReason != null )
+        {
+            return null;
+        }
         
         Iterator<Block> iterator = orderedBlocks.iterator();
         boolean allFit = false;
@@ -58,7 +125,8 @@ public class FitToGrid
             Block block = iterator.next();
             if ( !block.hasBeenFirst() )
             {
-                block.setHasBeenFirst( true );
+                // A block of the same shape would fill the grid the same way
+                getIdentical( block ).forEach( b -> b.setHasBeenFirst( true ) );
                 
                 // How many points the block can start from and still stay inside the grid.
                 List<Point> firstBlockStartPoints = getAvailableStartingPoints( block );
@@ -69,13 +137,27 @@ public class FitToGrid
                 while ( !allFit && pointIter.hasNext() )
                 {
                     Point firstStartPoint = pointIter.next();
+                    SolverEvents.BranchEvent branch = new SolverEvents.BranchEvent();
+                    branch.begin();
+                    long nodeCount = m_nodeCount;
+                    
                     // Check that the first block fits, no point continuing if it doesn't.
-                    if ( doesBlockFit( block, firstStartPoint ) )
+                    if ( doesBlockFit( getShape( block ), firstStartPoint ) )
                     {
                         // Try to fit the other blocks.
                         allFit = fitWithStartingBlock( block, firstStartPoint, orderedBlocks );
                     }
                     
+                    if ( branch.shouldCommit() )
+                    {
+                        branch.block = block.getName();
+                        branch.x = firstStartPoint.getX();
+                        branch.y = firstStartPoint.getY();
+                        branch.nodeCount = m_nodeCount - nodeCount;
+                        branch.allFit = allFit;
+                        branch.commit();
+                    }
+                    
                     if ( !allFit )
                     {
                         // Empty grid if blocks didn't fit.
@@ -98,11 +180,118 @@ public class FitToGrid
         
         if ( allFit )
         {
-            result = new FittingResult( m_grid, orderedBlocks );
+            result = createResult( orderedBlocks );
         }
         return result;
     }
 
+    /**
+     * Sets the order in which the blocks are tried. Only the static score of a policy is
+     * used, with the placement counts of the empty grid. By default the block with the
+     * widest base goes first.
+     * 
+     * @param ordering
+     */
+    public void setOrderingPolicy( OrderingPolicy ordering )
+    {
+        m_ordering = ordering;
+    }
+
+    /**
+     * Sets the library the placements of the known shapes are taken from.
+     * 
+     * @param library library of the grid size, null to compute all placements
+     */
+    public void setPieceLibrary( PieceLibrary library )
+    {
+        m_library = library;
+    }
+
+    /**
+     * Gets the reason found by the checks before the last search.
+     * 
+     * @return the reason why the blocks of the last call of {@link #fitBlocks(List)} can't fit,
+     *         null if the checks passed
+     */
+    public InfeasibilityReason getInfeasibilityReason()
+    {
+        return m_infeasibilityReason;
+    }
+
+    private void commitPreprocessEvent( SolverEvents.PreprocessEvent event, PlacementTable table )
+    {
+        if ( event.shouldCommit() )
+        {
+            long placementCount = 0;
+            for ( int pieceClass = 0; pieceClass < table.getClassCount(); pieceClass++ )
+            {
+                placementCount += table.getPieceClass( pieceClass ).getPlacementCount();
+            }
+            
+            event.blockCount = table.getPieceCount();
+            event.classCount = table.getClassCount();
+            event.placementCount = placementCount;
+            event.library = m_library != null;
+            event.infeasibilityReason = m_infeasibilityReason == null ? null : m_infeasibilityReason.toString();
+            event.commit();
+        }
+    }
+
+    /**
+     * Creates the placement table of the blocks in this grid.
+     * 
+     * @param blocks
+     * @return
+     */
+    private PlacementTable createPlacementTable( List<Block> blocks )
+    {
+        long[] blocked = CellMask.create( m_sideLength * m_sideLength );
+        
+        for ( int x = 0; x < m_sideLength; x++ )
+        {
+            for ( int y = 0; y < m_sideLength; y++ )
+            {
+                if ( m_initialGrid[x][y] == BLOCKED_VALUE )
+                {
+                    CellMask.set( blocked, y * m_sideLength + x );
+                }
+            }
+        }
+        
+        return new PlacementTable( m_sideLength, m_sideLength, blocks, blocked, m_library );
+    }
+
+    /**
+     * Finds the blocks of the same shape from the classes of the placement table.
+     * 
+     * @param table
+     */
+    private void findIdenticalBlocks( PlacementTable table )
+    {
+        m_identical.clear();
+        for ( int pieceClass = 0; pieceClass < table.getClassCount(); pieceClass++ )
+        {
+            PieceClass pieces = table.getPieceClass( pieceClass );
+            List<Block> identical = new ArrayList<>();
+            for ( int i = 0; i < pieces.getMultiplicity(); i++ )
+            {
+                identical.add( table.getBlock( pieces.getPiece( i ) ) );
+            }
+            identical.forEach( b -> m_identical.put( b, identical ) );
+        }
+    }
+
+    /**
+     * Gets the blocks of the same shape as the block, including itself.
+     * 
+     * @param block
+     * @return
+     */
+    private List<Block> getIdentical( Block block )
+    {
+        return m_identical.getOrDefault( block, Collections.singletonList( block ) );
+    }
+
     /**
      * Clean the tried values from the blocks.
      * 
@@ -114,13 +303,13 @@ public class FitToGrid
     }
 
     /**
-     * Fill the grid with empty values.
+     * Fill the grid with empty values, leaving the blocked cells blocked.
      */
     private void emptyGrid()
     {
         for ( int i=0; i < m_sideLength; i++ )
         {
-            Arrays.fill( m_grid[i], EMPTY_VALUE );
+            System.arraycopy( m_initialGrid[i], 0, m_grid[i], 0, m_sideLength );
         }
     }
 
@@ -153,8 +342,15 @@ public class FitToGrid
                     // to the block already 
                     if ( !( block.isInGrid() || block.hasTriedStartPointBefore( startPoint ) ) )
                     {
-                        // Add the point to list of tried starting points for this block.
-                        block.addTriedStartPoint( startPoint );
+                        // Add the point to list of tried starting points for this block, and for
+                        // the blocks of the same shape as it would fit there the same way.
+                        for ( Block identical : getIdentical( block ) )
+                        {
+                            if ( !identical.isInGrid() )
+                            {
+                                identical.addTriedStartPoint( startPoint );
+                            }
+                        }
                         
                         if ( putBlockToGrid( block, startPoint ) )
                         {
@@ -205,8 +401,10 @@ public class FitToGrid
     }
 
     /**
-     * Gets possible starting points for the given block starting from point (0,0)
-     * and going right on the x-axis (to larger values).
+     * Gets possible starting points for the given block on the first free row, going right
+     * on the x-axis (to larger values). The starting point is the place of the lowest left
+     * point of the block, so the points where any part of the block would be outside of the
+     * grid or on a blocked cell are left out.
      * 
      * @param block
      * @return list of available starting points for the given block. Empty list if there aren't any.
@@ -215,16 +413,83 @@ public class FitToGrid
     {
         List<Point> points = new ArrayList<>();
         
-        int width = block.getBaseWidth();
+        PieceShape shape = getShape( block );
+        int y = getFirstFreeRow();
 
-        for ( int i=0; i <= ( m_sideLength - width ); i++ )
+        for ( int x = 0; y >= 0 && y + shape.getHeight() <= m_sideLength
+                         && x + shape.getWidth() <= m_sideLength; x++ )
         {
-            points.add( new Point( i, 0 ) );
+            if ( !coversBlockedCell( shape, x, y ) )
+            {
+                points.add( new Point( x + shape.getLowestLeftX(), y ) );
+            }
         }
         
         return points;
     }
 
+    /**
+     * Gets the shape of the block, creating it when the block is first seen.
+     * 
+     * @param block
+     * @return
+     */
+    private PieceShape getShape( Block block )
+    {
+        return m_shapes.computeIfAbsent( block, PieceShape::new );
+    }
+
+    /**
+     * Finds the lowest row having a cell that isn't blocked.
+     * 
+     * @return the y-coordinate of the row, -1 if all cells are blocked
+     */
+    private int getFirstFreeRow()
+    {
+        for ( int y = 0 ; y < m_sideLength; y++ )
+        {
+            for ( int x = 0; x < m_sideLength; x++ )
+            {
+                if ( m_initialGrid[x][y] != BLOCKED_VALUE )
+                {
+                    return y;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Checks if the shape would cover any blocked cell when its origin is on the given cell.
+     * The shape must be inside the grid.
+     * 
+     * @param shape
+     * @param originX
+     * @param originY
+     * @return true if any cell of the shape is on a blocked cell, false otherwise
+     */
+    private boolean coversBlockedCell( PieceShape shape, int originX, int originY )
+    {
+        if ( m_blockedCount == 0 )
+        {
+            return false;
+        }
+        
+        for ( int run = 0; run < shape.getRunCount(); run++ )
+        {
+            int y = originY + shape.getRunY( run );
+            int x = originX + shape.getRunX( run );
+            for ( int end = x + shape.getRunLength( run ); x < end; x++ )
+            {
+                if ( m_initialGrid[x][y] == BLOCKED_VALUE )
+                {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
     /**
      * Checks if all blocks are either in the grid or have tried the given
      * starting point before.
@@ -259,110 +524,106 @@ public class FitToGrid
      */
     private boolean putBlockToGrid( Block block, Point startPoint )
     {
-        boolean doesBlockFit = true;
+        m_nodeCount++;
         
-        if ( block.getBaseWidth() > ( m_sideLength - startPoint.getX() ) )
+        PieceShape shape = getShape( block );
+        if ( !doesBlockFit( shape, startPoint ) )
         {
-            doesBlockFit = false;
+            return false;
         }
-        else
+        
+        // The given block isn't moved, the result is made of the shapes and their anchors
+        int originX = startPoint.getX() - shape.getLowestLeftX();
+        int originY = startPoint.getY();
+        for ( int run = 0; run < shape.getRunCount(); run++ )
         {
-            Block siftedBlock = shiftBlockToPoint( block, startPoint );
-            if ( doesBlockFit( siftedBlock, startPoint ) )
+            int y = originY + shape.getRunY( run );
+            int x = originX + shape.getRunX( run );
+            for ( int end = x + shape.getRunLength( run ); x < end; x++ )
             {
-                for ( Point point: siftedBlock.getPoints() )
-                {
-                    m_grid[point.getX()][point.getY()] = siftedBlock.getName();
-                }
-            }
-            else
-            {
-                doesBlockFit = false;
+                m_grid[x][y] = FILLED_VALUE;
             }
         }
-        
-        return doesBlockFit;
+        m_anchors.put( block, originY * m_sideLength + originX );
+        return true;
     }
 
     /**
-     * Check if the given block fits the grid starting from the given point.
+     * Check if the shape fits the grid with its lowest left cell on the given point. The
+     * extent of the shape is checked first, so the cells are only read inside of the grid.
      * 
-     * @param block
+     * @param shape
      * @param startPoint
-     * @return true is the block fits, false otherwise
+     * @return true is the shape fits, false otherwise
      */
-    private boolean doesBlockFit( Block block, Point startPoint )
+    private boolean doesBlockFit( PieceShape shape, Point startPoint )
     {
-        boolean doesBlockFit = true;
+        int originX = startPoint.getX() - shape.getLowestLeftX();
+        int originY = startPoint.getY();
+        if ( originX < 0 || originY < 0 || originX + shape.getWidth() > m_sideLength
+                || originY + shape.getHeight() > m_sideLength )
+        {
+            return false;
+        }
         
-        try
+        for ( int run = 0; run < shape.getRunCount(); run++ )
         {
-            for ( Point point: block.getPoints() )
+            int y = originY + shape.getRunY( run );
+            int x = originX + shape.getRunX( run );
+            for ( int end = x + shape.getRunLength( run ); x < end; x++ )
             {
-                if ( EMPTY_VALUE != m_grid[point.getX()][point.getY()] )
+                if ( EMPTY_VALUE != m_grid[x][y] )
                 {
-                    doesBlockFit = false;
-                    break;
+                    return false;
                 }
             }
         }
-        catch ( ArrayIndexOutOfBoundsException e )
-        {
-            // If the coordinate is outside of the grid, it's not fitting
-            doesBlockFit = false;
-        }
-        
-        return doesBlockFit;
+        return true;
     }
 
     /**
-     * Shifts the coordinates of the point to be based on the given point, i.e.
-     * to have all points of the blocks to be on the right side and/or above of 
-     * the given point.
+     * Creates the result of the blocks put to the grid.
      * 
-     * @param block the block to shift
-     * @param point the point to base the shift
-     * @return the shifted block
+     * @param blocks
+     * @return
      */
-    private Block shiftBlockToPoint( Block block, Point point )
+    private FittingResult createResult( List<Block> blocks )
     {
-        Block returnBlock = block;
-                
-        //Find the lowest left point of the block
-        Point lowestLeft = returnBlock.getLowestLeftPoint();
-        
-        int shiftX = point.getX() - lowestLeft.getX();
-        int shiftY = point.getY() - lowestLeft.getY();
-
-        // Shift if the value(s) are non-null
-        if ( shiftX != 0 || shiftY != 0 )
+        int[] ids = new int[blocks.size()];
+        String[] names = new String[blocks.size()];
+        PieceShape[] shapes = new PieceShape[blocks.size()];
+        int[] anchors = new int[blocks.size()];
+        for ( int i = 0; i < blocks.size(); i++ )
         {
-            returnBlock = new Block( block );
-            if ( shiftX != 0 )
-            {
-                returnBlock.shiftXvalues( shiftX );
-            }
-            
-            if ( shiftY != 0 )
-            {
-                returnBlock.shiftYvalues( shiftY );
-            }
+            Block block = blocks.get( i );
+            ids[i] = block.getId();
+            names[i] = block.getName();
+            shapes[i] = getShape( block );
+            anchors[i] = m_anchors.get( block );
         }
-        
-        return returnBlock;
+        return new FittingResult( m_sideLength, m_sideLength, m_blocked.clone(), ids, names, shapes, anchors );
     }
 
     /**
-     * Order the given list based on the width of the blocks (ascending).
+     * Order the blocks of the table by the score of their class (ascending). Blocks with
+     * equal scores keep their order.
      * 
-     * @param blocks 
+     * @param table 
      * @return a new ordered LinkedList
      */
-    private LinkedList<Block> orderByMaxWidth( List<Block> blocks )
+    private LinkedList<Block> orderBlocks( PlacementTable table )
     {
-        LinkedList<Block> orderedList = blocks
-                                    .stream()
-                                    .sorted()
+        double[] scores = new double[table.getClassCount()];
+        for ( int pieceClass = 0; pieceClass < scores.length; pieceClass++ )
+        {
+            scores[pieceClass] = m_ordering.score( table, pieceClass,
+                                                   table.getPieceClass( pieceClass ).getPlacementCount() );
+        }
+        
+        LinkedList<Block> orderedList = IntStream.range( 0, table.getPieceCount() )
+                                    .boxed()
+                                    .sorted( Comparator.comparingDouble( piece -> scores[table.getClassIndex( piece )] ) )
+                                    .map( table::getBlock )
                                     .collect( Collectors.toCollection( LinkedList::new ) );
         
         return orderedList;
@@ -1,25 +1,221 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
+/**
+ * The blocks fitted to a grid, as an immutable snapshot. Each block is stored as its id and
+ * its anchor, the cell of the (0,0) corner of its {@link PieceShape}; the grid, the blocks
+ * and the coordinates are made from them only when asked. The shapes and the names are
+ * immutable and shared with the puzzle, so a result takes a few bytes per block and doesn't
+ * change when the solver that made it is used again.
+ * <p>
+ * The blocks are kept in the order of their ids, so results of the same layout are equal
+ * and have the same hash code however they were found.
+ */
 public class FittingResult
 {
-    private final char[][] m_grid;
-    private final List<Block> m_blocks;
-    
-    public FittingResult( char[][] grid, List<Block> blocks )
+    /** Owner of a cell that no block covers, see {@link #getOwner(int, int)}. */
+    public static final int EMPTY = -1;
+    /** Owner of a blocked cell, see {@link #getOwner(int, int)}. */
+    public static final int BLOCKED = -2;
+
+    private final int m_width;
+    private final int m_height;
+    // Null if no cell is blocked
+    private final long[] m_blocked;
+    private final int[] m_ids;
+    private final String[] m_names;
+    private final PieceShape[] m_shapes;
+    private final int[] m_anchors;
+    // The owner of each cell, created when the grid is first needed
+    private volatile short[] m_shortOwners;
+    private volatile int[] m_owners;
+
+    /**
+     * Creates the result of the blocks in their current places. The blocks and the mask are
+     * copied, so later changes to them don't change the result.
+     *
+     * @param width
+     * @param height
+     * @param blocked mask of the blocked cells, null if there aren't any
+     * @param blocks the blocks in their places
+     */
+    public FittingResult( int width, int height, long[] blocked, List<Block> blocks )
     {
-        this.m_grid = grid;
-        this.m_blocks = blocks;
+        this( width, height, blocked == null ? null : blocked.clone(),
+              blocks.stream().mapToInt( Block::getId ).toArray(),
+              blocks.stream().map( Block::getName ).toArray( String[]::new ),
+              blocks.stream().map( PieceShape::new ).toArray( PieceShape[]::new ),
+              blocks.stream().mapToInt( b -> getAnchor( b, width ) ).toArray() );
     }
-    
-    public char[][] getGrid()
+
+    /**
+     * Creates the result of the blocks with the given shapes at the given anchors. The arrays
+     * become a part of the result and must not be changed afterwards.
+     *
+     * @param width
+     * @param height
+     * @param blocked mask of the blocked cells, null if there aren't any
+     * @param ids id of each block
+     * @param names name of each block
+     * @param shapes shape of each block
+     * @param anchors the cell of the (0,0) corner of the shape of each block
+     */
+    FittingResult( int width, int height, long[] blocked, int[] ids, String[] names, PieceShape[] shapes,
+                   int[] anchors )
+    {
+        m_width = width;
+        m_height = height;
+        m_blocked = blocked == null || CellMask.cardinality( blocked ) == 0 ? null : blocked;
+
+        int[] order = IntStream.range( 0, ids.length ).boxed()
+                               .sorted( Comparator.comparingInt( i -> ids[i] ) )
+                               .mapToInt( Integer::intValue )
+                               .toArray();
+        m_ids = new int[ids.length];
+        m_names = new String[ids.length];
+        m_shapes = new PieceShape[ids.length];
+        m_anchors = new int[ids.length];
+        for ( int i = 0; i < order.length; i++ )
+        {
+            m_ids[i] = ids[order[i]];
+            m_names[i] = names[order[i]];
+            m_shapes[i] = shapes[order[i]];
+            m_anchors[i] = anchors[order[i]];
+        }
+    }
+
+    public int getWidth()
+    {
+        return m_width;
+    }
+
+    public int getHeight()
+    {
+        return m_height;
+    }
+
+    public boolean isBlocked( int x, int y )
+    {
+        return m_blocked != null && CellMask.get( m_blocked, y * m_width + x );
+    }
+
+    public int getBlockCount()
+    {
+        return m_ids.length;
+    }
+
+    /**
+     * Gets the id of the block.
+     *
+     * @param index index of the block, the blocks are in the order of their ids
+     * @return
+     */
+    public int getId( int index )
+    {
+        return m_ids[index];
+    }
+
+    /**
+     * Gets the name of the block.
+     *
+     * @param index index of the block, the blocks are in the order of their ids
+     * @return
+     */
+    public String getName( int index )
+    {
+        return m_names[index];
+    }
+
+    /**
+     * Gets the shape of the block.
+     *
+     * @param index index of the block, the blocks are in the order of their ids
+     * @return
+     */
+    public PieceShape getShape( int index )
+    {
+        return m_shapes[index];
+    }
+
+    /**
+     * Gets the cell of the (0,0) corner of the shape of the block.
+     *
+     * @param index index of the block, the blocks are in the order of their ids
+     * @return <code>y * width + x</code> of the corner
+     */
+    public int getAnchor( int index )
     {
-        return m_grid;
+        return m_anchors[index];
     }
 
+    /**
+     * Creates the blocks in their places, in the order of their ids. The blocks are new on
+     * each call, so changing them doesn't change the result.
+     *
+     * @return
+     */
     public List<Block> getBlocks()
     {
-        return m_blocks;
+        List<Block> blocks = new ArrayList<>( m_ids.length );
+        for ( int i = 0; i < m_ids.length; i++ )
+        {
+            blocks.add( createBlock( i ) );
+        }
+        return blocks;
+    }
+
+    /**
+     * Gets the block covering the cell.
+     *
+     * @param x
+     * @param y
+     * @return index of the block in {@link #getBlocks()}, {@link #EMPTY} or {@link #BLOCKED}
+     */
+    public int getOwner( int x, int y )
+    {
+        int cell = y * m_width + x;
+        short[] shortOwners = m_shortOwners;
+        int[] owners = m_owners;
+        if ( shortOwners == null && owners == null )
+        {
+            createOwners();
+            shortOwners = m_shortOwners;
+            owners = m_owners;
+        }
+        return shortOwners != null ? shortOwners[cell] : owners[cell];
+    }
+
+    /**
+     * Creates the grid of the first characters of the names of the blocks, for blocks with
+     * single character names.
+     *
+     * @return the grid indexed by x and y
+     */
+    public char[][] getGrid()
+    {
+        char[][] grid = new char[m_width][m_height];
+        for ( int x = 0; x < m_width; x++ )
+        {
+            for ( int y = 0; y < m_height; y++ )
+            {
+                int owner = getOwner( x, y );
+                grid[x][y] = owner == EMPTY ? FitToGrid.EMPTY_VALUE
+                             : owner == BLOCKED ? FitToGrid.BLOCKED_VALUE
+                             : m_names[owner].charAt( 0 );
+            }
+        }
+        return grid;
     }
 
     /**
@@ -27,37 +223,271 @@ public class FittingResult
      */
     public void printGrid()
     {
+        SolverEvents.RenderEvent event = new SolverEvents.RenderEvent();
+        event.begin();
+
         System.out.println( "---- Blocks in the grid ----" );
-        
-        for ( int i = m_grid.length - 1; i >= 0; i-- )
+
+        // Names of different lengths in columns of the same width
+        int nameWidth = Arrays.stream( m_names ).mapToInt( String::length ).max().orElse( 1 );
+        String format = "(%-" + nameWidth + "s) ";
+
+        for ( int y = m_height - 1; y >= 0; y-- )
         {
-            for ( int k = 0 ; k < m_grid.length; k++ )
+            StringBuilder row = new StringBuilder();
+            for ( int x = 0 ; x < m_width; x++ )
             {
-                System.out.print( "(" + m_grid[k][i] + ") " );
+                int owner = getOwner( x, y );
+                row.append( String.format( format, owner == EMPTY ? String.valueOf( FitToGrid.EMPTY_VALUE )
+                                                   : owner == BLOCKED ? String.valueOf( FitToGrid.BLOCKED_VALUE )
+                                                   : m_names[owner] ) );
             }
-            System.out.println();
+            System.out.println( row );
         }
+
+        commitRenderEvent( event, "grid" );
     }
-    
+
     /**
-     * Print the coordinates of the blocks to the output stream. 
+     * Print the coordinates of the blocks to the output stream.
      */
     public void printCoordinates()
     {
+        SolverEvents.RenderEvent event = new SolverEvents.RenderEvent();
+        event.begin();
+
         System.out.println( "---- Coordinates of the blocks ----" );
-        
-        // Order by name
-        List<Block> orderedByName = m_blocks
-                                    .stream()
-                                    .sorted( ( b1, b2 ) -> Character.compare( b1.getName(), b2.getName() ) )
-                                    .collect( Collectors.toList() );
-        
-        
-        for ( Block block: orderedByName )
+
+        getCoordinateLines().forEach( System.out::println );
+
+        commitRenderEvent( event, "coordinates" );
+    }
+
+    /**
+     * Gets the coordinates of the blocks in the input format, ordered by name, shorter names first.
+     *
+     * @return
+     */
+    public List<String> getCoordinateLines()
+    {
+        return IntStream.range( 0, m_ids.length ).boxed()
+                        .sorted( Comparator.comparingInt( ( Integer i ) -> m_names[i].length() )
+                                           .thenComparing( i -> m_names[i] ) )
+                        .map( i -> createBlock( i ).getBlockAsString() )
+                        .collect( Collectors.toList() );
+    }
+
+    /**
+     * Writes the result to the stream. Each shape is written once, however many blocks have it.
+     *
+     * @param out
+     * @throws IOException
+     */
+    public void write( DataOutputStream out ) throws IOException
+    {
+        out.writeInt( m_width );
+        out.writeInt( m_height );
+        long[] blocked = m_blocked == null ? new long[0] : m_blocked;
+        out.writeInt( blocked.length );
+        for ( long word : blocked )
+        {
+            out.writeLong( word );
+        }
+
+        Map<PieceShape, Integer> shapeIndexes = new HashMap<>();
+        List<PieceShape> shapes = new ArrayList<>();
+        for ( PieceShape shape : m_shapes )
+        {
+            if ( shapeIndexes.putIfAbsent( shape, shapes.size() ) == null )
+            {
+                shapes.add( shape );
+            }
+        }
+        out.writeInt( shapes.size() );
+        for ( PieceShape shape : shapes )
+        {
+            out.writeInt( shape.getSize() );
+            for ( int i = 0; i < shape.getSize(); i++ )
+            {
+                out.writeInt( shape.getX( i ) );
+                out.writeInt( shape.getY( i ) );
+            }
+        }
+
+        out.writeInt( m_ids.length );
+        for ( int i = 0; i < m_ids.length; i++ )
+        {
+            out.writeInt( m_ids[i] );
+            out.writeUTF( m_names[i] );
+            out.writeInt( shapeIndexes.get( m_shapes[i] ) );
+            out.writeInt( m_anchors[i] );
+        }
+    }
+
+    /**
+     * Reads a result written by {@link #write(DataOutputStream)}.
+     *
+     * @param in
+     * @return
+     * @throws IOException
+     */
+    public static FittingResult read( DataInputStream in ) throws IOException
+    {
+        int width = in.readInt();
+        int height = in.readInt();
+        long[] blocked = new long[in.readInt()];
+        for ( int i = 0; i < blocked.length; i++ )
+        {
+            blocked[i] = in.readLong();
+        }
+
+        PieceShape[] shapes = new PieceShape[in.readInt()];
+        for ( int s = 0; s < shapes.length; s++ )
+        {
+            int size = in.readInt();
+            Set<Point> points = new HashSet<>();
+            for ( int i = 0; i < size; i++ )
+            {
+                points.add( new Point( in.readInt(), in.readInt() ) );
+            }
+            shapes[s] = new PieceShape( new Block( s, "", points ) );
+        }
+
+        int count = in.readInt();
+        int[] ids = new int[count];
+        String[] names = new String[count];
+        PieceShape[] blockShapes = new PieceShape[count];
+        int[] anchors = new int[count];
+        for ( int i = 0; i < count; i++ )
+        {
+            ids[i] = in.readInt();
+            names[i] = in.readUTF();
+            blockShapes[i] = shapes[in.readInt()];
+            anchors[i] = in.readInt();
+        }
+
+        return new FittingResult( width, height, blocked.length == 0 ? null : blocked, ids, names, blockShapes,
+                                  anchors );
+    }
+
+    /* (non-Javadoc)
+     * @see java.lang.Object#hashCode()
+     */
+    @Override
+    public int hashCode()
+    {
+        final int prime = 31;
+        int result = 1;
+        result = prime * result + m_width;
+        result = prime * result + m_height;
+        result = prime * result + Arrays.hashCode( m_blocked );
+        result = prime * result + Arrays.hashCode( m_ids );
+        result = prime * result + Arrays.hashCode( m_anchors );
+        return result;
+    }
+
+    /* (non-Javadoc)
+     * @see java.lang.Object#equals(java.lang.Object)
+     */
+    @Override
+    public boolean equals( Object obj )
+    {
+        if ( this == obj )
+            return true;
+        if ( obj == null )
+            return false;
+        if ( getClass() != obj.getClass() )
+            return false;
+        FittingResult other = (FittingResult)obj;
+        if ( m_width != other.m_width || m_height != other.m_height )
+            return false;
+        if ( !Arrays.equals( m_blocked, other.m_blocked ) )
+            return false;
+        if ( !Arrays.equals( m_ids, other.m_ids ) || !Arrays.equals( m_anchors, other.m_anchors ) )
+            return false;
+        if ( !Arrays.equals( m_shapes, other.m_shapes ) || !Arrays.equals( m_names, other.m_names ) )
+            return false;
+        return true;
+    }
+
+    /**
+     * Creates the block of the given index in its place.
+     */
+    private Block createBlock( int index )
+    {
+        PieceShape shape = m_shapes[index];
+        int x = m_anchors[index] % m_width;
+        int y = m_anchors[index] / m_width;
+        Set<Point> points = new HashSet<>();
+        for ( int i = 0; i < shape.getSize(); i++ )
+        {
+            points.add( new Point( x + shape.getX( i ), y + shape.getY( i ) ) );
+        }
+        return new Block( m_ids[index], m_names[index], points );
+    }
+
+    /**
+     * Gets the cell of the smallest x and y of the points of the block.
+     */
+    private static int getAnchor( Block block, int width )
+    {
+        int minX = Integer.MAX_VALUE;
+        int minY = Integer.MAX_VALUE;
+        for ( Point point : block.getPoints() )
         {
-            System.out.println( block.getBlockAsString() );
+            minX = Math.min( minX, point.getX() );
+            minY = Math.min( minY, point.getY() );
         }
+        return minY * width + minX;
     }
 
-    
+    /**
+     * Creates the owners of the cells, as shorts if the indexes of the blocks fit to them.
+     */
+    private void createOwners()
+    {
+        int[] owners = new int[m_width * m_height];
+        Arrays.fill( owners, EMPTY );
+        if ( m_blocked != null )
+        {
+            for ( int cell = CellMask.nextSet( m_blocked, 0 ); cell >= 0; cell = CellMask.nextSet( m_blocked, cell + 1 ) )
+            {
+                owners[cell] = BLOCKED;
+            }
+        }
+        for ( int i = 0; i < m_ids.length; i++ )
+        {
+            PieceShape shape = m_shapes[i];
+            for ( int run = 0; run < shape.getRunCount(); run++ )
+            {
+                int from = m_anchors[i] + shape.getRunY( run ) * m_width + shape.getRunX( run );
+                Arrays.fill( owners, from, from + shape.getRunLength( run ), i );
+            }
+        }
+
+        if ( m_ids.length <= Short.MAX_VALUE )
+        {
+            short[] shortOwners = new short[owners.length];
+            for ( int cell = 0; cell < owners.length; cell++ )
+            {
+                shortOwners[cell] = (short)owners[cell];
+            }
+            m_shortOwners = shortOwners;
+        }
+        else
+        {
+            m_owners = owners;
+        }
+    }
+
+    private void commitRenderEvent( SolverEvents.RenderEvent event, String format )
+    {
+        if ( event.shouldCommit() )
+        {
+            event.format = format;
+            event.blockCount = m_ids.length;
+            event.sideLength = m_width;
+            event.commit();
+        }
+    }
 }
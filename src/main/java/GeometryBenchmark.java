@@ -0,0 +1,124 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Measures the costs that depend on the size of the pieces: the geometry of {@link Block},
+ * creating the {@link PieceShape} and building the placements of {@link PlacementTable}.
+ * The pieces are random polyominoes of 4, 16 and 64 cells.
+ * <p>
+ * Usage: GeometryBenchmark [side length] [pieces] [rounds]
+ */
+public class GeometryBenchmark
+{
+    private static final int[] SIZES = { 4, 16, 64 };
+    private static final int[][] DIRECTIONS = { { 1, 0 }, { -1, 0 }, { 0, 1 }, { 0, -1 } };
+
+    public static void main( String[] args ) throws Exception
+    {
+        int sideLength = args.length > 0 ? Integer.parseInt( args[0] ) : 24;
+        int pieceCount = args.length > 1 ? Integer.parseInt( args[1] ) : 200;
+        int rounds = args.length > 2 ? Integer.parseInt( args[2] ) : 5;
+
+        System.out.println( "cells   geometry ns    shape ns   placements ns" );
+        for ( int size : SIZES )
+        {
+            List<Set<Point>> pieces = createPieces( size, pieceCount, new Random( size ) );
+            long geometry = Long.MAX_VALUE;
+            long shape = Long.MAX_VALUE;
+            long placements = Long.MAX_VALUE;
+
+            // The best round leaves out the warm-up
+            for ( int round = 0; round < rounds; round++ )
+            {
+                geometry = Math.min( geometry, timeGeometry( pieces ) );
+                shape = Math.min( shape, timeShapes( pieces ) );
+                placements = Math.min( placements, timePlacements( pieces, sideLength ) );
+            }
+
+            System.out.println( String.format( "%5d %13d %11d %15d", size, geometry / pieceCount,
+                                               shape / pieceCount, placements / pieceCount ) );
+        }
+    }
+
+    private static long timeGeometry( List<Set<Point>> pieces )
+    {
+        long start = System.nanoTime();
+        long sum = 0;
+        for ( Set<Point> points : pieces )
+        {
+            Block block = new Block( 0, 'A', points );
+            sum += block.getBaseWidth() + block.getMinXvalue() + block.getLowestLeftPoint().getX();
+        }
+        checkSum( sum );
+        return System.nanoTime() - start;
+    }
+
+    private static long timeShapes( List<Set<Point>> pieces )
+    {
+        long start = System.nanoTime();
+        long sum = 0;
+        for ( Set<Point> points : pieces )
+        {
+            PieceShape shape = new PieceShape( new Block( 0, 'A', points ) );
+            sum += shape.isConnected() ? shape.getRunCount() : 0;
+        }
+        checkSum( sum );
+        return System.nanoTime() - start;
+    }
+
+    private static long timePlacements( List<Set<Point>> pieces, int sideLength )
+    {
+        long start = System.nanoTime();
+        long sum = 0;
+        for ( Set<Point> points : pieces )
+        {
+            PlacementTable table = new PlacementTable( sideLength, Arrays.asList( new Block( 0, 'A', points ) ) );
+            sum += table.getPlacementCount( 0 );
+        }
+        checkSum( sum );
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * Keeps the measured work from being left out by the compiler.
+     */
+    private static void checkSum( long sum )
+    {
+        if ( sum == Long.MIN_VALUE )
+        {
+            System.out.println( sum );
+        }
+    }
+
+    /**
+     * Creates connected pieces by adding random neighbours to a single cell.
+     */
+    static List<Set<Point>> createPieces( int size, int count, Random random )
+    {
+        List<Set<Point>> pieces = new ArrayList<>();
+        for ( int i = 0; i < count; i++ )
+        {
+            List<Point> cells = new ArrayList<>();
+            Set<Point> points = new HashSet<>();
+            cells.add( new Point( 0, 0 ) );
+            points.add( cells.get( 0 ) );
+
+            while ( points.size() < size )
+            {
+                Point cell = cells.get( random.nextInt( cells.size() ) );
+                int[] direction = DIRECTIONS[random.nextInt( DIRECTIONS.length )];
+                Point neighbour = new Point( cell.getX() + direction[0], cell.getY() + direction[1] );
+                if ( points.add( neighbour ) )
+                {
+                    cells.add( neighbour );
+                }
+            }
+            pieces.add( points );
+        }
+        return pieces;
+    }
+}
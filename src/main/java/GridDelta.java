@@ -0,0 +1,109 @@
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * A single change to the blocks or the grid of an earlier fitting result.
+ */
+public class GridDelta
+{
+    public enum Type
+    {
+        ADD,
+        REMOVE,
+        REPLACE,
+        BLOCK_CELLS
+    }
+
+    private final Type m_type;
+    private final Block m_block;
+    private final String m_name;
+    private final Set<Point> m_cells;
+
+    private GridDelta( Type type, Block block, String name, Set<Point> cells )
+    {
+        m_type = type;
+        m_block = block;
+        m_name = name;
+        m_cells = cells;
+    }
+
+    /**
+     * Adds a new block.
+     *
+     * @param block
+     * @return
+     */
+    public static GridDelta add( Block block )
+    {
+        return new GridDelta( Type.ADD, block, block.getName(), new HashSet<>() );
+    }
+
+    /**
+     * Removes the block with the given name.
+     *
+     * @param name
+     * @return
+     */
+    public static GridDelta remove( String name )
+    {
+        return new GridDelta( Type.REMOVE, null, name, new HashSet<>() );
+    }
+
+    /**
+     * Removes the block with the given single character name.
+     *
+     * @param name
+     * @return
+     */
+    public static GridDelta remove( char name )
+    {
+        return remove( String.valueOf( name ) );
+    }
+
+    /**
+     * Replaces the block having the same name as the given block.
+     *
+     * @param block
+     * @return
+     */
+    public static GridDelta replace( Block block )
+    {
+        return new GridDelta( Type.REPLACE, block, block.getName(), new HashSet<>() );
+    }
+
+    /**
+     * Blocks the given cells of the grid, so no block can be put on them.
+     *
+     * @param cells
+     * @return
+     */
+    public static GridDelta blockCells( Set<Point> cells )
+    {
+        return new GridDelta( Type.BLOCK_CELLS, null, null, new HashSet<>( cells ) );
+    }
+
+    public Type getType()
+    {
+        return m_type;
+    }
+
+    public Block getBlock()
+    {
+        return m_block;
+    }
+
+    /**
+     * Gets the name of the block to add, remove or replace.
+     *
+     * @return null if the change isn't about a block
+     */
+    public String getName()
+    {
+        return m_name;
+    }
+
+    public Set<Point> getCells()
+    {
+        return m_cells;
+    }
+}
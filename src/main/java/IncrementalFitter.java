@@ -0,0 +1,297 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fits the blocks again after a small change without throwing away the earlier result.
+ * <p>
+ * The blocks far away from the change keep their places. First only the blocks touching
+ * the changed cells are moved, then the area is grown one cell at a time. If the blocks
+ * still don't fit, all of them are fitted again from scratch.
+ */
+public class IncrementalFitter
+{
+    private static final long DEFAULT_REPAIR_NODE_LIMIT = 20000;
+
+    private long m_repairNodeLimit = DEFAULT_REPAIR_NODE_LIMIT;
+    private int m_lastRadius = -1;
+
+    /**
+     * Sets the maximum amount of placements tried on each repair round.
+     *
+     * @param repairNodeLimit
+     */
+    public void setRepairNodeLimit( long repairNodeLimit )
+    {
+        m_repairNodeLimit = repairNodeLimit;
+    }
+
+    /**
+     * Gets how many cells around the change the last repair had to move blocks.
+     *
+     * @return the radius, -1 if the last call had to fit all blocks again
+     */
+    public int getLastRadius()
+    {
+        return m_lastRadius;
+    }
+
+    /**
+     * Applies the change to the earlier result and fits the blocks again.
+     *
+     * @param previous earlier result
+     * @param delta the change
+     * @return the new result if all blocks fit, null otherwise
+     * @throws Exception if the change doesn't match the earlier result or the blocks are too big for the grid
+     */
+    public FittingResult refit( FittingResult previous, GridDelta delta ) throws Exception
+    {
+        int width = previous.getWidth();
+        int height = previous.getHeight();
+        int cellCount = width * height;
+
+        long[] blocked = CellMask.create( cellCount );
+        long[] seed = CellMask.create( cellCount );
+        Map<String, long[]> previousCells = new HashMap<>();
+
+        for ( int x = 0; x < width; x++ )
+        {
+            for ( int y = 0; y < height; y++ )
+            {
+                if ( previous.isBlocked( x, y ) )
+                {
+                    CellMask.set( blocked, y * width + x );
+                }
+            }
+        }
+        for ( Block block : previous.getBlocks() )
+        {
+            long[] cells = previousCells.computeIfAbsent( block.getName(), v -> CellMask.create( cellCount ) );
+            block.getPoints().forEach( p -> CellMask.set( cells, p.getY() * width + p.getX() ) );
+        }
+
+        List<Block> blocks = new ArrayList<>( previous.getBlocks() );
+        int index = indexOf( blocks, delta.getName() );
+
+        switch ( delta.getType() )
+        {
+            case ADD:
+                if ( index >= 0 )
+                {
+                    throw new Exception( "Block " + delta.getName() + " is already in the grid." );
+                }
+                checkId( blocks, delta.getBlock(), index );
+                blocks.add( delta.getBlock() );
+                // The new block can only go to the free cells
+                for ( int cell = 0; cell < cellCount; cell++ )
+                {
+                    if ( !CellMask.get( blocked, cell ) && !isCovered( previousCells, cell ) )
+                    {
+                        CellMask.set( seed, cell );
+                    }
+                }
+                break;
+            case REMOVE:
+                if ( index < 0 )
+                {
+                    throw new Exception( "Block " + delta.getName() + " is not in the grid." );
+                }
+                blocks.remove( index );
+                previousCells.remove( delta.getName() );
+                break;
+            case REPLACE:
+                if ( index < 0 )
+                {
+                    throw new Exception( "Block " + delta.getName() + " is not in the grid." );
+                }
+                checkId( blocks, delta.getBlock(), index );
+                blocks.set( index, delta.getBlock() );
+                long[] oldCells = previousCells.remove( delta.getName() );
+                if ( oldCells != null )
+                {
+                    CellMask.or( oldCells, 0, seed );
+                }
+                break;
+            case BLOCK_CELLS:
+                for ( Point point : delta.getCells() )
+                {
+                    if ( point.getX() < 0 || point.getX() >= width || point.getY() < 0 || point.getY() >= height )
+                    {
+                        throw new Exception( "Blocked cell " + point + " is outside of the grid." );
+                    }
+                    int cell = point.getY() * width + point.getX();
+                    CellMask.set( blocked, cell );
+                    CellMask.set( seed, cell );
+                }
+                break;
+        }
+
+        PlacementTable table = new PlacementTable( width, height, blocks, blocked );
+
+        if ( table.getPieceCellCount() > table.getFreeCellCount() )
+        {
+            throw new Exception( "The blocks are too big to fit the grid." );
+        }
+
+        int[] placements = findPreviousPlacements( table, previousCells );
+        return repair( table, placements, seed );
+    }
+
+    /**
+     * Finds the placements the blocks had in the earlier result.
+     *
+     * @return placement per piece, -1 if the block is new, changed or can't stay in its place
+     */
+    private int[] findPreviousPlacements( PlacementTable table, Map<String, long[]> previousCells )
+    {
+        int[] placements = new int[table.getPieceCount()];
+
+        for ( int piece = 0; piece < placements.length; piece++ )
+        {
+            placements[piece] = -1;
+            long[] cells = previousCells.get( table.getBlock( piece ).getName() );
+            if ( cells != null )
+            {
+                // The lowest left cell of the shape tells where the (0,0) corner of it is
+                int first = CellMask.nextSet( cells, 0 );
+                PieceShape shape = table.getShape( piece );
+                int anchor = first - shape.getLowestLeftX();
+                if ( first % table.getWidth() >= shape.getLowestLeftX() )
+                {
+                    int placement = table.findPlacement( piece, anchor );
+                    if ( placement >= 0 && sameCells( table, piece, placement, cells ) )
+                    {
+                        placements[piece] = placement;
+                    }
+                }
+            }
+        }
+
+        return placements;
+    }
+
+    /**
+     * Moves the blocks around the changed cells, growing the area until the blocks fit.
+     */
+    private FittingResult repair( PlacementTable table, int[] placements, long[] seed )
+    {
+        int maxRadius = Math.max( table.getWidth(), table.getHeight() );
+        long[] area = seed.clone();
+
+        for ( int radius = 0; radius <= maxRadius; radius++ )
+        {
+            PlacementSearch search = new PlacementSearch( table );
+            search.setNodeLimit( m_repairNodeLimit );
+            int moved = 0;
+
+            for ( int piece = 0; piece < placements.length; piece++ )
+            {
+                int placement = placements[piece];
+                if ( placement >= 0 && !CellMask.intersects( table.getMasks( piece ), placement * table.getWords(), area ) )
+                {
+                    search.fix( piece, placement );
+                }
+                else
+                {
+                    moved++;
+                }
+            }
+
+            if ( moved == placements.length )
+            {
+                break;
+            }
+
+            int[] result = search.findFirst();
+            if ( result != null )
+            {
+                m_lastRadius = radius;
+                return table.createResult( result );
+            }
+
+            long[] grown = grow( area, table.getWidth(), table.getHeight() );
+            if ( CellMask.cardinality( grown ) == CellMask.cardinality( area ) )
+            {
+                break;
+            }
+            area = grown;
+        }
+
+        m_lastRadius = -1;
+        int[] result = new PlacementSearch( table ).findFirst();
+
+        return result == null ? null : table.createResult( result );
+    }
+
+    /**
+     * Adds the neighbours (also diagonal) of the cells to the area.
+     */
+    private long[] grow( long[] area, int width, int height )
+    {
+        long[] grown = area.clone();
+
+        for ( int cell = CellMask.nextSet( area, 0 ); cell >= 0; cell = CellMask.nextSet( area, cell + 1 ) )
+        {
+            int x = cell % width;
+            int y = cell / width;
+            for ( int nx = Math.max( 0, x - 1 ); nx <= Math.min( width - 1, x + 1 ); nx++ )
+            {
+                for ( int ny = Math.max( 0, y - 1 ); ny <= Math.min( height - 1, y + 1 ); ny++ )
+                {
+                    CellMask.set( grown, ny * width + nx );
+                }
+            }
+        }
+
+        return grown;
+    }
+
+    private boolean sameCells( PlacementTable table, int piece, int placement, long[] cells )
+    {
+        long[] masks = table.getMasks( piece );
+        int offset = placement * table.getWords();
+
+        for ( int i = 0; i < cells.length; i++ )
+        {
+            if ( masks[offset + i] != cells[i] )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isCovered( Map<String, long[]> cells, int cell )
+    {
+        return cells.values().stream().anyMatch( mask -> CellMask.get( mask, cell ) );
+    }
+
+    /**
+     * Checks that no other block has the id of the new block.
+     *
+     * @param index index of the block the new block replaces, -1 if it is added
+     */
+    private void checkId( List<Block> blocks, Block block, int index ) throws Exception
+    {
+        for ( int i = 0; i < blocks.size(); i++ )
+        {
+            if ( i != index && blocks.get( i ).getId() == block.getId() )
+            {
+                throw new Exception( "Block " + blocks.get( i ).getName() + " already has the id " + block.getId() + "." );
+            }
+        }
+    }
+
+    private int indexOf( List<Block> blocks, String name )
+    {
+        for ( int i = 0; i < blocks.size(); i++ )
+        {
+            if ( blocks.get( i ).getName().equals( name ) )
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
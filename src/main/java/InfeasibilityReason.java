@@ -0,0 +1,18 @@
+/**
+ * Reasons why the blocks can't be fitted to the grid, found without searching.
+ */
+public enum InfeasibilityReason
+{
+    /** The blocks have more points than there are free cells in the grid. */
+    TOO_MANY_CELLS,
+    /** Some block can't be put anywhere in the grid. */
+    NO_PLACEMENT,
+    /** The blocks can't cover the black and white cells of a checkerboard colouring evenly. */
+    CHECKERBOARD_PARITY,
+    /** The blocks can't cover the cells of even and odd columns evenly. */
+    COLUMN_PARITY,
+    /** The blocks can't cover the cells of even and odd rows evenly. */
+    ROW_PARITY,
+    /** The blocked cells split the grid into areas the blocks can't fill. */
+    REGION_SIZE
+}
@@ -0,0 +1,518 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Fits the blocks with a randomized local search. Meant for large grids where a good layout
+ * found quickly is better than waiting for the exhaustive search.
+ * <p>
+ * Each restart builds a layout greedily in a random block order and then repairs it with
+ * min-conflicts moves: an unplaced block is put to the place that pushes out the fewest cells
+ * of other blocks. The search stops when all blocks are placed, all free cells are covered or
+ * the time budget is used. The best layout found so far is returned, so the result may leave
+ * some blocks out.
+ * <p>
+ * Every thread runs its own restart stream with a random generator derived from the seed.
+ * With one thread and an iteration limit instead of a time budget the result depends only on the seed.
+ */
+public class LocalSearchFitter
+{
+    private static final long DEFAULT_TIME_BUDGET = 1000;
+    // How many random placements are compared on each move
+    private static final int SAMPLE_SIZE = 32;
+    // Probability to accept a move that loses covered cells
+    private static final double NOISE = 0.1;
+    // Moves without a new best before starting again, per block
+    private static final int RESTART_MOVES_PER_BLOCK = 50;
+
+    private final long m_seed;
+    private long m_timeBudget = DEFAULT_TIME_BUDGET;
+    private long m_iterationLimit = Long.MAX_VALUE;
+    private int m_threadCount = 1;
+
+    private volatile boolean m_stop;
+    private int m_bestCoverage;
+    private long m_restartCount;
+
+    /**
+     * @param seed seed of the random generators
+     */
+    public LocalSearchFitter( long seed )
+    {
+        m_seed = seed;
+    }
+
+    /**
+     * Sets the time the search may take.
+     *
+     * @param timeBudget milliseconds, zero for no limit
+     */
+    public void setTimeBudget( long timeBudget )
+    {
+        m_timeBudget = timeBudget;
+    }
+
+    /**
+     * Sets the maximum amount of moves on each thread.
+     *
+     * @param iterationLimit
+     */
+    public void setIterationLimit( long iterationLimit )
+    {
+        m_iterationLimit = iterationLimit;
+    }
+
+    /**
+     * Sets how many restart streams are run at the same time.
+     *
+     * @param threadCount
+     */
+    public void setThreadCount( int threadCount )
+    {
+        m_threadCount = Math.max( 1, threadCount );
+    }
+
+    /**
+     * Gets how many cells the blocks of the last result cover.
+     *
+     * @return
+     */
+    public int getBestCoverage()
+    {
+        return m_bestCoverage;
+    }
+
+    /**
+     * Gets how many times the streams of the last call started again.
+     *
+     * @return
+     */
+    public long getRestartCount()
+    {
+        return m_restartCount;
+    }
+
+    /**
+     * Fits as many blocks of the puzzle to the grid as possible.
+     *
+     * @param puzzle
+     * @return the best result found, blocks that didn't fit are left out
+     * @throws Exception if a search thread failed
+     */
+    public FittingResult fit( Puzzle puzzle ) throws Exception
+    {
+        PlacementTable table = puzzle.createPlacementTable();
+
+        return table.createResult( solve( table ) );
+    }
+
+    /**
+     * Finds placements covering as many cells as possible.
+     *
+     * @param table
+     * @return placement index per piece, -1 for the pieces left out
+     * @throws Exception if a search thread failed
+     */
+    public int[] solve( PlacementTable table ) throws Exception
+    {
+        m_stop = false;
+        long deadline = m_timeBudget > 0 ? System.nanoTime() + m_timeBudget * 1000000L : Long.MAX_VALUE;
+        List<SearchStream> streams = new ArrayList<>();
+
+        for ( int i = 0; i < m_threadCount; i++ )
+        {
+            // Spread the seeds so that the streams don't repeat each other
+            streams.add( new SearchStream( table, new Random( m_seed + i * 0x9E3779B97F4A7C15L ), deadline ) );
+        }
+
+        if ( m_threadCount == 1 )
+        {
+            streams.get( 0 ).run();
+        }
+        else
+        {
+            ExecutorService executor = Executors.newFixedThreadPool( m_threadCount );
+            try
+            {
+                List<Future<?>> futures = new ArrayList<>();
+                for ( SearchStream stream : streams )
+                {
+                    futures.add( executor.submit( stream ) );
+                }
+                for ( Future<?> future : futures )
+                {
+                    future.get();
+                }
+            }
+            catch ( Exception e )
+            {
+                m_stop = true;
+                throw new Exception( "Local search failed.", e );
+            }
+            finally
+            {
+                executor.shutdownNow();
+            }
+        }
+
+        // The first stream wins ties, so the result doesn't depend on which thread finished first
+        SearchStream best = streams.get( 0 );
+        m_restartCount = 0;
+        for ( SearchStream stream : streams )
+        {
+            m_restartCount += stream.m_restarts;
+            if ( stream.m_bestCoverage > best.m_bestCoverage )
+            {
+                best = stream;
+            }
+        }
+
+        m_bestCoverage = best.m_bestCoverage;
+        return best.m_best;
+    }
+
+    /**
+     * One restart stream. Keeps the owner of each cell so that the pieces pushed out by a
+     * placement are found without going through the masks.
+     */
+    private class SearchStream implements Runnable
+    {
+        private final PlacementTable m_table;
+        private final Random m_random;
+        private final long m_deadline;
+        private final int m_width;
+        private final int[] m_owners;
+        private final int[] m_placements;
+        private final int[] m_unplaced;
+        private final int[] m_unplacedIndex;
+        private final int[] m_marks;
+        private final int[] m_sizes;
+        private final long[] m_blocked;
+        private final int[] m_free;
+        private final int[] m_freeIndex;
+        private final int m_target;
+        private int m_unplacedCount;
+        private int m_freeCount;
+        private int m_coverage;
+        private int m_mark;
+
+        private int[] m_best;
+        private int m_bestCoverage = -1;
+        private long m_restarts;
+
+        SearchStream( PlacementTable table, Random random, long deadline )
+        {
+            int pieceCount = table.getPieceCount();
+
+            m_table = table;
+            m_random = random;
+            m_deadline = deadline;
+            m_width = table.getWidth();
+            m_owners = new int[table.getCellCount()];
+            m_placements = new int[pieceCount];
+            m_unplaced = new int[pieceCount];
+            m_unplacedIndex = new int[pieceCount];
+            m_marks = new int[pieceCount];
+            m_sizes = new int[pieceCount];
+            m_blocked = table.getBlocked();
+            m_free = new int[table.getCellCount()];
+            m_freeIndex = new int[table.getCellCount()];
+
+            int pieceCells = 0;
+            for ( int piece = 0; piece < pieceCount; piece++ )
+            {
+                m_sizes[piece] = table.getShape( piece ).getSize();
+                pieceCells += m_sizes[piece];
+            }
+            m_target = Math.min( pieceCells, table.getFreeCellCount() );
+            m_best = new int[pieceCount];
+            Arrays.fill( m_best, -1 );
+        }
+
+        @Override
+        public void run()
+        {
+            long restartMoves = (long)RESTART_MOVES_PER_BLOCK * m_placements.length + 1000;
+            long iteration = 0;
+
+            while ( !m_stop && iteration < m_iterationLimit )
+            {
+                construct();
+                update();
+                long lastImprovement = iteration;
+
+                while ( !m_stop && iteration < m_iterationLimit && iteration - lastImprovement < restartMoves )
+                {
+                    if ( ( iteration & 255 ) == 0 && System.nanoTime() >= m_deadline )
+                    {
+                        return;
+                    }
+                    iteration++;
+
+                    if ( move() && update() )
+                    {
+                        lastImprovement = iteration;
+                    }
+                }
+                if ( !m_stop && iteration < m_iterationLimit )
+                {
+                    m_restarts++;
+                }
+            }
+        }
+
+        /**
+         * Places the pieces in a random order, each to the first place it fits.
+         */
+        private void construct()
+        {
+            Arrays.fill( m_owners, -1 );
+            Arrays.fill( m_placements, -1 );
+            m_coverage = 0;
+            m_unplacedCount = 0;
+            m_freeCount = 0;
+            for ( int cell = 0; cell < m_owners.length; cell++ )
+            {
+                if ( !CellMask.get( m_blocked, cell ) )
+                {
+                    m_freeIndex[cell] = m_freeCount;
+                    m_free[m_freeCount++] = cell;
+                }
+            }
+
+            Integer[] order = new Integer[m_placements.length];
+            for ( int i = 0; i < order.length; i++ )
+            {
+                order[i] = i;
+            }
+            // Shuffle and then put the large pieces first, the order of equal sizes stays random
+            for ( int i = order.length - 1; i > 0; i-- )
+            {
+                int k = m_random.nextInt( i + 1 );
+                Integer swap = order[i];
+                order[i] = order[k];
+                order[k] = swap;
+            }
+            Arrays.sort( order, ( a, b ) -> m_sizes[b] - m_sizes[a] );
+
+            for ( int piece : order )
+            {
+                int placement = findFirstFree( piece );
+                if ( placement >= 0 )
+                {
+                    place( piece, placement );
+                }
+                else
+                {
+                    addUnplaced( piece );
+                }
+            }
+        }
+
+        private int findFirstFree( int piece )
+        {
+            int count = m_table.getPlacementCount( piece );
+            for ( int placement = 0; placement < count; placement++ )
+            {
+                if ( countPushedOut( piece, placement ) == 0 )
+                {
+                    return placement;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Moves one unplaced piece to the grid, pushing out the pieces in its way.
+         *
+         * @return true if the move was made
+         */
+        private boolean move()
+        {
+            if ( m_unplacedCount == 0 )
+            {
+                return false;
+            }
+
+            int piece = m_unplaced[m_random.nextInt( m_unplacedCount )];
+            int count = m_table.getPlacementCount( piece );
+            if ( count == 0 )
+            {
+                return false;
+            }
+
+            int bestPlacement = -1;
+            int bestPushed = Integer.MAX_VALUE;
+            int ties = 0;
+            for ( int i = 0; i < Math.min( SAMPLE_SIZE, count ); i++ )
+            {
+                int placement = ( i & 1 ) == 0 ? m_random.nextInt( count ) : findCovering( piece );
+                if ( placement < 0 )
+                {
+                    continue;
+                }
+                int pushed = countPushedOut( piece, placement );
+                if ( pushed < bestPushed )
+                {
+                    bestPlacement = placement;
+                    bestPushed = pushed;
+                    ties = 1;
+                }
+                else if ( pushed == bestPushed && m_random.nextInt( ++ties ) == 0 )
+                {
+                    bestPlacement = placement;
+                }
+            }
+
+            if ( bestPushed > m_sizes[piece] && m_random.nextDouble() >= NOISE )
+            {
+                return false;
+            }
+
+            // Push out the pieces in the way
+            PieceShape shape = m_table.getShape( piece );
+            int anchor = m_table.getAnchor( piece, bestPlacement );
+            for ( int i = 0; i < shape.getSize(); i++ )
+            {
+                int owner = m_owners[cellOf( shape, anchor, i )];
+                if ( owner >= 0 )
+                {
+                    unplace( owner );
+                    addUnplaced( owner );
+                }
+            }
+
+            removeUnplaced( piece );
+            place( piece, bestPlacement );
+            return true;
+        }
+
+        /**
+         * Finds a random placement of the piece covering a random free cell. On large grids
+         * the placements picked at random rarely hit the last free cells.
+         *
+         * @return the placement, -1 if the piece doesn't fit there
+         */
+        private int findCovering( int piece )
+        {
+            if ( m_freeCount == 0 )
+            {
+                return -1;
+            }
+
+            int cell = m_free[m_random.nextInt( m_freeCount )];
+            PieceShape shape = m_table.getShape( piece );
+            int i = m_random.nextInt( shape.getSize() );
+            int x = cell % m_width - shape.getX( i );
+            if ( x < 0 )
+            {
+                return -1;
+            }
+            return m_table.findPlacement( piece, cell - shape.getY( i ) * m_width - shape.getX( i ) );
+        }
+
+        /**
+         * Saves the current placements if they are the best so far of this stream.
+         *
+         * @return true if a new best was found
+         */
+        private boolean update()
+        {
+            if ( m_coverage <= m_bestCoverage )
+            {
+                return false;
+            }
+
+            m_bestCoverage = m_coverage;
+            System.arraycopy( m_placements, 0, m_best, 0, m_placements.length );
+            if ( m_unplacedCount == 0 || m_coverage == m_target )
+            {
+                // Nothing can get better, stop the other streams too
+                m_stop = true;
+            }
+            return true;
+        }
+
+        /**
+         * Counts the cells of other pieces the placement would cover.
+         */
+        private int countPushedOut( int piece, int placement )
+        {
+            PieceShape shape = m_table.getShape( piece );
+            int anchor = m_table.getAnchor( piece, placement );
+            int pushed = 0;
+
+            m_mark++;
+            for ( int i = 0; i < shape.getSize(); i++ )
+            {
+                int owner = m_owners[cellOf( shape, anchor, i )];
+                if ( owner >= 0 && m_marks[owner] != m_mark )
+                {
+                    m_marks[owner] = m_mark;
+                    pushed += m_sizes[owner];
+                }
+            }
+            return pushed;
+        }
+
+        private void place( int piece, int placement )
+        {
+            PieceShape shape = m_table.getShape( piece );
+            int anchor = m_table.getAnchor( piece, placement );
+            for ( int i = 0; i < shape.getSize(); i++ )
+            {
+                int cell = cellOf( shape, anchor, i );
+                m_owners[cell] = piece;
+                removeFree( cell );
+            }
+            m_placements[piece] = placement;
+            m_coverage += m_sizes[piece];
+        }
+
+        private void unplace( int piece )
+        {
+            PieceShape shape = m_table.getShape( piece );
+            int anchor = m_table.getAnchor( piece, m_placements[piece] );
+            for ( int i = 0; i < shape.getSize(); i++ )
+            {
+                int cell = cellOf( shape, anchor, i );
+                m_owners[cell] = -1;
+                m_freeIndex[cell] = m_freeCount;
+                m_free[m_freeCount++] = cell;
+            }
+            m_placements[piece] = -1;
+            m_coverage -= m_sizes[piece];
+        }
+
+        private int cellOf( PieceShape shape, int anchor, int i )
+        {
+            return anchor + shape.getY( i ) * m_width + shape.getX( i );
+        }
+
+        private void addUnplaced( int piece )
+        {
+            m_unplacedIndex[piece] = m_unplacedCount;
+            m_unplaced[m_unplacedCount++] = piece;
+        }
+
+        private void removeFree( int cell )
+        {
+            int index = m_freeIndex[cell];
+            int last = m_free[--m_freeCount];
+            m_free[index] = last;
+            m_freeIndex[last] = index;
+        }
+
+        private void removeUnplaced( int piece )
+        {
+            int index = m_unplacedIndex[piece];
+            int last = m_unplaced[--m_unplacedCount];
+            m_unplaced[index] = last;
+            m_unplacedIndex[last] = index;
+        }
+    }
+}
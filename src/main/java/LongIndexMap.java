@@ -0,0 +1,131 @@
+import java.util.Arrays;
+
+/**
+ * Gives dense indexes to <code>long</code> keys: the first key added gets index 0, the next
+ * new key 1 and so on. The values of the keys are kept by the caller in arrays by the index,
+ * so the map doesn't create an object per key or per value.
+ * <p>
+ * The keys are stored in the order they were added, and the slots of the hash table, with
+ * open addressing and linear probing, hold the index of the key plus one.
+ */
+public class LongIndexMap
+{
+    private static final int INITIAL_CAPACITY = 16;
+
+    private long[] m_keys;
+    // Index of the key plus one, zero for a free slot
+    private int[] m_slots;
+    private int m_shift;
+    private int m_size;
+
+    public LongIndexMap()
+    {
+        m_keys = new long[INITIAL_CAPACITY / 2];
+        allocate( INITIAL_CAPACITY );
+    }
+
+    public int size()
+    {
+        return m_size;
+    }
+
+    /**
+     * Gets the key of the index.
+     *
+     * @param index
+     * @return
+     */
+    public long getKey( int index )
+    {
+        return m_keys[index];
+    }
+
+    /**
+     * Gets the keys in the order of their indexes.
+     *
+     * @return
+     */
+    public long[] toArray()
+    {
+        return Arrays.copyOf( m_keys, m_size );
+    }
+
+    /**
+     * Gets the index of the key.
+     *
+     * @param key
+     * @return the index, -1 if the key isn't in the map
+     */
+    public int indexOf( long key )
+    {
+        int slot = find( key );
+        return m_slots[slot] - 1;
+    }
+
+    /**
+     * Adds the key if it isn't in the map. A new key gets the index {@link #size()} had before
+     * adding it.
+     *
+     * @param key
+     * @return the index of the key
+     */
+    public int add( long key )
+    {
+        int slot = find( key );
+        if ( m_slots[slot] != 0 )
+        {
+            return m_slots[slot] - 1;
+        }
+
+        if ( ( m_size + 1 ) * 2L > m_slots.length )
+        {
+            allocate( m_slots.length * 2 );
+            for ( int i = 0; i < m_size; i++ )
+            {
+                m_slots[find( m_keys[i] )] = i + 1;
+            }
+            slot = find( key );
+        }
+        if ( m_size == m_keys.length )
+        {
+            m_keys = Arrays.copyOf( m_keys, m_keys.length * 2 );
+        }
+
+        m_keys[m_size] = key;
+        m_slots[slot] = ++m_size;
+        return m_size - 1;
+    }
+
+    /**
+     * Removes all keys, keeping the memory taken for them.
+     */
+    public void clear()
+    {
+        if ( m_size > 0 )
+        {
+            Arrays.fill( m_slots, 0 );
+            m_size = 0;
+        }
+    }
+
+    /**
+     * Finds the slot of the key, or the free slot where it would be added.
+     */
+    private int find( long key )
+    {
+        int capacityMask = m_slots.length - 1;
+        int slot = (int)( ( key * 0x9E3779B97F4A7C15L ) >>> m_shift );
+
+        while ( m_slots[slot] != 0 && m_keys[m_slots[slot] - 1] != key )
+        {
+            slot = ( slot + 1 ) & capacityMask;
+        }
+        return slot;
+    }
+
+    private void allocate( int capacity )
+    {
+        m_slots = new int[capacity];
+        m_shift = 64 - Integer.numberOfTrailingZeros( capacity );
+    }
+}
@@ -0,0 +1,187 @@
+/**
+ * Hash set of cell masks of the same number of words, see {@link CellMask}. The masks are
+ * stored one after another in a single <code>long[]</code> with open addressing and linear
+ * probing, so the set doesn't create an object per mask.
+ * <p>
+ * The set doesn't grow over its memory limit: when {@link #isFull()} is true, adding a new mask
+ * would need more memory than allowed. The first table is always created, even if it's over
+ * the limit, but then the set is full from the start.
+ */
+public class MaskSet
+{
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final int m_words;
+    private final long m_memoryLimit;
+    private long[] m_keys;
+    // One bit per slot, set if the slot has a mask
+    private long[] m_used;
+    private int m_shift;
+    private int m_size;
+
+    /**
+     * Creates an empty set.
+     *
+     * @param words the number of words in each mask
+     * @param memoryLimit the most bytes the set may take
+     */
+    public MaskSet( int words, long memoryLimit )
+    {
+        m_words = words;
+        m_memoryLimit = memoryLimit;
+        allocate( INITIAL_CAPACITY );
+    }
+
+    public int size()
+    {
+        return m_size;
+    }
+
+    /**
+     * Gets the bytes taken by the arrays of the set.
+     *
+     * @return
+     */
+    public long getMemoryBytes()
+    {
+        return getMemoryBytes( m_used.length * 64L );
+    }
+
+    /**
+     * Checks if adding a mask could need more memory than the limit.
+     *
+     * @return
+     */
+    public boolean isFull()
+    {
+        long capacity = m_used.length * 128L;
+        return getMemoryBytes() > m_memoryLimit
+               || needsToGrow() && ( getMemoryBytes( capacity ) > m_memoryLimit
+                                     || capacity * m_words > Integer.MAX_VALUE - 8 );
+    }
+
+    /**
+     * Adds the mask stored at the given offset of <code>masks</code>.
+     *
+     * @param masks
+     * @param offset
+     * @return true if the mask was added, false if it was already in the set
+     * @throws IllegalStateException if the set would grow over the memory limit
+     */
+    public boolean add( long[] masks, int offset )
+    {
+        int slot = find( masks, offset );
+        if ( slot < 0 )
+        {
+            return false;
+        }
+        if ( needsToGrow() )
+        {
+            if ( isFull() )
+            {
+                throw new IllegalStateException( "The masks need more than " + m_memoryLimit + " bytes" );
+            }
+            grow();
+            slot = find( masks, offset );
+        }
+
+        System.arraycopy( masks, offset, m_keys, slot * m_words, m_words );
+        m_used[slot >>> 6] |= 1L << slot;
+        m_size++;
+        return true;
+    }
+
+    /**
+     * Checks if the mask stored at the given offset of <code>masks</code> is in the set.
+     *
+     * @param masks
+     * @param offset
+     * @return
+     */
+    public boolean contains( long[] masks, int offset )
+    {
+        return find( masks, offset ) < 0;
+    }
+
+    /**
+     * Finds the slot of the mask.
+     *
+     * @return <code>-1 - slot</code> if the mask is in the slot, otherwise the free slot for it
+     */
+    private int find( long[] masks, int offset )
+    {
+        int capacityMask = m_used.length * 64 - 1;
+        int slot = hash( masks, offset );
+
+        while ( ( m_used[slot >>> 6] & ( 1L << slot ) ) != 0 )
+        {
+            if ( equals( slot, masks, offset ) )
+            {
+                return -1 - slot;
+            }
+            slot = ( slot + 1 ) & capacityMask;
+        }
+        return slot;
+    }
+
+    private boolean equals( int slot, long[] masks, int offset )
+    {
+        int start = slot * m_words;
+        for ( int i = 0; i < m_words; i++ )
+        {
+            if ( m_keys[start + i] != masks[offset + i] )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int hash( long[] masks, int offset )
+    {
+        long hash = 0;
+        for ( int i = 0; i < m_words; i++ )
+        {
+            hash = ( hash ^ masks[offset + i] ) * 0x9E3779B97F4A7C15L;
+        }
+        // The high bits are mixed the best
+        return (int)( hash >>> m_shift );
+    }
+
+    /**
+     * Checks if the next mask would make the table more than half full.
+     */
+    private boolean needsToGrow()
+    {
+        return ( m_size + 1 ) * 2L > m_used.length * 64L;
+    }
+
+    private void grow()
+    {
+        long[] keys = m_keys;
+        long[] used = m_used;
+        allocate( used.length * 128 );
+
+        for ( int slot = 0; slot < used.length * 64; slot++ )
+        {
+            if ( ( used[slot >>> 6] & ( 1L << slot ) ) != 0 )
+            {
+                int newSlot = find( keys, slot * m_words );
+                System.arraycopy( keys, slot * m_words, m_keys, newSlot * m_words, m_words );
+                m_used[newSlot >>> 6] |= 1L << newSlot;
+            }
+        }
+    }
+
+    private void allocate( int capacity )
+    {
+        m_keys = new long[capacity * m_words];
+        m_used = new long[capacity / 64];
+        m_shift = 64 - Integer.numberOfTrailingZeros( capacity );
+    }
+
+    private long getMemoryBytes( long capacity )
+    {
+        return capacity * m_words * 8 + capacity / 8;
+    }
+}
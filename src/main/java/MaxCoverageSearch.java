@@ -0,0 +1,297 @@
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.IntStream;
+
+/**
+ * Finds the subset of the blocks that covers the most cells, for puzzles where not all blocks
+ * fit. The blocks can be weighted, then the weights of the placed blocks are maximized instead
+ * of the covered cells.
+ * <p>
+ * The search is a branch and bound over the blocks: each block is put to each of its free
+ * placements or left out. A branch is cut when its upper bound isn't better than the best
+ * subset found: the weights placed so far plus the remaining blocks that still have a free
+ * placement, taken by weight per cell until they would cover all free cells (the last one
+ * partially), where the free cells are only those that some remaining block can still reach.
+ * The blocks are tried by weight per cell, so the first subset is the greedy one. Blocks of the
+ * same shape are placed in increasing placement order and the left out ones last, so the same
+ * subset isn't searched in each order of the blocks.
+ * <p>
+ * If the time budget stops the search, the best subset found is returned and the bound of the
+ * unsearched branches tells how far from the optimum it can be.
+ */
+public class MaxCoverageSearch
+{
+    private static final long DEFAULT_TIME_BUDGET = 1000;
+    private static final int DEADLINE_CHECK_INTERVAL = 4096;
+
+    private long m_timeBudget = DEFAULT_TIME_BUDGET;
+    private int[] m_weights;
+
+    // Per search
+    private PlacementTable m_table;
+    private int[] m_order;
+    private int[] m_orderWeights;
+    private int[] m_sizes;
+    private long[] m_occupied;
+    private int[] m_placements;
+    private int[] m_best;
+    private long m_bestValue;
+    private long[] m_bounds;
+    private long[] m_reachable;
+    private boolean[] m_placeable;
+    private boolean[] m_classDone;
+    private long m_upperBound;
+    private long m_deadline;
+    private long m_nodeCount;
+    private boolean m_stopped;
+
+    /**
+     * Sets the time the search may take.
+     *
+     * @param timeBudget milliseconds, zero for no limit
+     */
+    public void setTimeBudget( long timeBudget )
+    {
+        m_timeBudget = timeBudget;
+    }
+
+    /**
+     * Sets the weight of each block, in the order of the blocks of the table.
+     *
+     * @param weights non-negative weights, null to weight the blocks by their sizes
+     */
+    public void setWeights( int... weights )
+    {
+        m_weights = weights == null ? null : weights.clone();
+    }
+
+    /**
+     * Gets the weight of the blocks of the last result, the covered cells if there are no weights.
+     *
+     * @return
+     */
+    public long getBestValue()
+    {
+        return m_bestValue;
+    }
+
+    /**
+     * Gets the bound that no subset of the blocks can exceed. Equals the best value if the
+     * last search was finished.
+     *
+     * @return
+     */
+    public long getUpperBound()
+    {
+        return m_upperBound;
+    }
+
+    /**
+     * Checks if the last result was proven the best one.
+     *
+     * @return
+     */
+    public boolean isOptimal()
+    {
+        return m_bestValue >= m_upperBound;
+    }
+
+    /**
+     * Gets how much better than the last result a subset can be at most, relative to the upper bound.
+     *
+     * @return zero if the last result is optimal
+     */
+    public double getGap()
+    {
+        return m_upperBound == 0 ? 0 : (double)( m_upperBound - m_bestValue ) / m_upperBound;
+    }
+
+    public long getNodeCount()
+    {
+        return m_nodeCount;
+    }
+
+    /**
+     * Fits the subset of the blocks of the puzzle that covers the most cells.
+     *
+     * @param puzzle
+     * @return the best result found, blocks that aren't in the subset are left out
+     */
+    public FittingResult fit( Puzzle puzzle )
+    {
+        PlacementTable table = puzzle.createPlacementTable();
+
+        return table.createResult( solve( table ) );
+    }
+
+    /**
+     * Finds the placements of the subset of the blocks with the largest weight.
+     *
+     * @param table
+     * @return placement index per piece, -1 for the pieces left out
+     */
+    public int[] solve( PlacementTable table )
+    {
+        int pieceCount = table.getPieceCount();
+        if ( m_weights != null && m_weights.length != pieceCount )
+        {
+            throw new IllegalArgumentException( "Expected " + pieceCount + " weights, got " + m_weights.length );
+        }
+
+        m_table = table;
+        m_sizes = IntStream.range( 0, pieceCount ).map( piece -> table.getShape( piece ).getSize() ).toArray();
+        int[] weights = m_weights != null ? m_weights : m_sizes;
+
+        // By weight per cell, the blocks of a shape next to each other
+        m_order = IntStream.range( 0, pieceCount ).boxed()
+                .sorted( Comparator.<Integer>comparingDouble( piece -> -(double)weights[piece] / m_sizes[piece] )
+                        .thenComparingInt( table::getClassIndex ) )
+                .mapToInt( Integer::intValue ).toArray();
+        m_orderWeights = Arrays.stream( m_order ).map( piece -> weights[piece] ).toArray();
+
+        m_occupied = table.getBlocked().clone();
+        m_placements = new int[pieceCount];
+        m_best = new int[pieceCount];
+        Arrays.fill( m_placements, -1 );
+        Arrays.fill( m_best, -1 );
+        m_bestValue = 0;
+        m_bounds = new long[pieceCount + 1];
+        m_reachable = new long[table.getWords()];
+        m_placeable = new boolean[table.getClassCount()];
+        m_classDone = new boolean[table.getClassCount()];
+        m_nodeCount = 0;
+        m_stopped = false;
+        m_deadline = m_timeBudget > 0 ? System.nanoTime() + m_timeBudget * 1000000L : Long.MAX_VALUE;
+
+        search( 0, 0, table.getFreeCellCount() );
+
+        if ( m_stopped )
+        {
+            // The branches left have at most the bound of some node on the path
+            m_upperBound = m_bestValue;
+            for ( long bound : m_bounds )
+            {
+                m_upperBound = Math.max( m_upperBound, bound );
+            }
+        }
+        else
+        {
+            m_upperBound = m_bestValue;
+        }
+        return m_best.clone();
+    }
+
+    /**
+     * Decides the block at the given position of the order and the blocks after it.
+     *
+     * @param depth position in the order
+     * @param value weight of the placed blocks
+     * @param freeCells free cells left
+     */
+    private void search( int depth, long value, int freeCells )
+    {
+        if ( value > m_bestValue )
+        {
+            m_bestValue = value;
+            System.arraycopy( m_placements, 0, m_best, 0, m_best.length );
+        }
+        if ( depth == m_order.length || m_stopped )
+        {
+            return;
+        }
+        if ( ++m_nodeCount % DEADLINE_CHECK_INTERVAL == 0 && System.nanoTime() >= m_deadline )
+        {
+            m_stopped = true;
+            return;
+        }
+
+        long bound = value + getBound( depth, freeCells );
+        m_bounds[depth] = bound;
+        if ( bound <= m_bestValue )
+        {
+            m_bounds[depth] = 0;
+            return;
+        }
+
+        int piece = m_order[depth];
+        int size = m_sizes[piece];
+
+        // A block of the same shape as the previous one goes after it, or is left out with it
+        int first = 0;
+        boolean canPlace = size <= freeCells;
+        if ( depth > 0 && m_table.getClassIndex( m_order[depth - 1] ) == m_table.getClassIndex( piece ) )
+        {
+            first = m_placements[m_order[depth - 1]] + 1;
+            canPlace &= first > 0;
+        }
+
+        for ( int placement = first; canPlace && placement < m_table.getPlacementCount( piece ) && !m_stopped;
+              placement++ )
+        {
+            if ( m_table.fits( piece, placement, m_occupied ) )
+            {
+                m_table.place( piece, placement, m_occupied );
+                m_placements[piece] = placement;
+                search( depth + 1, value + m_orderWeights[depth], freeCells - size );
+                m_placements[piece] = -1;
+                m_table.remove( piece, placement, m_occupied );
+            }
+        }
+
+        if ( !m_stopped )
+        {
+            search( depth + 1, value, freeCells );
+        }
+        if ( !m_stopped )
+        {
+            m_bounds[depth] = 0;
+        }
+    }
+
+    /**
+     * Gets the most weight the blocks from the given position of the order can add: the blocks
+     * that still have a free placement by weight per cell, the last one in part, until they
+     * cover the free cells that some of them can still reach.
+     */
+    private long getBound( int depth, int freeCells )
+    {
+        Arrays.fill( m_reachable, 0 );
+        Arrays.fill( m_placeable, false );
+        int previousClass = -1;
+
+        for ( int i = depth; i < m_order.length; i++ )
+        {
+            int pieceClass = m_table.getClassIndex( m_order[i] );
+            if ( pieceClass != previousClass && !m_classDone[pieceClass] )
+            {
+                m_classDone[pieceClass] = true;
+                PieceClass placements = m_table.getPieceClass( pieceClass );
+                long[] masks = placements.getMasks();
+                for ( int placement = 0; placement < placements.getPlacementCount(); placement++ )
+                {
+                    if ( placements.fits( placement, m_occupied ) )
+                    {
+                        m_placeable[pieceClass] = true;
+                        CellMask.or( masks, placement * m_occupied.length, m_reachable );
+                    }
+                }
+            }
+            previousClass = pieceClass;
+        }
+
+        double bound = 0;
+        int cells = Math.min( freeCells, CellMask.cardinality( m_reachable ) );
+        for ( int i = depth; i < m_order.length; i++ )
+        {
+            int pieceClass = m_table.getClassIndex( m_order[i] );
+            m_classDone[pieceClass] = false;
+            if ( m_placeable[pieceClass] && cells > 0 )
+            {
+                int size = m_sizes[m_order[i]];
+                bound += size <= cells ? m_orderWeights[i] : (double)m_orderWeights[i] * cells / size;
+                cells -= Math.min( size, cells );
+            }
+        }
+        return (long)Math.floor( bound + 1e-9 );
+    }
+}
@@ -0,0 +1,316 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Solves exact cover puzzles by meeting in the middle. The blocks are split to two halves by
+ * their shapes. All layouts of the first half, where its blocks don't overlap each other, are
+ * stored as occupancy masks in a {@link MaskSet}. Then the layouts of the second half are
+ * searched, and each one is joined with the stored layout that covers exactly the cells it
+ * leaves free. A layout of one half is built once, not again under each layout of the other
+ * half as in a depth-first search over all blocks.
+ * <p>
+ * Only the masks are stored. When a pair is found, the placements of the first half are found
+ * again by a {@link PlacementSearch} with the second half fixed, which only has the cells of
+ * the stored mask left.
+ * <p>
+ * The stored masks may take at most the memory limit. If they need more, or the blocks don't
+ * fill the grid exactly, the puzzle is solved with {@link PlacementSearch} instead.
+ */
+public class MeetInTheMiddleSearch
+{
+    private static final long DEFAULT_MEMORY_LIMIT = 64L << 20;
+
+    private final PlacementTable m_table;
+    private final long[] m_allCells;
+    private long m_memoryLimit = DEFAULT_MEMORY_LIMIT;
+    private long m_nodeLimit = Long.MAX_VALUE;
+    private long m_nodeCount;
+    private boolean m_limitReached;
+    private boolean m_fallbackUsed;
+    private int m_storedCount;
+
+    // Per search
+    private int[] m_half;
+    private int[] m_placements;
+    private long[] m_occupied;
+    private long[] m_blocked;
+    private long[] m_key;
+    private MaskSet m_stored;
+    private boolean m_storing;
+    private boolean m_overflow;
+    private boolean m_found;
+
+    public MeetInTheMiddleSearch( PlacementTable table )
+    {
+        m_table = table;
+        m_allCells = CellMask.create( table.getCellCount() );
+        CellMask.setRange( m_allCells, 0, table.getCellCount() );
+    }
+
+    /**
+     * Sets the most memory the stored layouts may take.
+     *
+     * @param memoryLimit bytes
+     */
+    public void setMemoryLimit( long memoryLimit )
+    {
+        m_memoryLimit = memoryLimit;
+    }
+
+    /**
+     * Sets the maximum amount of placements tried before giving up, including the fallback search.
+     *
+     * @param nodeLimit
+     */
+    public void setNodeLimit( long nodeLimit )
+    {
+        m_nodeLimit = nodeLimit;
+    }
+
+    public long getNodeCount()
+    {
+        return m_nodeCount;
+    }
+
+    /**
+     * Checks if the last search gave up because of the node limit.
+     *
+     * @return
+     */
+    public boolean isLimitReached()
+    {
+        return m_limitReached;
+    }
+
+    /**
+     * Checks if the last search was done by {@link PlacementSearch}, because the blocks didn't
+     * fill the grid exactly or the layouts didn't fit to the memory limit.
+     *
+     * @return
+     */
+    public boolean isFallbackUsed()
+    {
+        return m_fallbackUsed;
+    }
+
+    /**
+     * Gets the number of different layouts of the stored half in the last search.
+     *
+     * @return
+     */
+    public int getStoredCount()
+    {
+        return m_storedCount;
+    }
+
+    /**
+     * Fits the blocks to the grid.
+     *
+     * @return the result, null if the blocks don't fit or the node limit was reached
+     */
+    public FittingResult fit()
+    {
+        int[] placements = findFirst();
+
+        return placements == null ? null : m_table.createResult( placements );
+    }
+
+    /**
+     * Finds the first solution.
+     *
+     * @return the placement index per piece, null if the blocks don't fit or the node limit was reached
+     */
+    public int[] findFirst()
+    {
+        m_nodeCount = 0;
+        m_limitReached = false;
+        m_fallbackUsed = false;
+        m_storedCount = 0;
+
+        if ( m_table.getPieceCellCount() != m_table.getFreeCellCount() )
+        {
+            return fallback();
+        }
+
+        int[][] halves = split();
+        m_placements = new int[m_table.getPieceCount()];
+        Arrays.fill( m_placements, -1 );
+        m_blocked = m_table.getBlocked();
+        m_occupied = m_table.getBlocked();
+        m_key = new long[m_table.getWords()];
+
+        try
+        {
+            // Store the layouts of the first half
+            m_stored = new MaskSet( m_table.getWords(), m_memoryLimit );
+            m_storing = true;
+            m_overflow = false;
+            m_half = halves[0];
+            enumerate( 0 );
+            m_storedCount = m_stored.size();
+            if ( m_overflow )
+            {
+                m_stored = null;
+                return fallback();
+            }
+
+            // Join the layouts of the second half to them
+            m_storing = false;
+            m_found = false;
+            m_half = halves[1];
+            if ( !m_limitReached )
+            {
+                enumerate( 0 );
+            }
+        }
+        finally
+        {
+            m_stored = null;
+        }
+
+        if ( !m_found )
+        {
+            return null;
+        }
+
+        PlacementSearch search = new PlacementSearch( m_table );
+        for ( int piece : halves[1] )
+        {
+            search.fix( piece, m_placements[piece] );
+        }
+        int[] placements = search.findFirst();
+        m_nodeCount += search.getNodeCount();
+        return placements;
+    }
+
+    /**
+     * Puts the blocks of the half from the given depth to each of their free placements.
+     *
+     * @param depth
+     * @return false if the search should stop
+     */
+    private boolean enumerate( int depth )
+    {
+        if ( depth == m_half.length )
+        {
+            return m_storing ? store() : join();
+        }
+
+        int piece = m_half[depth];
+        // Blocks of the same shape are next to each other, and placed in increasing order
+        int first = depth > 0 && m_table.getClassIndex( m_half[depth - 1] ) == m_table.getClassIndex( piece )
+                    ? m_placements[m_half[depth - 1]] + 1 : 0;
+
+        for ( int placement = first; placement < m_table.getPlacementCount( piece ); placement++ )
+        {
+            if ( m_table.fits( piece, placement, m_occupied ) )
+            {
+                if ( ++m_nodeCount > m_nodeLimit )
+                {
+                    m_limitReached = true;
+                    return false;
+                }
+
+                m_placements[piece] = placement;
+                m_table.place( piece, placement, m_occupied );
+                boolean more = enumerate( depth + 1 );
+                m_table.remove( piece, placement, m_occupied );
+                if ( !more )
+                {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Stores the occupied cells of the current layout of the first half.
+     *
+     * @return false if the memory limit was reached
+     */
+    private boolean store()
+    {
+        if ( m_stored.isFull() && !m_stored.contains( m_occupied, 0 ) )
+        {
+            m_overflow = true;
+            return false;
+        }
+        m_stored.add( m_occupied, 0 );
+        return true;
+    }
+
+    /**
+     * Looks up the layout of the first half that covers the free cells of the current layout
+     * of the second half.
+     *
+     * @return false if it was found
+     */
+    private boolean join()
+    {
+        for ( int i = 0; i < m_key.length; i++ )
+        {
+            m_key[i] = m_allCells[i] & ( ~m_occupied[i] | m_blocked[i] );
+        }
+        m_found = m_stored.contains( m_key, 0 );
+        return !m_found;
+    }
+
+    /**
+     * Splits the pieces to two halves with about as many layouts. The size of a half is
+     * estimated by the placements of its classes, ignoring overlaps. The pieces of a class
+     * go to the same half, and the smaller half is stored.
+     *
+     * @return the pieces of the stored half and the pieces of the other half
+     */
+    private int[][] split()
+    {
+        List<Integer> classes = new ArrayList<>();
+        double[] estimates = new double[m_table.getClassCount()];
+        for ( int pieceClass = 0; pieceClass < m_table.getClassCount(); pieceClass++ )
+        {
+            PieceClass pieces = m_table.getPieceClass( pieceClass );
+            // The logarithm of the ways to choose the placements of the identical pieces
+            for ( int i = 0; i < pieces.getMultiplicity(); i++ )
+            {
+                estimates[pieceClass] += Math.log( Math.max( 1, pieces.getPlacementCount() - i ) ) - Math.log( i + 1 );
+            }
+            classes.add( pieceClass );
+        }
+        classes.sort( Comparator.comparingDouble( ( Integer c ) -> -estimates[c] ) );
+
+        List<List<Integer>> halves = Arrays.asList( new ArrayList<>(), new ArrayList<>() );
+        double[] totals = new double[2];
+        for ( int pieceClass : classes )
+        {
+            int half = totals[0] <= totals[1] ? 0 : 1;
+            totals[half] += estimates[pieceClass];
+            PieceClass pieces = m_table.getPieceClass( pieceClass );
+            for ( int i = 0; i < pieces.getMultiplicity(); i++ )
+            {
+                halves.get( half ).add( pieces.getPiece( i ) );
+            }
+        }
+
+        int stored = totals[0] <= totals[1] ? 0 : 1;
+        return new int[][] {
+            halves.get( stored ).stream().mapToInt( Integer::intValue ).toArray(),
+            halves.get( 1 - stored ).stream().mapToInt( Integer::intValue ).toArray() };
+    }
+
+    /**
+     * Solves the puzzle with {@link PlacementSearch}, with the rest of the node limit.
+     */
+    private int[] fallback()
+    {
+        m_fallbackUsed = true;
+        PlacementSearch search = new PlacementSearch( m_table );
+        search.setNodeLimit( m_nodeLimit == Long.MAX_VALUE ? m_nodeLimit : Math.max( 0, m_nodeLimit - m_nodeCount ) );
+        int[] placements = search.findFirst();
+        m_nodeCount += search.getNodeCount();
+        m_limitReached = search.isLimitReached();
+        return placements;
+    }
+}
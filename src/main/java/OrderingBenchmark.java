@@ -0,0 +1,87 @@
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares the ordering policies on generated puzzles. Each puzzle loses one of its blocks,
+ * so the blocks don't fill the grid and the order matters to {@link PlacementSearch}.
+ * <p>
+ * Usage: OrderingBenchmark [side length] [puzzles] [node limit]
+ */
+public class OrderingBenchmark
+{
+    public static void main( String[] args ) throws Exception
+    {
+        int sideLength = args.length > 0 ? Integer.parseInt( args[0] ) : 7;
+        int puzzleCount = args.length > 1 ? Integer.parseInt( args[1] ) : 50;
+        long nodeLimit = args.length > 2 ? Long.parseLong( args[2] ) : 1000000;
+
+        List<PlacementTable> tables = createTables( sideLength, puzzleCount );
+
+        System.out.println( "policy               solved      nodes       ms" );
+        for ( Map.Entry<String, OrderingPolicy> entry : createPolicies().entrySet() )
+        {
+            int solved = 0;
+            long nodes = 0;
+            long start = System.nanoTime();
+
+            for ( PlacementTable table : tables )
+            {
+                PlacementSearch search = new PlacementSearch( table );
+                search.setOrderingPolicy( entry.getValue() );
+                search.setNodeLimit( nodeLimit );
+                if ( search.findFirst() != null )
+                {
+                    solved++;
+                }
+                nodes += search.getNodeCount();
+            }
+
+            long millis = ( System.nanoTime() - start ) / 1000000;
+            System.out.println( String.format( "%-20s %7d %10d %8d", entry.getKey(), solved, nodes, millis ) );
+        }
+    }
+
+    /**
+     * Creates the policies to compare.
+     *
+     * @return the policies by name
+     */
+    static Map<String, OrderingPolicy> createPolicies()
+    {
+        Map<String, OrderingPolicy> policies = new LinkedHashMap<>();
+        policies.put( "base width", OrderingPolicy.BASE_WIDTH );
+        policies.put( "fewest placements", OrderingPolicy.FEWEST_PLACEMENTS );
+        policies.put( "cost", new CostOrdering( false ) );
+        policies.put( "cost, dynamic", new CostOrdering( true ) );
+        return policies;
+    }
+
+    private static List<PlacementTable> createTables( int sideLength, int puzzleCount ) throws Exception
+    {
+        List<PlacementTable> tables = new ArrayList<>();
+        PuzzleGenerator generator = new PuzzleGenerator( 1 );
+        generator.setSideLength( sideLength );
+        generator.setPieceCount( sideLength * sideLength / 5 );
+        generator.setSizeWeights( 0, 0, 1, 2, 2, 1 );
+        generator.setDuplicateFraction( 0.2 );
+
+        for ( int i = 0; i < puzzleCount; i++ )
+        {
+            List<Block> blocks = new ArrayList<>( generator.generateSolvable().getBlocks() );
+            // The smallest block leaves the fewest free cells
+            Block smallest = blocks.get( 0 );
+            for ( Block block : blocks )
+            {
+                if ( block.getSize() < smallest.getSize() )
+                {
+                    smallest = block;
+                }
+            }
+            blocks.remove( smallest );
+            tables.add( new PlacementTable( sideLength, blocks ) );
+        }
+        return tables;
+    }
+}
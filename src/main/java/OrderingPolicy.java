@@ -0,0 +1,42 @@
+/**
+ * Decides the order in which the blocks are put to the grid. Each class of blocks gets a
+ * score and the classes with lower scores are placed first.
+ * <p>
+ * A static policy is asked once before the search with the placement counts of the whole
+ * grid. A dynamic policy is asked again on every level of {@link PlacementSearch} with the
+ * amount of placements that still fit, so the order adapts to the blocks placed so far.
+ */
+public interface OrderingPolicy
+{
+    /**
+     * The class with fewest placements first, the larger one of equal classes first.
+     */
+    OrderingPolicy FEWEST_PLACEMENTS = ( table, pieceClass, placements ) ->
+            placements + 1.0 / ( 1 + table.getPieceClass( pieceClass ).getShape().getSize() );
+
+    /**
+     * The block with the widest base first, the order {@link FitToGrid} always used.
+     */
+    OrderingPolicy BASE_WIDTH = ( table, pieceClass, placements ) ->
+            -table.getBlock( table.getPieceClass( pieceClass ).getPiece( 0 ) ).getBaseWidth();
+
+    /**
+     * Scores a class of blocks.
+     *
+     * @param table table of the blocks
+     * @param pieceClass index of the class in the table
+     * @param placements the placements of the class that fit to the grid as it is now
+     * @return the score, lower is placed first
+     */
+    double score( PlacementTable table, int pieceClass, int placements );
+
+    /**
+     * Checks if the policy is asked again on every level of the search.
+     *
+     * @return
+     */
+    default boolean isDynamic()
+    {
+        return false;
+    }
+}
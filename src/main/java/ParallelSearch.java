@@ -0,0 +1,225 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Supplier;
+
+/**
+ * Runs a {@link PlacementSearch} on several threads with work stealing.
+ * <p>
+ * Each task searches one part of the search tree. When a pool thread runs out of work, the
+ * running searches give the untried candidates of their topmost open level away as new
+ * tasks, so large parts are split at any depth while small ones are never split. Each pool
+ * thread has its own solution sink, and the sinks are merged by the caller at the end.
+ */
+public class ParallelSearch
+{
+    private final PlacementTable m_table;
+    private int m_parallelism = Runtime.getRuntime().availableProcessors();
+    private OrderingPolicy m_ordering = OrderingPolicy.FEWEST_PLACEMENTS;
+
+    public ParallelSearch( PlacementTable table )
+    {
+        m_table = table;
+    }
+
+    /**
+     * Sets the amount of threads.
+     *
+     * @param parallelism
+     */
+    public void setParallelism( int parallelism )
+    {
+        m_parallelism = parallelism;
+    }
+
+    /**
+     * Sets the ordering policy of the searches.
+     *
+     * @param ordering
+     * @see PlacementSearch#setOrderingPolicy(OrderingPolicy)
+     */
+    public void setOrderingPolicy( OrderingPolicy ordering )
+    {
+        m_ordering = ordering;
+    }
+
+    /**
+     * Counts all solutions. Solutions that only differ by swapping blocks of the same shape
+     * are counted once.
+     *
+     * @return
+     */
+    public long count()
+    {
+        long count = 0;
+        for ( Counter counter : enumerate( Counter::new ) )
+        {
+            count += counter.m_count;
+        }
+        return count;
+    }
+
+    /**
+     * Finds a solution. It isn't always the one a single search finds first.
+     *
+     * @return the placement index per piece, null if the blocks don't fit
+     */
+    public int[] findFirst()
+    {
+        for ( First first : enumerate( First::new ) )
+        {
+            if ( first.m_solution != null )
+            {
+                return first.m_solution;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gives all solutions to the sinks. Each thread uses its own sink, so the sinks don't
+     * need to be thread safe. If a sink asks to stop, all threads stop.
+     *
+     * @param sinkFactory creates the sink of a thread
+     * @return the sinks that were created
+     */
+    public <T extends SolutionListener> List<T> enumerate( Supplier<T> sinkFactory )
+    {
+        Map<Thread, T> sinks = new ConcurrentHashMap<>();
+        ForkJoinPool pool = new ForkJoinPool( m_parallelism );
+        SearchState<T> state = new SearchState<>( pool, sinks, sinkFactory );
+
+        try
+        {
+            pool.invoke( new SubtreeTask( state, new int[0] ) );
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+
+        return new ArrayList<>( sinks.values() );
+    }
+
+    /**
+     * Shared by the tasks of one run.
+     */
+    private class SearchState<T extends SolutionListener>
+    {
+        private final ForkJoinPool m_pool;
+        private final Map<Thread, T> m_sinks;
+        private final Supplier<T> m_sinkFactory;
+        private volatile boolean m_cancelled;
+
+        SearchState( ForkJoinPool pool, Map<Thread, T> sinks, Supplier<T> sinkFactory )
+        {
+            m_pool = pool;
+            m_sinks = sinks;
+            m_sinkFactory = sinkFactory;
+        }
+
+        /**
+         * Gets the sink of the current thread.
+         */
+        SolutionListener getSink()
+        {
+            SolutionListener sink = m_sinks.computeIfAbsent( Thread.currentThread(), t -> m_sinkFactory.get() );
+            return placements -> {
+                if ( !sink.solutionFound( placements ) )
+                {
+                    m_cancelled = true;
+                }
+                return !m_cancelled;
+            };
+        }
+
+        boolean isHungry()
+        {
+            return m_pool.getQueuedTaskCount() == 0 && m_pool.getActiveThreadCount() < m_pool.getParallelism();
+        }
+    }
+
+    /**
+     * Searches one part of the tree and shares it further when other threads are idle.
+     */
+    private class SubtreeTask extends RecursiveAction implements WorkSharing
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final SearchState<?> m_state;
+        private final int[] m_prefix;
+        private final List<SubtreeTask> m_shared = new ArrayList<>();
+
+        SubtreeTask( SearchState<?> state, int[] prefix )
+        {
+            m_state = state;
+            m_prefix = prefix;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if ( !m_state.m_cancelled )
+            {
+                PlacementSearch search = new PlacementSearch( m_table );
+                search.setPrefix( m_prefix );
+                search.setOrderingPolicy( m_ordering );
+                search.setWorkSharing( this );
+                // A task runs on one thread, so it can keep the sink of the thread
+                search.enumerate( m_state.getSink() );
+            }
+
+            for ( SubtreeTask task : m_shared )
+            {
+                task.join();
+            }
+        }
+
+        @Override
+        public boolean shouldStop()
+        {
+            return m_state.m_cancelled;
+        }
+
+        @Override
+        public boolean isHungry()
+        {
+            return m_state.isHungry();
+        }
+
+        @Override
+        public void share( int[] prefix )
+        {
+            SubtreeTask task = new SubtreeTask( m_state, prefix );
+            m_shared.add( task );
+            task.fork();
+        }
+    }
+
+    private static class Counter implements SolutionListener
+    {
+        private long m_count;
+
+        @Override
+        public boolean solutionFound( int[] placements )
+        {
+            m_count++;
+            return true;
+        }
+    }
+
+    private static class First implements SolutionListener
+    {
+        private int[] m_solution;
+
+        @Override
+        public boolean solutionFound( int[] placements )
+        {
+            m_solution = placements.clone();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,230 @@
+import java.util.Arrays;
+
+/**
+ * Blocks having the same shape. The search handles them as one class with a multiplicity,
+ * so that it doesn't try every order of the identical blocks. The placements of the shape
+ * are shared by all blocks of the class.
+ * <p>
+ * A placement covers only a few words of a large grid, so on large grids the first and the
+ * last word having cells of each placement are stored and the occupancy tests skip the other
+ * words. On small grids testing all words is faster.
+ */
+public class PieceClass
+{
+    private final PieceShape m_shape;
+    private final int[] m_pieces;
+    private final int m_words;
+    private final int[] m_anchors;
+    // Grids with more words use the word ranges
+    private static final int RANGE_MIN_WORDS = 5;
+
+    private final long[] m_masks;
+    // Range of the words having cells, per placement, null on small grids
+    private final int[] m_firstWords;
+    private final int[] m_lastWords;
+
+    /**
+     * Creates a new class.
+     *
+     * @param shape
+     * @param pieces indexes of the blocks having the shape
+     * @param words number of longs in one occupancy mask
+     * @param anchors the cell of the (0,0) corner of the shape for each placement
+     * @param masks masks of all placements one after another
+     */
+    public PieceClass( PieceShape shape, int[] pieces, int words, int[] anchors, long[] masks )
+    {
+        m_shape = shape;
+        m_pieces = pieces;
+        m_words = words;
+        m_anchors = anchors;
+        m_masks = masks;
+        if ( words < RANGE_MIN_WORDS )
+        {
+            m_firstWords = null;
+            m_lastWords = null;
+            return;
+        }
+        m_firstWords = new int[anchors.length];
+        m_lastWords = new int[anchors.length];
+
+        for ( int placement = 0; placement < anchors.length; placement++ )
+        {
+            int offset = placement * words;
+            int first = 0;
+            int last = words - 1;
+            while ( first < last && masks[offset + first] == 0 )
+            {
+                first++;
+            }
+            while ( last > first && masks[offset + last] == 0 )
+            {
+                last--;
+            }
+            m_firstWords[placement] = first;
+            m_lastWords[placement] = last;
+        }
+    }
+
+    public PieceShape getShape()
+    {
+        return m_shape;
+    }
+
+    /**
+     * Number of blocks in the class.
+     *
+     * @return
+     */
+    public int getMultiplicity()
+    {
+        return m_pieces.length;
+    }
+
+    /**
+     * Gets the index of the i:th block of the class.
+     *
+     * @param i
+     * @return
+     */
+    public int getPiece( int i )
+    {
+        return m_pieces[i];
+    }
+
+    public int getPlacementCount()
+    {
+        return m_anchors.length;
+    }
+
+    public int getAnchor( int placement )
+    {
+        return m_anchors[placement];
+    }
+
+    /**
+     * Gets the masks of all placements. The mask of placement <code>p</code> starts from
+     * the index <code>p * words</code>. The array must not be modified.
+     *
+     * @return
+     */
+    public long[] getMasks()
+    {
+        return m_masks;
+    }
+
+    public boolean fits( int placement, long[] occupied )
+    {
+        if ( m_firstWords == null )
+        {
+            return !CellMask.intersects( m_masks, placement * m_words, occupied );
+        }
+
+        int offset = placement * m_words;
+        for ( int w = m_firstWords[placement]; w <= m_lastWords[placement]; w++ )
+        {
+            if ( ( m_masks[offset + w] & occupied[w] ) != 0 )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Finds the first placement from the given one on that fits. Tests the placements one
+     * after another without calls, which is the hot loop of searches that put the blocks
+     * one by one.
+     *
+     * @param from
+     * @param occupied
+     * @return the placement, the placement count if none fits
+     */
+    public int nextFit( int from, long[] occupied )
+    {
+        int count = m_anchors.length;
+
+        if ( m_words == 1 )
+        {
+            long cells = occupied[0];
+            for ( int placement = from; placement < count; placement++ )
+            {
+                if ( ( m_masks[placement] & cells ) == 0 )
+                {
+                    return placement;
+                }
+            }
+            return count;
+        }
+
+        if ( m_firstWords == null )
+        {
+            for ( int placement = from; placement < count; placement++ )
+            {
+                if ( !CellMask.intersects( m_masks, placement * m_words, occupied ) )
+                {
+                    return placement;
+                }
+            }
+            return count;
+        }
+
+        for ( int placement = from; placement < count; placement++ )
+        {
+            int offset = placement * m_words;
+            int last = m_lastWords[placement];
+            int w = m_firstWords[placement];
+            while ( w <= last && ( m_masks[offset + w] & occupied[w] ) == 0 )
+            {
+                w++;
+            }
+            if ( w > last )
+            {
+                return placement;
+            }
+        }
+        return count;
+    }
+
+    public void place( int placement, long[] occupied )
+    {
+        if ( m_firstWords == null )
+        {
+            CellMask.or( m_masks, placement * m_words, occupied );
+            return;
+        }
+
+        int offset = placement * m_words;
+        for ( int w = m_firstWords[placement]; w <= m_lastWords[placement]; w++ )
+        {
+            occupied[w] |= m_masks[offset + w];
+        }
+    }
+
+    public void remove( int placement, long[] occupied )
+    {
+        if ( m_firstWords == null )
+        {
+            CellMask.andNot( m_masks, placement * m_words, occupied );
+            return;
+        }
+
+        int offset = placement * m_words;
+        for ( int w = m_firstWords[placement]; w <= m_lastWords[placement]; w++ )
+        {
+            occupied[w] &= ~m_masks[offset + w];
+        }
+    }
+
+    /**
+     * Finds the placement where the (0,0) corner of the shape is in the given cell.
+     *
+     * @param anchor
+     * @return index of the placement, -1 if there isn't such placement
+     */
+    public int findPlacement( int anchor )
+    {
+        int index = Arrays.binarySearch( m_anchors, anchor );
+        return index < 0 ? -1 : index;
+    }
+}
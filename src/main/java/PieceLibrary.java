@@ -0,0 +1,259 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A precompiled file of the placements of a catalogue of shapes in an empty grid of a fixed
+ * size. The file is memory-mapped, and a {@link PlacementTable} copies the anchors and the
+ * masks of a known shape from it in bulk instead of computing them.
+ * <p>
+ * The file starts with a header and the offset of each shape. A shape has its size, its
+ * placement count, its cells, the anchor of each placement and the masks of the placements,
+ * the masks aligned to 8 bytes. Pieces can't be turned, so each shape has one orientation.
+ * <p>
+ * Usage: PieceLibrary &lt;catalogue file&gt; &lt;library file&gt;, where the catalogue is in the
+ * input format and its <code>=</code> row gives the size of the grid.
+ */
+public class PieceLibrary
+{
+    private static final int MAGIC = 0x504C4942;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 24;
+
+    private final ByteBuffer m_buffer;
+    private final int m_width;
+    private final int m_height;
+    private final int m_words;
+    private final int[] m_offsets;
+    private final Map<PieceShape, Integer> m_shapes = new HashMap<>();
+
+    private PieceLibrary( ByteBuffer buffer ) throws IOException
+    {
+        if ( buffer.capacity() < HEADER_BYTES || buffer.getInt( 0 ) != MAGIC )
+        {
+            throw new IOException( "Not a piece library." );
+        }
+        if ( buffer.getInt( 4 ) != VERSION )
+        {
+            throw new IOException( "Unknown piece library version " + buffer.getInt( 4 ) + "." );
+        }
+
+        m_buffer = buffer;
+        m_width = buffer.getInt( 8 );
+        m_height = buffer.getInt( 12 );
+        m_words = CellMask.wordCount( m_width * m_height );
+        m_offsets = new int[buffer.getInt( 16 )];
+
+        for ( int shape = 0; shape < m_offsets.length; shape++ )
+        {
+            m_offsets[shape] = (int)buffer.getLong( HEADER_BYTES + shape * Long.BYTES );
+            m_shapes.put( readShape( shape ), shape );
+        }
+    }
+
+    public static void main( String[] args )
+    {
+        if ( args.length != 2 )
+        {
+            System.err.println( "Usage: PieceLibrary <catalogue file> <library file>" );
+            return;
+        }
+
+        try
+        {
+            Puzzle catalogue = Puzzle.parse( Files.readAllLines( Paths.get( args[0] ) ), 4 );
+            int sideLength = catalogue.getSideLength();
+            compile( sideLength, sideLength, catalogue.getBlocks(), Paths.get( args[1] ) );
+        }
+        catch ( Exception e )
+        {
+            System.err.println( "Failed to compile the library: " + e.getMessage() );
+        }
+    }
+
+    /**
+     * Writes the library of the shapes of the blocks. Blocks of the same shape are written once.
+     *
+     * @param width width of the grid
+     * @param height height of the grid
+     * @param catalogue blocks giving the shapes
+     * @param file
+     * @throws IOException
+     */
+    public static void compile( int width, int height, List<Block> catalogue, Path file ) throws IOException
+    {
+        Set<PieceShape> seen = new HashSet<>();
+        List<Block> blocks = new ArrayList<>();
+        for ( Block block : catalogue )
+        {
+            if ( seen.add( new PieceShape( block ) ) )
+            {
+                blocks.add( block );
+            }
+        }
+
+        PlacementTable table = new PlacementTable( width, height, blocks, null );
+        int words = table.getWords();
+        long[] offsets = new long[table.getClassCount()];
+        long size = align( HEADER_BYTES + offsets.length * Long.BYTES );
+
+        for ( int shape = 0; shape < offsets.length; shape++ )
+        {
+            PieceClass pieceClass = table.getPieceClass( shape );
+            offsets[shape] = size;
+            size = align( size + 8 + pieceClass.getShape().getSize() * 8 + pieceClass.getPlacementCount() * 4 )
+                   + (long)pieceClass.getPlacementCount() * words * Long.BYTES;
+        }
+        if ( size > Integer.MAX_VALUE )
+        {
+            throw new IOException( "The library would be too large: " + size + " bytes." );
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate( (int)size );
+        buffer.putInt( MAGIC ).putInt( VERSION ).putInt( width ).putInt( height ).putInt( offsets.length );
+        buffer.position( HEADER_BYTES );
+        for ( long offset : offsets )
+        {
+            buffer.putLong( offset );
+        }
+
+        for ( int shape = 0; shape < offsets.length; shape++ )
+        {
+            PieceClass pieceClass = table.getPieceClass( shape );
+            PieceShape pieceShape = pieceClass.getShape();
+            int count = pieceClass.getPlacementCount();
+
+            buffer.position( (int)offsets[shape] );
+            buffer.putInt( pieceShape.getSize() ).putInt( count );
+            for ( int i = 0; i < pieceShape.getSize(); i++ )
+            {
+                buffer.putInt( pieceShape.getX( i ) ).putInt( pieceShape.getY( i ) );
+            }
+            for ( int placement = 0; placement < count; placement++ )
+            {
+                buffer.putInt( pieceClass.getAnchor( placement ) );
+            }
+            buffer.position( (int)align( buffer.position() ) );
+            buffer.asLongBuffer().put( pieceClass.getMasks(), 0, count * words );
+        }
+
+        Files.write( file, buffer.array() );
+    }
+
+    /**
+     * Maps the library file to memory.
+     *
+     * @param file
+     * @return
+     * @throws IOException if the file can't be read or isn't a library
+     */
+    public static PieceLibrary open( Path file ) throws IOException
+    {
+        try ( FileChannel channel = FileChannel.open( file, StandardOpenOption.READ ) )
+        {
+            if ( channel.size() > Integer.MAX_VALUE )
+            {
+                throw new IOException( "Not a piece library." );
+            }
+            // The mapping stays valid after the channel is closed
+            MappedByteBuffer buffer = channel.map( FileChannel.MapMode.READ_ONLY, 0, channel.size() );
+            return new PieceLibrary( buffer );
+        }
+    }
+
+    public int getWidth()
+    {
+        return m_width;
+    }
+
+    public int getHeight()
+    {
+        return m_height;
+    }
+
+    public int getShapeCount()
+    {
+        return m_offsets.length;
+    }
+
+    /**
+     * Finds the shape from the library.
+     *
+     * @param shape
+     * @return index of the shape, -1 if the library doesn't have it
+     */
+    public int findShape( PieceShape shape )
+    {
+        Integer index = m_shapes.get( shape );
+        return index == null ? -1 : index;
+    }
+
+    public int getPlacementCount( int shape )
+    {
+        return m_buffer.getInt( m_offsets[shape] + 4 );
+    }
+
+    /**
+     * Copies the anchor cell of each placement of the shape.
+     *
+     * @param shape
+     * @return
+     */
+    public int[] getAnchors( int shape )
+    {
+        int[] anchors = new int[getPlacementCount( shape )];
+        ByteBuffer buffer = m_buffer.duplicate();
+        buffer.position( anchorOffset( shape ) );
+        buffer.asIntBuffer().get( anchors );
+        return anchors;
+    }
+
+    /**
+     * Copies the masks of the placements of the shape, {@link CellMask#wordCount(int)} words each.
+     *
+     * @param shape
+     * @return
+     */
+    public long[] getMasks( int shape )
+    {
+        int count = getPlacementCount( shape );
+        long[] masks = new long[count * m_words];
+        ByteBuffer buffer = m_buffer.duplicate();
+        buffer.position( (int)align( anchorOffset( shape ) + count * 4 ) );
+        buffer.asLongBuffer().get( masks );
+        return masks;
+    }
+
+    private int anchorOffset( int shape )
+    {
+        return m_offsets[shape] + 8 + m_buffer.getInt( m_offsets[shape] ) * 8;
+    }
+
+    private PieceShape readShape( int shape )
+    {
+        int offset = m_offsets[shape];
+        Set<Point> points = new LinkedHashSet<>();
+        for ( int i = 0; i < m_buffer.getInt( offset ); i++ )
+        {
+            points.add( new Point( m_buffer.getInt( offset + 8 + i * 8 ), m_buffer.getInt( offset + 12 + i * 8 ) ) );
+        }
+        return new PieceShape( new Block( 0, 'X', points ) );
+    }
+
+    private static long align( long offset )
+    {
+        return ( offset + 7 ) & ~7L;
+    }
+}
@@ -0,0 +1,77 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The names of the pieces of a puzzle. Each name gets a dense id in the order the names are
+ * first seen, and the blocks are identified by the ids. The names are only needed when the
+ * pieces are read or printed.
+ */
+public class PieceNames
+{
+    private static final String SIMPLE_NAMES = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
+
+    private final List<String> m_names = new ArrayList<>();
+    private final Map<String, Integer> m_ids = new HashMap<>();
+
+    /**
+     * Gets the id of the name, giving the next id to a new name.
+     *
+     * @param name
+     * @return
+     */
+    public int getId( String name )
+    {
+        Integer id = m_ids.get( name );
+        if ( id == null )
+        {
+            id = m_names.size();
+            m_names.add( name );
+            m_ids.put( name, id );
+        }
+        return id;
+    }
+
+    public boolean contains( String name )
+    {
+        return m_ids.containsKey( name );
+    }
+
+    /**
+     * Gets the name of the id.
+     *
+     * @param id
+     * @return
+     */
+    public String getName( int id )
+    {
+        return m_names.get( id );
+    }
+
+    public int size()
+    {
+        return m_names.size();
+    }
+
+    /**
+     * Creates a name for the given id: a single letter or digit for the first ids, then
+     * longer names of them.
+     *
+     * @param id
+     * @return
+     */
+    public static String createName( int id )
+    {
+        StringBuilder name = new StringBuilder();
+        int rest = id;
+        do
+        {
+            name.insert( 0, SIMPLE_NAMES.charAt( rest % SIMPLE_NAMES.length() ) );
+            rest = rest / SIMPLE_NAMES.length() - 1;
+        }
+        while ( rest >= 0 );
+
+        return name.toString();
+    }
+}
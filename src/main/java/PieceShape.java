@@ -0,0 +1,307 @@
+import java.util.Arrays;
+
+/**
+ * The shape of a block normalized so that its smallest x and y values are zero.
+ * Shapes are immutable and don't depend on the current coordinates of the block.
+ * <p>
+ * Besides the cells, the shape is stored as runs of consecutive cells on a row, so that
+ * masks and connectivity cost time by the number of runs instead of pairs of cells.
+ */
+public class PieceShape
+{
+    private final int[] m_dx;
+    private final int[] m_dy;
+    private final int m_width;
+    private final int m_height;
+    private final int m_lowestLeftX;
+    // The runs of consecutive cells, ordered by row and then by column
+    private final int[] m_runX;
+    private final int[] m_runY;
+    private final int[] m_runLength;
+
+    /**
+     * Creates the shape of the given block.
+     *
+     * @param block
+     */
+    public PieceShape( Block block )
+    {
+        int size = block.getSize();
+        int[] xs = new int[size];
+        int[] ys = new int[size];
+        int minX = Integer.MAX_VALUE;
+        int minY = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE;
+        int maxY = Integer.MIN_VALUE;
+        int i = 0;
+
+        for ( Point point : block.getPoints() )
+        {
+            xs[i] = point.getX();
+            ys[i] = point.getY();
+            minX = Math.min( minX, xs[i] );
+            minY = Math.min( minY, ys[i] );
+            maxX = Math.max( maxX, xs[i] );
+            maxY = Math.max( maxY, ys[i] );
+            i++;
+        }
+
+        m_dx = new int[size];
+        m_dy = new int[size];
+        m_width = maxX - minX + 1;
+        m_height = maxY - minY + 1;
+
+        // Order the cells by row and then by column, so that the first cell is the lowest left one
+        long[] keys = new long[size];
+        for ( i = 0; i < size; i++ )
+        {
+            keys[i] = ( (long)( ys[i] - minY ) << 32 ) | ( xs[i] - minX );
+        }
+        Arrays.sort( keys );
+        for ( i = 0; i < size; i++ )
+        {
+            m_dy[i] = (int)( keys[i] >>> 32 );
+            m_dx[i] = (int)keys[i];
+        }
+        m_lowestLeftX = m_dx[0];
+
+        int runCount = 0;
+        for ( i = 0; i < size; i++ )
+        {
+            if ( i == 0 || m_dy[i] != m_dy[i - 1] || m_dx[i] != m_dx[i - 1] + 1 )
+            {
+                runCount++;
+            }
+        }
+        m_runX = new int[runCount];
+        m_runY = new int[runCount];
+        m_runLength = new int[runCount];
+        int run = -1;
+        for ( i = 0; i < size; i++ )
+        {
+            if ( i == 0 || m_dy[i] != m_dy[i - 1] || m_dx[i] != m_dx[i - 1] + 1 )
+            {
+                run++;
+                m_runX[run] = m_dx[i];
+                m_runY[run] = m_dy[i];
+            }
+            m_runLength[run]++;
+        }
+    }
+
+    public int getSize()
+    {
+        return m_dx.length;
+    }
+
+    public int getWidth()
+    {
+        return m_width;
+    }
+
+    public int getHeight()
+    {
+        return m_height;
+    }
+
+    /**
+     * Gets the x offset of the given cell. Cells are ordered by row and then by column.
+     *
+     * @param i
+     * @return
+     */
+    public int getX( int i )
+    {
+        return m_dx[i];
+    }
+
+    /**
+     * Gets the y offset of the given cell. Cells are ordered by row and then by column.
+     *
+     * @param i
+     * @return
+     */
+    public int getY( int i )
+    {
+        return m_dy[i];
+    }
+
+    /**
+     * Gets the x offset of the lowest left cell. The y offset of it is always zero.
+     *
+     * @return
+     */
+    public int getLowestLeftX()
+    {
+        return m_lowestLeftX;
+    }
+
+    public int getRunCount()
+    {
+        return m_runX.length;
+    }
+
+    /**
+     * Gets the x offset of the first cell of the given run.
+     *
+     * @param run
+     * @return
+     */
+    public int getRunX( int run )
+    {
+        return m_runX[run];
+    }
+
+    /**
+     * Gets the y offset of the given run.
+     *
+     * @param run
+     * @return
+     */
+    public int getRunY( int run )
+    {
+        return m_runY[run];
+    }
+
+    /**
+     * Gets the number of cells in the given run.
+     *
+     * @param run
+     * @return
+     */
+    public int getRunLength( int run )
+    {
+        return m_runLength[run];
+    }
+
+    /**
+     * Creates the mask of the shape with its origin on the first cell of a grid of the given
+     * width. The mask of any other translation is this one moved by the index of the origin
+     * cell, see {@link CellMask#shiftOr(long[], int, long[])}.
+     *
+     * @param gridWidth at least the width of the shape
+     * @return
+     */
+    public long[] createMask( int gridWidth )
+    {
+        long[] mask = CellMask.create( m_height * gridWidth );
+        for ( int run = 0; run < m_runX.length; run++ )
+        {
+            int from = m_runY[run] * gridWidth + m_runX[run];
+            CellMask.setRange( mask, from, from + m_runLength[run] );
+        }
+        return mask;
+    }
+
+    /**
+     * Checks if all cells of the shape are connected through their sides. The runs of each
+     * pair of adjacent rows are joined where they overlap.
+     *
+     * @return
+     */
+    public boolean isConnected()
+    {
+        int runCount = m_runX.length;
+        int[] parents = new int[runCount];
+        for ( int run = 0; run < runCount; run++ )
+        {
+            parents[run] = run;
+        }
+
+        int components = runCount;
+        int previousRow = 0;
+        int row = 0;
+        while ( row < runCount )
+        {
+            int nextRow = row;
+            while ( nextRow < runCount && m_runY[nextRow] == m_runY[row] )
+            {
+                nextRow++;
+            }
+
+            if ( row > 0 && m_runY[previousRow] == m_runY[row] - 1 )
+            {
+                // Both rows are ordered by x, so the overlapping pairs are found in one pass
+                int lower = previousRow;
+                int upper = row;
+                while ( lower < row && upper < nextRow )
+                {
+                    int lowerEnd = m_runX[lower] + m_runLength[lower];
+                    int upperEnd = m_runX[upper] + m_runLength[upper];
+                    if ( m_runX[lower] < upperEnd && m_runX[upper] < lowerEnd )
+                    {
+                        int lowerRoot = findRoot( parents, lower );
+                        int upperRoot = findRoot( parents, upper );
+                        if ( lowerRoot != upperRoot )
+                        {
+                            parents[upperRoot] = lowerRoot;
+                            components--;
+                        }
+                    }
+                    if ( lowerEnd < upperEnd )
+                    {
+                        lower++;
+                    }
+                    else
+                    {
+                        upper++;
+                    }
+                }
+            }
+
+            previousRow = row;
+            row = nextRow;
+        }
+
+        return components == 1;
+    }
+
+    private static int findRoot( int[] parents, int run )
+    {
+        int root = run;
+        while ( parents[root] != root )
+        {
+            root = parents[root];
+        }
+        while ( parents[run] != root )
+        {
+            int next = parents[run];
+            parents[run] = root;
+            run = next;
+        }
+        return root;
+    }
+
+    /* (non-Javadoc)
+     * @see java.lang.Object#hashCode()
+     */
+    @Override
+    public int hashCode()
+    {
+        final int prime = 31;
+        int result = 1;
+        result = prime * result + Arrays.hashCode( m_dx );
+        result = prime * result + Arrays.hashCode( m_dy );
+        return result;
+    }
+
+    /* (non-Javadoc)
+     * @see java.lang.Object#equals(java.lang.Object)
+     */
+    @Override
+    public boolean equals( Object obj )
+    {
+        if ( this == obj )
+            return true;
+        if ( obj == null )
+            return false;
+        if ( getClass() != obj.getClass() )
+            return false;
+        PieceShape other = (PieceShape)obj;
+        if ( !Arrays.equals( m_dx, other.m_dx ) )
+            return false;
+        if ( !Arrays.equals( m_dy, other.m_dy ) )
+            return false;
+        return true;
+    }
+}
@@ -0,0 +1,931 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.IntStream;
+
+/**
+ * Depth-first search over the placements of a {@link PlacementTable}. Unlike
+ * {@link FitToGrid} the search is complete: if the blocks can be put to the grid, a
+ * solution is found.
+ * <p>
+ * If the blocks have exactly as many points as there are free cells in the grid, the
+ * search always fills the first free cell of the grid (exact cover). Otherwise the blocks
+ * are put to the grid one by one in the order of an {@link OrderingPolicy}.
+ * <p>
+ * Blocks with the same shape are searched as one {@link PieceClass}, so the search doesn't
+ * try every order of identical blocks. The original blocks get their placements only when
+ * a solution is found.
+ * <p>
+ * The search state is kept in arrays instead of the call stack. A search can be split into
+ * independent parts by the choices made on its first levels, see {@link #split(int)} and
+ * {@link #setPrefix(int[])}.
+ * <p>
+ * A long search can write its state to a checkpoint file now and then, see
+ * {@link #setCheckpoint(Path, long)}, and a new search can continue from it with
+ * {@link #resume(Path)}.
+ */
+public class PlacementSearch
+{
+    private static final int[] NO_CANDIDATES = new int[0];
+    private static final int[] NO_PREFIX = new int[0];
+    // How many placements are tried between the checks of the work sharing
+    private static final int SHARING_INTERVAL = 1024;
+    // How many placements are tried between the checks of the checkpoint and progress sample times
+    private static final int PERIODIC_CHECK_INTERVAL = 4096;
+    private static final long PROGRESS_SAMPLE_NANOS = 100000000L;
+    private static final int CHECKPOINT_MAGIC = 0x50534350;
+    private static final int CHECKPOINT_VERSION = 1;
+
+    private final PlacementTable m_table;
+    private final int[] m_fixed;
+    private long m_nodeLimit = Long.MAX_VALUE;
+    private long m_nodeCount;
+    private boolean m_limitReached;
+    private int[] m_prefix = NO_PREFIX;
+    private int m_splitDepth = Integer.MAX_VALUE;
+    private WorkSharing m_sharing;
+    private OrderingPolicy m_ordering = OrderingPolicy.FEWEST_PLACEMENTS;
+    // The prefix of the running search, grows when work is shared
+    private int[] m_activePrefix;
+    private long m_solutionCount;
+    private boolean m_stopped;
+    private Path m_checkpointFile;
+    private long m_checkpointInterval;
+    private boolean m_writeCheckpoints;
+    private long m_nextPeriodicCheck;
+    private long m_lastCheckpointTime;
+    private long m_lastProgressTime;
+    // The state read by resume for the next search, the path is empty if the search had finished
+    private int[] m_resumePath;
+    private long m_resumeNodes;
+    private long m_resumeSolutions;
+    // The choices the running search starts from, the last one is the next candidate
+    private int[] m_startPath;
+    // The choices where the last search reached the node limit
+    private int[] m_limitPath;
+
+    public PlacementSearch( PlacementTable table )
+    {
+        m_table = table;
+        m_fixed = new int[table.getPieceCount()];
+        Arrays.fill( m_fixed, -1 );
+    }
+
+    /**
+     * Fixes the placement of the piece, so the search doesn't try to move it.
+     *
+     * @param piece
+     * @param placement
+     */
+    public void fix( int piece, int placement )
+    {
+        m_fixed[piece] = placement;
+    }
+
+    /**
+     * Limits the search to the part given by {@link #split(int)}: the first levels only take
+     * the given choices.
+     *
+     * @param prefix the index of the chosen candidate on each of the first levels
+     */
+    public void setPrefix( int[] prefix )
+    {
+        m_prefix = prefix.clone();
+    }
+
+    /**
+     * Sets the work sharing asked now and then if the search should give away a part of
+     * its remaining work or stop.
+     *
+     * @param sharing
+     */
+    public void setWorkSharing( WorkSharing sharing )
+    {
+        m_sharing = sharing;
+    }
+
+    /**
+     * Sets the order in which the blocks are put to the grid when they don't fill all free
+     * cells. By default the class with fewest placements goes first. A search split with
+     * {@link #split(int)} must use the same policy for its parts.
+     *
+     * @param ordering
+     */
+    public void setOrderingPolicy( OrderingPolicy ordering )
+    {
+        m_ordering = ordering;
+    }
+
+    /**
+     * Makes the searches write their state to the file at the given interval, and once more
+     * when they are finished. The file is replaced atomically, so it always holds a whole
+     * checkpoint. Searches that are split or share their work don't write checkpoints.
+     *
+     * @param file the checkpoint file, null to not write checkpoints
+     * @param intervalMillis minimum time between the checkpoints
+     */
+    public void setCheckpoint( Path file, long intervalMillis )
+    {
+        m_checkpointFile = file;
+        m_checkpointInterval = intervalMillis;
+    }
+
+    /**
+     * Makes the next search continue from the checkpoint written by a search of the same
+     * table with the same fixed blocks, prefix and ordering policy. The counts of the search
+     * include the solutions and the nodes found before the checkpoint.
+     *
+     * @param file
+     * @return the amount of solutions given to the listener before the checkpoint, a listener
+     *         that stored solutions should drop the ones it got after them
+     * @throws IOException if the file can't be read or is of another table
+     */
+    public long resume( Path file ) throws IOException
+    {
+        try ( DataInputStream in = new DataInputStream( Files.newInputStream( file ) ) )
+        {
+            if ( in.readInt() != CHECKPOINT_MAGIC || in.readInt() != CHECKPOINT_VERSION )
+            {
+                throw new IOException( "Not a search checkpoint: " + file );
+            }
+            if ( in.readInt() != m_table.getPieceCount() || in.readInt() != m_table.getClassCount()
+                 || in.readInt() != m_table.getCellCount() )
+            {
+                throw new IOException( "The checkpoint is of another puzzle: " + file );
+            }
+
+            m_resumeNodes = in.readLong();
+            m_resumeSolutions = in.readLong();
+            m_prefix = readInts( in );
+            m_resumePath = readInts( in );
+        }
+        return m_resumeSolutions;
+    }
+
+    /**
+     * Makes the next search continue from where the last one reached the node limit, as if it
+     * hadn't stopped. The counts of the next search include the nodes and the solutions of the
+     * last one, so the node limit should be raised for it, e.g. to {@link #getNodeCount()} and a
+     * slice. This way a search can be run in slices and other work done between them.
+     *
+     * @return false if the last search didn't stop at the node limit, then the next search starts over
+     */
+    public boolean resumeAtLimit()
+    {
+        if ( !m_limitReached )
+        {
+            return false;
+        }
+
+        m_prefix = m_activePrefix;
+        m_resumePath = m_limitPath;
+        // The node over the limit wasn't placed
+        m_nodeCount--;
+        m_resumeNodes = m_nodeCount;
+        m_resumeSolutions = m_solutionCount;
+        return true;
+    }
+
+    /**
+     * Sets the maximum amount of placements tried before giving up.
+     *
+     * @param nodeLimit
+     */
+    public void setNodeLimit( long nodeLimit )
+    {
+        m_nodeLimit = nodeLimit;
+    }
+
+    public long getNodeCount()
+    {
+        return m_nodeCount;
+    }
+
+    /**
+     * Checks if the last search gave up because of the node limit.
+     *
+     * @return
+     */
+    public boolean isLimitReached()
+    {
+        return m_limitReached;
+    }
+
+    /**
+     * Checks if the blocks should fill all free cells of the grid.
+     *
+     * @return
+     */
+    public boolean isExactCover()
+    {
+        return m_table.getPieceCellCount() == m_table.getFreeCellCount();
+    }
+
+    /**
+     * Finds the first solution.
+     *
+     * @return the placement index per piece, null if the blocks don't fit or the node limit was reached
+     */
+    public int[] findFirst()
+    {
+        int[][] first = new int[1][];
+
+        run( placements -> {
+            first[0] = placements.clone();
+            return false;
+        } );
+
+        return first[0];
+    }
+
+    /**
+     * Counts all solutions. Solutions that only differ by swapping blocks of the same shape
+     * are counted once.
+     *
+     * @return number of solutions, or the number found before the node limit was reached
+     */
+    public long count()
+    {
+        run( placements -> true );
+
+        return m_solutionCount;
+    }
+
+    /**
+     * Splits the search into parts by the choices made on the first levels. Searching each
+     * part with {@link #setPrefix(int[])} finds every solution exactly once. The parts are
+     * given in the order the search would go through them.
+     *
+     * @param depth how many levels the parts fix, parts of solutions with fewer blocks are shorter
+     * @return the prefix of each part that can have solutions
+     */
+    public List<int[]> split( int depth )
+    {
+        List<int[]> prefixes = new ArrayList<>();
+
+        m_splitDepth = Math.max( 1, depth );
+        try
+        {
+            run( prefix -> prefixes.add( prefix.clone() ) );
+        }
+        finally
+        {
+            m_splitDepth = Integer.MAX_VALUE;
+        }
+
+        return prefixes;
+    }
+
+    /**
+     * Gives all solutions to the listener until it asks to stop. Solutions that only differ by
+     * swapping blocks of the same shape are given once.
+     *
+     * @param listener
+     */
+    public void enumerate( SolutionListener listener )
+    {
+        run( listener );
+    }
+
+    private void run( SolutionListener listener )
+    {
+        boolean finished = m_resumePath != null && m_resumePath.length == 0;
+        boolean checkpoints = m_checkpointFile != null && m_splitDepth == Integer.MAX_VALUE && m_sharing == null;
+
+        m_nodeCount = m_resumeNodes;
+        m_solutionCount = m_resumeSolutions;
+        m_limitReached = false;
+        m_stopped = false;
+        m_activePrefix = m_prefix;
+        m_startPath = m_resumePath == null ? NO_PREFIX : m_resumePath;
+        m_resumePath = null;
+        m_resumeNodes = 0;
+        m_resumeSolutions = 0;
+        m_writeCheckpoints = checkpoints;
+        m_nextPeriodicCheck = m_nodeCount + PERIODIC_CHECK_INTERVAL;
+        m_lastCheckpointTime = System.nanoTime();
+        m_lastProgressTime = m_lastCheckpointTime;
+
+        if ( !finished )
+        {
+            search( listener );
+        }
+
+        if ( checkpoints && !m_limitReached && !m_stopped )
+        {
+            // An empty path marks the search finished
+            writeCheckpoint( NO_PREFIX );
+        }
+    }
+
+    private void search( SolutionListener listener )
+    {
+        int pieceCount = m_table.getPieceCount();
+        int classCount = m_table.getClassCount();
+        int[] placements = new int[pieceCount];
+        int[] remaining = new int[classCount];
+        long[] occupied = m_table.getBlocked();
+        int freeCount = 0;
+
+        Arrays.fill( placements, -1 );
+        for ( int pieceClass = 0; pieceClass < classCount; pieceClass++ )
+        {
+            remaining[pieceClass] = m_table.getPieceClass( pieceClass ).getMultiplicity();
+        }
+
+        for ( int piece = 0; piece < pieceCount; piece++ )
+        {
+            if ( m_fixed[piece] >= 0 )
+            {
+                if ( !m_table.fits( piece, m_fixed[piece], occupied ) )
+                {
+                    return;
+                }
+                m_table.place( piece, m_fixed[piece], occupied );
+                placements[piece] = m_fixed[piece];
+                remaining[m_table.getClassIndex( piece )]--;
+            }
+        }
+
+        // The blocks not fixed, by class
+        int[][] freePieces = new int[classCount][];
+        for ( int pieceClass = 0; pieceClass < classCount; pieceClass++ )
+        {
+            PieceClass candidates = m_table.getPieceClass( pieceClass );
+            if ( remaining[pieceClass] > 0 && candidates.getPlacementCount() == 0 )
+            {
+                return;
+            }
+            freePieces[pieceClass] = new int[remaining[pieceClass]];
+            for ( int i = 0, k = 0; i < candidates.getMultiplicity(); i++ )
+            {
+                if ( m_fixed[candidates.getPiece( i )] < 0 )
+                {
+                    freePieces[pieceClass][k++] = candidates.getPiece( i );
+                }
+            }
+            freeCount += remaining[pieceClass];
+        }
+
+        if ( freeCount == 0 )
+        {
+            m_solutionCount++;
+            m_stopped = !listener.solutionFound( m_splitDepth == Integer.MAX_VALUE ? placements : NO_PREFIX );
+        }
+        else if ( isExactCover() )
+        {
+            searchExact( listener, freeCount, remaining, freePieces, placements, occupied );
+        }
+        else
+        {
+            searchPartial( listener, freeCount, remaining, freePieces, placements, occupied );
+        }
+    }
+
+    /**
+     * Fills the first free cell of the grid on each level.
+     */
+    private void searchExact( SolutionListener listener, int freeCount, int[] remaining, int[][] freePieces,
+                              int[] placements, long[] occupied )
+    {
+        int cellCount = m_table.getCellCount();
+        int[] cells = new int[freeCount];
+        int[] cursors = new int[freeCount];
+        int[] chosenClasses = new int[freeCount];
+        int[] chosenPlacements = new int[freeCount];
+        int depth = 0;
+
+        cells[0] = CellMask.nextClear( occupied, 0, cellCount );
+
+        // Take the choices of the checkpoint again and continue from its next candidate
+        for ( ; depth < m_startPath.length - 1; depth++ )
+        {
+            int i = m_startPath[depth];
+            int pieceClass = m_table.getFirstCellClasses( cells[depth] )[i];
+            int placement = m_table.getFirstCellPlacements( cells[depth] )[i];
+            m_table.getPieceClass( pieceClass ).place( placement, occupied );
+            remaining[pieceClass]--;
+            chosenClasses[depth] = pieceClass;
+            chosenPlacements[depth] = placement;
+            cursors[depth] = i + 1;
+            cells[depth + 1] = CellMask.nextClear( occupied, cells[depth] + 1, cellCount );
+        }
+        if ( m_startPath.length > 0 )
+        {
+            cursors[depth] = m_startPath[depth];
+        }
+
+        while ( depth >= 0 )
+        {
+            if ( m_nodeCount >= m_nextPeriodicCheck )
+            {
+                periodicCheck( depth, cursors, freeCount,
+                               level -> cells[level] < 0 ? 0 : m_table.getFirstCellClasses( cells[level] ).length );
+            }
+
+            int cell = cells[depth];
+            int i = cursors[depth];
+            int[] classes = cell < 0 ? NO_CANDIDATES : m_table.getFirstCellClasses( cell );
+            int[] cellPlacements = cell < 0 ? NO_CANDIDATES : m_table.getFirstCellPlacements( cell );
+
+            if ( depth < m_activePrefix.length )
+            {
+                // Only the chosen candidate of the prefix, and no going back above it
+                if ( i > m_activePrefix[depth] || m_activePrefix[depth] >= classes.length )
+                {
+                    return;
+                }
+                i = m_activePrefix[depth];
+                if ( remaining[classes[i]] == 0 || !m_table.getPieceClass( classes[i] ).fits( cellPlacements[i], occupied ) )
+                {
+                    return;
+                }
+            }
+
+            while ( i < classes.length
+                    && ( remaining[classes[i]] == 0
+                         || !m_table.getPieceClass( classes[i] ).fits( cellPlacements[i], occupied ) ) )
+            {
+                i++;
+            }
+
+            if ( i < classes.length )
+            {
+                if ( ++m_nodeCount > m_nodeLimit )
+                {
+                    m_limitReached = true;
+                    m_limitPath = createPath( depth, cursors );
+                    return;
+                }
+
+                PieceClass pieceClass = m_table.getPieceClass( classes[i] );
+                pieceClass.place( cellPlacements[i], occupied );
+                remaining[classes[i]]--;
+                chosenClasses[depth] = classes[i];
+                chosenPlacements[depth] = cellPlacements[i];
+                cursors[depth] = i + 1;
+
+                if ( m_sharing != null && m_nodeCount % SHARING_INTERVAL == 0 )
+                {
+                    if ( m_sharing.shouldStop() )
+                    {
+                        m_stopped = true;
+                        return;
+                    }
+                    if ( m_sharing.isHungry() )
+                    {
+                        shareExact( depth, cells, cursors, chosenClasses, chosenPlacements, remaining, occupied );
+                    }
+                }
+
+                if ( depth + 1 < Math.min( freeCount, m_splitDepth ) )
+                {
+                    depth++;
+                    cells[depth] = CellMask.nextClear( occupied, cell + 1, cellCount );
+                    cursors[depth] = 0;
+                    continue;
+                }
+
+                if ( !found( listener, depth, cursors, chosenClasses, chosenPlacements, freePieces, placements ) )
+                {
+                    return;
+                }
+                // Continue with the next candidate on the same level
+                pieceClass.remove( cellPlacements[i], occupied );
+                remaining[classes[i]]++;
+            }
+            else if ( --depth >= 0 )
+            {
+                // Take back the block put on the previous level and try its next candidate
+                m_table.getPieceClass( chosenClasses[depth] ).remove( chosenPlacements[depth], occupied );
+                remaining[chosenClasses[depth]]++;
+            }
+        }
+    }
+
+    /**
+     * Puts one block to the grid on each level, in the order of the ordering policy. The
+     * blocks of the same class take their placements in increasing order, so each set of
+     * placements is tried only once.
+     */
+    private void searchPartial( SolutionListener listener, int freeCount, int[] remaining, int[][] freePieces,
+                                int[] placements, long[] occupied )
+    {
+        boolean dynamic = m_ordering.isDynamic();
+        int[] levelClasses = new int[freeCount];
+        if ( !dynamic )
+        {
+            int[] order = IntStream.range( 0, m_table.getClassCount() )
+                    .filter( pieceClass -> remaining[pieceClass] > 0 )
+                    .boxed()
+                    .sorted( Comparator.comparingDouble( c -> m_ordering.score( m_table, c,
+                            m_table.getPieceClass( c ).getPlacementCount() ) ) )
+                    .mapToInt( Integer::intValue )
+                    .toArray();
+            for ( int i = 0, level = 0; i < order.length; i++ )
+            {
+                for ( int k = 0; k < remaining[order[i]]; k++ )
+                {
+                    levelClasses[level++] = order[i];
+                }
+            }
+        }
+
+        // The placement taken by the last block of each class, the next one takes a later one
+        int[] lastPlacements = new int[m_table.getClassCount()];
+        int[] previousPlacements = new int[freeCount];
+        int[] cursors = new int[freeCount];
+        int[] chosenPlacements = new int[freeCount];
+        int depth = 0;
+
+        Arrays.fill( lastPlacements, -1 );
+        startLevel( 0, dynamic, levelClasses, cursors, remaining, lastPlacements, occupied );
+
+        // Take the choices of the checkpoint again and continue from its next candidate
+        for ( ; depth < m_startPath.length - 1; depth++ )
+        {
+            int currentClass = levelClasses[depth];
+            int i = m_startPath[depth];
+            m_table.getPieceClass( currentClass ).place( i, occupied );
+            remaining[currentClass]--;
+            previousPlacements[depth] = lastPlacements[currentClass];
+            lastPlacements[currentClass] = i;
+            chosenPlacements[depth] = i;
+            cursors[depth] = i + 1;
+            startLevel( depth + 1, dynamic, levelClasses, cursors, remaining, lastPlacements, occupied );
+        }
+        if ( m_startPath.length > 0 )
+        {
+            cursors[depth] = m_startPath[depth];
+        }
+
+        while ( depth >= 0 )
+        {
+            if ( m_nodeCount >= m_nextPeriodicCheck )
+            {
+                periodicCheck( depth, cursors, freeCount,
+                               level -> m_table.getPieceClass( levelClasses[level] ).getPlacementCount() );
+            }
+
+            int currentClass = levelClasses[depth];
+            PieceClass pieceClass = m_table.getPieceClass( currentClass );
+            int count = pieceClass.getPlacementCount();
+            int i = cursors[depth];
+
+            if ( depth < m_activePrefix.length )
+            {
+                if ( i > m_activePrefix[depth] || m_activePrefix[depth] >= count
+                     || !pieceClass.fits( m_activePrefix[depth], occupied ) )
+                {
+                    return;
+                }
+                i = m_activePrefix[depth];
+            }
+
+            i = pieceClass.nextFit( i, occupied );
+
+            if ( i < count )
+            {
+                if ( ++m_nodeCount > m_nodeLimit )
+                {
+                    m_limitReached = true;
+                    m_limitPath = createPath( depth, cursors );
+                    return;
+                }
+
+                pieceClass.place( i, occupied );
+                remaining[currentClass]--;
+                previousPlacements[depth] = lastPlacements[currentClass];
+                lastPlacements[currentClass] = i;
+                chosenPlacements[depth] = i;
+                cursors[depth] = i + 1;
+
+                if ( m_sharing != null && m_nodeCount % SHARING_INTERVAL == 0 )
+                {
+                    if ( m_sharing.shouldStop() )
+                    {
+                        m_stopped = true;
+                        return;
+                    }
+                    if ( m_sharing.isHungry() )
+                    {
+                        sharePartial( depth, levelClasses, cursors, chosenPlacements, occupied );
+                    }
+                }
+
+                if ( depth + 1 < Math.min( freeCount, m_splitDepth ) )
+                {
+                    depth++;
+                    startLevel( depth, dynamic, levelClasses, cursors, remaining, lastPlacements, occupied );
+                    continue;
+                }
+
+                if ( !found( listener, depth, cursors, levelClasses, chosenPlacements, freePieces, placements ) )
+                {
+                    return;
+                }
+                pieceClass.remove( i, occupied );
+                remaining[currentClass]++;
+                lastPlacements[currentClass] = previousPlacements[depth];
+            }
+            else if ( --depth >= 0 )
+            {
+                int previousClass = levelClasses[depth];
+                m_table.getPieceClass( previousClass ).remove( chosenPlacements[depth], occupied );
+                remaining[previousClass]++;
+                lastPlacements[previousClass] = previousPlacements[depth];
+            }
+        }
+    }
+
+    /**
+     * Sets the class of the level and its first candidate. A dynamic policy scores the
+     * classes by the placements that still fit. If some class can't place all of its
+     * remaining blocks any more, the level gets that class without candidates.
+     */
+    private void startLevel( int depth, boolean dynamic, int[] levelClasses, int[] cursors, int[] remaining,
+                             int[] lastPlacements, long[] occupied )
+    {
+        if ( dynamic )
+        {
+            int best = -1;
+            double bestScore = Double.POSITIVE_INFINITY;
+
+            for ( int c = 0; c < remaining.length; c++ )
+            {
+                if ( remaining[c] == 0 )
+                {
+                    continue;
+                }
+
+                PieceClass pieceClass = m_table.getPieceClass( c );
+                int count = pieceClass.getPlacementCount();
+                int fitting = 0;
+                for ( int i = pieceClass.nextFit( lastPlacements[c] + 1, occupied ); i < count;
+                      i = pieceClass.nextFit( i + 1, occupied ) )
+                {
+                    fitting++;
+                }
+
+                if ( fitting < remaining[c] )
+                {
+                    levelClasses[depth] = c;
+                    cursors[depth] = count;
+                    return;
+                }
+
+                double score = m_ordering.score( m_table, c, fitting );
+                if ( score < bestScore )
+                {
+                    best = c;
+                    bestScore = score;
+                }
+            }
+            levelClasses[depth] = best;
+        }
+
+        cursors[depth] = lastPlacements[levelClasses[depth]] + 1;
+    }
+
+    /**
+     * Gives the untried candidates of the topmost level that has some to the work sharing.
+     * The search itself continues only below its current choice on that level.
+     */
+    private void shareExact( int depth, int[] cells, int[] cursors, int[] chosenClasses, int[] chosenPlacements,
+                             int[] remaining, long[] occupied )
+    {
+        int start = m_activePrefix.length;
+        long[] levelOccupied = occupied.clone();
+        int[] levelRemaining = remaining.clone();
+        // Take back the choices below the prefix to get the state of its first level
+        for ( int level = start; level <= depth; level++ )
+        {
+            m_table.getPieceClass( chosenClasses[level] ).remove( chosenPlacements[level], levelOccupied );
+            levelRemaining[chosenClasses[level]]++;
+        }
+
+        for ( int level = start; level <= depth; level++ )
+        {
+            int[] classes = m_table.getFirstCellClasses( cells[level] );
+            int[] cellPlacements = m_table.getFirstCellPlacements( cells[level] );
+            boolean shared = false;
+
+            for ( int i = cursors[level]; i < classes.length; i++ )
+            {
+                if ( levelRemaining[classes[i]] > 0
+                     && m_table.getPieceClass( classes[i] ).fits( cellPlacements[i], levelOccupied ) )
+                {
+                    m_sharing.share( createPrefix( cursors, level, i ) );
+                    shared = true;
+                }
+            }
+
+            if ( shared )
+            {
+                m_activePrefix = createPrefix( cursors, level, cursors[level] - 1 );
+                return;
+            }
+
+            m_table.getPieceClass( chosenClasses[level] ).place( chosenPlacements[level], levelOccupied );
+            levelRemaining[chosenClasses[level]]--;
+        }
+    }
+
+    /**
+     * Gives the untried candidates of the topmost level that has some to the work sharing.
+     * The search itself continues only below its current choice on that level.
+     */
+    private void sharePartial( int depth, int[] levelClasses, int[] cursors, int[] chosenPlacements, long[] occupied )
+    {
+        int start = m_activePrefix.length;
+        long[] levelOccupied = occupied.clone();
+        for ( int level = start; level <= depth; level++ )
+        {
+            m_table.getPieceClass( levelClasses[level] ).remove( chosenPlacements[level], levelOccupied );
+        }
+
+        for ( int level = start; level <= depth; level++ )
+        {
+            PieceClass pieceClass = m_table.getPieceClass( levelClasses[level] );
+            boolean shared = false;
+
+            for ( int i = cursors[level]; i < pieceClass.getPlacementCount(); i++ )
+            {
+                if ( pieceClass.fits( i, levelOccupied ) )
+                {
+                    m_sharing.share( createPrefix( cursors, level, i ) );
+                    shared = true;
+                }
+            }
+
+            if ( shared )
+            {
+                m_activePrefix = createPrefix( cursors, level, cursors[level] - 1 );
+                return;
+            }
+
+            pieceClass.place( chosenPlacements[level], levelOccupied );
+        }
+    }
+
+    /**
+     * Creates the path to continue the search from: the choices of the levels above the depth
+     * and the cursor of the level of the depth.
+     */
+    private int[] createPath( int depth, int[] cursors )
+    {
+        int[] path = Arrays.copyOf( cursors, depth + 1 );
+        for ( int level = 0; level < depth; level++ )
+        {
+            path[level]--;
+        }
+        return path;
+    }
+
+    /**
+     * Creates the prefix of the current choices above the level and the given choice on it.
+     */
+    private int[] createPrefix( int[] cursors, int level, int choice )
+    {
+        int[] prefix = new int[level + 1];
+        for ( int i = 0; i < level; i++ )
+        {
+            prefix[i] = cursors[i] - 1;
+        }
+        prefix[level] = choice;
+        return prefix;
+    }
+
+    /**
+     * Gives the solution, or the prefix of the part when splitting, to the listener.
+     *
+     * @return false if the listener asked to stop
+     */
+    private boolean found( SolutionListener listener, int depth, int[] cursors, int[] chosenClasses,
+                           int[] chosenPlacements, int[][] freePieces, int[] placements )
+    {
+        if ( m_splitDepth != Integer.MAX_VALUE )
+        {
+            int[] prefix = new int[depth + 1];
+            for ( int level = 0; level <= depth; level++ )
+            {
+                prefix[level] = cursors[level] - 1;
+            }
+            return listener.solutionFound( prefix );
+        }
+
+        assignPieces( chosenClasses, chosenPlacements, freePieces, placements );
+        m_solutionCount++;
+        m_stopped = !listener.solutionFound( placements );
+        return !m_stopped;
+    }
+
+    /**
+     * Writes a checkpoint and samples the progress if their intervals have passed. The levels
+     * above the depth have their choices and the level of the depth continues from its cursor.
+     *
+     * @param candidateCounts gives the amount of candidates of a level
+     */
+    private void periodicCheck( int depth, int[] cursors, int levelCount, IntUnaryOperator candidateCounts )
+    {
+        m_nextPeriodicCheck = m_nodeCount + PERIODIC_CHECK_INTERVAL;
+        long now = System.nanoTime();
+
+        if ( m_writeCheckpoints && now - m_lastCheckpointTime >= m_checkpointInterval * 1000000 )
+        {
+            writeCheckpoint( createPath( depth, cursors ) );
+            m_lastCheckpointTime = System.nanoTime();
+        }
+
+        SolverEvents.ProgressEvent event = new SolverEvents.ProgressEvent();
+        if ( event.isEnabled() && now - m_lastProgressTime >= PROGRESS_SAMPLE_NANOS )
+        {
+            m_lastProgressTime = now;
+            // Each candidate of a level is an equal share of the share of its parent
+            double progress = 0;
+            double share = 1;
+            for ( int level = 0; level <= depth; level++ )
+            {
+                share /= Math.max( 1, candidateCounts.applyAsInt( level ) );
+                progress += share * ( level < depth ? cursors[level] - 1 : cursors[level] );
+            }
+
+            event.exactCover = isExactCover();
+            event.nodeCount = m_nodeCount;
+            event.solutionCount = m_solutionCount;
+            event.depth = depth;
+            event.levelCount = levelCount;
+            event.progress = progress;
+            event.commit();
+        }
+    }
+
+    private void writeCheckpoint( int[] path )
+    {
+        Path temporary = m_checkpointFile.resolveSibling( m_checkpointFile.getFileName() + ".tmp" );
+
+        try
+        {
+            try ( DataOutputStream out = new DataOutputStream( Files.newOutputStream( temporary ) ) )
+            {
+                out.writeInt( CHECKPOINT_MAGIC );
+                out.writeInt( CHECKPOINT_VERSION );
+                out.writeInt( m_table.getPieceCount() );
+                out.writeInt( m_table.getClassCount() );
+                out.writeInt( m_table.getCellCount() );
+                out.writeLong( m_nodeCount );
+                out.writeLong( m_solutionCount );
+                writeInts( out, m_activePrefix );
+                writeInts( out, path );
+            }
+            Files.move( temporary, m_checkpointFile, StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE );
+        }
+        catch ( IOException e )
+        {
+            throw new UncheckedIOException( "Could not write the checkpoint " + m_checkpointFile, e );
+        }
+    }
+
+    private static void writeInts( DataOutputStream out, int[] values ) throws IOException
+    {
+        out.writeInt( values.length );
+        for ( int value : values )
+        {
+            out.writeInt( value );
+        }
+    }
+
+    private static int[] readInts( DataInputStream in ) throws IOException
+    {
+        int[] values = new int[in.readInt()];
+        for ( int i = 0; i < values.length; i++ )
+        {
+            values[i] = in.readInt();
+        }
+        return values;
+    }
+
+    /**
+     * Gives the chosen placements of each class to the blocks of the class in order.
+     */
+    private void assignPieces( int[] chosenClasses, int[] chosenPlacements, int[][] freePieces, int[] placements )
+    {
+        int[] next = new int[freePieces.length];
+
+        for ( int depth = 0; depth < chosenClasses.length; depth++ )
+        {
+            int pieceClass = chosenClasses[depth];
+            placements[freePieces[pieceClass][next[pieceClass]++]] = chosenPlacements[depth];
+        }
+    }
+}
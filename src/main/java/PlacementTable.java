@@ -0,0 +1,451 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Precomputed placements of blocks in a grid. A placement is one translation of a
+ * block where all of its points are inside the grid and none of them is on a blocked
+ * cell. Each placement is stored as an occupancy mask (see {@link CellMask}).
+ */
+public class PlacementTable
+{
+    private final int m_width;
+    private final int m_height;
+    private final int m_words;
+    private final long[] m_blocked;
+    private final List<Block> m_blocks;
+    private final PieceShape[] m_shapes;
+    private final PieceClass[] m_classes;
+    private final int[] m_classOfPiece;
+    // Per cell: the placements whose lowest left point is in the cell
+    private final int[][] m_firstCellClasses;
+    private final int[][] m_firstCellPlacements;
+
+    /**
+     * Creates the placement table for a square grid without blocked cells.
+     *
+     * @param sideLength
+     * @param blocks
+     */
+    public PlacementTable( int sideLength, List<Block> blocks )
+    {
+        this( sideLength, sideLength, blocks, null );
+    }
+
+    /**
+     * Creates the placement table. Blocks having the same shape are put to the same
+     * {@link PieceClass}.
+     *
+     * @param width
+     * @param height
+     * @param blocks
+     * @param blocked mask of cells where no block can be put, null if there aren't any
+     */
+    public PlacementTable( int width, int height, List<Block> blocks, long[] blocked )
+    {
+        this( width, height, blocks, blocked, null );
+    }
+
+    /**
+     * Creates the placement table taking the placements of the shapes found from the library.
+     * The placements of the other shapes are computed.
+     *
+     * @param width
+     * @param height
+     * @param blocks
+     * @param blocked mask of cells where no block can be put, null if there aren't any
+     * @param library library of the same grid size, null to compute all placements
+     */
+    public PlacementTable( int width, int height, List<Block> blocks, long[] blocked, PieceLibrary library )
+    {
+        m_width = width;
+        m_height = height;
+        m_words = CellMask.wordCount( width * height );
+        m_blocked = blocked == null ? CellMask.create( width * height ) : blocked.clone();
+        m_blocks = new ArrayList<>( blocks );
+        m_shapes = new PieceShape[blocks.size()];
+        m_classOfPiece = new int[blocks.size()];
+
+        Map<PieceShape, List<Integer>> piecesByShape = new LinkedHashMap<>();
+        for ( int piece = 0; piece < m_blocks.size(); piece++ )
+        {
+            m_shapes[piece] = new PieceShape( m_blocks.get( piece ) );
+            piecesByShape.computeIfAbsent( m_shapes[piece], shape -> new ArrayList<>() ).add( piece );
+        }
+
+        List<List<int[]>> firstCell = new ArrayList<>();
+        for ( int cell = 0; cell < getCellCount(); cell++ )
+        {
+            firstCell.add( new ArrayList<>() );
+        }
+
+        if ( library != null && ( library.getWidth() != width || library.getHeight() != height ) )
+        {
+            library = null;
+        }
+
+        m_classes = new PieceClass[piecesByShape.size()];
+        int pieceClass = 0;
+        for ( Map.Entry<PieceShape, List<Integer>> entry : piecesByShape.entrySet() )
+        {
+            int[] pieces = entry.getValue().stream().mapToInt( Integer::intValue ).toArray();
+            for ( int piece : pieces )
+            {
+                m_classOfPiece[piece] = pieceClass;
+            }
+            int libraryShape = library == null ? -1 : library.findShape( entry.getKey() );
+            m_classes[pieceClass] = libraryShape < 0
+                    ? buildPlacements( pieceClass, entry.getKey(), pieces, firstCell )
+                    : loadPlacements( pieceClass, entry.getKey(), pieces, firstCell, library, libraryShape );
+            pieceClass++;
+        }
+
+        m_firstCellClasses = new int[getCellCount()][];
+        m_firstCellPlacements = new int[getCellCount()][];
+        for ( int cell = 0; cell < getCellCount(); cell++ )
+        {
+            List<int[]> list = firstCell.get( cell );
+            m_firstCellClasses[cell] = new int[list.size()];
+            m_firstCellPlacements[cell] = new int[list.size()];
+            for ( int i = 0; i < list.size(); i++ )
+            {
+                m_firstCellClasses[cell][i] = list.get( i )[0];
+                m_firstCellPlacements[cell][i] = list.get( i )[1];
+            }
+        }
+    }
+
+    /**
+     * Finds all translations of the shape that stay inside the grid and off the blocked cells.
+     * The mask of each translation is the mask of the shape at the origin moved by the anchor,
+     * so the cost doesn't grow with the size of the shape.
+     */
+    private PieceClass buildPlacements( int pieceClass, PieceShape shape, int[] pieces, List<List<int[]>> firstCell )
+    {
+        List<Integer> anchors = new ArrayList<>();
+        List<long[]> masks = new ArrayList<>();
+        long[] origin = shape.getWidth() <= m_width ? shape.createMask( m_width ) : null;
+
+        for ( int y = 0; y + shape.getHeight() <= m_height; y++ )
+        {
+            for ( int x = 0; x + shape.getWidth() <= m_width; x++ )
+            {
+                long[] mask = new long[m_words];
+                CellMask.shiftOr( origin, cellIndex( x, y ), mask );
+                if ( !CellMask.intersects( mask, 0, m_blocked ) )
+                {
+                    firstCell.get( cellIndex( x + shape.getLowestLeftX(), y ) )
+                             .add( new int[] { pieceClass, anchors.size() } );
+                    anchors.add( cellIndex( x, y ) );
+                    masks.add( mask );
+                }
+            }
+        }
+
+        long[] allMasks = new long[masks.size() * m_words];
+        for ( int i = 0; i < masks.size(); i++ )
+        {
+            System.arraycopy( masks.get( i ), 0, allMasks, i * m_words, m_words );
+        }
+
+        return new PieceClass( shape, pieces, m_words,
+                anchors.stream().mapToInt( Integer::intValue ).toArray(), allMasks );
+    }
+
+    /**
+     * Copies the placements of the shape from the library, leaving out the ones on blocked cells.
+     */
+    private PieceClass loadPlacements( int pieceClass, PieceShape shape, int[] pieces, List<List<int[]>> firstCell,
+                                       PieceLibrary library, int libraryShape )
+    {
+        int[] anchors = library.getAnchors( libraryShape );
+        long[] masks = library.getMasks( libraryShape );
+        int count = 0;
+
+        for ( int placement = 0; placement < anchors.length; placement++ )
+        {
+            if ( !CellMask.intersects( masks, placement * m_words, m_blocked ) )
+            {
+                if ( count < placement )
+                {
+                    anchors[count] = anchors[placement];
+                    System.arraycopy( masks, placement * m_words, masks, count * m_words, m_words );
+                }
+                // The lowest left cell is on the row of the anchor
+                firstCell.get( anchors[count] + shape.getLowestLeftX() ).add( new int[] { pieceClass, count } );
+                count++;
+            }
+        }
+
+        if ( count < anchors.length )
+        {
+            anchors = Arrays.copyOf( anchors, count );
+            masks = Arrays.copyOf( masks, count * m_words );
+        }
+        return new PieceClass( shape, pieces, m_words, anchors, masks );
+    }
+
+    public int getWidth()
+    {
+        return m_width;
+    }
+
+    public int getHeight()
+    {
+        return m_height;
+    }
+
+    public int getCellCount()
+    {
+        return m_width * m_height;
+    }
+
+    /**
+     * Number of longs in one occupancy mask.
+     *
+     * @return
+     */
+    public int getWords()
+    {
+        return m_words;
+    }
+
+    public int getPieceCount()
+    {
+        return m_blocks.size();
+    }
+
+    public Block getBlock( int piece )
+    {
+        return m_blocks.get( piece );
+    }
+
+    public List<Block> getBlocks()
+    {
+        return m_blocks;
+    }
+
+    public PieceShape getShape( int piece )
+    {
+        return m_shapes[piece];
+    }
+
+    public int getPlacementCount( int piece )
+    {
+        return getPieceClassOf( piece ).getPlacementCount();
+    }
+
+    public int getClassCount()
+    {
+        return m_classes.length;
+    }
+
+    public PieceClass getPieceClass( int pieceClass )
+    {
+        return m_classes[pieceClass];
+    }
+
+    /**
+     * Gets the index of the class of the given block.
+     *
+     * @param piece
+     * @return
+     */
+    public int getClassIndex( int piece )
+    {
+        return m_classOfPiece[piece];
+    }
+
+    public PieceClass getPieceClassOf( int piece )
+    {
+        return m_classes[m_classOfPiece[piece]];
+    }
+
+    /**
+     * Gets a copy of the mask of the blocked cells.
+     *
+     * @return
+     */
+    public long[] getBlocked()
+    {
+        return m_blocked.clone();
+    }
+
+    /**
+     * Number of cells that aren't blocked.
+     *
+     * @return
+     */
+    public int getFreeCellCount()
+    {
+        return getCellCount() - CellMask.cardinality( m_blocked );
+    }
+
+    /**
+     * Sum of the sizes of all blocks.
+     *
+     * @return
+     */
+    public int getPieceCellCount()
+    {
+        int count = 0;
+        for ( PieceShape shape : m_shapes )
+        {
+            count += shape.getSize();
+        }
+        return count;
+    }
+
+    /**
+     * Gets the cell where the (0,0) corner of the shape is in the given placement.
+     *
+     * @param piece
+     * @param placement
+     * @return
+     */
+    public int getAnchor( int piece, int placement )
+    {
+        return getPieceClassOf( piece ).getAnchor( placement );
+    }
+
+    /**
+     * Gets the masks of all placements of the piece. The mask of placement <code>p</code>
+     * starts from the index <code>p * getWords()</code>. The array must not be modified.
+     *
+     * @param piece
+     * @return
+     */
+    public long[] getMasks( int piece )
+    {
+        return getPieceClassOf( piece ).getMasks();
+    }
+
+    /**
+     * Gets the classes of the placements that have their lowest left point in the given cell.
+     * The array must not be modified.
+     *
+     * @param cell
+     * @return
+     */
+    public int[] getFirstCellClasses( int cell )
+    {
+        return m_firstCellClasses[cell];
+    }
+
+    /**
+     * Gets the placements that have their lowest left point in the given cell. The array
+     * must not be modified.
+     *
+     * @param cell
+     * @return
+     */
+    public int[] getFirstCellPlacements( int cell )
+    {
+        return m_firstCellPlacements[cell];
+    }
+
+    public boolean fits( int piece, int placement, long[] occupied )
+    {
+        return getPieceClassOf( piece ).fits( placement, occupied );
+    }
+
+    public void place( int piece, int placement, long[] occupied )
+    {
+        getPieceClassOf( piece ).place( placement, occupied );
+    }
+
+    public void remove( int piece, int placement, long[] occupied )
+    {
+        getPieceClassOf( piece ).remove( placement, occupied );
+    }
+
+    /**
+     * Checks if the given placement covers the cell.
+     *
+     * @param piece
+     * @param placement
+     * @param cell
+     * @return
+     */
+    public boolean covers( int piece, int placement, int cell )
+    {
+        return ( getMasks( piece )[placement * m_words + ( cell >>> 6 )] & ( 1L << cell ) ) != 0;
+    }
+
+    /**
+     * Finds the placement of the piece where the (0,0) corner of the shape is in the given cell.
+     *
+     * @param piece
+     * @param anchor
+     * @return index of the placement, -1 if there isn't such placement
+     */
+    public int findPlacement( int piece, int anchor )
+    {
+        return getPieceClassOf( piece ).findPlacement( anchor );
+    }
+
+    public int cellIndex( int x, int y )
+    {
+        return y * m_width + x;
+    }
+
+    /**
+     * Creates the result of the given placements. Pieces without a placement (-1)
+     * are left out of the result.
+     *
+     * @param placements placement index per piece
+     * @return
+     */
+    public FittingResult createResult( int[] placements )
+    {
+        int count = (int)Arrays.stream( placements ).filter( p -> p >= 0 ).count();
+        int[] ids = new int[count];
+        String[] names = new String[count];
+        PieceShape[] shapes = new PieceShape[count];
+        int[] anchors = new int[count];
+        int index = 0;
+        for ( int piece = 0; piece < placements.length; piece++ )
+        {
+            if ( placements[piece] >= 0 )
+            {
+                Block block = m_blocks.get( piece );
+                ids[index] = block.getId();
+                names[index] = block.getName();
+                shapes[index] = m_shapes[piece];
+                anchors[index] = getAnchor( piece, placements[piece] );
+                index++;
+            }
+        }
+
+        // The mask is never changed, so the results can share it
+        return new FittingResult( m_width, m_height, m_blocked, ids, names, shapes, anchors );
+    }
+
+    /**
+     * Creates a copy of the block with the coordinates of the given placement.
+     *
+     * @param piece
+     * @param placement
+     * @return
+     */
+    public Block createPlacedBlock( int piece, int placement )
+    {
+        PieceShape shape = m_shapes[piece];
+        int anchor = getAnchor( piece, placement );
+        int x = anchor % m_width;
+        int y = anchor / m_width;
+        Set<Point> points = new HashSet<>();
+
+        for ( int i = 0; i < shape.getSize(); i++ )
+        {
+            points.add( new Point( x + shape.getX( i ), y + shape.getY( i ) ) );
+        }
+
+        Block block = m_blocks.get( piece );
+        return new Block( block.getId(), block.getName(), points );
+    }
+}
@@ -0,0 +1,199 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The input of the fitting: the blocks, the size of the grid and the blocked cells of the grid.
+ */
+public class Puzzle
+{
+    /** The id of the input row that lists the blocked cells instead of a block. */
+    public static final char BLOCKED_CELLS_ID = '#';
+    /** The id of the input row that gives the side length of the grid, e.g. <code>=:8</code>. */
+    public static final char GRID_SIZE_ID = '=';
+
+    private final int m_sideLength;
+    private final List<Block> m_blocks;
+    private final Set<Point> m_blockedCells;
+
+    /**
+     * Creates a new puzzle.
+     *
+     * @param sideLength
+     * @param blocks
+     * @param blockedCells cells of the grid where no block can be put
+     */
+    public Puzzle( int sideLength, List<Block> blocks, Set<Point> blockedCells )
+    {
+        m_sideLength = sideLength;
+        m_blocks = blocks;
+        m_blockedCells = blockedCells;
+    }
+
+    public int getSideLength()
+    {
+        return m_sideLength;
+    }
+
+    public List<Block> getBlocks()
+    {
+        return m_blocks;
+    }
+
+    public Set<Point> getBlockedCells()
+    {
+        return Collections.unmodifiableSet( m_blockedCells );
+    }
+
+    /**
+     * Creates the occupancy mask of the blocked cells (see {@link CellMask}).
+     *
+     * @return
+     */
+    public long[] getBlockedMask()
+    {
+        return createBlockedMask( m_sideLength, m_blockedCells );
+    }
+
+    /**
+     * Creates the placement table of the blocks with the blocked cells left out.
+     *
+     * @return
+     */
+    public PlacementTable createPlacementTable()
+    {
+        return createPlacementTable( null );
+    }
+
+    /**
+     * Creates the placement table of the blocks with the blocked cells left out, taking
+     * the placements of the known shapes from the library.
+     *
+     * @param library library of the grid size, null to compute all placements
+     * @return
+     */
+    public PlacementTable createPlacementTable( PieceLibrary library )
+    {
+        return new PlacementTable( m_sideLength, m_sideLength, m_blocks, getBlockedMask(), library );
+    }
+
+    /**
+     * Creates the occupancy mask of the given cells of a square grid.
+     *
+     * @param sideLength
+     * @param cells
+     * @return
+     */
+    public static long[] createBlockedMask( int sideLength, Set<Point> cells )
+    {
+        long[] mask = CellMask.create( sideLength * sideLength );
+        cells.forEach( p -> CellMask.set( mask, p.getY() * sideLength + p.getX() ) );
+        return mask;
+    }
+
+    /**
+     * Creates the rows of the input format of the puzzle (see {@link #parse(List, int)}).
+     *
+     * @return
+     */
+    public List<String> toLines()
+    {
+        List<String> lines = new ArrayList<>();
+        lines.add( GRID_SIZE_ID + ":" + m_sideLength );
+
+        if ( !m_blockedCells.isEmpty() )
+        {
+            lines.add( new Block( -1, BLOCKED_CELLS_ID, m_blockedCells ).getBlockAsString() );
+        }
+        m_blocks.forEach( b -> lines.add( b.getBlockAsString() ) );
+
+        return lines;
+    }
+
+    /**
+     * Parses the rows of the input. Each row is either a block <code>&lt;id&gt;:&lt;x1&gt;,&lt;y1&gt;;...</code>,
+     * the blocked cells of the grid <code>#:&lt;x1&gt;,&lt;y1&gt;;...</code> or the side length of the
+     * grid <code>=:&lt;sideLength&gt;</code>. Empty rows are skipped. The id of a block can have
+     * several characters, and the blocks get dense ids in the order they are first seen (see {@link PieceNames}).
+     *
+     * @param lines
+     * @param sideLength side length of the grid if the input doesn't give it
+     * @return
+     * @throws Exception if any problems in the parsing or creation of the blocks
+     */
+    public static Puzzle parse( List<String> lines, int sideLength ) throws Exception
+    {
+        List<Block> blocks = new ArrayList<>();
+        Set<Point> blockedCells = new HashSet<>();
+        PieceNames names = new PieceNames();
+
+        for ( String line: lines )
+        {
+            if ( line.trim().isEmpty() )
+            {
+                continue;
+            }
+
+            String[] values = line.split( ":" );
+            String id = values[0].trim();
+            if ( id.isEmpty() || values.length != 2 )
+            {
+                throw new Exception( "Invalid row " + line + "." );
+            }
+
+            if ( id.equals( String.valueOf( GRID_SIZE_ID ) ) )
+            {
+                sideLength = Integer.parseInt( values[1].trim() );
+                if ( sideLength <= 0 )
+                {
+                    throw new Exception( "Invalid side length " + sideLength + "." );
+                }
+                continue;
+            }
+
+            Set<Point> pointSet = parsePoints( values[1] );
+
+            if ( id.equals( String.valueOf( BLOCKED_CELLS_ID ) ) )
+            {
+                blockedCells.addAll( pointSet );
+            }
+            else
+            {
+                if ( names.contains( id ) )
+                {
+                    throw new Exception( "Block " + id + " is given more than once." );
+                }
+                blocks.add( new Block( names.getId( id ), id, pointSet ) );
+            }
+        }
+
+        for ( Point point : blockedCells )
+        {
+            if ( point.getX() < 0 || point.getX() >= sideLength || point.getY() < 0 || point.getY() >= sideLength )
+            {
+                throw new Exception( "Blocked cell " + point + " is outside of the grid." );
+            }
+        }
+
+        return new Puzzle( sideLength, blocks, blockedCells );
+    }
+
+    private static Set<Point> parsePoints( String value )
+    {
+        String[] points = value.split( ";" );
+        Set<Point> pointSet = new HashSet<>();
+
+        for ( String pointStr : points )
+        {
+            String[] coordinates = pointStr.split( "," );
+            Point point = new Point(
+                    Integer.parseInt( coordinates[0].trim() ),
+                    Integer.parseInt( coordinates[1].trim() ) );
+            pointSet.add( point );
+        }
+
+        return pointSet;
+    }
+}
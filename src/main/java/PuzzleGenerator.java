@@ -0,0 +1,443 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Generates puzzles for load and scaling tests.
+ * <p>
+ * A solvable puzzle is made by cutting the whole grid into connected pieces, so the pieces
+ * always fit. The pieces are cut in row order from the first free cell. The sizes are drawn
+ * from the size weights and scaled so that the given amount of pieces fills the grid. Some of
+ * the pieces copy the shape of an earlier piece if it fits to the free cells. Cells left
+ * outside of the pieces at the end are joined to the neighbouring pieces, so the share of
+ * duplicate shapes is a target and not exact.
+ * <p>
+ * An unsolvable puzzle is a solvable one with one piece changed so that
+ * {@link FeasibilityCheck} proves it can't be fitted.
+ */
+public class PuzzleGenerator
+{
+    private static final int[][] DIRECTIONS = { { 1, 0 }, { -1, 0 }, { 0, 1 }, { 0, -1 } };
+    // Tries to find a copied shape that fits or a changed piece that can't be fitted
+    private static final int ATTEMPTS = 20;
+
+    private final Random m_random;
+    private int m_sideLength = 4;
+    private int m_pieceCount = 4;
+    private double[] m_sizeWeights = { 0, 0, 0, 1 };
+    private double m_duplicateFraction;
+    private InfeasibilityReason m_lastReason;
+
+    /**
+     * @param seed seed of the random generator
+     */
+    public PuzzleGenerator( long seed )
+    {
+        m_random = new Random( seed );
+    }
+
+    public void setSideLength( int sideLength )
+    {
+        m_sideLength = sideLength;
+    }
+
+    public void setPieceCount( int pieceCount )
+    {
+        m_pieceCount = pieceCount;
+    }
+
+    /**
+     * Sets the distribution of the piece sizes.
+     *
+     * @param sizeWeights the relative weight of each size, the first one is for size 1
+     */
+    public void setSizeWeights( double... sizeWeights )
+    {
+        m_sizeWeights = sizeWeights.clone();
+    }
+
+    /**
+     * Sets how large share of the pieces should copy the shape of another piece.
+     *
+     * @param duplicateFraction between 0 and 1
+     */
+    public void setDuplicateFraction( double duplicateFraction )
+    {
+        m_duplicateFraction = duplicateFraction;
+    }
+
+    /**
+     * Gets the reason why the last unsolvable puzzle can't be fitted.
+     *
+     * @return
+     */
+    public InfeasibilityReason getLastReason()
+    {
+        return m_lastReason;
+    }
+
+    /**
+     * Generates a puzzle that has at least one solution.
+     *
+     * @return
+     * @throws Exception if the grid has fewer cells than pieces
+     */
+    public Puzzle generateSolvable() throws Exception
+    {
+        int cellCount = m_sideLength * m_sideLength;
+        if ( m_pieceCount > cellCount )
+        {
+            throw new Exception( "Can't cut " + cellCount + " cells into " + m_pieceCount + " pieces." );
+        }
+
+        int[] owners = cut();
+        List<Set<Point>> cells = new ArrayList<>();
+        for ( int piece = 0; piece < m_pieceCount; piece++ )
+        {
+            cells.add( new HashSet<>() );
+        }
+        for ( int cell = 0; cell < cellCount; cell++ )
+        {
+            cells.get( owners[cell] ).add( new Point( cell % m_sideLength, cell / m_sideLength ) );
+        }
+
+        List<Block> blocks = new ArrayList<>();
+        for ( int piece = 0; piece < m_pieceCount; piece++ )
+        {
+            blocks.add( createBlock( piece, PieceNames.createName( piece ), cells.get( piece ) ) );
+        }
+
+        return new Puzzle( m_sideLength, blocks, new HashSet<>() );
+    }
+
+    /**
+     * Generates a puzzle that has no solution. One piece of a solvable puzzle is changed until
+     * the feasibility checks fail, see {@link #getLastReason()}.
+     *
+     * @return
+     * @throws Exception if the grid has fewer cells than pieces
+     */
+    public Puzzle generateUnsolvable() throws Exception
+    {
+        Puzzle puzzle = generateSolvable();
+        List<Block> blocks = new ArrayList<>( puzzle.getBlocks() );
+
+        for ( int attempt = 0; attempt < ATTEMPTS; attempt++ )
+        {
+            int piece = m_random.nextInt( blocks.size() );
+            Block original = blocks.get( piece );
+            Set<Point> moved = moveOneCell( original.getPoints() );
+            if ( moved != null )
+            {
+                blocks.set( piece, createBlock( original.getId(), original.getName(), moved ) );
+                m_lastReason = FeasibilityCheck.check( new PlacementTable( m_sideLength, blocks ) );
+                if ( m_lastReason != null )
+                {
+                    return new Puzzle( m_sideLength, blocks, new HashSet<>() );
+                }
+                blocks.set( piece, original );
+            }
+        }
+
+        // Moving cells didn't help, a piece with one cell more never fits
+        int piece = m_random.nextInt( blocks.size() );
+        Block original = blocks.get( piece );
+        Set<Point> grown = new HashSet<>( original.getPoints() );
+        grown.add( getFreeNeighbour( original.getPoints() ) );
+        blocks.set( piece, createBlock( original.getId(), original.getName(), grown ) );
+        m_lastReason = InfeasibilityReason.TOO_MANY_CELLS;
+
+        return new Puzzle( m_sideLength, blocks, new HashSet<>() );
+    }
+
+    /**
+     * Cuts the grid into pieces.
+     *
+     * @return the piece of each cell
+     */
+    private int[] cut()
+    {
+        int cellCount = m_sideLength * m_sideLength;
+        int[] owners = new int[cellCount];
+        Arrays.fill( owners, -1 );
+
+        double[] weights = new double[m_pieceCount];
+        double weightLeft = 0;
+        for ( int piece = 0; piece < m_pieceCount; piece++ )
+        {
+            weights[piece] = drawSize();
+            weightLeft += weights[piece];
+        }
+
+        int[] frontier = new int[4 * cellCount];
+        List<int[]> shapes = new ArrayList<>();
+        int freeCells = cellCount;
+        int first = 0;
+
+        for ( int piece = 0; piece < m_pieceCount; piece++ )
+        {
+            while ( owners[first] >= 0 )
+            {
+                first++;
+            }
+
+            // Leave at least one cell for each of the remaining pieces
+            int piecesLeft = m_pieceCount - piece;
+            int maxSize = freeCells - piecesLeft + 1;
+            int target = (int)Math.round( freeCells * weights[piece] / weightLeft );
+            target = Math.max( 1, Math.min( maxSize, target ) );
+            weightLeft -= weights[piece];
+
+            int size = 0;
+            if ( !shapes.isEmpty() && m_random.nextDouble() < m_duplicateFraction )
+            {
+                size = stamp( owners, shapes, first, piece, maxSize );
+            }
+            if ( size == 0 )
+            {
+                size = grow( owners, frontier, first, piece, target );
+                shapes.add( getShape( owners, first, piece, size ) );
+            }
+            freeCells -= size;
+        }
+
+        if ( freeCells > 0 )
+        {
+            fillRest( owners, frontier );
+        }
+        return owners;
+    }
+
+    private double drawSize()
+    {
+        double total = 0;
+        for ( double weight : m_sizeWeights )
+        {
+            total += weight;
+        }
+
+        double value = m_random.nextDouble() * total;
+        for ( int i = 0; i < m_sizeWeights.length; i++ )
+        {
+            value -= m_sizeWeights[i];
+            if ( value < 0 )
+            {
+                return i + 1;
+            }
+        }
+        return m_sizeWeights.length;
+    }
+
+    /**
+     * Puts a copy of an earlier shape with its first cell to the given cell.
+     *
+     * @return the size of the piece, 0 if none of the tried shapes fit
+     */
+    private int stamp( int[] owners, List<int[]> shapes, int first, int piece, int maxSize )
+    {
+        int x = first % m_sideLength;
+        int y = first / m_sideLength;
+
+        for ( int attempt = 0; attempt < ATTEMPTS; attempt++ )
+        {
+            // Offsets from the first cell, two values per cell
+            int[] shape = shapes.get( m_random.nextInt( shapes.size() ) );
+            if ( shape.length / 2 > maxSize || !fits( owners, shape, x, y ) )
+            {
+                continue;
+            }
+
+            for ( int i = 0; i < shape.length; i += 2 )
+            {
+                owners[( y + shape[i + 1] ) * m_sideLength + x + shape[i]] = piece;
+            }
+            return shape.length / 2;
+        }
+        return 0;
+    }
+
+    private boolean fits( int[] owners, int[] shape, int x, int y )
+    {
+        for ( int i = 0; i < shape.length; i += 2 )
+        {
+            int cellX = x + shape[i];
+            int cellY = y + shape[i + 1];
+            if ( cellX < 0 || cellX >= m_sideLength || cellY >= m_sideLength
+                    || owners[cellY * m_sideLength + cellX] >= 0 )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Grows a piece from the first cell by adding random free neighbours.
+     *
+     * @return the size of the piece, smaller than the target if the free area ran out
+     */
+    private int grow( int[] owners, int[] frontier, int first, int piece, int target )
+    {
+        owners[first] = piece;
+        int size = 1;
+        int count = addNeighbours( owners, frontier, 0, first );
+
+        while ( size < target && count > 0 )
+        {
+            int index = m_random.nextInt( count );
+            int cell = frontier[index];
+            frontier[index] = frontier[--count];
+            if ( owners[cell] < 0 )
+            {
+                owners[cell] = piece;
+                size++;
+                count = addNeighbours( owners, frontier, count, cell );
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Joins the cells that no piece got to a neighbouring piece.
+     */
+    private void fillRest( int[] owners, int[] frontier )
+    {
+        int count = 0;
+        for ( int cell = 0; cell < owners.length; cell++ )
+        {
+            if ( owners[cell] >= 0 )
+            {
+                count = addNeighbours( owners, frontier, count, cell );
+            }
+        }
+
+        while ( count > 0 )
+        {
+            int index = m_random.nextInt( count );
+            int cell = frontier[index];
+            frontier[index] = frontier[--count];
+            if ( owners[cell] < 0 )
+            {
+                owners[cell] = owners[getOwnedNeighbour( owners, cell )];
+                count = addNeighbours( owners, frontier, count, cell );
+            }
+        }
+    }
+
+    private int addNeighbours( int[] owners, int[] frontier, int count, int cell )
+    {
+        int x = cell % m_sideLength;
+        int y = cell / m_sideLength;
+        for ( int[] direction : DIRECTIONS )
+        {
+            int nx = x + direction[0];
+            int ny = y + direction[1];
+            if ( nx >= 0 && nx < m_sideLength && ny >= 0 && ny < m_sideLength && owners[ny * m_sideLength + nx] < 0 )
+            {
+                if ( count == frontier.length )
+                {
+                    return count;
+                }
+                frontier[count++] = ny * m_sideLength + nx;
+            }
+        }
+        return count;
+    }
+
+    private int getOwnedNeighbour( int[] owners, int cell )
+    {
+        int x = cell % m_sideLength;
+        int y = cell / m_sideLength;
+        int start = m_random.nextInt( DIRECTIONS.length );
+        for ( int i = 0; i < DIRECTIONS.length; i++ )
+        {
+            int[] direction = DIRECTIONS[( start + i ) % DIRECTIONS.length];
+            int nx = x + direction[0];
+            int ny = y + direction[1];
+            if ( nx >= 0 && nx < m_sideLength && ny >= 0 && ny < m_sideLength && owners[ny * m_sideLength + nx] >= 0 )
+            {
+                return ny * m_sideLength + nx;
+            }
+        }
+        throw new IllegalStateException( "Cell " + cell + " has no piece next to it." );
+    }
+
+    /**
+     * Gets the cells of the piece as offsets from its first cell.
+     */
+    private int[] getShape( int[] owners, int first, int piece, int size )
+    {
+        int[] shape = new int[2 * size];
+        int i = 0;
+        // The piece was grown from its first free cell, so it has no cells before it
+        for ( int cell = first; i < shape.length; cell++ )
+        {
+            if ( owners[cell] == piece )
+            {
+                shape[i++] = cell % m_sideLength - first % m_sideLength;
+                shape[i++] = cell / m_sideLength - first / m_sideLength;
+            }
+        }
+        return shape;
+    }
+
+    /**
+     * Moves one cell of the points to another place next to the other points.
+     *
+     * @return the moved points, null if the result would not be connected or the piece has one cell
+     */
+    private Set<Point> moveOneCell( Set<Point> points )
+    {
+        if ( points.size() < 2 )
+        {
+            return null;
+        }
+
+        List<Point> list = new ArrayList<>( points );
+        Point removed = list.remove( m_random.nextInt( list.size() ) );
+        Set<Point> moved = new HashSet<>( list );
+        // A cell of the other checkerboard colour changes the balance of the piece, which
+        // the parity checks often notice
+        for ( int attempt = 0; attempt < ATTEMPTS; attempt++ )
+        {
+            Point added = getFreeNeighbour( moved );
+            if ( ( ( added.getX() + added.getY() + removed.getX() + removed.getY() ) & 1 ) == 1 )
+            {
+                moved.add( added );
+                return new PieceShape( new Block( 0, 'x', moved ) ).isConnected() ? moved : null;
+            }
+        }
+        return null;
+    }
+
+    private Point getFreeNeighbour( Set<Point> points )
+    {
+        List<Point> list = new ArrayList<>( points );
+        while ( true )
+        {
+            Point point = list.get( m_random.nextInt( list.size() ) );
+            int[] direction = DIRECTIONS[m_random.nextInt( DIRECTIONS.length )];
+            Point neighbour = new Point( point.getX() + direction[0], point.getY() + direction[1] );
+            if ( !points.contains( neighbour ) )
+            {
+                return neighbour;
+            }
+        }
+    }
+
+    /**
+     * Creates a block with the points moved so that the smallest x and y values are zero.
+     */
+    private Block createBlock( int id, String name, Set<Point> points )
+    {
+        int minX = points.stream().mapToInt( Point::getX ).min().getAsInt();
+        int minY = points.stream().mapToInt( Point::getY ).min().getAsInt();
+        Set<Point> normalized = new HashSet<>();
+        points.forEach( p -> normalized.add( new Point( p.getX() - minX, p.getY() - minY ) ) );
+
+        return new Block( id, name, normalized );
+    }
+}
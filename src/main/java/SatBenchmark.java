@@ -0,0 +1,97 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Compares {@link SatFitter} to {@link PlacementSearch} on hard puzzles without a fit. The
+ * puzzles fill the grid with pieces of four cells drawn from a few random shapes. A puzzle is
+ * kept if it passes {@link FeasibilityCheck}, the search needs at least a million nodes and
+ * neither of them finds a fit, so only the search itself can tell that the pieces don't fit.
+ * <p>
+ * Usage: SatBenchmark [side length] [puzzles] [shapes] [node limit] [conflict limit] [seed]
+ */
+public class SatBenchmark
+{
+    // The puzzles that the search settles with fewer nodes are left out
+    private static final long HARD_NODES = 1000000;
+
+    public static void main( String[] args ) throws Exception
+    {
+        int sideLength = args.length > 0 ? Integer.parseInt( args[0] ) : 12;
+        int puzzleCount = args.length > 1 ? Integer.parseInt( args[1] ) : 6;
+        int shapeCount = args.length > 2 ? Integer.parseInt( args[2] ) : 4;
+        long nodeLimit = args.length > 3 ? Long.parseLong( args[3] ) : 100000000;
+        long conflictLimit = args.length > 4 ? Long.parseLong( args[4] ) : 100000;
+        Random random = new Random( args.length > 5 ? Long.parseLong( args[5] ) : 1 );
+
+        long searchTotal = 0;
+        long satTotal = 0;
+        int searchDecided = 0;
+        int satDecided = 0;
+        int tries = 0;
+
+        System.out.println( "puzzle  search        nodes       ms  sat      conflicts       ms" );
+        for ( int puzzle = 1; puzzle <= puzzleCount; tries++ )
+        {
+            PlacementTable table = createTable( sideLength, shapeCount, random );
+            if ( FeasibilityCheck.check( table ) != null )
+            {
+                continue;
+            }
+
+            PlacementSearch search = new PlacementSearch( table );
+            search.setNodeLimit( nodeLimit );
+            long start = System.nanoTime();
+            boolean searchFit = search.findFirst() != null;
+            long searchMillis = ( System.nanoTime() - start ) / 1000000;
+            if ( searchFit || search.getNodeCount() < HARD_NODES )
+            {
+                continue;
+            }
+
+            SatFitter fitter = new SatFitter();
+            fitter.setConflictLimit( conflictLimit );
+            start = System.nanoTime();
+            boolean satFit = fitter.solve( table ) != null;
+            long satMillis = ( System.nanoTime() - start ) / 1000000;
+            if ( satFit )
+            {
+                continue;
+            }
+
+            System.out.println( String.format( "%6d  %-6s %12d %8d  %-6s %12d %8d", puzzle,
+                                               getOutcome( search.isLimitReached() ), search.getNodeCount(),
+                                               searchMillis, getOutcome( fitter.isLimitReached() ),
+                                               fitter.getConflictCount(), satMillis ) );
+            searchTotal += searchMillis;
+            satTotal += satMillis;
+            searchDecided += search.isLimitReached() ? 0 : 1;
+            satDecided += fitter.isLimitReached() ? 0 : 1;
+            puzzle++;
+        }
+
+        System.out.println( String.format( "total   search %d no fit in %d ms, sat %d no fit in %d ms, %d puzzles generated",
+                                           searchDecided, searchTotal, satDecided, satTotal, tries ) );
+    }
+
+    private static String getOutcome( boolean limitReached )
+    {
+        return limitReached ? "limit" : "no fit";
+    }
+
+    /**
+     * Creates a table of pieces that have as many cells as the grid.
+     */
+    private static PlacementTable createTable( int sideLength, int shapeCount, Random random )
+    {
+        List<Set<Point>> shapes = GeometryBenchmark.createPieces( 4, shapeCount, random );
+        List<Block> blocks = new ArrayList<>();
+        for ( int id = 0; id < sideLength * sideLength / 4; id++ )
+        {
+            Set<Point> points = shapes.get( random.nextInt( shapeCount ) );
+            blocks.add( new Block( id, PieceNames.createName( id ), points ) );
+        }
+        return new PlacementTable( sideLength, blocks );
+    }
+}
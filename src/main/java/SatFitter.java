@@ -0,0 +1,295 @@
+import java.util.Arrays;
+
+/**
+ * Fits the blocks by encoding the placements as a SAT problem and solving it with {@link CdclSolver}.
+ * <p>
+ * There is one variable per placement of each class of identical blocks, so swapping the
+ * blocks of a class doesn't give new assignments to search. Each class has as many placements
+ * as blocks and each cell is covered by at most one placement. If the blocks have exactly as
+ * many points as there are free cells, each cell must also be covered by at least one
+ * placement, and the solver fills the first empty cell on each decision like
+ * {@link PlacementSearch}.
+ * <p>
+ * This is an alternative to {@link PlacementSearch}, not a faster replacement: a conflict costs
+ * far more than a node of the search, so the search is faster on grids up to 10 x 10. On larger
+ * exact covers without a fit the learnt clauses can cut the search short, but not always, see
+ * {@link SatBenchmark}.
+ */
+public class SatFitter
+{
+    // Lists with more literals get a sequential counter instead of pairwise clauses
+    private static final int PAIRWISE_LIMIT = 64;
+
+    private long m_conflictLimit = Long.MAX_VALUE;
+    private boolean m_limitReached;
+    private long m_conflictCount;
+
+    /**
+     * Sets the maximum amount of conflicts before giving up.
+     *
+     * @param conflictLimit
+     */
+    public void setConflictLimit( long conflictLimit )
+    {
+        m_conflictLimit = conflictLimit;
+    }
+
+    /**
+     * Checks if the last call gave up because of the conflict limit.
+     *
+     * @return
+     */
+    public boolean isLimitReached()
+    {
+        return m_limitReached;
+    }
+
+    public long getConflictCount()
+    {
+        return m_conflictCount;
+    }
+
+    /**
+     * Tries to fit the blocks of the puzzle to the grid.
+     *
+     * @param puzzle
+     * @return the result if all blocks fit, null otherwise
+     */
+    public FittingResult fit( Puzzle puzzle )
+    {
+        PlacementTable table = puzzle.createPlacementTable();
+        int[] placements = solve( table );
+
+        return placements == null ? null : table.createResult( placements );
+    }
+
+    /**
+     * Finds placements for all blocks of the table.
+     *
+     * @param table
+     * @return placement index per piece, null if the blocks don't fit or the conflict limit was reached
+     */
+    public int[] solve( PlacementTable table )
+    {
+        m_limitReached = false;
+        m_conflictCount = 0;
+
+        if ( FeasibilityCheck.check( table ) != null )
+        {
+            return null;
+        }
+
+        CdclSolver solver = new CdclSolver();
+        int[] firstVariables = encode( table, solver );
+
+        solver.setConflictLimit( m_conflictLimit );
+        CdclSolver.Result result = solver.solve();
+        m_conflictCount = solver.getConflictCount();
+        m_limitReached = result == CdclSolver.Result.UNKNOWN;
+
+        if ( result != CdclSolver.Result.SATISFIABLE )
+        {
+            return null;
+        }
+
+        // Decode the model, giving the chosen placements of a class to its blocks in order
+        int[] placements = new int[table.getPieceCount()];
+        for ( int pieceClass = 0; pieceClass < table.getClassCount(); pieceClass++ )
+        {
+            PieceClass candidates = table.getPieceClass( pieceClass );
+            for ( int placement = 0, i = 0; placement < candidates.getPlacementCount(); placement++ )
+            {
+                if ( solver.getValue( firstVariables[pieceClass] + placement ) )
+                {
+                    placements[candidates.getPiece( i++ )] = placement;
+                }
+            }
+        }
+        return placements;
+    }
+
+    /**
+     * Adds the variables and the clauses of the table to the solver.
+     *
+     * @return the variable of the first placement of each class, the others follow it
+     */
+    private int[] encode( PlacementTable table, CdclSolver solver )
+    {
+        int classCount = table.getClassCount();
+        int cellCount = table.getCellCount();
+        int words = table.getWords();
+        int[] firstVariables = new int[classCount];
+        int[][] cellVariables = new int[cellCount][4];
+        int[] cellCounts = new int[cellCount];
+        int[][] classVariables = new int[classCount][];
+
+        // The placement variables first, so they follow each other
+        for ( int pieceClass = 0; pieceClass < classCount; pieceClass++ )
+        {
+            PieceClass candidates = table.getPieceClass( pieceClass );
+            int placementCount = candidates.getPlacementCount();
+            int[] variables = new int[placementCount];
+            long[] masks = candidates.getMasks();
+
+            for ( int placement = 0; placement < placementCount; placement++ )
+            {
+                variables[placement] = solver.newVariable();
+                // Deciding a placement true propagates much more than deciding it false
+                solver.setPhase( variables[placement], true );
+                // Start like the depth-first search: fill the grid from the first cell
+                int firstCell = CellMask.nextSet( masks, placement * words * 64 ) - placement * words * 64;
+                solver.setInitialActivity( variables[placement], 1.0 - (double)firstCell / cellCount );
+
+                for ( int w = 0; w < words; w++ )
+                {
+                    long bits = masks[placement * words + w];
+                    while ( bits != 0 )
+                    {
+                        int cell = ( w << 6 ) + Long.numberOfTrailingZeros( bits );
+                        bits &= bits - 1;
+                        if ( cellCounts[cell] == cellVariables[cell].length )
+                        {
+                            cellVariables[cell] = Arrays.copyOf( cellVariables[cell], cellCounts[cell] * 2 );
+                        }
+                        cellVariables[cell][cellCounts[cell]++] = variables[placement];
+                    }
+                }
+            }
+
+            firstVariables[pieceClass] = placementCount == 0 ? 0 : variables[0];
+            classVariables[pieceClass] = variables;
+        }
+
+        // As many placements of a class as it has blocks
+        for ( int pieceClass = 0; pieceClass < classCount; pieceClass++ )
+        {
+            int[] variables = classVariables[pieceClass];
+            int multiplicity = table.getPieceClass( pieceClass ).getMultiplicity();
+            if ( multiplicity == 1 )
+            {
+                solver.addClause( variables );
+                addAtMostOne( solver, variables, variables.length );
+            }
+            else
+            {
+                addExactly( solver, variables, multiplicity );
+            }
+        }
+
+        long[] blocked = table.getBlocked();
+        boolean exactCover = table.getPieceCellCount() == table.getFreeCellCount();
+
+        for ( int cell = 0; cell < cellCount; cell++ )
+        {
+            addAtMostOne( solver, cellVariables[cell], cellCounts[cell] );
+            if ( exactCover && !CellMask.get( blocked, cell ) )
+            {
+                int[] covering = Arrays.copyOf( cellVariables[cell], cellCounts[cell] );
+                solver.addClause( covering );
+                // Fill the first empty cell like the depth-first search
+                solver.addDecisionGroup( covering );
+            }
+        }
+
+        return firstVariables;
+    }
+
+    /**
+     * Adds clauses allowing exactly the given amount of the variables to be true, with a
+     * sequential counter: <code>r(i, j)</code> is true if at least <code>j</code> of the first
+     * <code>i + 1</code> variables are true. The counter goes both ways, so the propagation
+     * sees both when too many and when too few variables can be true.
+     */
+    private void addExactly( CdclSolver solver, int[] variables, int amount )
+    {
+        int count = variables.length;
+        if ( count < amount )
+        {
+            solver.addClause();
+            return;
+        }
+
+        // r(0, 1) is the first variable itself, r(i, 0) is always true
+        int[] previous = { variables[0] };
+        for ( int i = 1; i < count; i++ )
+        {
+            int x = variables[i];
+            int[] current = new int[Math.min( i + 1, amount + 1 )];
+            for ( int j = 1; j <= current.length; j++ )
+            {
+                int r = solver.newVariable();
+                current[j - 1] = r;
+                boolean hasSame = j <= previous.length;
+                int same = hasSame ? previous[j - 1] : 0;
+
+                if ( hasSame )
+                {
+                    solver.addClause( -same, r );
+                    solver.addClause( -r, same, x );
+                }
+                else
+                {
+                    solver.addClause( -r, x );
+                }
+
+                if ( j == 1 )
+                {
+                    solver.addClause( -x, r );
+                }
+                else
+                {
+                    int less = previous[j - 2];
+                    solver.addClause( -x, -less, r );
+                    if ( hasSame )
+                    {
+                        solver.addClause( -r, same, less );
+                    }
+                    else
+                    {
+                        solver.addClause( -r, less );
+                    }
+                }
+            }
+            previous = current;
+        }
+
+        solver.addClause( previous[amount - 1] );
+        if ( previous.length > amount )
+        {
+            solver.addClause( -previous[amount] );
+        }
+    }
+
+    /**
+     * Adds clauses allowing at most one of the variables to be true.
+     */
+    private void addAtMostOne( CdclSolver solver, int[] variables, int count )
+    {
+        if ( count <= PAIRWISE_LIMIT )
+        {
+            for ( int i = 0; i < count; i++ )
+            {
+                for ( int k = i + 1; k < count; k++ )
+                {
+                    solver.addClause( -variables[i], -variables[k] );
+                }
+            }
+            return;
+        }
+
+        // Sequential counter: s(i) is true if any of the first i+1 variables is true
+        int previous = solver.newVariable();
+        solver.addClause( -variables[0], previous );
+
+        for ( int i = 1; i < count - 1; i++ )
+        {
+            int current = solver.newVariable();
+            solver.addClause( -variables[i], current );
+            solver.addClause( -previous, current );
+            solver.addClause( -variables[i], -previous );
+            previous = current;
+        }
+
+        solver.addClause( -variables[count - 1], -previous );
+    }
+}
@@ -0,0 +1,70 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.net.Socket;
+
+/**
+ * Worker process of a {@link WorkCoordinator}. Connects to the coordinator, reads the puzzle
+ * and then searches the work units it is given until the coordinator tells it to stop (see
+ * {@link WorkProtocol}).
+ */
+public class SearchWorker
+{
+    /**
+     * Runs a worker.
+     *
+     * @param args host and port of the coordinator
+     */
+    public static void main( String[] args )
+    {
+        if ( args.length != 2 )
+        {
+            System.err.println( "Usage: SearchWorker <host> <port>" );
+            return;
+        }
+
+        try
+        {
+            run( args[0], Integer.parseInt( args[1] ) );
+        }
+        catch ( Exception e )
+        {
+            System.err.println( "Worker failed: " + e.getMessage() );
+            System.exit( 1 );
+        }
+    }
+
+    /**
+     * Connects to the coordinator and searches the work units until it tells to stop.
+     *
+     * @param host
+     * @param port
+     * @throws Exception if the connection fails, the puzzle can't be parsed or the coordinator
+     *         sends something else than the work protocol
+     */
+    public static void run( String host, int port ) throws Exception
+    {
+        try ( Socket socket = new Socket( host, port ) )
+        {
+            DataOutputStream out = new DataOutputStream( new BufferedOutputStream( socket.getOutputStream() ) );
+            DataInputStream in = new DataInputStream( new BufferedInputStream( socket.getInputStream() ) );
+
+            boolean countAll = WorkProtocol.readHeader( in );
+            PlacementTable table = Puzzle.parse( WorkProtocol.readRows( in ), 4 ).createPlacementTable();
+
+            WorkUnit unit;
+            while ( ( unit = WorkProtocol.readUnit( in, table ) ) != null )
+            {
+                PlacementSearch search = new PlacementSearch( table );
+                search.setPrefix( unit.getPrefix() );
+
+                WorkResult result = countAll
+                        ? new WorkResult( unit.getId(), search.count(), null )
+                        : new WorkResult( unit.getId(), 0, search.findFirst() );
+                WorkProtocol.writeResult( out, result );
+                out.flush();
+            }
+        }
+    }
+}
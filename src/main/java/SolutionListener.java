@@ -0,0 +1,13 @@
+/**
+ * Receives the solutions found by {@link PlacementSearch}.
+ */
+public interface SolutionListener
+{
+    /**
+     * Called for each solution. The array is reused by the search, copy it if needed later.
+     *
+     * @param placements placement index per piece (see {@link PlacementTable})
+     * @return true to continue the search, false to stop it
+     */
+    boolean solutionFound( int[] placements );
+}
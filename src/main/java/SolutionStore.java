@@ -0,0 +1,354 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stores the solutions of an enumeration outside of the heap.
+ * <p>
+ * Each solution is a fixed-width record of the placement indexes of the pieces, two bytes per
+ * piece if the placement counts allow it and four otherwise. The records go first to a direct
+ * buffer and, when it is full, to a memory-mapped file that grows in segments. No objects are
+ * created per solution, so the store can be given to {@link PlacementSearch#enumerate} for
+ * any amount of solutions.
+ */
+public class SolutionStore implements SolutionListener, AutoCloseable
+{
+    private static final long SEGMENT_BYTES = 64L << 20;
+
+    private final int m_pieceCount;
+    private final int m_valueBytes;
+    private final int m_recordBytes;
+    private final ByteBuffer m_memory;
+    private final long m_memoryLimit;
+    private final long m_memoryRecords;
+    private final long m_segmentRecords;
+    private final Path m_spillDirectory;
+    private final List<MappedByteBuffer> m_segments = new ArrayList<>();
+
+    private Path m_spillFile;
+    private FileChannel m_channel;
+    private long m_size;
+
+    /**
+     * @param table table of the solutions
+     * @param memoryLimit bytes kept in memory before spilling to a file
+     * @param spillDirectory directory of the spill file
+     */
+    public SolutionStore( PlacementTable table, long memoryLimit, Path spillDirectory )
+    {
+        int maxPlacements = 0;
+        for ( int piece = 0; piece < table.getPieceCount(); piece++ )
+        {
+            maxPlacements = Math.max( maxPlacements, table.getPlacementCount( piece ) );
+        }
+
+        m_pieceCount = table.getPieceCount();
+        // Values are stored as placement + 1 so that -1 (not placed) fits too
+        m_valueBytes = maxPlacements < 0xFFFF ? 2 : 4;
+        m_recordBytes = Math.max( 1, m_pieceCount * m_valueBytes );
+        m_memoryLimit = memoryLimit;
+        m_memoryRecords = Math.min( memoryLimit, Integer.MAX_VALUE ) / m_recordBytes;
+        m_memory = ByteBuffer.allocateDirect( (int)( m_memoryRecords * m_recordBytes ) );
+        m_segmentRecords = Math.max( 1, SEGMENT_BYTES / m_recordBytes );
+        m_spillDirectory = spillDirectory;
+    }
+
+    /**
+     * Gets the amount of stored solutions.
+     *
+     * @return
+     */
+    public long size()
+    {
+        return m_size;
+    }
+
+    /**
+     * Checks if some of the solutions went to the spill file.
+     *
+     * @return
+     */
+    public boolean isSpilled()
+    {
+        return m_channel != null;
+    }
+
+    /**
+     * Adds a copy of the solution to the store.
+     *
+     * @see SolutionListener#solutionFound(int[])
+     */
+    @Override
+    public boolean solutionFound( int[] placements )
+    {
+        add( placements );
+        return true;
+    }
+
+    /**
+     * Adds a copy of the solution to the store.
+     *
+     * @param placements placement index per piece
+     */
+    public void add( int[] placements )
+    {
+        ByteBuffer buffer = bufferOf( m_size, true );
+        int offset = offsetOf( m_size );
+        for ( int piece = 0; piece < m_pieceCount; piece++ )
+        {
+            writeValue( buffer, offset + piece * m_valueBytes, placements[piece] );
+        }
+        m_size++;
+    }
+
+    /**
+     * Reads a solution.
+     *
+     * @param index index of the solution
+     * @param placements array to fill with the placement index per piece
+     * @return the given array
+     */
+    public int[] get( long index, int[] placements )
+    {
+        if ( index < 0 || index >= m_size )
+        {
+            throw new IndexOutOfBoundsException( "Solution " + index + " of " + m_size );
+        }
+
+        ByteBuffer buffer = bufferOf( index, false );
+        int offset = offsetOf( index );
+        for ( int piece = 0; piece < m_pieceCount; piece++ )
+        {
+            placements[piece] = readValue( buffer, offset + piece * m_valueBytes );
+        }
+        return placements;
+    }
+
+    /**
+     * Gives the solutions to the listener in the order they were added. The same array is
+     * used for all solutions.
+     *
+     * @param listener
+     * @return false if the listener stopped the iteration
+     */
+    public boolean forEach( SolutionListener listener )
+    {
+        int[] placements = new int[m_pieceCount];
+        for ( long index = 0; index < m_size; index++ )
+        {
+            if ( !listener.solutionFound( get( index, placements ) ) )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Removes the duplicate solutions, keeping the first of each in the original order.
+     * Uses an off-heap hash table of the record indexes, 16 bytes per solution.
+     *
+     * @return the amount of removed solutions
+     */
+    public long deduplicate()
+    {
+        long capacity = Long.highestOneBit( Math.max( 2, m_size * 2 ) - 1 ) << 1;
+        if ( capacity * Long.BYTES > Integer.MAX_VALUE )
+        {
+            throw new IllegalStateException( "Too many solutions to deduplicate: " + m_size );
+        }
+
+        ByteBuffer table = createTable( (int)( capacity * Long.BYTES ) );
+        long mask = capacity - 1;
+        long kept = 0;
+
+        for ( long index = 0; index < m_size; index++ )
+        {
+            long slot = hash( index ) & mask;
+            boolean duplicate = false;
+            long stored;
+            // Slots hold the kept index + 1, zero is empty
+            while ( ( stored = table.getLong( (int)( slot * Long.BYTES ) ) ) != 0 )
+            {
+                if ( sameRecord( stored - 1, index ) )
+                {
+                    duplicate = true;
+                    break;
+                }
+                slot = ( slot + 1 ) & mask;
+            }
+
+            if ( !duplicate )
+            {
+                // Moving the record down never overwrites the ones not read yet
+                copyRecord( index, kept );
+                table.putLong( (int)( slot * Long.BYTES ), kept + 1 );
+                kept++;
+            }
+        }
+
+        long removed = m_size - kept;
+        m_size = kept;
+        return removed;
+    }
+
+    /**
+     * Closes and deletes the spill file.
+     *
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException
+    {
+        m_segments.clear();
+        if ( m_channel != null )
+        {
+            m_channel.close();
+            m_channel = null;
+            Files.deleteIfExists( m_spillFile );
+        }
+    }
+
+    private ByteBuffer bufferOf( long index, boolean grow )
+    {
+        if ( index < m_memoryRecords )
+        {
+            return m_memory;
+        }
+
+        int segment = (int)( ( index - m_memoryRecords ) / m_segmentRecords );
+        if ( segment >= m_segments.size() && grow )
+        {
+            addSegment();
+        }
+        return m_segments.get( segment );
+    }
+
+    private int offsetOf( long index )
+    {
+        if ( index < m_memoryRecords )
+        {
+            return (int)( index * m_recordBytes );
+        }
+        return (int)( ( index - m_memoryRecords ) % m_segmentRecords * m_recordBytes );
+    }
+
+    private void addSegment()
+    {
+        try
+        {
+            if ( m_channel == null )
+            {
+                m_spillFile = Files.createTempFile( m_spillDirectory, "solutions", ".bin" );
+                m_channel = FileChannel.open( m_spillFile, StandardOpenOption.READ, StandardOpenOption.WRITE );
+            }
+            long segmentBytes = m_segmentRecords * m_recordBytes;
+            m_segments.add( m_channel.map( FileChannel.MapMode.READ_WRITE, m_segments.size() * segmentBytes, segmentBytes ) );
+        }
+        catch ( IOException e )
+        {
+            throw new UncheckedIOException( "Could not spill the solutions to " + m_spillDirectory, e );
+        }
+    }
+
+    /**
+     * Creates the zeroed hash table of the deduplication. A table larger than the memory
+     * limit is mapped from a temporary file that is deleted right away.
+     */
+    private ByteBuffer createTable( int bytes )
+    {
+        if ( bytes <= m_memoryLimit )
+        {
+            return ByteBuffer.allocateDirect( bytes );
+        }
+
+        try
+        {
+            Path file = Files.createTempFile( m_spillDirectory, "dedupe", ".bin" );
+            try ( FileChannel channel = FileChannel.open( file, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                    StandardOpenOption.DELETE_ON_CLOSE ) )
+            {
+                // The mapping stays valid after the channel is closed
+                return channel.map( FileChannel.MapMode.READ_WRITE, 0, bytes );
+            }
+        }
+        catch ( IOException e )
+        {
+            throw new UncheckedIOException( "Could not create the deduplication table to " + m_spillDirectory, e );
+        }
+    }
+
+    private void writeValue( ByteBuffer buffer, int offset, int placement )
+    {
+        if ( m_valueBytes == 2 )
+        {
+            buffer.putShort( offset, (short)( placement + 1 ) );
+        }
+        else
+        {
+            buffer.putInt( offset, placement + 1 );
+        }
+    }
+
+    private int readValue( ByteBuffer buffer, int offset )
+    {
+        if ( m_valueBytes == 2 )
+        {
+            return ( buffer.getShort( offset ) & 0xFFFF ) - 1;
+        }
+        return buffer.getInt( offset ) - 1;
+    }
+
+    private long hash( long index )
+    {
+        ByteBuffer buffer = bufferOf( index, false );
+        int offset = offsetOf( index );
+        long hash = 0;
+        for ( int piece = 0; piece < m_pieceCount; piece++ )
+        {
+            hash = hash * 31 + readValue( buffer, offset + piece * m_valueBytes );
+        }
+        // Mix the bits so that the table can use the low bits
+        hash *= 0x9E3779B97F4A7C15L;
+        return hash ^ ( hash >>> 32 );
+    }
+
+    private boolean sameRecord( long first, long second )
+    {
+        ByteBuffer firstBuffer = bufferOf( first, false );
+        ByteBuffer secondBuffer = bufferOf( second, false );
+        int firstOffset = offsetOf( first );
+        int secondOffset = offsetOf( second );
+        for ( int i = 0; i < m_recordBytes; i++ )
+        {
+            if ( firstBuffer.get( firstOffset + i ) != secondBuffer.get( secondOffset + i ) )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void copyRecord( long from, long to )
+    {
+        if ( from == to )
+        {
+            return;
+        }
+        ByteBuffer source = bufferOf( from, false );
+        ByteBuffer target = bufferOf( to, false );
+        int sourceOffset = offsetOf( from );
+        int targetOffset = offsetOf( to );
+        for ( int i = 0; i < m_recordBytes; i++ )
+        {
+            target.put( targetOffset + i, source.get( sourceOffset + i ) );
+        }
+    }
+}
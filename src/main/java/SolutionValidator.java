@@ -0,0 +1,441 @@
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Checks solutions of puzzles independently of the solvers. A solution is valid if it has
+ * each block of the puzzle exactly once, each block is a translation of the block of the
+ * puzzle with the same id, the blocks are inside the grid, off the blocked cells and don't
+ * overlap, and the blocks cover every free cell if they should fill the grid.
+ * <p>
+ * The cells are checked with occupancy masks (see {@link CellMask}) that a validator reuses,
+ * so no objects are created per cell. A validator is not thread safe, see
+ * {@link #validateAll(List, List, int)} for validating many solutions in parallel.
+ */
+public class SolutionValidator
+{
+    private static final int BATCH_SIZE = 1024;
+
+    // The entries of an id are valid only if the stamp of the id is the current one
+    private int[] m_stamps = new int[0];
+    private int[] m_inputIndexes = new int[0];
+    private boolean[] m_found = new boolean[0];
+    private int m_stamp;
+    private int m_foundCount;
+    private long[] m_occupied = new long[0];
+    private long[] m_blocked = new long[0];
+    private long[] m_block = new long[0];
+    private String m_violatingBlock;
+
+    /**
+     * Validates many solutions in parallel.
+     *
+     * @param puzzles
+     * @param solutions the blocks of the solution of each puzzle, null if there is no solution to check
+     * @param parallelism amount of threads
+     * @return the first violation of each solution, null for a valid one
+     * @throws InterruptedException
+     */
+    public static Violation[] validateAll( List<Puzzle> puzzles, List<? extends List<Block>> solutions,
+                                           int parallelism ) throws InterruptedException
+    {
+        return validateAll( puzzles, solutions, parallelism, ( validator, puzzle, solution ) ->
+                validator.validate( puzzle, solution ) );
+    }
+
+    /**
+     * Validates many results in parallel, see {@link #validate(Puzzle, FittingResult)}.
+     *
+     * @param puzzles
+     * @param results the result of each puzzle, null if there is no result to check
+     * @param parallelism amount of threads
+     * @return the first violation of each result, null for a valid one
+     * @throws InterruptedException
+     */
+    public static Violation[] validateResults( List<Puzzle> puzzles, List<FittingResult> results,
+                                               int parallelism ) throws InterruptedException
+    {
+        return validateAll( puzzles, results, parallelism, ( validator, puzzle, result ) ->
+                validator.validate( puzzle, result ) );
+    }
+
+    private static <T> Violation[] validateAll( List<Puzzle> puzzles, List<? extends T> solutions,
+                                                int parallelism, Check<T> check ) throws InterruptedException
+    {
+        Violation[] violations = new Violation[puzzles.size()];
+        int batchCount = ( puzzles.size() + BATCH_SIZE - 1 ) / BATCH_SIZE;
+        ForkJoinPool pool = new ForkJoinPool( parallelism );
+
+        try
+        {
+            // Each batch has its own validator
+            pool.submit( () -> IntStream.range( 0, batchCount ).parallel().forEach( batch -> {
+                SolutionValidator validator = new SolutionValidator();
+                int end = Math.min( puzzles.size(), ( batch + 1 ) * BATCH_SIZE );
+                for ( int i = batch * BATCH_SIZE; i < end; i++ )
+                {
+                    if ( solutions.get( i ) != null )
+                    {
+                        violations[i] = check.validate( validator, puzzles.get( i ), solutions.get( i ) );
+                    }
+                }
+            } ) ).get();
+        }
+        catch ( ExecutionException e )
+        {
+            throw new IllegalStateException( "Validation failed", e.getCause() );
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+
+        return violations;
+    }
+
+    /**
+     * Validates the result of a puzzle. The blocks must fill the grid if they have exactly
+     * as many points as there are free cells.
+     *
+     * @param puzzle
+     * @param result
+     * @return the first violation found, null if the result is valid
+     */
+    public Violation validate( Puzzle puzzle, FittingResult result )
+    {
+        return validate( puzzle, result, isExactCover( puzzle ) );
+    }
+
+    /**
+     * Validates the result of a puzzle from the shapes and the anchors of its blocks, without
+     * creating the blocks.
+     *
+     * @param puzzle
+     * @param result
+     * @param exactCover true if the blocks must cover every free cell
+     * @return the first violation found, null if the result is valid
+     */
+    public Violation validate( Puzzle puzzle, FittingResult result, boolean exactCover )
+    {
+        int sideLength = puzzle.getSideLength();
+        List<Block> blocks = puzzle.getBlocks();
+        start( puzzle );
+
+        for ( int i = 0; i < result.getBlockCount(); i++ )
+        {
+            Violation violation = find( result.getId( i ), result.getName( i ) );
+            if ( violation == null )
+            {
+                int anchor = result.getAnchor( i );
+                violation = addShape( blocks.get( m_inputIndexes[result.getId( i )] ), result.getShape( i ),
+                                      anchor % result.getWidth(), anchor / result.getWidth(), sideLength );
+            }
+            if ( violation != null )
+            {
+                return violation;
+            }
+        }
+
+        return finish( blocks, sideLength * sideLength, exactCover );
+    }
+
+    /**
+     * Validates a solution of a puzzle. The blocks must fill the grid if they have exactly
+     * as many points as there are free cells.
+     *
+     * @param puzzle
+     * @param solution the blocks of the puzzle in their places
+     * @return the first violation found, null if the solution is valid
+     */
+    public Violation validate( Puzzle puzzle, List<Block> solution )
+    {
+        return validate( puzzle, solution, isExactCover( puzzle ) );
+    }
+
+    /**
+     * Validates a solution of a puzzle.
+     *
+     * @param puzzle
+     * @param solution the blocks of the puzzle in their places
+     * @param exactCover true if the blocks must cover every free cell
+     * @return the first violation found, null if the solution is valid
+     */
+    public Violation validate( Puzzle puzzle, List<Block> solution, boolean exactCover )
+    {
+        int sideLength = puzzle.getSideLength();
+        List<Block> blocks = puzzle.getBlocks();
+        start( puzzle );
+
+        for ( Block placed : solution )
+        {
+            Violation violation = find( placed.getId(), placed.getName() );
+            if ( violation == null )
+            {
+                violation = addBlock( blocks.get( m_inputIndexes[placed.getId()] ), placed, sideLength );
+            }
+            if ( violation != null )
+            {
+                return violation;
+            }
+        }
+
+        return finish( blocks, sideLength * sideLength, exactCover );
+    }
+
+    /**
+     * Gets the name of the block of the last violation.
+     *
+     * @return the name, null if the last violation wasn't about one block or there wasn't any
+     */
+    public String getViolatingBlock()
+    {
+        return m_violatingBlock;
+    }
+
+    /**
+     * Checks if the blocks of the puzzle have exactly as many points as there are free cells.
+     */
+    private static boolean isExactCover( Puzzle puzzle )
+    {
+        int sideLength = puzzle.getSideLength();
+        int pointCount = puzzle.getBlocks().stream().mapToInt( Block::getSize ).sum();
+        return pointCount == sideLength * sideLength - puzzle.getBlockedCells().size();
+    }
+
+    /**
+     * Prepares the masks and the ids for the solution of the puzzle.
+     */
+    private void start( Puzzle puzzle )
+    {
+        int sideLength = puzzle.getSideLength();
+        List<Block> blocks = puzzle.getBlocks();
+
+        prepare( sideLength * sideLength, blocks );
+        m_violatingBlock = null;
+        for ( Point point : puzzle.getBlockedCells() )
+        {
+            CellMask.set( m_blocked, point.getY() * sideLength + point.getX() );
+        }
+
+        for ( int i = 0; i < blocks.size(); i++ )
+        {
+            int id = blocks.get( i ).getId();
+            if ( m_stamps[id] != m_stamp )
+            {
+                m_stamps[id] = m_stamp;
+                m_inputIndexes[id] = i;
+                m_found[id] = false;
+            }
+        }
+        m_foundCount = 0;
+    }
+
+    /**
+     * Marks the placed block of the id found.
+     *
+     * @return the violation if the id isn't of a block of the puzzle or it was already found
+     */
+    private Violation find( int id, String name )
+    {
+        m_violatingBlock = name;
+
+        if ( id < 0 || id >= m_stamps.length || m_stamps[id] != m_stamp )
+        {
+            return Violation.UNKNOWN_BLOCK;
+        }
+        if ( m_found[id] )
+        {
+            return Violation.DUPLICATE_BLOCK;
+        }
+        m_found[id] = true;
+        m_foundCount++;
+        return null;
+    }
+
+    /**
+     * Checks that all blocks of the puzzle were found and that they cover the grid if they should.
+     */
+    private Violation finish( List<Block> blocks, int cellCount, boolean exactCover )
+    {
+        if ( m_foundCount < blocks.size() )
+        {
+            for ( Block block : blocks )
+            {
+                if ( !m_found[block.getId()] )
+                {
+                    m_violatingBlock = block.getName();
+                    return Violation.MISSING_BLOCK;
+                }
+            }
+        }
+
+        m_violatingBlock = null;
+        if ( exactCover )
+        {
+            CellMask.or( m_blocked, 0, m_occupied );
+            if ( CellMask.nextClear( m_occupied, 0, cellCount ) >= 0 )
+            {
+                return Violation.NOT_COVERED;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checks the placed block against the block of the puzzle and adds it to the occupied cells.
+     */
+    private Violation addBlock( Block block, Block placed, int sideLength )
+    {
+        if ( block.getSize() != placed.getSize() )
+        {
+            return Violation.NOT_TRANSLATION;
+        }
+
+        int placedMinX = Integer.MAX_VALUE;
+        int placedMinY = Integer.MAX_VALUE;
+        int firstWord = Integer.MAX_VALUE;
+        int lastWord = -1;
+
+        for ( Point point : placed.getPoints() )
+        {
+            int x = point.getX();
+            int y = point.getY();
+            if ( x < 0 || x >= sideLength || y < 0 || y >= sideLength )
+            {
+                occupy( firstWord, lastWord, false );
+                return Violation.OUTSIDE_GRID;
+            }
+            int cell = y * sideLength + x;
+            CellMask.set( m_block, cell );
+            firstWord = Math.min( firstWord, cell >> 6 );
+            lastWord = Math.max( lastWord, cell >> 6 );
+            placedMinX = Math.min( placedMinX, x );
+            placedMinY = Math.min( placedMinY, y );
+        }
+
+        return occupy( firstWord, lastWord, isTranslation( block, placedMinX, placedMinY, sideLength ) );
+    }
+
+    /**
+     * Checks the shape placed with its (0,0) corner at the given cell against the block of the
+     * puzzle and adds it to the occupied cells.
+     */
+    private Violation addShape( Block block, PieceShape shape, int x, int y, int sideLength )
+    {
+        if ( block.getSize() != shape.getSize() )
+        {
+            return Violation.NOT_TRANSLATION;
+        }
+        if ( x < 0 || y < 0 || x + shape.getWidth() > sideLength || y + shape.getHeight() > sideLength )
+        {
+            return Violation.OUTSIDE_GRID;
+        }
+
+        for ( int run = 0; run < shape.getRunCount(); run++ )
+        {
+            int from = ( y + shape.getRunY( run ) ) * sideLength + x + shape.getRunX( run );
+            CellMask.setRange( m_block, from, from + shape.getRunLength( run ) );
+        }
+        int firstWord = ( y * sideLength + x ) >> 6;
+        int lastWord = ( ( y + shape.getHeight() - 1 ) * sideLength + x + shape.getWidth() - 1 ) >> 6;
+
+        return occupy( firstWord, lastWord, isTranslation( block, x, y, sideLength ) );
+    }
+
+    /**
+     * Checks that the points of the block moved to the given lowest x and y are all in the placed cells.
+     */
+    private boolean isTranslation( Block block, int placedMinX, int placedMinY, int sideLength )
+    {
+        int minX = Integer.MAX_VALUE;
+        int minY = Integer.MAX_VALUE;
+        for ( Point point : block.getPoints() )
+        {
+            minX = Math.min( minX, point.getX() );
+            minY = Math.min( minY, point.getY() );
+        }
+
+        // The points and the placed cells are of equal amount, so the translated points must all be placed
+        int dx = placedMinX - minX;
+        int dy = placedMinY - minY;
+        for ( Point point : block.getPoints() )
+        {
+            int x = point.getX() + dx;
+            int y = point.getY() + dy;
+            if ( x >= sideLength || y >= sideLength || !CellMask.get( m_block, y * sideLength + x ) )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Adds the placed cells to the occupied cells and clears them for the next block.
+     *
+     * @param translation false if the placed cells aren't a translation of the block
+     * @return the first violation of the placed cells
+     */
+    private Violation occupy( int firstWord, int lastWord, boolean translation )
+    {
+        Violation violation = translation ? null : Violation.NOT_TRANSLATION;
+        for ( int w = firstWord; w <= lastWord; w++ )
+        {
+            if ( violation == null && ( m_block[w] & m_blocked[w] ) != 0 )
+            {
+                violation = Violation.BLOCKED_CELL;
+            }
+            if ( violation == null && ( m_block[w] & m_occupied[w] ) != 0 )
+            {
+                violation = Violation.OVERLAP;
+            }
+            m_occupied[w] |= m_block[w];
+            m_block[w] = 0;
+        }
+        return violation;
+    }
+
+    /**
+     * Clears the masks and the ids for the next solution.
+     */
+    private void prepare( int cellCount, List<Block> blocks )
+    {
+        int idCount = blocks.stream().mapToInt( Block::getId ).max().orElse( -1 ) + 1;
+        if ( idCount > m_stamps.length )
+        {
+            m_stamps = new int[idCount];
+            m_inputIndexes = new int[idCount];
+            m_found = new boolean[idCount];
+            m_stamp = 0;
+        }
+
+        int words = CellMask.wordCount( cellCount );
+        if ( m_occupied.length != words )
+        {
+            m_occupied = new long[words];
+            m_blocked = new long[words];
+            m_block = new long[words];
+        }
+        else
+        {
+            Arrays.fill( m_occupied, 0 );
+            Arrays.fill( m_blocked, 0 );
+        }
+
+        if ( ++m_stamp == 0 )
+        {
+            Arrays.fill( m_stamps, 0 );
+            m_stamp = 1;
+        }
+    }
+
+    /**
+     * Validates one kind of solution with a validator.
+     */
+    private interface Check<T>
+    {
+        Violation validate( SolutionValidator validator, Puzzle puzzle, T solution );
+    }
+}
@@ -0,0 +1,132 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Java Flight Recorder events of the solver phases, recorded e.g. with
+ * <code>-XX:StartFlightRecording</code>. Without a recording an event costs a check of a
+ * flag, and the fields are only filled when the event is committed, so the events stay in
+ * the code.
+ */
+final class SolverEvents
+{
+    private static final String CATEGORY = "Fit To Grid";
+
+    private SolverEvents()
+    {
+    }
+
+    @Name( "fitgrid.Parse" )
+    @Label( "Parse" )
+    @Category( CATEGORY )
+    @Description( "Reading and parsing of the input file" )
+    @StackTrace( false )
+    static class ParseEvent extends Event
+    {
+        @Label( "File" )
+        String file;
+
+        @Label( "Lines" )
+        int lineCount;
+
+        @Label( "Blocks" )
+        int blockCount;
+
+        @Label( "Side Length" )
+        int sideLength;
+    }
+
+    @Name( "fitgrid.Preprocess" )
+    @Label( "Preprocess" )
+    @Category( CATEGORY )
+    @Description( "Building of the placement table, the feasibility checks and the ordering of the blocks" )
+    @StackTrace( false )
+    static class PreprocessEvent extends Event
+    {
+        @Label( "Blocks" )
+        int blockCount;
+
+        @Label( "Classes" )
+        int classCount;
+
+        @Label( "Placements" )
+        long placementCount;
+
+        @Label( "Piece Library" )
+        boolean library;
+
+        @Label( "Infeasibility Reason" )
+        String infeasibilityReason;
+    }
+
+    @Name( "fitgrid.Branch" )
+    @Label( "Branch" )
+    @Category( CATEGORY )
+    @Description( "Fitting of the other blocks around one first block at one start point" )
+    @StackTrace( false )
+    static class BranchEvent extends Event
+    {
+        @Label( "Block" )
+        String block;
+
+        @Label( "Start X" )
+        int x;
+
+        @Label( "Start Y" )
+        int y;
+
+        @Label( "Nodes" )
+        @Description( "Blocks tried to the grid in the branch" )
+        long nodeCount;
+
+        @Label( "All Fit" )
+        boolean allFit;
+    }
+
+    @Name( "fitgrid.SearchProgress" )
+    @Label( "Search Progress" )
+    @Category( CATEGORY )
+    @Description( "Sample of a running placement search" )
+    @StackTrace( false )
+    static class ProgressEvent extends Event
+    {
+        @Label( "Exact Cover" )
+        boolean exactCover;
+
+        @Label( "Nodes" )
+        long nodeCount;
+
+        @Label( "Solutions" )
+        long solutionCount;
+
+        @Label( "Depth" )
+        int depth;
+
+        @Label( "Levels" )
+        int levelCount;
+
+        @Label( "Estimated Progress" )
+        @Description( "Share of the search tree done, counting each candidate of a level as an equal part" )
+        double progress;
+    }
+
+    @Name( "fitgrid.Render" )
+    @Label( "Render" )
+    @Category( CATEGORY )
+    @Description( "Printing of a result" )
+    @StackTrace( false )
+    static class RenderEvent extends Event
+    {
+        @Label( "Format" )
+        String format;
+
+        @Label( "Blocks" )
+        int blockCount;
+
+        @Label( "Side Length" )
+        int sideLength;
+    }
+}
@@ -0,0 +1,368 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Solves puzzles submitted by many clients in the background, so that small puzzles don't wait
+ * behind large ones.
+ * <p>
+ * The cost of a puzzle is estimated by its cells times its blocks. Puzzles of at most the fast
+ * lane cost go to the fast lane, which has a thread of its own, and the others to the slow lane.
+ * In both lanes the puzzles are taken by priority, then by deadline and then in the order of
+ * submission.
+ * <p>
+ * Each puzzle is searched by {@link PlacementSearch} in slices of nodes. After a slice the search
+ * yields: a puzzle of the slow lane goes back to its queue behind the others of its priority,
+ * and a puzzle of the fast lane that needed more than one slice moves to the slow lane. A puzzle
+ * whose deadline passes before it is solved completes with a {@link TimeoutException}.
+ */
+public class SolverService implements AutoCloseable
+{
+    /** The lanes of the puzzles. */
+    public enum Lane
+    {
+        FAST, SLOW
+    }
+
+    // A 4x4 grid with eight blocks
+    private static final long DEFAULT_FAST_LANE_COST = 16 * 8;
+    private static final long DEFAULT_SLICE_NODES = 100000;
+
+    private final PriorityBlockingQueue<Job> m_fastQueue = new PriorityBlockingQueue<>();
+    private final PriorityBlockingQueue<Job> m_slowQueue = new PriorityBlockingQueue<>();
+    private final LaneMetrics[] m_metrics = { new LaneMetrics(), new LaneMetrics() };
+    private final AtomicLong m_sequence = new AtomicLong();
+    private final AtomicLong m_sliceCount = new AtomicLong();
+    private final AtomicLong m_expiredCount = new AtomicLong();
+    private final List<Thread> m_threads = new ArrayList<>();
+    private volatile long m_fastLaneCost = DEFAULT_FAST_LANE_COST;
+    private volatile long m_sliceNodes = DEFAULT_SLICE_NODES;
+    private volatile boolean m_closed;
+
+    /**
+     * Starts the threads of the service: one for the fast lane and the given amount for the slow lane.
+     *
+     * @param threadCount threads of the slow lane, at least one
+     */
+    public SolverService( int threadCount )
+    {
+        m_threads.add( new Thread( () -> work( m_fastQueue ), "SolverService-fast" ) );
+        for ( int i = 0; i < Math.max( 1, threadCount ); i++ )
+        {
+            m_threads.add( new Thread( () -> work( m_slowQueue ), "SolverService-slow-" + i ) );
+        }
+        for ( Thread thread : m_threads )
+        {
+            thread.setDaemon( true );
+            thread.start();
+        }
+    }
+
+    /**
+     * Sets the highest estimated cost of the puzzles that go to the fast lane.
+     *
+     * @param fastLaneCost cells times blocks
+     */
+    public void setFastLaneCost( long fastLaneCost )
+    {
+        m_fastLaneCost = fastLaneCost;
+    }
+
+    /**
+     * Sets how many placements a search tries before it yields.
+     *
+     * @param sliceNodes
+     */
+    public void setSliceNodes( long sliceNodes )
+    {
+        m_sliceNodes = Math.max( 1, sliceNodes );
+    }
+
+    /**
+     * Estimates how much work the puzzle is.
+     *
+     * @param puzzle
+     * @return the cells of the grid times the blocks
+     */
+    public static long estimateCost( Puzzle puzzle )
+    {
+        return (long)puzzle.getSideLength() * puzzle.getSideLength() * puzzle.getBlocks().size();
+    }
+
+    /**
+     * Submits the puzzle to be solved.
+     *
+     * @param puzzle
+     * @param priority puzzles of higher priority are taken first
+     * @param deadline time of {@link System#currentTimeMillis()} by which the result is needed, 0 for no deadline
+     * @return the result, null if the blocks don't fit
+     */
+    public CompletableFuture<FittingResult> submit( Puzzle puzzle, int priority, long deadline )
+    {
+        CompletableFuture<FittingResult> future = new CompletableFuture<>();
+        if ( m_closed )
+        {
+            future.completeExceptionally( new CancellationException( "The service is closed" ) );
+            return future;
+        }
+
+        Job job = new Job( puzzle, priority, deadline == 0 ? Long.MAX_VALUE : deadline, future );
+        enqueue( job, estimateCost( puzzle ) <= m_fastLaneCost ? Lane.FAST : Lane.SLOW );
+        return future;
+    }
+
+    /**
+     * Gets the amount of puzzles waiting in the lane.
+     *
+     * @param lane
+     * @return
+     */
+    public int getQueueDepth( Lane lane )
+    {
+        return lane == Lane.FAST ? m_fastQueue.size() : m_slowQueue.size();
+    }
+
+    /**
+     * Gets the amount of puzzles the lane has started.
+     *
+     * @param lane
+     * @return
+     */
+    public long getStartedCount( Lane lane )
+    {
+        return m_metrics[lane.ordinal()].m_started.get();
+    }
+
+    /**
+     * Gets the average time from the submission of a puzzle to its first slice in the lane.
+     *
+     * @param lane
+     * @return milliseconds, zero if the lane hasn't started any puzzles
+     */
+    public double getAverageWaitMillis( Lane lane )
+    {
+        LaneMetrics metrics = m_metrics[lane.ordinal()];
+        long started = metrics.m_started.get();
+        return started == 0 ? 0 : metrics.m_totalWaitNanos.get() / 1e6 / started;
+    }
+
+    /**
+     * Gets the longest time from the submission of a puzzle to its first slice in the lane.
+     *
+     * @param lane
+     * @return milliseconds
+     */
+    public long getMaxWaitMillis( Lane lane )
+    {
+        return m_metrics[lane.ordinal()].m_maxWaitNanos.get() / 1000000;
+    }
+
+    /**
+     * Gets the amount of slices searched in both lanes.
+     *
+     * @return
+     */
+    public long getSliceCount()
+    {
+        return m_sliceCount.get();
+    }
+
+    /**
+     * Gets the amount of puzzles whose deadline passed before they were solved.
+     *
+     * @return
+     */
+    public long getExpiredCount()
+    {
+        return m_expiredCount.get();
+    }
+
+    /**
+     * Stops the threads. The puzzles not yet solved complete with a {@link CancellationException}.
+     */
+    @Override
+    public void close()
+    {
+        m_closed = true;
+        for ( Thread thread : m_threads )
+        {
+            thread.interrupt();
+        }
+        for ( Thread thread : m_threads )
+        {
+            try
+            {
+                thread.join();
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        cancelAll( m_fastQueue );
+        cancelAll( m_slowQueue );
+    }
+
+    private void enqueue( Job job, Lane lane )
+    {
+        job.m_lane = lane;
+        job.m_sequence = m_sequence.getAndIncrement();
+        ( lane == Lane.FAST ? m_fastQueue : m_slowQueue ).add( job );
+        if ( m_closed )
+        {
+            // Closed while adding, the threads may not see the puzzle
+            cancelAll( m_fastQueue );
+            cancelAll( m_slowQueue );
+        }
+    }
+
+    private void cancelAll( PriorityBlockingQueue<Job> queue )
+    {
+        Job job;
+        while ( ( job = queue.poll() ) != null )
+        {
+            job.m_future.completeExceptionally( new CancellationException( "The service is closed" ) );
+        }
+    }
+
+    /**
+     * Searches the puzzles of the queue a slice at a time until the service is closed.
+     */
+    private void work( PriorityBlockingQueue<Job> queue )
+    {
+        while ( !m_closed )
+        {
+            Job job;
+            try
+            {
+                job = queue.take();
+            }
+            catch ( InterruptedException e )
+            {
+                return;
+            }
+
+            try
+            {
+                runSlice( job );
+            }
+            catch ( RuntimeException e )
+            {
+                job.m_future.completeExceptionally( e );
+            }
+        }
+    }
+
+    /**
+     * Searches one slice of the puzzle and completes it, or puts it back to wait for the next slice.
+     */
+    private void runSlice( Job job )
+    {
+        if ( job.m_future.isDone() )
+        {
+            // Cancelled by the client
+            return;
+        }
+        if ( System.currentTimeMillis() >= job.m_deadline )
+        {
+            m_expiredCount.incrementAndGet();
+            job.m_future.completeExceptionally( new TimeoutException( "The deadline passed before the puzzle was solved" ) );
+            return;
+        }
+
+        if ( job.m_search == null )
+        {
+            m_metrics[job.m_lane.ordinal()].started( System.nanoTime() - job.m_submitNanos );
+            job.m_table = job.m_puzzle.createPlacementTable();
+            if ( FeasibilityCheck.check( job.m_table ) != null )
+            {
+                job.m_future.complete( null );
+                return;
+            }
+            job.m_search = new PlacementSearch( job.m_table );
+        }
+        else if ( !job.m_search.resumeAtLimit() )
+        {
+            throw new IllegalStateException( "The search of the puzzle can't be continued" );
+        }
+
+        m_sliceCount.incrementAndGet();
+        job.m_search.setNodeLimit( job.m_search.getNodeCount() + m_sliceNodes );
+        int[] placements = job.m_search.findFirst();
+
+        if ( placements != null )
+        {
+            job.m_future.complete( job.m_table.createResult( placements ) );
+        }
+        else if ( !job.m_search.isLimitReached() )
+        {
+            job.m_future.complete( null );
+        }
+        else
+        {
+            // Yield to the others, a puzzle that needs many slices isn't cheap
+            enqueue( job, Lane.SLOW );
+        }
+    }
+
+    /**
+     * A submitted puzzle and the state of its search.
+     */
+    private static class Job implements Comparable<Job>
+    {
+        private final Puzzle m_puzzle;
+        private final int m_priority;
+        private final long m_deadline;
+        private final CompletableFuture<FittingResult> m_future;
+        private final long m_submitNanos = System.nanoTime();
+        private Lane m_lane;
+        private long m_sequence;
+        private PlacementTable m_table;
+        private PlacementSearch m_search;
+
+        Job( Puzzle puzzle, int priority, long deadline, CompletableFuture<FittingResult> future )
+        {
+            m_puzzle = puzzle;
+            m_priority = priority;
+            m_deadline = deadline;
+            m_future = future;
+        }
+
+        @Override
+        public int compareTo( Job other )
+        {
+            int result = Integer.compare( other.m_priority, m_priority );
+            if ( result == 0 )
+            {
+                result = Long.compare( m_deadline, other.m_deadline );
+            }
+            if ( result == 0 )
+            {
+                result = Long.compare( m_sequence, other.m_sequence );
+            }
+            return result;
+        }
+    }
+
+    /**
+     * The wait times of the puzzles started by a lane.
+     */
+    private static class LaneMetrics
+    {
+        private final AtomicLong m_started = new AtomicLong();
+        private final AtomicLong m_totalWaitNanos = new AtomicLong();
+        private final AtomicLong m_maxWaitNanos = new AtomicLong();
+
+        void started( long waitNanos )
+        {
+            m_started.incrementAndGet();
+            m_totalWaitNanos.addAndGet( waitNanos );
+            m_maxWaitNanos.accumulateAndGet( waitNanos, Math::max );
+        }
+    }
+}
@@ -0,0 +1,241 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Solves a stream of puzzles, e.g. from the standard input, and writes each result as soon as
+ * it is ready.
+ * <p>
+ * A puzzle is a group of rows in the input format. A row <code>&gt;&lt;id&gt;</code> starts a
+ * puzzle with the given correlation id, and an empty row ends a puzzle. Puzzles without an id
+ * get their number in the stream. Each result starts with the row <code>&gt;&lt;id&gt;</code>,
+ * has the coordinates of the blocks or a message on why there are none, and ends with an empty
+ * row.
+ * <p>
+ * The puzzles are solved on several threads. The results are written in the order of the
+ * input, or optionally in the order they are ready. Reading stops while the given amount of
+ * puzzles is read but not yet written, so the memory stays bounded when the input is faster
+ * than the solving.
+ */
+public class StreamSolver
+{
+    static final char ID_PREFIX = '>';
+    private static final int DEFAULT_SIDE_LENGTH = 4;
+
+    private int m_threadCount = Runtime.getRuntime().availableProcessors();
+    private int m_maxPending;
+    private boolean m_ordered = true;
+    private PieceLibrary m_library;
+
+    /**
+     * Sets the amount of solving threads.
+     *
+     * @param threadCount
+     */
+    public void setThreadCount( int threadCount )
+    {
+        m_threadCount = threadCount;
+    }
+
+    /**
+     * Sets how many puzzles can be read but not written at a time. By default four per thread.
+     *
+     * @param maxPending
+     */
+    public void setMaxPending( int maxPending )
+    {
+        m_maxPending = maxPending;
+    }
+
+    /**
+     * Sets whether the results are written in the order of the input or as soon as each one is ready.
+     *
+     * @param ordered
+     */
+    public void setOrdered( boolean ordered )
+    {
+        m_ordered = ordered;
+    }
+
+    /**
+     * Sets the library the placements of the known shapes are taken from.
+     *
+     * @param library
+     */
+    public void setPieceLibrary( PieceLibrary library )
+    {
+        m_library = library;
+    }
+
+    /**
+     * Solves the puzzles of the input until it ends, and writes the results to the output.
+     *
+     * @param input
+     * @param output
+     * @return the amount of puzzles
+     * @throws IOException if reading the input fails
+     * @throws InterruptedException
+     */
+    public long run( BufferedReader input, PrintWriter output ) throws IOException, InterruptedException
+    {
+        int maxPending = m_maxPending > 0 ? m_maxPending : 4 * m_threadCount;
+        Semaphore pending = new Semaphore( maxPending );
+        ExecutorService executor = Executors.newFixedThreadPool( m_threadCount );
+        // Results in the order of the input, a null result ends the writing
+        BlockingQueue<CompletableFuture<List<String>>> results = new LinkedBlockingQueue<>();
+        Thread writer = null;
+        long count = 0;
+
+        if ( m_ordered )
+        {
+            writer = new Thread( () -> writeInOrder( results, output, pending ), "StreamSolver-write" );
+            writer.start();
+        }
+
+        try
+        {
+            List<String> lines = new ArrayList<>();
+            String id = null;
+            String line;
+
+            do
+            {
+                line = input.readLine();
+
+                boolean startsPuzzle = line != null && !line.isEmpty() && line.charAt( 0 ) == ID_PREFIX;
+                if ( line == null || line.trim().isEmpty() || startsPuzzle )
+                {
+                    if ( id != null || !lines.isEmpty() )
+                    {
+                        count++;
+                        pending.acquire();
+                        submit( executor, results, output, pending, id == null ? String.valueOf( count ) : id,
+                                lines );
+                        lines = new ArrayList<>();
+                    }
+                    id = startsPuzzle ? line.substring( 1 ).trim() : null;
+                }
+                else
+                {
+                    lines.add( line );
+                }
+            }
+            while ( line != null );
+        }
+        finally
+        {
+            if ( writer != null )
+            {
+                results.add( CompletableFuture.completedFuture( null ) );
+                writer.join();
+            }
+            executor.shutdown();
+        }
+
+        // All results are written when all permits are back
+        pending.acquire( maxPending );
+        return count;
+    }
+
+    private void submit( ExecutorService executor, BlockingQueue<CompletableFuture<List<String>>> results,
+                         PrintWriter output, Semaphore pending, String id, List<String> lines )
+    {
+        CompletableFuture<List<String>> result = CompletableFuture
+                .supplyAsync( () -> solve( id, lines ), executor )
+                .exceptionally( e -> Arrays.asList( ID_PREFIX + id, "Got an exception while processing: " + e ) );
+
+        if ( m_ordered )
+        {
+            results.add( result );
+        }
+        else
+        {
+            result.thenAccept( record -> write( record, output, pending ) );
+        }
+    }
+
+    /**
+     * Writes the results in the order of the input until the result that ends the writing.
+     */
+    private void writeInOrder( BlockingQueue<CompletableFuture<List<String>>> results, PrintWriter output,
+                               Semaphore pending )
+    {
+        try
+        {
+            List<String> record;
+            while ( ( record = results.take().join() ) != null )
+            {
+                write( record, output, pending );
+            }
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void write( List<String> record, PrintWriter output, Semaphore pending )
+    {
+        synchronized ( output )
+        {
+            record.forEach( output::println );
+            output.println();
+            output.flush();
+        }
+        pending.release();
+    }
+
+    /**
+     * Solves one puzzle.
+     *
+     * @param id
+     * @param lines rows of the puzzle
+     * @return the rows of the result
+     */
+    List<String> solve( String id, List<String> lines )
+    {
+        List<String> record = new ArrayList<>();
+        record.add( ID_PREFIX + id );
+
+        Puzzle puzzle;
+        try
+        {
+            puzzle = Puzzle.parse( lines, DEFAULT_SIDE_LENGTH );
+        }
+        catch ( Exception e )
+        {
+            record.add( "Failed to read input: " + e.getMessage() );
+            return record;
+        }
+
+        try
+        {
+            FitToGrid fitToGrid = new FitToGrid( puzzle.getSideLength(), puzzle.getBlockedCells() );
+            fitToGrid.setPieceLibrary( m_library );
+            FittingResult fittingResult = fitToGrid.fitBlocks( puzzle.getBlocks() );
+
+            if ( fittingResult == null )
+            {
+                record.add( "The blocks does not fit the grid." );
+            }
+            else
+            {
+                record.addAll( fittingResult.getCoordinateLines() );
+            }
+        }
+        catch ( Exception e )
+        {
+            record.add( "Got an exception while processing: " + e.getMessage() );
+        }
+        return record;
+    }
+}
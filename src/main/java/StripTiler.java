@@ -0,0 +1,539 @@
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tiles grids that are narrow but long, such as 8 x 1000 strips, by dynamic programming over
+ * a broken profile. Each block is a piece type that can be used any number of times, and every
+ * free cell must be covered.
+ * <p>
+ * The cells are visited along the strip, one row across it at a time. The state is the frontier:
+ * a bit mask of the cells from the current one onwards that are already covered, as long as the
+ * pieces reach ahead. A covered cell is passed, and a free cell gets each piece whose first cell
+ * it can be. The states of each step are kept in a {@link LongIndexMap}, so the layouts that
+ * leave the same frontier are handled once. The work is linear in the length of the strip, but
+ * the states grow with the width across it, which is why the sweep goes along the longer side.
+ * <p>
+ * Pieces of the same shape are the same piece: they are tried once, and layouts that only
+ * differ by their names are counted once.
+ */
+public class StripTiler
+{
+    private static final int MAX_FRONTIER = 64;
+
+    private final int m_width;
+    private final int m_height;
+    // True if the sweep goes along y
+    private final boolean m_transposed;
+    private final int m_across;
+    private final int m_length;
+    // Blocked cells in the order of the sweep
+    private final boolean[] m_blocked;
+    private final long[] m_blockedMask;
+    private final Block[] m_types;
+    private final PieceShape[] m_shapes;
+    // Per type: the cells of the piece as bits of the frontier, when its first cell is the current one
+    private final long[] m_masks;
+    // Per type: the range of the cells across the strip and along it, relative to the first cell
+    private final int[] m_minAcross;
+    private final int[] m_maxAcross;
+    private final int[] m_maxAlong;
+    // Per type: the first cell of the piece, relative to the (0,0) corner of its shape
+    private final int[] m_firstAlong;
+    private final int[] m_firstAcross;
+    private final int m_frontier;
+    private int m_maxStateCount;
+
+    /**
+     * Creates the tiler of the grid.
+     *
+     * @param width
+     * @param height
+     * @param blocks the piece types, each can be used any number of times
+     * @param blockedCells cells of the grid where no piece can be put
+     * @throws Exception if the grid is empty, a blocked cell is outside of it, or the pieces reach
+     *                   too far ahead for the frontier
+     */
+    public StripTiler( int width, int height, List<Block> blocks, Set<Point> blockedCells ) throws Exception
+    {
+        if ( width <= 0 || height <= 0 )
+        {
+            throw new Exception( "Invalid grid size " + width + "x" + height + "." );
+        }
+
+        m_width = width;
+        m_height = height;
+        m_transposed = height > width;
+        m_across = m_transposed ? width : height;
+        m_length = m_transposed ? height : width;
+
+        m_blocked = new boolean[width * height];
+        m_blockedMask = CellMask.create( width * height );
+        for ( Point point : blockedCells )
+        {
+            if ( point.getX() < 0 || point.getX() >= width || point.getY() < 0 || point.getY() >= height )
+            {
+                throw new Exception( "Blocked cell " + point + " is outside of the grid." );
+            }
+            m_blocked[getCell( point.getX(), point.getY() )] = true;
+            CellMask.set( m_blockedMask, point.getY() * width + point.getX() );
+        }
+
+        // One type per shape, the pieces that don't fit to the strip at all are left out
+        Map<PieceShape, Block> types = new LinkedHashMap<>();
+        for ( Block block : blocks )
+        {
+            PieceShape shape = new PieceShape( block );
+            int along = m_transposed ? shape.getHeight() : shape.getWidth();
+            int across = m_transposed ? shape.getWidth() : shape.getHeight();
+            if ( along <= m_length && across <= m_across )
+            {
+                types.putIfAbsent( shape, block );
+            }
+        }
+
+        int count = types.size();
+        m_types = types.values().toArray( new Block[count] );
+        m_shapes = types.keySet().toArray( new PieceShape[count] );
+        m_masks = new long[count];
+        m_minAcross = new int[count];
+        m_maxAcross = new int[count];
+        m_maxAlong = new int[count];
+        m_firstAlong = new int[count];
+        m_firstAcross = new int[count];
+
+        int frontier = 1;
+        for ( int type = 0; type < count; type++ )
+        {
+            frontier = Math.max( frontier, createMask( type ) );
+        }
+        if ( frontier > MAX_FRONTIER )
+        {
+            throw new Exception( "The pieces reach " + frontier + " cells ahead, more than "
+                                 + MAX_FRONTIER + " do not fit to the frontier." );
+        }
+        m_frontier = frontier;
+    }
+
+    /**
+     * Gets the number of cells in the frontier, from the current cell to the farthest one a
+     * piece can reach.
+     *
+     * @return
+     */
+    public int getFrontier()
+    {
+        return m_frontier;
+    }
+
+    /**
+     * Gets the most states of a single step of the last fit or count.
+     *
+     * @return
+     */
+    public int getMaxStateCount()
+    {
+        return m_maxStateCount;
+    }
+
+    /**
+     * Tiles the grid. The states are kept only at checkpoints every square root of the cells, and
+     * the tiling is followed back one segment between checkpoints at a time by sweeping the
+     * segment again, so the memory grows with the square root of the length of the strip.
+     *
+     * @return the result, each piece in it has an id of its own and the name of its type, null
+     *         if the free cells can't be covered
+     */
+    public FittingResult fit()
+    {
+        m_maxStateCount = 0;
+        int cellCount = m_blocked.length;
+        Checkpoints checkpoints = new Checkpoints( (int)Math.ceil( Math.sqrt( cellCount ) ) );
+        if ( sweep( checkpoints.m_states.get( 0 ), 0, cellCount, checkpoints ).indexOf( 0 ) < 0 )
+        {
+            return null;
+        }
+
+        // Follow the first way of reaching each state back to the start, from the end where the grid is covered
+        int[] placedTypes = new int[cellCount];
+        long target = 0;
+        for ( int segment = checkpoints.m_states.size() - 1; segment >= 0; segment-- )
+        {
+            int from = segment * checkpoints.m_interval;
+            int to = Math.min( cellCount, from + checkpoints.m_interval );
+            long[] states = checkpoints.m_states.get( segment );
+            Parents parents = new Parents();
+            int index = sweep( states, from, to, parents ).indexOf( target );
+            for ( int cell = to - 1; cell >= from; cell-- )
+            {
+                placedTypes[cell] = parents.m_choices.get( cell - from )[index];
+                index = parents.m_parents.get( cell - from )[index];
+            }
+            target = states[index];
+        }
+
+        int count = (int)Arrays.stream( placedTypes ).filter( type -> type >= 0 ).count();
+        int[] ids = new int[count];
+        String[] names = new String[count];
+        PieceShape[] shapes = new PieceShape[count];
+        int[] anchors = new int[count];
+        int i = 0;
+        for ( int cell = 0; cell < cellCount; cell++ )
+        {
+            int type = placedTypes[cell];
+            if ( type >= 0 )
+            {
+                int along = cell / m_across - m_firstAlong[type];
+                int across = cell % m_across - m_firstAcross[type];
+                ids[i] = i;
+                names[i] = m_types[type].getName();
+                shapes[i] = m_shapes[type];
+                anchors[i] = m_transposed ? along * m_width + across : across * m_width + along;
+                i++;
+            }
+        }
+
+        return new FittingResult( m_width, m_height, m_blockedMask.clone(), ids, names, shapes, anchors );
+    }
+
+    /**
+     * Counts the ways to tile the grid.
+     *
+     * @return
+     */
+    public BigInteger count()
+    {
+        m_maxStateCount = 0;
+        long[] start = { getStartState() };
+        try
+        {
+            LongCounts counts = new LongCounts();
+            int last = sweep( start, 0, m_blocked.length, counts ).indexOf( 0 );
+            return BigInteger.valueOf( last < 0 ? 0 : counts.m_current[last] );
+        }
+        catch ( ArithmeticException e )
+        {
+            // The counts of long strips soon overflow, so little of the sweep is repeated
+            BigCounts counts = new BigCounts();
+            int last = sweep( start, 0, m_blocked.length, counts ).indexOf( 0 );
+            return last < 0 ? BigInteger.ZERO : counts.m_current[last];
+        }
+    }
+
+    /**
+     * Gets the state before the first cell: the blocked cells of the frontier.
+     */
+    private long getStartState()
+    {
+        long start = 0;
+        for ( int cell = 0; cell < m_frontier && cell < m_blocked.length; cell++ )
+        {
+            if ( m_blocked[cell] )
+            {
+                start |= 1L << cell;
+            }
+        }
+        return start;
+    }
+
+    /**
+     * Visits the cells in the order of the sweep and gives the transitions between the states
+     * of each step to the given values.
+     *
+     * @param states the states before the first cell, their values are set by {@link StateValues#start()}
+     * @param fromCell the first cell
+     * @param toCell the cell after the last one
+     * @param values
+     * @return the states after the last cell, the grid is covered in state 0 after the last cell of the grid
+     */
+    private LongIndexMap sweep( long[] states, int fromCell, int toCell, StateValues values )
+    {
+        int cellCount = m_blocked.length;
+        long topBit = 1L << ( m_frontier - 1 );
+        LongIndexMap current = new LongIndexMap();
+        LongIndexMap next = new LongIndexMap();
+        m_maxStateCount = Math.max( m_maxStateCount, states.length );
+
+        for ( long state : states )
+        {
+            current.add( state );
+        }
+        values.start();
+
+        for ( int cell = fromCell; cell < toCell && current.size() > 0; cell++ )
+        {
+            int along = cell / m_across;
+            int across = cell % m_across;
+            long entering = cell + m_frontier < cellCount && m_blocked[cell + m_frontier] ? topBit : 0;
+            next.clear();
+
+            for ( int from = 0; from < current.size(); from++ )
+            {
+                long state = current.getKey( from );
+                if ( ( state & 1 ) != 0 )
+                {
+                    addTransition( values, next, from, ( state >>> 1 ) | entering, -1 );
+                    continue;
+                }
+
+                for ( int type = 0; type < m_masks.length; type++ )
+                {
+                    if ( across + m_minAcross[type] >= 0 && across + m_maxAcross[type] < m_across
+                         && along + m_maxAlong[type] < m_length && ( state & m_masks[type] ) == 0 )
+                    {
+                        addTransition( values, next, from, ( ( state | m_masks[type] ) >>> 1 ) | entering, type );
+                    }
+                }
+            }
+
+            values.endStep( cell + 1, next );
+            m_maxStateCount = Math.max( m_maxStateCount, next.size() );
+            LongIndexMap swap = current;
+            current = next;
+            next = swap;
+        }
+
+        return current;
+    }
+
+    private void addTransition( StateValues values, LongIndexMap next, int from, long state, int type )
+    {
+        int size = next.size();
+        int to = next.add( state );
+        values.add( from, to, to == size, type );
+    }
+
+    /**
+     * Creates the frontier mask and the ranges of the type.
+     *
+     * @return the number of cells in the frontier the type needs
+     */
+    private int createMask( int type )
+    {
+        PieceShape shape = m_shapes[type];
+
+        // The first cell in the order of the sweep: the lowest across in the first row along
+        int firstAlong = Integer.MAX_VALUE;
+        int firstAcross = Integer.MAX_VALUE;
+        for ( int i = 0; i < shape.getSize(); i++ )
+        {
+            int along = m_transposed ? shape.getY( i ) : shape.getX( i );
+            int across = m_transposed ? shape.getX( i ) : shape.getY( i );
+            if ( along < firstAlong || along == firstAlong && across < firstAcross )
+            {
+                firstAlong = along;
+                firstAcross = across;
+            }
+        }
+        m_firstAlong[type] = firstAlong;
+        m_firstAcross[type] = firstAcross;
+
+        int last = 0;
+        for ( int i = 0; i < shape.getSize(); i++ )
+        {
+            int along = ( m_transposed ? shape.getY( i ) : shape.getX( i ) ) - firstAlong;
+            int across = ( m_transposed ? shape.getX( i ) : shape.getY( i ) ) - firstAcross;
+            m_minAcross[type] = Math.min( m_minAcross[type], across );
+            m_maxAcross[type] = Math.max( m_maxAcross[type], across );
+            m_maxAlong[type] = Math.max( m_maxAlong[type], along );
+
+            int offset = along * m_across + across;
+            last = Math.max( last, offset );
+            if ( offset < MAX_FRONTIER )
+            {
+                m_masks[type] |= 1L << offset;
+            }
+        }
+        return last + 1;
+    }
+
+    /**
+     * Gets the index of the cell in the order of the sweep.
+     */
+    private int getCell( int x, int y )
+    {
+        return m_transposed ? y * m_across + x : x * m_across + y;
+    }
+
+    /**
+     * The values kept per state by a sweep.
+     */
+    private interface StateValues
+    {
+        /**
+         * Sets the value of the start state, index 0.
+         */
+        void start();
+
+        /**
+         * Adds a transition from a state of the current step to a state of the next one.
+         *
+         * @param from
+         * @param to
+         * @param first true if this is the first transition to the state
+         * @param type the type placed, -1 if the cell was covered already
+         */
+        void add( int from, int to, boolean first, int type );
+
+        /**
+         * Makes the next step the current one.
+         *
+         * @param cell the cell before which the states of the next step are
+         * @param states the states of the next step
+         */
+        void endStep( int cell, LongIndexMap states );
+    }
+
+    /**
+     * The states before every cell of the interval, starting from the first cell.
+     */
+    private class Checkpoints implements StateValues
+    {
+        private final int m_interval;
+        private final List<long[]> m_states = new ArrayList<>();
+
+        Checkpoints( int interval )
+        {
+            m_interval = interval;
+            m_states.add( new long[] { getStartState() } );
+        }
+
+        @Override
+        public void start()
+        {
+        }
+
+        @Override
+        public void add( int from, int to, boolean first, int type )
+        {
+        }
+
+        @Override
+        public void endStep( int cell, LongIndexMap states )
+        {
+            if ( cell % m_interval == 0 && cell < m_blocked.length )
+            {
+                m_states.add( states.toArray() );
+            }
+        }
+    }
+
+    /**
+     * The first way of reaching each state of each step, to follow a tiling back.
+     */
+    private static class Parents implements StateValues
+    {
+        private final List<int[]> m_parents = new ArrayList<>();
+        private final List<int[]> m_choices = new ArrayList<>();
+        private int[] m_parent = new int[16];
+        private int[] m_choice = new int[16];
+
+        @Override
+        public void start()
+        {
+        }
+
+        @Override
+        public void add( int from, int to, boolean first, int type )
+        {
+            if ( first )
+            {
+                if ( to == m_parent.length )
+                {
+                    m_parent = Arrays.copyOf( m_parent, to * 2 );
+                    m_choice = Arrays.copyOf( m_choice, to * 2 );
+                }
+                m_parent[to] = from;
+                m_choice[to] = type;
+            }
+        }
+
+        @Override
+        public void endStep( int cell, LongIndexMap states )
+        {
+            m_parents.add( Arrays.copyOf( m_parent, states.size() ) );
+            m_choices.add( Arrays.copyOf( m_choice, states.size() ) );
+        }
+    }
+
+    /**
+     * The number of ways to reach each state, while it fits to a <code>long</code>.
+     */
+    private static class LongCounts implements StateValues
+    {
+        private long[] m_current = new long[16];
+        private long[] m_next = new long[16];
+
+        @Override
+        public void start()
+        {
+            m_current[0] = 1;
+        }
+
+        @Override
+        public void add( int from, int to, boolean first, int type )
+        {
+            if ( first )
+            {
+                if ( to == m_next.length )
+                {
+                    m_next = Arrays.copyOf( m_next, to * 2 );
+                }
+                m_next[to] = 0;
+            }
+            m_next[to] = Math.addExact( m_next[to], m_current[from] );
+        }
+
+        @Override
+        public void endStep( int cell, LongIndexMap states )
+        {
+            long[] swap = m_current;
+            m_current = m_next;
+            m_next = swap;
+        }
+    }
+
+    /**
+     * The number of ways to reach each state.
+     */
+    private static class BigCounts implements StateValues
+    {
+        private BigInteger[] m_current = new BigInteger[16];
+        private BigInteger[] m_next = new BigInteger[16];
+
+        @Override
+        public void start()
+        {
+            m_current[0] = BigInteger.ONE;
+        }
+
+        @Override
+        public void add( int from, int to, boolean first, int type )
+        {
+            if ( first )
+            {
+                if ( to == m_next.length )
+                {
+                    m_next = Arrays.copyOf( m_next, to * 2 );
+                }
+                m_next[to] = m_current[from];
+            }
+            else
+            {
+                m_next[to] = m_next[to].add( m_current[from] );
+            }
+        }
+
+        @Override
+        public void endStep( int cell, LongIndexMap states )
+        {
+            BigInteger[] swap = m_current;
+            m_current = m_next;
+            m_next = swap;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+/**
+ * Reasons why a solution of a puzzle is not valid, found by {@link SolutionValidator}.
+ */
+public enum Violation
+{
+    /** A block of the puzzle is not in the solution. */
+    MISSING_BLOCK,
+    /** A block is in the solution more than once. */
+    DUPLICATE_BLOCK,
+    /** The solution has a block that is not in the puzzle. */
+    UNKNOWN_BLOCK,
+    /** A block of the solution is not a translation of the block of the puzzle. */
+    NOT_TRANSLATION,
+    /** A block of the solution is not inside the grid. */
+    OUTSIDE_GRID,
+    /** A block of the solution is on a blocked cell. */
+    BLOCKED_CELL,
+    /** Blocks of the solution are on the same cell. */
+    OVERLAP,
+    /** The blocks should fill the grid but some free cell is not covered. */
+    NOT_COVERED
+}
@@ -0,0 +1,380 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Splits a search into {@link WorkUnit}s and hands them to {@link SearchWorker} processes
+ * over a socket (see {@link WorkProtocol}). The counts of the units are summed, or the first
+ * solution any worker finds is returned.
+ * <p>
+ * The coordinator starts the given amount of worker JVMs itself, but any worker that connects
+ * to the port gets units too. A worker connecting between the searches waits for the next one,
+ * and all workers are told to stop when a search is over. A unit of a worker that fails, sends
+ * an invalid result or doesn't answer within the unit timeout is put back to the queue and a
+ * new local worker is started in its place.
+ */
+public class WorkCoordinator implements AutoCloseable
+{
+    private static final int DEFAULT_SPLIT_DEPTH = 3;
+    private static final int MAX_FAILURES = 10;
+    private static final long POLL_MILLIS = 100;
+    private static final int DEFAULT_UNIT_TIMEOUT_MILLIS = 10 * 60 * 1000;
+
+    private final Puzzle m_puzzle;
+    private final PlacementTable m_table;
+    private final ServerSocket m_server;
+    private final List<Process> m_processes = new ArrayList<>();
+    private int m_workerCount = Runtime.getRuntime().availableProcessors();
+    private int m_splitDepth = DEFAULT_SPLIT_DEPTH;
+    private int m_unitTimeout = DEFAULT_UNIT_TIMEOUT_MILLIS;
+
+    // State of the current run, guarded by this
+    private int m_generation;
+    // Each run has a queue of its own, so a worker still serving the previous run can't take its units
+    private BlockingDeque<WorkUnit> m_queue = new LinkedBlockingDeque<>();
+    private boolean m_countAll;
+    private boolean m_finished = true;
+    private int m_remaining;
+    private long m_count;
+    private int[] m_solution;
+    private int m_failures;
+    private Exception m_error;
+
+    /**
+     * Creates a coordinator listening to a free port of the loopback address.
+     *
+     * @param puzzle
+     * @throws IOException if the server socket can't be opened
+     */
+    public WorkCoordinator( Puzzle puzzle ) throws IOException
+    {
+        m_puzzle = puzzle;
+        m_table = puzzle.createPlacementTable();
+        m_server = new ServerSocket( 0, 50, InetAddress.getLoopbackAddress() );
+
+        Thread acceptor = new Thread( this::acceptWorkers, "WorkCoordinator-accept" );
+        acceptor.setDaemon( true );
+        acceptor.start();
+    }
+
+    /**
+     * Gets the port the workers connect to.
+     *
+     * @return
+     */
+    public int getPort()
+    {
+        return m_server.getLocalPort();
+    }
+
+    /**
+     * Sets how many worker processes are started for each search.
+     *
+     * @param workerCount zero if the workers are started elsewhere
+     */
+    public void setWorkerCount( int workerCount )
+    {
+        m_workerCount = workerCount;
+    }
+
+    /**
+     * Sets how many levels of the search the work units fix.
+     *
+     * @param splitDepth
+     */
+    public void setSplitDepth( int splitDepth )
+    {
+        m_splitDepth = splitDepth;
+    }
+
+    /**
+     * Sets how long a worker may search a unit before it is taken as failed and the unit is
+     * given to another worker. By default ten minutes.
+     *
+     * @param unitTimeout milliseconds, zero to wait forever
+     */
+    public void setUnitTimeout( int unitTimeout )
+    {
+        m_unitTimeout = unitTimeout;
+    }
+
+    /**
+     * Counts all solutions with the workers.
+     *
+     * @return
+     * @throws Exception if too many workers failed
+     */
+    public long count() throws Exception
+    {
+        run( true );
+        return m_count;
+    }
+
+    /**
+     * Finds a solution with the workers. It isn't always the one a single search finds first.
+     *
+     * @return placement index per piece, null if the blocks don't fit
+     * @throws Exception if too many workers failed
+     */
+    public int[] findFirst() throws Exception
+    {
+        run( false );
+        return m_solution;
+    }
+
+    /**
+     * Fits the blocks of the puzzle with the workers.
+     *
+     * @return the result, null if the blocks don't fit
+     * @throws Exception if too many workers failed
+     */
+    public FittingResult fit() throws Exception
+    {
+        int[] solution = findFirst();
+        return solution == null ? null : m_table.createResult( solution );
+    }
+
+    /**
+     * Stops listening to the port and the started workers.
+     *
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException
+    {
+        m_server.close();
+        synchronized ( this )
+        {
+            m_finished = true;
+            notifyAll();
+        }
+        stopWorkers();
+    }
+
+    private void run( boolean countAll ) throws Exception
+    {
+        List<int[]> prefixes = new PlacementSearch( m_table ).split( m_splitDepth );
+        BlockingDeque<WorkUnit> queue = new LinkedBlockingDeque<>();
+        for ( int i = 0; i < prefixes.size(); i++ )
+        {
+            queue.add( new WorkUnit( i, prefixes.get( i ) ) );
+        }
+
+        synchronized ( this )
+        {
+            m_generation++;
+            m_countAll = countAll;
+            m_finished = prefixes.isEmpty();
+            m_remaining = prefixes.size();
+            m_count = 0;
+            m_solution = null;
+            m_failures = 0;
+            m_error = null;
+            m_queue = queue;
+            notifyAll();
+        }
+
+        try
+        {
+            for ( int i = 0; i < m_workerCount && !prefixes.isEmpty(); i++ )
+            {
+                startWorker();
+            }
+
+            synchronized ( this )
+            {
+                while ( !m_finished )
+                {
+                    wait();
+                }
+                if ( m_error != null )
+                {
+                    throw m_error;
+                }
+            }
+        }
+        finally
+        {
+            synchronized ( this )
+            {
+                m_finished = true;
+            }
+            queue.clear();
+            stopWorkers();
+        }
+    }
+
+    private void startWorker() throws IOException
+    {
+        String java = Paths.get( System.getProperty( "java.home" ), "bin", "java" ).toString();
+        ProcessBuilder builder = new ProcessBuilder( java, "-cp", System.getProperty( "java.class.path" ),
+                SearchWorker.class.getName(), InetAddress.getLoopbackAddress().getHostAddress(),
+                String.valueOf( getPort() ) );
+        builder.redirectOutput( ProcessBuilder.Redirect.DISCARD );
+        builder.redirectError( ProcessBuilder.Redirect.INHERIT );
+
+        synchronized ( m_processes )
+        {
+            m_processes.add( builder.start() );
+        }
+    }
+
+    private void stopWorkers()
+    {
+        synchronized ( m_processes )
+        {
+            m_processes.forEach( Process::destroyForcibly );
+            m_processes.clear();
+        }
+    }
+
+    private void acceptWorkers()
+    {
+        while ( !m_server.isClosed() )
+        {
+            try
+            {
+                Socket socket = m_server.accept();
+                Thread handler = new Thread( () -> serveWorker( socket ), "WorkCoordinator-worker" );
+                handler.setDaemon( true );
+                handler.start();
+            }
+            catch ( IOException e )
+            {
+                // The server was closed
+            }
+        }
+    }
+
+    /**
+     * Sends the puzzle and then work units to one worker until the run is over.
+     */
+    private void serveWorker( Socket accepted )
+    {
+        int generation;
+        boolean countAll;
+        int unitTimeout;
+        BlockingDeque<WorkUnit> queue;
+        synchronized ( this )
+        {
+            // A worker connecting between the searches waits for the next one
+            while ( m_finished && !m_server.isClosed() )
+            {
+                try
+                {
+                    wait();
+                }
+                catch ( InterruptedException e )
+                {
+                    break;
+                }
+            }
+            generation = m_generation;
+            countAll = m_countAll;
+            unitTimeout = m_unitTimeout;
+            queue = m_queue;
+        }
+
+        WorkUnit unit = null;
+        try ( Socket socket = accepted )
+        {
+            // Only the results are read, so a worker hanging on a unit times out
+            socket.setSoTimeout( unitTimeout );
+            DataOutputStream out = new DataOutputStream( new BufferedOutputStream( socket.getOutputStream() ) );
+            DataInputStream in = new DataInputStream( new BufferedInputStream( socket.getInputStream() ) );
+            WorkProtocol.writePuzzle( out, m_puzzle, countAll );
+            out.flush();
+
+            while ( !isOver( generation ) )
+            {
+                unit = queue.poll( POLL_MILLIS, TimeUnit.MILLISECONDS );
+                if ( unit == null )
+                {
+                    continue;
+                }
+
+                WorkProtocol.writeUnit( out, unit );
+                out.flush();
+                WorkResult result = WorkProtocol.readResult( in, unit, m_table );
+                unit = null;
+                addResult( generation, result );
+            }
+
+            WorkProtocol.writeStop( out );
+            out.flush();
+        }
+        catch ( Exception e )
+        {
+            workerFailed( generation, unit );
+        }
+    }
+
+    private synchronized boolean isOver( int generation )
+    {
+        return m_finished || generation != m_generation;
+    }
+
+    private synchronized void addResult( int generation, WorkResult result )
+    {
+        if ( generation != m_generation || m_finished )
+        {
+            return;
+        }
+
+        m_count += result.getCount();
+        if ( result.getSolution() != null )
+        {
+            m_solution = result.getSolution();
+            m_finished = true;
+        }
+        if ( --m_remaining == 0 )
+        {
+            m_finished = true;
+        }
+        notifyAll();
+    }
+
+    private synchronized void workerFailed( int generation, WorkUnit unit )
+    {
+        if ( generation != m_generation || m_finished )
+        {
+            return;
+        }
+
+        if ( unit != null )
+        {
+            m_queue.addFirst( unit );
+        }
+
+        if ( ++m_failures > MAX_FAILURES )
+        {
+            m_error = new Exception( "Too many workers failed: " + m_failures );
+            m_finished = true;
+            notifyAll();
+        }
+        else if ( m_workerCount > 0 )
+        {
+            try
+            {
+                startWorker();
+            }
+            catch ( IOException e )
+            {
+                m_error = e;
+                m_finished = true;
+                notifyAll();
+            }
+        }
+    }
+}
@@ -0,0 +1,222 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The messages between a {@link WorkCoordinator} and its {@link SearchWorker}s. The messages
+ * are plain values written with {@link DataOutput}, and every value read is checked, so a peer
+ * can't make the other end create anything but the puzzle rows and the numbers of the units.
+ * <p>
+ * The coordinator starts with a header telling if the solutions are counted, and the rows of
+ * the puzzle in the input format (see {@link Puzzle#parse(List, int)}), each as its length and
+ * UTF-8 bytes. Then it sends a unit at a time: the id and the prefix as its length and values.
+ * A negative id tells the worker to stop. The worker answers each unit with its id, the count
+ * and the placement of each piece of the solution, or -1 instead of the pieces if it has none.
+ */
+public class WorkProtocol
+{
+    private static final int MAGIC = 0x57524B50;
+    private static final int VERSION = 1;
+    private static final int MAX_ROWS = 1 << 20;
+    private static final int MAX_ROW_BYTES = 1 << 24;
+    private static final int STOP = -1;
+    private static final int NO_SOLUTION = -1;
+
+    private WorkProtocol()
+    {
+    }
+
+    /**
+     * Writes the header and the rows of the puzzle.
+     *
+     * @param out
+     * @param puzzle
+     * @param countAll true if the solutions are counted, false if the first one is looked for
+     * @throws IOException
+     */
+    public static void writePuzzle( DataOutput out, Puzzle puzzle, boolean countAll ) throws IOException
+    {
+        List<String> rows = puzzle.toLines();
+        out.writeInt( MAGIC );
+        out.writeInt( VERSION );
+        out.writeBoolean( countAll );
+        out.writeInt( rows.size() );
+        for ( String row : rows )
+        {
+            byte[] bytes = row.getBytes( StandardCharsets.UTF_8 );
+            out.writeInt( bytes.length );
+            out.write( bytes );
+        }
+    }
+
+    /**
+     * Reads the header.
+     *
+     * @param in
+     * @return true if the solutions are counted, false if the first one is looked for
+     * @throws IOException if the peer isn't a coordinator of this version
+     */
+    public static boolean readHeader( DataInput in ) throws IOException
+    {
+        if ( in.readInt() != MAGIC )
+        {
+            throw new IOException( "Not a work coordinator." );
+        }
+        int version = in.readInt();
+        if ( version != VERSION )
+        {
+            throw new IOException( "Unknown work protocol version " + version + "." );
+        }
+        return in.readBoolean();
+    }
+
+    /**
+     * Reads the rows of the puzzle after the header.
+     *
+     * @param in
+     * @return
+     * @throws IOException if there are too many rows or a row is too long
+     */
+    public static List<String> readRows( DataInput in ) throws IOException
+    {
+        int count = readLength( in, MAX_ROWS, "rows" );
+        List<String> rows = new ArrayList<>();
+        for ( int i = 0; i < count; i++ )
+        {
+            byte[] bytes = new byte[readLength( in, MAX_ROW_BYTES, "bytes in a row" )];
+            in.readFully( bytes );
+            rows.add( new String( bytes, StandardCharsets.UTF_8 ) );
+        }
+        return rows;
+    }
+
+    public static void writeUnit( DataOutput out, WorkUnit unit ) throws IOException
+    {
+        out.writeInt( unit.getId() );
+        writeInts( out, unit.getPrefix() );
+    }
+
+    /**
+     * Tells the worker that there are no more units.
+     *
+     * @param out
+     * @throws IOException
+     */
+    public static void writeStop( DataOutput out ) throws IOException
+    {
+        out.writeInt( STOP );
+    }
+
+    /**
+     * Reads the next unit.
+     *
+     * @param in
+     * @param table the table of the puzzle
+     * @return null if the worker should stop
+     * @throws IOException if the prefix is longer than the pieces or has a negative choice
+     */
+    public static WorkUnit readUnit( DataInput in, PlacementTable table ) throws IOException
+    {
+        int id = in.readInt();
+        if ( id < 0 )
+        {
+            return null;
+        }
+
+        int[] prefix = new int[readLength( in, table.getPieceCount(), "levels in a prefix" )];
+        for ( int i = 0; i < prefix.length; i++ )
+        {
+            prefix[i] = in.readInt();
+            if ( prefix[i] < 0 )
+            {
+                throw new IOException( "Invalid choice " + prefix[i] + " in the prefix of unit " + id + "." );
+            }
+        }
+        return new WorkUnit( id, prefix );
+    }
+
+    public static void writeResult( DataOutput out, WorkResult result ) throws IOException
+    {
+        out.writeInt( result.getUnitId() );
+        out.writeLong( result.getCount() );
+        if ( result.getSolution() == null )
+        {
+            out.writeInt( NO_SOLUTION );
+        }
+        else
+        {
+            writeInts( out, result.getSolution() );
+        }
+    }
+
+    /**
+     * Reads the result of the unit sent last. The solution is checked to be a valid placement
+     * of all pieces.
+     *
+     * @param in
+     * @param unit the unit sent to the worker
+     * @param table the table of the puzzle
+     * @return
+     * @throws IOException if the result isn't of the unit or the solution isn't valid
+     */
+    public static WorkResult readResult( DataInput in, WorkUnit unit, PlacementTable table ) throws IOException
+    {
+        int id = in.readInt();
+        if ( id != unit.getId() )
+        {
+            throw new IOException( "Result of unit " + id + " when unit " + unit.getId() + " was sent." );
+        }
+        long count = in.readLong();
+        if ( count < 0 )
+        {
+            throw new IOException( "Invalid count " + count + " of unit " + id + "." );
+        }
+
+        int pieceCount = in.readInt();
+        if ( pieceCount == NO_SOLUTION )
+        {
+            return new WorkResult( id, count, null );
+        }
+        if ( pieceCount != table.getPieceCount() )
+        {
+            throw new IOException( "Solution of " + pieceCount + " pieces in unit " + id + "." );
+        }
+
+        int[] solution = new int[pieceCount];
+        long[] occupied = new long[table.getWords()];
+        for ( int piece = 0; piece < pieceCount; piece++ )
+        {
+            solution[piece] = in.readInt();
+            if ( solution[piece] < 0 || solution[piece] >= table.getPlacementCount( piece )
+                 || !table.fits( piece, solution[piece], occupied ) )
+            {
+                throw new IOException( "Invalid placement " + solution[piece] + " of piece " + piece
+                                       + " in unit " + id + "." );
+            }
+            table.place( piece, solution[piece], occupied );
+        }
+        return new WorkResult( id, count, solution );
+    }
+
+    private static void writeInts( DataOutput out, int[] values ) throws IOException
+    {
+        out.writeInt( values.length );
+        for ( int value : values )
+        {
+            out.writeInt( value );
+        }
+    }
+
+    private static int readLength( DataInput in, int max, String what ) throws IOException
+    {
+        int length = in.readInt();
+        if ( length < 0 || length > max )
+        {
+            throw new IOException( "Invalid number of " + what + ": " + length + "." );
+        }
+        return length;
+    }
+}
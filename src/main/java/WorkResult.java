@@ -0,0 +1,36 @@
+/**
+ * The result of a {@link WorkUnit} sent back by a worker.
+ */
+public class WorkResult
+{
+    private final int m_unitId;
+    private final long m_count;
+    private final int[] m_solution;
+
+    /**
+     * @param unitId
+     * @param count number of solutions of the unit, zero when only the first solution was looked for
+     * @param solution placement index per piece, null if the unit has no solution or it wasn't looked for
+     */
+    public WorkResult( int unitId, long count, int[] solution )
+    {
+        m_unitId = unitId;
+        m_count = count;
+        m_solution = solution;
+    }
+
+    public int getUnitId()
+    {
+        return m_unitId;
+    }
+
+    public long getCount()
+    {
+        return m_count;
+    }
+
+    public int[] getSolution()
+    {
+        return m_solution;
+    }
+}
@@ -0,0 +1,27 @@
+/**
+ * Lets a running {@link PlacementSearch} give parts of its remaining work to other searches
+ * (see {@link PlacementSearch#setWorkSharing(WorkSharing)}).
+ */
+public interface WorkSharing
+{
+    /**
+     * Checked now and then during the search.
+     *
+     * @return true if the search should stop
+     */
+    boolean shouldStop();
+
+    /**
+     * Checked now and then during the search.
+     *
+     * @return true if another worker would take a part of the work
+     */
+    boolean isHungry();
+
+    /**
+     * Takes a part of the remaining work. The search doesn't go to that part anymore.
+     *
+     * @param prefix the part, to be searched with {@link PlacementSearch#setPrefix(int[])}
+     */
+    void share( int[] prefix );
+}
@@ -0,0 +1,29 @@
+/**
+ * A part of a search given to a worker: the choices made on the first levels of the
+ * {@link PlacementSearch} (see {@link PlacementSearch#split(int)}).
+ */
+public class WorkUnit
+{
+    private final int m_id;
+    private final int[] m_prefix;
+
+    /**
+     * @param id index of the unit in the order of the search
+     * @param prefix the index of the chosen candidate on each of the first levels
+     */
+    public WorkUnit( int id, int[] prefix )
+    {
+        m_id = id;
+        m_prefix = prefix.clone();
+    }
+
+    public int getId()
+    {
+        return m_id;
+    }
+
+    public int[] getPrefix()
+    {
+        return m_prefix.clone();
+    }
+}
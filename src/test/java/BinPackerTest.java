@@ -0,0 +1,95 @@
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class BinPackerTest
+{
+    private static final int sideLength = 4;
+
+    @Test
+    public void testPack_MinimumGrids() throws Exception
+    {
+        List<Block> blocks = createBlocks( 4 );
+
+        //test
+        List<FittingResult> results = new BinPacker( sideLength ).pack( blocks );
+
+        //assert
+        assertEquals( 4, results.size() );
+        assertValid( blocks, results );
+    }
+
+    @Test
+    public void testPack_GridCount() throws Exception
+    {
+        List<Block> blocks = createBlocks( 2 );
+        BinPacker packer = new BinPacker( sideLength );
+
+        //test & assert
+        packer.setGridCount( 1 );
+        assertNull( packer.pack( blocks ) );
+        assertEquals( 2, packer.getLowerBound() );
+
+        packer.setGridCount( 3 );
+        List<FittingResult> results = packer.pack( blocks );
+        assertEquals( 3, results.size() );
+        assertValid( blocks, results );
+    }
+
+    @Test(expected=Exception.class)
+    public void testPack_BlockLargerThanGrid() throws Exception
+    {
+        //test
+        new BinPacker( 2 ).pack( Arrays.asList( BlockFixtures.create( 'A', 0,0, 1,0, 2,0 ) ) );
+    }
+
+    //################################################
+    // NOT TESTS
+    //################################################
+
+    /**
+     * Creates copies of the blocks that fill one grid, each with its own name.
+     */
+    private static List<Block> createBlocks( int copies )
+    {
+        List<Block> blocks = new ArrayList<>();
+        for ( int i = 0; i < copies; i++ )
+        {
+            char name = (char)( 'A' + i * 4 );
+            blocks.add( BlockFixtures.create( name, 0,0, 1,0, 1,1, 2,1 ) );
+            blocks.add( BlockFixtures.create( (char)( name + 1 ), 0,0, 0,1, 0,2, 1,2 ) );
+            blocks.add( BlockFixtures.create( (char)( name + 2 ), 0,0, 1,0, 2,0, 1,1 ) );
+            blocks.add( BlockFixtures.create( (char)( name + 3 ), 0,0, 1,0, 1,1, 1,-1 ) );
+        }
+        return blocks;
+    }
+
+    /**
+     * Checks that each block is in exactly one grid and the grids are valid.
+     */
+    private static void assertValid( List<Block> blocks, List<FittingResult> results )
+    {
+        SolutionValidator validator = new SolutionValidator();
+        Set<String> names = new HashSet<>();
+
+        for ( FittingResult result : results )
+        {
+            List<Block> gridBlocks = new ArrayList<>();
+            for ( Block placed : result.getBlocks() )
+            {
+                assertTrue( names.add( placed.getName() ) );
+                blocks.stream().filter( b -> b.getId() == placed.getId() ).forEach( gridBlocks::add );
+            }
+            Puzzle puzzle = new Puzzle( sideLength, gridBlocks, Collections.emptySet() );
+            assertNull( validator.validate( puzzle, result, false ) );
+        }
+        assertEquals( blocks.size(), names.size() );
+    }
+}
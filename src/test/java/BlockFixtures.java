@@ -0,0 +1,38 @@
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Creates the blocks of the tests.
+ */
+public class BlockFixtures
+{
+    private BlockFixtures()
+    {
+    }
+
+    /**
+     * Creates a block of the given coordinates. The block gets the id the name has in
+     * {@link PieceNames#createName(int)}, so the letters A, B, C... are the ids 0, 1, 2...
+     *
+     * @param name
+     * @param coordinates x and y of each point, one after another
+     * @return
+     */
+    public static Block create( char name, int... coordinates )
+    {
+        Set<Point> points = new HashSet<>();
+        for ( int i = 0; i < coordinates.length; i += 2 )
+        {
+            points.add( new Point( coordinates[i], coordinates[i + 1] ) );
+        }
+        int id = 0;
+        while ( !PieceNames.createName( id ).equals( String.valueOf( name ) ) )
+        {
+            if ( PieceNames.createName( ++id ).length() > 1 )
+            {
+                throw new IllegalArgumentException( "No id for the name " + name + "." );
+            }
+        }
+        return new Block( id, name, points );
+    }
+}
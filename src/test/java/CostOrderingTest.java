@@ -0,0 +1,67 @@
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class CostOrderingTest
+{
+    private static final int sideLength = 4;
+
+    @Test
+    public void testScore_FewerPlacementsFirst() throws Exception
+    {
+        List<Block> blocks = Arrays.asList(
+                BlockFixtures.create( 'A', 0,0, 1,0, 2,0, 3,0 ),
+                BlockFixtures.create( 'B', 0,0, 1,0, 1,1, 2,1 ) );
+        PlacementTable table = new PlacementTable( sideLength, blocks );
+        CostOrdering ordering = new CostOrdering( false );
+        ordering.setSizeWeight( 0 );
+        ordering.setIrregularityWeight( 0 );
+
+        //test
+        double first = ordering.score( table, table.getClassIndex( 0 ), table.getPlacementCount( 0 ) );
+        double second = ordering.score( table, table.getClassIndex( 1 ), table.getPlacementCount( 1 ) );
+
+        //assert
+        assertTrue( table.getPlacementCount( 0 ) < table.getPlacementCount( 1 ) );
+        assertTrue( first < second );
+    }
+
+    @Test
+    public void testScore_IrregularFirst() throws Exception
+    {
+        List<Block> blocks = Arrays.asList(
+                BlockFixtures.create( 'A', 0,0, 1,0, 0,1, 1,1 ),
+                BlockFixtures.create( 'B', 0,0, 1,0, 2,0, 0,1 ) );
+        PlacementTable table = new PlacementTable( sideLength, blocks );
+        CostOrdering ordering = new CostOrdering( false );
+
+        //test
+        double square = ordering.score( table, table.getClassIndex( 0 ), 10 );
+        double corner = ordering.score( table, table.getClassIndex( 1 ), 10 );
+
+        //assert
+        assertEquals( 0.5, CostOrdering.getIrregularity( table.getShape( 1 ) ), 1e-9 );
+        assertTrue( corner < square );
+    }
+
+    @Test
+    public void testFitBlocks_CostOrdering() throws Exception
+    {
+        List<Block> blocks = Arrays.asList(
+                BlockFixtures.create( 'A', 0,0, 1,0, 2,0, 3,0 ),
+                BlockFixtures.create( 'B', 0,0, 1,0, 2,0, 3,0 ),
+                BlockFixtures.create( 'C', 0,0, 1,0, 0,1, 1,1 ),
+                BlockFixtures.create( 'D', 0,0, 1,0, 0,1, 1,1 ) );
+        FitToGrid fitter = new FitToGrid( sideLength );
+        fitter.setOrderingPolicy( new CostOrdering( false ) );
+
+        //test
+        FittingResult result = fitter.fitBlocks( blocks );
+
+        //assert
+        assertNotNull( result );
+    }
+}
@@ -0,0 +1,103 @@
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Test;
+
+public class FeasibilityCheckTest
+{
+    private static final int sideLength = 4;
+
+    @Test
+    public void testCheck_Fits() throws Exception
+    {
+        List<Block> blocks = Arrays.asList(
+                BlockFixtures.create( 'A', 0,0, 1,0, 1,1, 2,1 ),
+                BlockFixtures.create( 'B', 0,0, 0,1, 0,2, 1,2 ),
+                BlockFixtures.create( 'C', 0,0, 1,0, 2,0, 1,1 ),
+                BlockFixtures.create( 'D', 0,0, 1,0, 1,1, 1,-1 ) );
+
+        //test
+        InfeasibilityReason result = FeasibilityCheck.check( new PlacementTable( sideLength, blocks ) );
+
+        //assert
+        assertNull( result );
+    }
+
+    @Test
+    public void testCheck_NoPlacement() throws Exception
+    {
+        List<Block> blocks = Arrays.asList( BlockFixtures.create( 'A', 0,0, 1,0, 2,0, 3,0, 4,0 ) );
+
+        //test
+        InfeasibilityReason result = FeasibilityCheck.check( new PlacementTable( sideLength, blocks ) );
+
+        //assert
+        assertEquals( InfeasibilityReason.NO_PLACEMENT, result );
+    }
+
+    @Test
+    public void testCheck_CheckerboardParity() throws Exception
+    {
+        // Two opposite corners blocked, the rest can't be covered with dominoes
+        List<Block> blocks = new ArrayList<>();
+        for ( int i = 0; i < 7; i++ )
+        {
+            blocks.add( BlockFixtures.create( (char)( 'A' + i ), 0,0, 1,0 ) );
+        }
+        PlacementTable table = new PlacementTable( sideLength, sideLength, blocks,
+                createBlockedMask( new Point( 0, 0 ), new Point( 3, 3 ) ) );
+
+        //test
+        InfeasibilityReason result = FeasibilityCheck.check( table );
+
+        //assert
+        assertEquals( InfeasibilityReason.CHECKERBOARD_PARITY, result );
+    }
+
+    @Test
+    public void testCheck_RegionSize() throws Exception
+    {
+        // The cell (0,0) is cut off from the rest of the grid
+        List<Block> blocks = new ArrayList<>();
+        blocks.add( BlockFixtures.create( 'T', 0,0, 1,0, 2,0, 1,1 ) );
+        for ( int i = 0; i < 5; i++ )
+        {
+            blocks.add( BlockFixtures.create( (char)( 'A' + i ), 0,0, 1,0 ) );
+        }
+        PlacementTable table = new PlacementTable( sideLength, sideLength, blocks,
+                createBlockedMask( new Point( 1, 0 ), new Point( 0, 1 ) ) );
+
+        //test
+        InfeasibilityReason result = FeasibilityCheck.check( table );
+
+        //assert
+        assertEquals( InfeasibilityReason.REGION_SIZE, result );
+    }
+
+    @Test
+    public void testFitBlocks_Reason() throws Exception
+    {
+        FitToGrid fitToGrid = new FitToGrid( sideLength );
+        List<Block> blocks = Arrays.asList( BlockFixtures.create( 'A', 0,0, 1,0, 2,0, 3,0, 4,0 ) );
+
+        //test
+        FittingResult result = fitToGrid.fitBlocks( blocks );
+
+        //assert
+        assertNull( result );
+        assertEquals( InfeasibilityReason.NO_PLACEMENT, fitToGrid.getInfeasibilityReason() );
+    }
+
+    //################################################
+    // NOT TESTS
+    //################################################
+
+    private static long[] createBlockedMask( Point... points )
+    {
+        return Puzzle.createBlockedMask( sideLength, new HashSet<>( Arrays.asList( points ) ) );
+    }
+}
@@ -57,10 +57,10 @@ public class FitToGridTest
     @Before
     public void setUp()
     {
-        m_blockA = new Block( 'A', pointsA );
-        m_blockB = new Block( 'B', pointsB );
-        m_blockC = new Block( 'C', pointsC );
-        m_blockD = new Block( 'D', pointsD );
+        m_blockA = new Block( 0, 'A', pointsA );
+        m_blockB = new Block( 1, 'B', pointsB );
+        m_blockC = new Block( 2, 'C', pointsC );
+        m_blockD = new Block( 3, 'D', pointsD );
     }
     
     @Test
@@ -206,7 +206,8 @@ public class FitToGridTest
             
             List<Point> resultPoints = (List<Point>)method.invoke( m_fitToGrid, m_blockB );
     
-            assertEquals( 4, resultPoints.size() );
+            // The upper row of the block is wider than the base, (3,0) would put it outside
+            assertEquals( 3, resultPoints.size() );
             
             Point expected = new Point( 0, 0 );
             assertEquals( expected, resultPoints.get( 0 ) );
@@ -216,9 +217,6 @@ public class FitToGridTest
     
             expected = new Point( 2, 0 );
             assertEquals( expected, resultPoints.get( 2 ) );
-    
-            expected = new Point( 3, 0 );
-            assertEquals( expected, resultPoints.get( 3 ) );
         }
 
     @Test
@@ -229,18 +227,32 @@ public class FitToGridTest
             
             List<Point> resultPoints = (List<Point>)method.invoke( m_fitToGrid, m_blockD );
     
-            assertEquals( 3, resultPoints.size() );
+            // The block is three cells wide, (2,0) would put it outside
+            assertEquals( 2, resultPoints.size() );
             
             Point expected = new Point( 0, 0 );
             assertEquals( expected, resultPoints.get( 0 ) );
     
             expected = new Point( 1, 0 );
             assertEquals( expected, resultPoints.get( 1 ) );
-    
-            expected = new Point( 2, 0 );
-            assertEquals( expected, resultPoints.get( 2 ) );
         }
 
+    @Test
+    public void testGetAvailableStartingPoints_BlockedCells() throws Exception
+    {
+        Method method = fitToGridClass.getDeclaredMethod( "getAvailableStartingPoints", Block.class ); 
+        method.setAccessible( true );
+        
+        Set<Point> blockedCells = new HashSet<>();
+        blockedCells.add( new Point( 1, 0 ) );
+        FitToGrid fitToGrid = new FitToGrid( sideLength, blockedCells );
+        
+        List<Point> resultPoints = (List<Point>)method.invoke( fitToGrid, m_blockB );
+
+        assertEquals( 2, resultPoints.size() );
+        assertFalse( resultPoints.contains( new Point( 1, 0 ) ) );
+    }
+
     @Test
     public void testFitWithStartingBlock() throws Exception
     {
@@ -253,7 +265,7 @@ public class FitToGridTest
         pointsB.add( new Point( 0, 1 ) );
         pointsB.add( new Point( 1, 2 ) );
 
-        Block blockB = new Block( 'B', pointsB );
+        Block blockB = new Block( 1, 'B', pointsB );
 
         Set<Point> pointsD = new HashSet<>();
         pointsD.add( new Point( 0, 0 ) );
@@ -261,7 +273,7 @@ public class FitToGridTest
         pointsD.add( new Point( 0, 2 ) );
         pointsD.add( new Point( 0, 3 ) );
 
-        Block blockD = new Block( 'D', pointsD );
+        Block blockD = new Block( 3, 'D', pointsD );
         
         
         LinkedList<Block> blockList = new LinkedList<>();
@@ -340,6 +352,64 @@ public class FitToGridTest
         }
     }
     
+    @Test
+    public void testFitBlocks_BlockedCells() throws Exception
+    {
+        Set<Point> blockedCells = new HashSet<>();
+        blockedCells.add( new Point( 0, 0 ) );
+        blockedCells.add( new Point( 3, 3 ) );
+        FitToGrid fitToGrid = new FitToGrid( sideLength, blockedCells );
+        
+        Puzzle puzzle = Puzzle.parse( Arrays.asList( 
+                "A:0,0;1,0;2,0", 
+                "B:0,0;0,1;0,2", 
+                "C:0,0;1,0;2,0", 
+                "D:0,0;1,0;2,0", 
+                "E:0,0;1,0" ), sideLength );
+
+        //test
+        FittingResult result = fitToGrid.fitBlocks( puzzle.getBlocks() );
+        
+        //assert
+        char[][] grid = result.getGrid();
+        assertEquals( FitToGrid.BLOCKED_VALUE, grid[0][0] );
+        assertEquals( FitToGrid.BLOCKED_VALUE, grid[3][3] );
+        for ( int y=0; y < sideLength; y++ )
+        {
+            for ( int x=0; x < sideLength; x++ )
+            {
+                assertNotEquals( EMPTY_VALUE, grid[x][y] );
+            }
+        }
+    }
+
+    @Test
+    public void testFitBlocks_BlocksNotMoved() throws Exception
+    {
+        List<Block> blocks = createTestData();
+        String[] before = blocks.stream().map( Block::getBlockAsString ).toArray( String[]::new );
+
+        //test
+        FittingResult result = m_fitToGrid.fitBlocks( blocks );
+
+        //assert
+        assertNotNull( result );
+        for ( int i = 0; i < blocks.size(); i++ )
+        {
+            assertEquals( before[i], blocks.get( i ).getBlockAsString() );
+        }
+    }
+
+    @Test( expected = Exception.class )
+    public void testFitBlocks_BlockedCellsTooBig() throws Exception
+    {
+        Set<Point> blockedCells = new HashSet<>();
+        blockedCells.add( new Point( 0, 0 ) );
+        FitToGrid fitToGrid = new FitToGrid( sideLength, blockedCells );
+
+        fitToGrid.fitBlocks( createTestData() );
+    }
+    
     @Test
     public void testGetNextFreePoint1() throws Exception
     {
@@ -526,10 +596,10 @@ public class FitToGridTest
         pointsD.add( new Point( 1, 1 ) );
         pointsD.add( new Point( 1, -1 ) );
 
-        Block blockA = new Block( 'A', pointsA );
-        Block blockB = new Block( 'B', pointsB );
-        Block blockC = new Block( 'C', pointsC );
-        Block blockD = new Block( 'D', pointsD );
+        Block blockA = new Block( 0, 'A', pointsA );
+        Block blockB = new Block( 1, 'B', pointsB );
+        Block blockC = new Block( 2, 'C', pointsC );
+        Block blockD = new Block( 3, 'D', pointsD );
 
         blockList.add( blockA );
         blockList.add( blockB );
@@ -0,0 +1,63 @@
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class FittingResultTest
+{
+    @Test
+    public void testSnapshot_NotChangedByBlocks() throws Exception
+    {
+        //test
+        Block block = BlockFixtures.create( 'A', 0, 0, 1, 0 );
+        FittingResult result = new FittingResult( 3, 3, null, Arrays.asList( block ) );
+        block.getPoints().forEach( p -> p.setY( p.getY() + 2 ) );
+        result.getBlocks().get( 0 ).getPoints().forEach( p -> p.setX( p.getX() + 1 ) );
+
+        //assert
+        assertEquals( Arrays.asList( "A:0,0;1,0" ), result.getCoordinateLines() );
+        assertEquals( 0, result.getOwner( 1, 0 ) );
+        assertEquals( FittingResult.EMPTY, result.getOwner( 1, 2 ) );
+    }
+
+    @Test
+    public void testEquals_SameLayoutInAnyOrder() throws Exception
+    {
+        //test
+        Puzzle puzzle = Puzzle.parse( Arrays.asList( "=:2", "A:0,0;1,0", "B:0,0;1,0" ), 2 );
+        PlacementTable table = puzzle.createPlacementTable();
+        FittingResult found = table.createResult( new PlacementSearch( table ).findFirst() );
+        List<Block> blocks = found.getBlocks();
+        FittingResult reversed = new FittingResult( 2, 2, new long[1], Arrays.asList( blocks.get( 1 ), blocks.get( 0 ) ) );
+
+        //assert
+        assertEquals( found, reversed );
+        assertEquals( found.hashCode(), reversed.hashCode() );
+        assertEquals( 0, reversed.getId( 0 ) );
+        assertFalse( found.equals( new FittingResult( 2, 2, null, Arrays.asList( blocks.get( 0 ) ) ) ) );
+    }
+
+    @Test
+    public void testWrite_ReadBack() throws Exception
+    {
+        //test
+        long[] blocked = CellMask.create( 9 );
+        CellMask.set( blocked, 8 );
+        FittingResult result = new FittingResult( 3, 3, blocked, Arrays.asList(
+                BlockFixtures.create( 'A', 0, 0, 1, 0 ), BlockFixtures.create( 'B', 0, 1, 1, 1 ), BlockFixtures.create( 'C', 0, 2, 0, 1 ) ) );
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        result.write( new DataOutputStream( bytes ) );
+        FittingResult read = FittingResult.read( new DataInputStream( new ByteArrayInputStream( bytes.toByteArray() ) ) );
+
+        //assert
+        assertEquals( result, read );
+        assertEquals( FittingResult.BLOCKED, read.getOwner( 2, 2 ) );
+        assertEquals( result.getCoordinateLines(), read.getCoordinateLines() );
+    }
+}
@@ -0,0 +1,120 @@
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class IncrementalFitterTest
+{
+    private static final int sideLength = 4;
+
+    private final IncrementalFitter m_fitter = new IncrementalFitter();
+    private FittingResult m_previous;
+
+    @Before
+    public void setUp()
+    {
+        PlacementTable table = new PlacementTable( sideLength, createTestData() );
+        m_previous = table.createResult( new PlacementSearch( table ).findFirst() );
+    }
+
+    @Test
+    public void testRefit_Remove() throws Exception
+    {
+        //test
+        FittingResult result = m_fitter.refit( m_previous, GridDelta.remove( 'C' ) );
+
+        //assert
+        assertEquals( 3, result.getBlocks().size() );
+        assertEquals( 0, m_fitter.getLastRadius() );
+        assertSameCells( m_previous, result, 'A' );
+        assertSameCells( m_previous, result, 'B' );
+        assertSameCells( m_previous, result, 'D' );
+    }
+
+    @Test
+    public void testRefit_AddBack() throws Exception
+    {
+        FittingResult removed = m_fitter.refit( m_previous, GridDelta.remove( 'C' ) );
+
+        //test
+        FittingResult result = m_fitter.refit( removed, GridDelta.add( BlockFixtures.create( 'C', 0,0, 1,0, 2,0, 1,1 ) ) );
+
+        //assert
+        assertEquals( 4, result.getBlocks().size() );
+        assertEquals( 0, m_fitter.getLastRadius() );
+        assertSameCells( m_previous, result, 'C' );
+    }
+
+    @Test
+    public void testRefit_AddDoesNotFit() throws Exception
+    {
+        FittingResult removed = m_fitter.refit( m_previous, GridDelta.remove( 'C' ) );
+
+        //test
+        FittingResult result = m_fitter.refit( removed, GridDelta.add( BlockFixtures.create( 'E', 0,0, 1,0, 2,0, 3,0 ) ) );
+
+        //assert
+        assertNull( result );
+        assertEquals( -1, m_fitter.getLastRadius() );
+    }
+
+    @Test
+    public void testRefit_BlockCells() throws Exception
+    {
+        FittingResult removed = m_fitter.refit( m_previous, GridDelta.remove( 'C' ) );
+        Set<Point> cells = new HashSet<>();
+        cells.add( new Point( 0, 0 ) );
+
+        //test
+        FittingResult result = m_fitter.refit( removed, GridDelta.blockCells( cells ) );
+
+        //assert
+        assertEquals( FitToGrid.BLOCKED_VALUE, result.getGrid()[0][0] );
+        assertEquals( 3, result.getBlocks().size() );
+    }
+
+    @Test( expected = Exception.class )
+    public void testRefit_RemoveUnknown() throws Exception
+    {
+        m_fitter.refit( m_previous, GridDelta.remove( 'X' ) );
+    }
+
+    @Test( expected = Exception.class )
+    public void testRefit_AddUsedId() throws Exception
+    {
+        FittingResult removed = m_fitter.refit( m_previous, GridDelta.remove( 'C' ) );
+        Set<Point> points = new HashSet<>( Arrays.asList( new Point( 0, 0 ) ) );
+
+        //test
+        m_fitter.refit( removed, GridDelta.add( new Block( 0, 'E', points ) ) );
+    }
+
+    //################################################
+    // NOT TESTS
+    //################################################
+
+    private static void assertSameCells( FittingResult expected, FittingResult actual, char name )
+    {
+        for ( int x = 0; x < sideLength; x++ )
+        {
+            for ( int y = 0; y < sideLength; y++ )
+            {
+                assertEquals( expected.getGrid()[x][y] == name, actual.getGrid()[x][y] == name );
+            }
+        }
+    }
+
+    private static List<Block> createTestData()
+    {
+        return Arrays.asList(
+                BlockFixtures.create( 'A', 0,0, 1,0, 1,1, 2,1 ),
+                BlockFixtures.create( 'B', 0,0, 0,1, 0,2, 1,2 ),
+                BlockFixtures.create( 'C', 0,0, 1,0, 2,0, 1,1 ),
+                BlockFixtures.create( 'D', 0,0, 1,0, 1,1, 1,-1 ) );
+    }
+}
@@ -0,0 +1,81 @@
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Test;
+
+public class LocalSearchFitterTest
+{
+    private static final int sideLength = 4;
+
+    @Test
+    public void testFit_Fits() throws Exception
+    {
+        Puzzle puzzle = new Puzzle( sideLength, Arrays.asList(
+                BlockFixtures.create( 'A', 0,0, 1,0, 1,1, 2,1 ),
+                BlockFixtures.create( 'B', 0,0, 0,1, 0,2, 1,2 ),
+                BlockFixtures.create( 'C', 0,0, 1,0, 2,0, 1,1 ),
+                BlockFixtures.create( 'D', 0,0, 1,0, 1,1, 1,-1 ) ), new HashSet<>() );
+        LocalSearchFitter fitter = new LocalSearchFitter( 1 );
+
+        //test
+        FittingResult result = fitter.fit( puzzle );
+
+        //assert
+        assertEquals( 4, result.getBlocks().size() );
+        assertEquals( sideLength * sideLength, fitter.getBestCoverage() );
+    }
+
+    @Test
+    public void testFit_TooManyBlocks() throws Exception
+    {
+        // Nine 2x2 squares, only four fit
+        List<Block> blocks = new ArrayList<>();
+        for ( int i = 0; i < 9; i++ )
+        {
+            blocks.add( BlockFixtures.create( (char)( 'A' + i ), 0,0, 1,0, 0,1, 1,1 ) );
+        }
+        LocalSearchFitter fitter = new LocalSearchFitter( 1 );
+        fitter.setThreadCount( 2 );
+
+        //test
+        FittingResult result = fitter.fit( new Puzzle( sideLength, blocks, new HashSet<>() ) );
+
+        //assert
+        assertEquals( 4, result.getBlocks().size() );
+        assertEquals( sideLength * sideLength, fitter.getBestCoverage() );
+    }
+
+    @Test
+    public void testSolve_SameSeed() throws Exception
+    {
+        List<Block> blocks = new ArrayList<>();
+        for ( int i = 0; i < 20; i++ )
+        {
+            blocks.add( i % 2 == 0 ? BlockFixtures.create( (char)( 'A' + i ), 0,0, 1,0, 2,0 ) : BlockFixtures.create( (char)( 'A' + i ), 0,0, 0,1 ) );
+        }
+        PlacementTable table = new PlacementTable( 7, 7, blocks, CellMask.create( 49 ) );
+
+        //test
+        int[] first = createFitter().solve( table );
+        int[] second = createFitter().solve( table );
+
+        //assert
+        assertArrayEquals( first, second );
+    }
+
+    //################################################
+    // NOT TESTS
+    //################################################
+
+    private static LocalSearchFitter createFitter()
+    {
+        LocalSearchFitter fitter = new LocalSearchFitter( 7 );
+        fitter.setTimeBudget( 0 );
+        fitter.setIterationLimit( 2000 );
+        return fitter;
+    }
+}
@@ -0,0 +1,45 @@
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class LongIndexMapTest
+{
+    @Test
+    public void testAdd_DenseIndexes() throws Exception
+    {
+        LongIndexMap map = new LongIndexMap();
+
+        //test
+        for ( int i = 0; i < 10000; i++ )
+        {
+            assertEquals( i, map.add( i * 0x100000001L ) );
+        }
+
+        //assert
+        assertEquals( 10000, map.size() );
+        for ( int i = 0; i < 10000; i++ )
+        {
+            assertEquals( i, map.add( i * 0x100000001L ) );
+            assertEquals( i, map.indexOf( i * 0x100000001L ) );
+            assertEquals( i * 0x100000001L, map.getKey( i ) );
+        }
+        assertEquals( -1, map.indexOf( -1 ) );
+        assertEquals( 10000, map.size() );
+    }
+
+    @Test
+    public void testClear() throws Exception
+    {
+        LongIndexMap map = new LongIndexMap();
+        map.add( 7 );
+        map.add( 0 );
+
+        //test
+        map.clear();
+
+        //assert
+        assertEquals( 0, map.size() );
+        assertEquals( -1, map.indexOf( 7 ) );
+        assertEquals( 0, map.add( 0 ) );
+    }
+}
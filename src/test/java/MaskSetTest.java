@@ -0,0 +1,70 @@
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class MaskSetTest
+{
+    @Test
+    public void testAdd_Grows() throws Exception
+    {
+        MaskSet set = new MaskSet( 2, Long.MAX_VALUE );
+        long[] mask = new long[2];
+
+        //test
+        for ( int i = 0; i < 10000; i++ )
+        {
+            mask[0] = i;
+            mask[1] = i % 7;
+            assertTrue( set.add( mask, 0 ) );
+        }
+
+        //assert
+        assertEquals( 10000, set.size() );
+        for ( int i = 0; i < 10000; i++ )
+        {
+            mask[0] = i;
+            mask[1] = i % 7;
+            assertFalse( set.add( mask, 0 ) );
+            mask[1] = i % 7 + 1;
+            assertFalse( set.contains( mask, 0 ) );
+        }
+        assertEquals( 10000, set.size() );
+        // The zero mask is a mask like the others
+        assertTrue( set.contains( new long[] { 5, 0, 0 }, 1 ) );
+    }
+
+    @Test
+    public void testIsFull() throws Exception
+    {
+        MaskSet set = new MaskSet( 1, 64 * 8 + 64 / 8 );
+        long[] mask = new long[1];
+
+        //test
+        int added = 0;
+        while ( !set.isFull() )
+        {
+            mask[0] = added * 31L;
+            set.add( mask, 0 );
+            added++;
+        }
+
+        //assert
+        assertEquals( 32, added );
+        assertEquals( 64 * 8 + 64 / 8, set.getMemoryBytes() );
+        assertTrue( set.contains( mask, 0 ) );
+    }
+
+    @Test(expected=IllegalStateException.class)
+    public void testAdd_OverLimit() throws Exception
+    {
+        MaskSet set = new MaskSet( 1, 1000 );
+        long[] mask = new long[1];
+        for ( mask[0] = 0; mask[0] < 32; mask[0]++ )
+        {
+            set.add( mask, 0 );
+        }
+
+        //test
+        set.add( mask, 0 );
+    }
+}
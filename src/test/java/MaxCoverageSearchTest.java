@@ -0,0 +1,86 @@
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Test;
+
+public class MaxCoverageSearchTest
+{
+    private static final int sideLength = 4;
+
+    @Test
+    public void testFit_TooManyBlocks() throws Exception
+    {
+        // Five bars of three, one fits to each row
+        List<Block> blocks = new ArrayList<>();
+        for ( int i = 0; i < 5; i++ )
+        {
+            blocks.add( BlockFixtures.create( (char)( 'A' + i ), 0,0, 1,0, 2,0 ) );
+        }
+        MaxCoverageSearch search = new MaxCoverageSearch();
+
+        //test
+        FittingResult result = search.fit( new Puzzle( sideLength, blocks, new HashSet<>() ) );
+
+        //assert
+        assertEquals( 4, result.getBlocks().size() );
+        assertEquals( 12, search.getBestValue() );
+        assertEquals( 12, search.getUpperBound() );
+        assertTrue( search.isOptimal() );
+        assertEquals( 0, search.getGap(), 0 );
+    }
+
+    @Test
+    public void testSolve_Weights() throws Exception
+    {
+        // Either the three rows or the two squares fit
+        PlacementTable table = new PlacementTable( sideLength, Arrays.asList(
+                BlockFixtures.create( 'A', 0,0, 1,0, 2,0, 3,0, 0,1, 1,1, 2,1, 3,1, 0,2, 1,2, 2,2, 3,2 ),
+                BlockFixtures.create( 'B', 0,0, 1,0, 0,1, 1,1 ),
+                BlockFixtures.create( 'C', 0,0, 1,0, 0,1, 1,1 ) ) );
+        MaxCoverageSearch search = new MaxCoverageSearch();
+
+        //test & assert
+        int[] placements = search.solve( table );
+        assertTrue( placements[0] >= 0 );
+        assertEquals( 12, search.getBestValue() );
+
+        search.setWeights( 1, 5, 5 );
+        placements = search.solve( table );
+        assertEquals( -1, placements[0] );
+        assertTrue( placements[1] >= 0 && placements[2] >= 0 );
+        assertEquals( 10, search.getBestValue() );
+        assertTrue( search.isOptimal() );
+    }
+
+    @Test
+    public void testFit_TimeBudget() throws Exception
+    {
+        PuzzleGenerator generator = new PuzzleGenerator( 3 );
+        generator.setSideLength( 10 );
+        generator.setPieceCount( 30 );
+        Puzzle puzzle = generator.generateUnsolvable();
+        MaxCoverageSearch search = new MaxCoverageSearch();
+        search.setTimeBudget( 1 );
+
+        //test
+        FittingResult result = search.fit( puzzle );
+
+        //assert
+        List<Block> placed = new ArrayList<>();
+        for ( Block block : puzzle.getBlocks() )
+        {
+            if ( result.getBlocks().stream().anyMatch( b -> b.getId() == block.getId() ) )
+            {
+                placed.add( block );
+            }
+        }
+        Puzzle subset = new Puzzle( puzzle.getSideLength(), placed, puzzle.getBlockedCells() );
+        assertNull( new SolutionValidator().validate( subset, result, false ) );
+        assertTrue( search.getBestValue() <= search.getUpperBound() );
+        assertEquals( search.isOptimal(), search.getGap() == 0 );
+    }
+}
@@ -0,0 +1,88 @@
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class MeetInTheMiddleSearchTest
+{
+    @Test
+    public void testFindFirst_GeneratedPuzzles() throws Exception
+    {
+        PuzzleGenerator generator = new PuzzleGenerator( 5 );
+        generator.setSideLength( 5 );
+        generator.setPieceCount( 6 );
+        generator.setDuplicateFraction( 0.3 );
+        SolutionValidator validator = new SolutionValidator();
+
+        for ( int i = 0; i < 10; i++ )
+        {
+            Puzzle puzzle = generator.generateSolvable();
+            PlacementTable table = puzzle.createPlacementTable();
+            MeetInTheMiddleSearch search = new MeetInTheMiddleSearch( table );
+
+            //test
+            int[] placements = search.findFirst();
+
+            //assert
+            assertFalse( search.isFallbackUsed() );
+            assertTrue( search.getStoredCount() > 0 );
+            assertNotNull( placements );
+            assertNull( validator.validate( puzzle, table.createResult( placements ), true ) );
+        }
+    }
+
+    @Test
+    public void testFindFirst_NoFit() throws Exception
+    {
+        // Fills the area but the bars can't cover the corner of the L
+        Puzzle puzzle = Puzzle.parse( Arrays.asList(
+                "=:3",
+                "A:0,0;1,0;2,0",
+                "B:0,0;1,0;2,0",
+                "C:0,0;1,0;0,1" ), 4 );
+        MeetInTheMiddleSearch search = new MeetInTheMiddleSearch( puzzle.createPlacementTable() );
+
+        //test
+        FittingResult result = search.fit();
+
+        //assert
+        assertNull( result );
+        assertFalse( search.isFallbackUsed() );
+        assertFalse( search.isLimitReached() );
+    }
+
+    @Test
+    public void testFindFirst_MemoryLimit() throws Exception
+    {
+        PuzzleGenerator generator = new PuzzleGenerator( 5 );
+        generator.setSideLength( 6 );
+        generator.setPieceCount( 9 );
+        Puzzle puzzle = generator.generateSolvable();
+        PlacementTable table = puzzle.createPlacementTable();
+        MeetInTheMiddleSearch search = new MeetInTheMiddleSearch( table );
+        search.setMemoryLimit( 0 );
+
+        //test
+        int[] placements = search.findFirst();
+
+        //assert
+        assertTrue( search.isFallbackUsed() );
+        assertNotNull( placements );
+        assertNull( new SolutionValidator().validate( puzzle, table.createResult( placements ), true ) );
+    }
+
+    @Test
+    public void testFindFirst_NotExactCover() throws Exception
+    {
+        Puzzle puzzle = Puzzle.parse( Arrays.asList( "=:2", "A:0,0;1,0" ), 4 );
+        MeetInTheMiddleSearch search = new MeetInTheMiddleSearch( puzzle.createPlacementTable() );
+
+        //test
+        FittingResult result = search.fit();
+
+        //assert
+        assertTrue( search.isFallbackUsed() );
+        assertEquals( 1, result.getBlocks().size() );
+    }
+}
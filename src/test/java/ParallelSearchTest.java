@@ -0,0 +1,99 @@
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class ParallelSearchTest
+{
+    @Test
+    public void testCount_SameAsSearch() throws Exception
+    {
+        PlacementTable table = createDominoTable( 6, 12 );
+        ParallelSearch search = new ParallelSearch( table );
+        search.setParallelism( 4 );
+
+        //test
+        long count = search.count();
+
+        //assert
+        assertEquals( new PlacementSearch( table ).count(), count );
+    }
+
+    @Test
+    public void testEnumerate_EachSolutionOnce() throws Exception
+    {
+        PlacementTable table = createDominoTable( 4, 4 );
+        ParallelSearch search = new ParallelSearch( table );
+        search.setParallelism( 3 );
+
+        //test
+        List<Collector> sinks = search.enumerate( Collector::new );
+
+        //assert
+        Set<List<Integer>> solutions = new HashSet<>();
+        int total = 0;
+        for ( Collector sink : sinks )
+        {
+            solutions.addAll( sink.m_solutions );
+            total += sink.m_solutions.size();
+        }
+        assertEquals( new PlacementSearch( table ).count(), total );
+        assertEquals( total, solutions.size() );
+    }
+
+    @Test
+    public void testFindFirst_NoFit() throws Exception
+    {
+        List<Block> blocks = Arrays.asList(
+                BlockFixtures.create( 'A', 0,0, 1,0, 2,0, 2,1 ),
+                BlockFixtures.create( 'B', 0,0, 0,1, 1,1, 1,2 ),
+                BlockFixtures.create( 'C', 0,0, 0,1, 1,1, 1,2 ),
+                BlockFixtures.create( 'D', 0,0, 1,0, 1,1, 2,1 ) );
+        ParallelSearch search = new ParallelSearch( new PlacementTable( 4, blocks ) );
+        search.setParallelism( 2 );
+
+        //test
+        int[] result = search.findFirst();
+
+        //assert
+        assertNull( result );
+    }
+
+    //################################################
+    // NOT TESTS
+    //################################################
+
+    private static class Collector implements SolutionListener
+    {
+        private final List<List<Integer>> m_solutions = new ArrayList<>();
+
+        @Override
+        public boolean solutionFound( int[] placements )
+        {
+            List<Integer> solution = new ArrayList<>();
+            Arrays.stream( placements ).forEach( solution::add );
+            m_solutions.add( solution );
+            return true;
+        }
+    }
+
+    /**
+     * Creates a table of dominoes filling the square grid, the given amount of them horizontal.
+     */
+    private static PlacementTable createDominoTable( int sideLength, int horizontal )
+    {
+        List<Block> blocks = new ArrayList<>();
+        for ( int i = 0; i < sideLength * sideLength / 2; i++ )
+        {
+            blocks.add( i < horizontal
+                    ? BlockFixtures.create( (char)( 'A' + i ), 0,0, 1,0 )
+                    : BlockFixtures.create( (char)( 'A' + i ), 0,0, 0,1 ) );
+        }
+        return new PlacementTable( sideLength, blocks );
+    }
+}
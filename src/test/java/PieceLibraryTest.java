@@ -0,0 +1,90 @@
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Test;
+
+public class PieceLibraryTest
+{
+    private static final int sideLength = 9;
+
+    private final List<Block> m_catalogue = Arrays.asList(
+            BlockFixtures.create( 'A', 0,0, 1,0, 2,0, 2,1 ),
+            BlockFixtures.create( 'B', 1,0, 0,1, 1,1, 2,1, 1,2 ),
+            BlockFixtures.create( 'C', 0,0, 1,0, 2,0, 2,1 ),
+            BlockFixtures.create( 'D', 0,0, 0,1 ) );
+
+    @Test
+    public void testOpen_SameTableAsComputed() throws Exception
+    {
+        Path file = Files.createTempFile( "pieces", ".lib" );
+        PieceLibrary.compile( sideLength, sideLength, m_catalogue, file );
+        List<Block> blocks = Arrays.asList(
+                BlockFixtures.create( 'X', 5,5, 5,6, 6,6, 7,6 ),
+                BlockFixtures.create( 'Y', 3,3, 4,3 ),
+                BlockFixtures.create( 'Z', 4,3, 3,4, 4,4, 5,4, 4,5 ) );
+        long[] blocked = Puzzle.createBlockedMask( sideLength,
+                new HashSet<>( Arrays.asList( new Point( 4, 4 ), new Point( 0, 8 ) ) ) );
+
+        //test
+        PieceLibrary library = PieceLibrary.open( file );
+        PlacementTable loaded = new PlacementTable( sideLength, sideLength, blocks, blocked, library );
+
+        //assert
+        assertEquals( 3, library.getShapeCount() );
+        assertEquals( -1, library.findShape( loaded.getShape( 0 ) ) );
+        PlacementTable computed = new PlacementTable( sideLength, sideLength, blocks, blocked );
+        for ( int piece = 0; piece < blocks.size(); piece++ )
+        {
+            assertEquals( computed.getPlacementCount( piece ), loaded.getPlacementCount( piece ) );
+            assertArrayEquals( computed.getMasks( piece ), loaded.getMasks( piece ) );
+            for ( int placement = 0; placement < computed.getPlacementCount( piece ); placement++ )
+            {
+                assertEquals( computed.getAnchor( piece, placement ), loaded.getAnchor( piece, placement ) );
+            }
+        }
+        for ( int cell = 0; cell < computed.getCellCount(); cell++ )
+        {
+            assertArrayEquals( computed.getFirstCellClasses( cell ), loaded.getFirstCellClasses( cell ) );
+            assertArrayEquals( computed.getFirstCellPlacements( cell ), loaded.getFirstCellPlacements( cell ) );
+        }
+        Files.delete( file );
+    }
+
+    @Test
+    public void testOpen_OtherGridSizeIgnored() throws Exception
+    {
+        Path file = Files.createTempFile( "pieces", ".lib" );
+        PieceLibrary.compile( sideLength, sideLength, m_catalogue, file );
+        List<Block> blocks = Arrays.asList( BlockFixtures.create( 'A', 0,0, 1,0, 2,0, 2,1 ) );
+
+        //test
+        PlacementTable table = new PlacementTable( 4, 4, blocks, null, PieceLibrary.open( file ) );
+
+        //assert
+        assertEquals( 6, table.getPlacementCount( 0 ) );
+        Files.delete( file );
+    }
+
+    @Test( expected = IOException.class )
+    public void testOpen_NotLibrary() throws Exception
+    {
+        Path file = Files.createTempFile( "pieces", ".lib" );
+        Files.write( file, Arrays.asList( "A:0,0;1,0" ) );
+
+        try
+        {
+            //test
+            PieceLibrary.open( file );
+        }
+        finally
+        {
+            Files.delete( file );
+        }
+    }
+}
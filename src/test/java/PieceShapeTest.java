@@ -0,0 +1,95 @@
+import static org.junit.Assert.*;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class PieceShapeTest
+{
+    @Test
+    public void testRuns() throws Exception
+    {
+        //test
+        PieceShape shape = new PieceShape( BlockFixtures.create( 'A', 3,5, 4,5, 6,5, 4,6, 5,6, 6,6 ) );
+
+        //assert
+        assertEquals( 4, shape.getWidth() );
+        assertEquals( 2, shape.getHeight() );
+        assertEquals( 3, shape.getRunCount() );
+        assertRun( shape, 0, 0, 0, 2 );
+        assertRun( shape, 1, 3, 0, 1 );
+        assertRun( shape, 2, 1, 1, 3 );
+    }
+
+    @Test
+    public void testIsConnected() throws Exception
+    {
+        // A snake of 64 cells going back and forth on the rows of an 8x15 box
+        Set<Point> points = new HashSet<>();
+        for ( int row = 0; row < 8; row++ )
+        {
+            for ( int x = 0; x < 7; x++ )
+            {
+                points.add( new Point( x, row * 2 ) );
+            }
+            if ( row < 7 )
+            {
+                points.add( new Point( row % 2 == 0 ? 6 : 0, row * 2 + 1 ) );
+            }
+        }
+        points.add( new Point( 7, 14 ) );
+        assertEquals( 64, points.size() );
+
+        //test & assert
+        assertTrue( new PieceShape( new Block( 0, 'A', points ) ).isConnected() );
+
+        points.remove( new Point( 0, 14 ) );
+        assertTrue( new PieceShape( new Block( 0, 'A', points ) ).isConnected() );
+
+        points.remove( new Point( 6, 5 ) );
+        assertFalse( new PieceShape( new Block( 0, 'A', points ) ).isConnected() );
+
+        // Diagonal neighbours aren't connected
+        assertFalse( new PieceShape( BlockFixtures.create( 'B', 0,0, 1,1 ) ).isConnected() );
+        assertTrue( new PieceShape( BlockFixtures.create( 'B', 0,0 ) ).isConnected() );
+    }
+
+    @Test
+    public void testCreateMask() throws Exception
+    {
+        PieceShape shape = new PieceShape( BlockFixtures.create( 'A', 0,0, 1,0, 2,0, 2,1, 2,2, 1,2, 0,2 ) );
+        int gridWidth = 40;
+
+        //test
+        long[] mask = shape.createMask( gridWidth );
+
+        //assert
+        long[] expected = CellMask.create( 3 * gridWidth );
+        for ( int i = 0; i < shape.getSize(); i++ )
+        {
+            CellMask.set( expected, shape.getY( i ) * gridWidth + shape.getX( i ) );
+        }
+        assertArrayEquals( expected, mask );
+
+        // Moved over the border of the words
+        long[] moved = CellMask.create( 5 * gridWidth );
+        CellMask.shiftOr( mask, gridWidth + 30, moved );
+        for ( int i = 0; i < shape.getSize(); i++ )
+        {
+            assertTrue( CellMask.get( moved, ( shape.getY( i ) + 1 ) * gridWidth + shape.getX( i ) + 30 ) );
+        }
+        assertEquals( shape.getSize(), CellMask.cardinality( moved ) );
+    }
+
+    //################################################
+    // NOT TESTS
+    //################################################
+
+    private static void assertRun( PieceShape shape, int run, int x, int y, int length )
+    {
+        assertEquals( x, shape.getRunX( run ) );
+        assertEquals( y, shape.getRunY( run ) );
+        assertEquals( length, shape.getRunLength( run ) );
+    }
+}
@@ -0,0 +1,167 @@
+import static org.junit.Assert.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class PlacementSearchTest
+{
+    private static final int sideLength = 4;
+
+    @Test
+    public void testFindFirst_NoFit() throws Exception
+    {
+        List<Block> blocks = Arrays.asList(
+                BlockFixtures.create( 'A', 0,0, 1,0, 2,0, 2,1 ),
+                BlockFixtures.create( 'B', 0,0, 0,1, 1,1, 1,2 ),
+                BlockFixtures.create( 'C', 0,0, 0,1, 1,1, 1,2 ),
+                BlockFixtures.create( 'D', 0,0, 1,0, 1,1, 2,1 ) );
+
+        //test
+        int[] result = new PlacementSearch( new PlacementTable( sideLength, blocks ) ).findFirst();
+
+        //assert
+        assertNull( result );
+    }
+
+    @Test
+    public void testCount_IdenticalShapes() throws Exception
+    {
+        // Each domino tiling of the 4x4 grid is counted once for the matching amount of
+        // horizontal and vertical dominoes, so the sum is the number of domino tilings.
+        long count = 0;
+
+        for ( int horizontal = 0; horizontal <= 8; horizontal++ )
+        {
+            List<Block> blocks = new ArrayList<>();
+            for ( int i = 0; i < 8; i++ )
+            {
+                blocks.add( i < horizontal
+                        ? BlockFixtures.create( (char)( 'A' + i ), 0,0, 1,0 )
+                        : BlockFixtures.create( (char)( 'A' + i ), 0,0, 0,1 ) );
+            }
+
+            PlacementTable table = new PlacementTable( sideLength, blocks );
+            assertTrue( table.getClassCount() <= 2 );
+            count += new PlacementSearch( table ).count();
+        }
+
+        //assert
+        assertEquals( 36, count );
+    }
+
+    @Test
+    public void testFindFirst_IdenticalShapesKeepNames() throws Exception
+    {
+        List<Block> blocks = Arrays.asList(
+                BlockFixtures.create( 'A', 0,0, 1,0, 0,1, 1,1 ),
+                BlockFixtures.create( 'B', 0,0, 1,0, 0,1, 1,1 ),
+                BlockFixtures.create( 'C', 0,0, 1,0, 0,1, 1,1 ),
+                BlockFixtures.create( 'D', 0,0, 1,0, 0,1, 1,1 ) );
+        PlacementTable table = new PlacementTable( sideLength, blocks );
+
+        //test
+        FittingResult result = table.createResult( new PlacementSearch( table ).findFirst() );
+
+        //assert
+        assertEquals( 1, table.getClassCount() );
+        Set<Character> names = new HashSet<>();
+        for ( char[] column : result.getGrid() )
+        {
+            for ( char value : column )
+            {
+                names.add( value );
+            }
+        }
+        assertEquals( new HashSet<>( Arrays.asList( 'A', 'B', 'C', 'D' ) ), names );
+    }
+
+    @Test
+    public void testCount_Partial() throws Exception
+    {
+        List<Block> blocks = Arrays.asList(
+                BlockFixtures.create( 'A', 0,0 ),
+                BlockFixtures.create( 'B', 0,0 ) );
+
+        //test
+        long count = new PlacementSearch( new PlacementTable( 2, blocks ) ).count();
+
+        //assert
+        assertEquals( 6, count );
+    }
+
+    @Test
+    public void testCount_PartialDynamicOrdering() throws Exception
+    {
+        // Two identical L blocks and two dominoes leave 4 of the 16 cells free
+        List<Block> blocks = Arrays.asList(
+                BlockFixtures.create( 'A', 0,0, 1,0, 2,0, 2,1 ),
+                BlockFixtures.create( 'B', 0,0, 1,0, 2,0, 2,1 ),
+                BlockFixtures.create( 'C', 0,0, 1,0 ),
+                BlockFixtures.create( 'D', 0,0, 1,0 ) );
+        PlacementTable table = new PlacementTable( sideLength, blocks );
+        long expected = new PlacementSearch( table ).count();
+
+        //test
+        PlacementSearch search = new PlacementSearch( table );
+        search.setOrderingPolicy( new CostOrdering( true ) );
+        long count = search.count();
+
+        long splitCount = 0;
+        for ( int[] prefix : search.split( 2 ) )
+        {
+            PlacementSearch part = new PlacementSearch( table );
+            part.setOrderingPolicy( new CostOrdering( true ) );
+            part.setPrefix( prefix );
+            splitCount += part.count();
+        }
+
+        //assert
+        assertTrue( expected > 0 );
+        assertEquals( expected, count );
+        assertEquals( expected, splitCount );
+    }
+
+    @Test
+    public void testCount_ResumeFromCheckpoint() throws Exception
+    {
+        // 6 horizontal and 12 vertical dominoes tile the 6x6 grid in 1064 ways
+        List<Block> blocks = new ArrayList<>();
+        for ( int i = 0; i < 18; i++ )
+        {
+            blocks.add( i < 6
+                    ? BlockFixtures.create( (char)( 'A' + i ), 0,0, 1,0 )
+                    : BlockFixtures.create( (char)( 'A' + i ), 0,0, 0,1 ) );
+        }
+        PlacementTable table = new PlacementTable( 6, blocks );
+        Path file = Files.createTempFile( "search", ".checkpoint" );
+
+        PlacementSearch interrupted = new PlacementSearch( table );
+        interrupted.setCheckpoint( file, 0 );
+        interrupted.setNodeLimit( 6000 );
+        long before = interrupted.count();
+
+        //test
+        PlacementSearch resumed = new PlacementSearch( table );
+        resumed.setCheckpoint( file, 0 );
+        long offset = resumed.resume( file );
+        long count = resumed.count();
+
+        PlacementSearch finished = new PlacementSearch( table );
+        finished.resume( file );
+
+        //assert
+        assertTrue( interrupted.isLimitReached() );
+        assertTrue( offset > 0 && offset <= before );
+        assertEquals( 1064, count );
+        assertEquals( 1064, finished.count() );
+        assertEquals( resumed.getNodeCount(), finished.getNodeCount() );
+        Files.delete( file );
+    }
+}
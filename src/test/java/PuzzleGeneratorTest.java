@@ -0,0 +1,91 @@
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class PuzzleGeneratorTest
+{
+    @Test
+    public void testGenerateSolvable() throws Exception
+    {
+        PuzzleGenerator generator = createGenerator( 1 );
+
+        for ( int i = 0; i < 20; i++ )
+        {
+            //test
+            Puzzle puzzle = generator.generateSolvable();
+
+            //assert
+            assertEquals( 9, puzzle.getBlocks().size() );
+            assertNotNull( new PlacementSearch( puzzle.createPlacementTable() ).findFirst() );
+        }
+    }
+
+    @Test
+    public void testGenerateSolvable_SameSeed() throws Exception
+    {
+        //test
+        Puzzle first = createGenerator( 5 ).generateSolvable();
+        Puzzle second = createGenerator( 5 ).generateSolvable();
+
+        //assert
+        assertEquals( first.toLines(), second.toLines() );
+    }
+
+    @Test
+    public void testGenerateSolvable_Duplicates() throws Exception
+    {
+        PuzzleGenerator generator = createGenerator( 2 );
+        generator.setSideLength( 12 );
+        generator.setPieceCount( 36 );
+        generator.setDuplicateFraction( 1 );
+
+        //test
+        Puzzle puzzle = generator.generateSolvable();
+
+        //assert
+        PlacementTable table = puzzle.createPlacementTable();
+        assertTrue( table.getClassCount() < 18 );
+        assertNotNull( new PlacementSearch( table ).findFirst() );
+    }
+
+    @Test
+    public void testGenerateUnsolvable() throws Exception
+    {
+        PuzzleGenerator generator = createGenerator( 3 );
+
+        for ( int i = 0; i < 20; i++ )
+        {
+            //test
+            Puzzle puzzle = generator.generateUnsolvable();
+
+            //assert
+            assertNotNull( generator.getLastReason() );
+            assertNull( new PlacementSearch( puzzle.createPlacementTable() ).findFirst() );
+        }
+    }
+
+    @Test
+    public void testParse_GeneratedLines() throws Exception
+    {
+        Puzzle puzzle = createGenerator( 4 ).generateSolvable();
+
+        //test
+        Puzzle parsed = Puzzle.parse( puzzle.toLines(), 4 );
+
+        //assert
+        assertEquals( 6, parsed.getSideLength() );
+        assertEquals( puzzle.toLines(), parsed.toLines() );
+    }
+
+    //################################################
+    // NOT TESTS
+    //################################################
+
+    private static PuzzleGenerator createGenerator( long seed )
+    {
+        PuzzleGenerator generator = new PuzzleGenerator( seed );
+        generator.setSideLength( 6 );
+        generator.setPieceCount( 9 );
+        return generator;
+    }
+}
@@ -0,0 +1,80 @@
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class PuzzleTest
+{
+    @Test
+    public void testParse_MultiCharacterIds() throws Exception
+    {
+        //test
+        Puzzle puzzle = Puzzle.parse( Arrays.asList(
+                "=:2",
+                "AB:0,0;1,0",
+                "Piece2:0,0;1,0" ), 4 );
+
+        //assert
+        List<Block> blocks = puzzle.getBlocks();
+        assertEquals( 2, blocks.size() );
+        assertEquals( "AB", blocks.get( 0 ).getName() );
+        assertEquals( 0, blocks.get( 0 ).getId() );
+        assertEquals( "Piece2", blocks.get( 1 ).getName() );
+        assertEquals( 1, blocks.get( 1 ).getId() );
+
+        PlacementTable table = puzzle.createPlacementTable();
+        FittingResult result = table.createResult( new PlacementSearch( table ).findFirst() );
+        assertEquals( Arrays.asList( "AB:0,0;1,0", "Piece2:0,1;1,1" ), result.getCoordinateLines() );
+        assertEquals( 0, result.getOwner( 1, 0 ) );
+        assertEquals( 1, result.getOwner( 0, 1 ) );
+    }
+
+    @Test( expected = Exception.class )
+    public void testParse_DuplicateName() throws Exception
+    {
+        //test
+        Puzzle.parse( Arrays.asList( "A:0,0;1,0", "A:0,0;0,1" ), 4 );
+    }
+
+    @Test
+    public void testParse_ThousandsOfPieces() throws Exception
+    {
+        PuzzleGenerator generator = new PuzzleGenerator( 1 );
+        generator.setSideLength( 80 );
+        generator.setPieceCount( 3000 );
+        Puzzle puzzle = generator.generateSolvable();
+
+        //test
+        Puzzle parsed = Puzzle.parse( puzzle.toLines(), 4 );
+
+        //assert
+        assertEquals( 3000, parsed.getBlocks().size() );
+        Set<String> names = new HashSet<>();
+        for ( int i = 0; i < parsed.getBlocks().size(); i++ )
+        {
+            assertEquals( i, parsed.getBlocks().get( i ).getId() );
+            assertTrue( names.add( parsed.getBlocks().get( i ).getName() ) );
+        }
+        assertEquals( puzzle.toLines(), parsed.toLines() );
+    }
+
+    @Test
+    public void testGetOwner_Blocked() throws Exception
+    {
+        Puzzle puzzle = Puzzle.parse( Arrays.asList( "=:2", "#:1,1", "A:0,0;1,0" ), 4 );
+        PlacementTable table = puzzle.createPlacementTable();
+
+        //test
+        FittingResult result = table.createResult( new PlacementSearch( table ).findFirst() );
+
+        //assert
+        assertEquals( 0, result.getOwner( 0, 0 ) );
+        assertEquals( FittingResult.EMPTY, result.getOwner( 0, 1 ) );
+        assertEquals( FittingResult.BLOCKED, result.getOwner( 1, 1 ) );
+        assertEquals( FitToGrid.BLOCKED_VALUE, result.getGrid()[1][1] );
+    }
+}
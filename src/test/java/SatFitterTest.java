@@ -0,0 +1,131 @@
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Test;
+
+public class SatFitterTest
+{
+    private static final int sideLength = 4;
+
+    @Test
+    public void testSolve_Pigeonhole() throws Exception
+    {
+        // Four pigeons can't go to three holes
+        CdclSolver solver = new CdclSolver();
+        int[][] variables = new int[4][3];
+        for ( int pigeon = 0; pigeon < 4; pigeon++ )
+        {
+            for ( int hole = 0; hole < 3; hole++ )
+            {
+                variables[pigeon][hole] = solver.newVariable();
+            }
+            solver.addClause( variables[pigeon] );
+        }
+        for ( int hole = 0; hole < 3; hole++ )
+        {
+            for ( int i = 0; i < 4; i++ )
+            {
+                for ( int k = i + 1; k < 4; k++ )
+                {
+                    solver.addClause( -variables[i][hole], -variables[k][hole] );
+                }
+            }
+        }
+
+        //test
+        CdclSolver.Result result = solver.solve();
+
+        //assert
+        assertEquals( CdclSolver.Result.UNSATISFIABLE, result );
+    }
+
+    @Test
+    public void testSolve_Model() throws Exception
+    {
+        CdclSolver solver = new CdclSolver();
+        int a = solver.newVariable();
+        int b = solver.newVariable();
+        int c = solver.newVariable();
+        solver.addClause( a, b );
+        solver.addClause( -a, c );
+        solver.addClause( -c );
+
+        //test
+        CdclSolver.Result result = solver.solve();
+
+        //assert
+        assertEquals( CdclSolver.Result.SATISFIABLE, result );
+        assertFalse( solver.getValue( a ) );
+        assertTrue( solver.getValue( b ) );
+        assertFalse( solver.getValue( c ) );
+    }
+
+    @Test
+    public void testFit_Fits() throws Exception
+    {
+        Puzzle puzzle = new Puzzle( sideLength, Arrays.asList(
+                BlockFixtures.create( 'A', 0,0, 1,0, 1,1, 2,1 ),
+                BlockFixtures.create( 'B', 0,0, 0,1, 0,2, 1,2 ),
+                BlockFixtures.create( 'C', 0,0, 1,0, 2,0, 1,1 ),
+                BlockFixtures.create( 'D', 0,0, 1,0, 1,1, 1,-1 ) ), new HashSet<>() );
+
+        //test
+        FittingResult result = new SatFitter().fit( puzzle );
+
+        //assert
+        char[][] grid = result.getGrid();
+        for ( int y=0; y < sideLength; y++ )
+        {
+            for ( int x=0; x < sideLength; x++ )
+            {
+                assertNotEquals( FitToGrid.EMPTY_VALUE, grid[x][y] );
+            }
+        }
+    }
+
+    @Test
+    public void testSolve_IdenticalBlocks() throws Exception
+    {
+        // One class of four squares, each square must get its own placement
+        List<Block> blocks = Arrays.asList(
+                BlockFixtures.create( 'A', 0,0, 1,0, 0,1, 1,1 ),
+                BlockFixtures.create( 'B', 0,0, 1,0, 0,1, 1,1 ),
+                BlockFixtures.create( 'C', 0,0, 1,0, 0,1, 1,1 ),
+                BlockFixtures.create( 'D', 0,0, 1,0, 0,1, 1,1 ) );
+        PlacementTable table = new PlacementTable( sideLength, blocks );
+
+        //test
+        int[] result = new SatFitter().solve( table );
+
+        //assert
+        assertEquals( 1, table.getClassCount() );
+        assertNotNull( result );
+        long[] occupied = new long[table.getWords()];
+        for ( int piece = 0; piece < result.length; piece++ )
+        {
+            assertTrue( table.fits( piece, result[piece], occupied ) );
+            table.place( piece, result[piece], occupied );
+        }
+    }
+
+    @Test
+    public void testSolve_NoFit() throws Exception
+    {
+        List<Block> blocks = Arrays.asList(
+                BlockFixtures.create( 'A', 0,0, 1,0, 2,0, 2,1 ),
+                BlockFixtures.create( 'B', 0,0, 0,1, 1,1, 1,2 ),
+                BlockFixtures.create( 'C', 0,0, 0,1, 1,1, 1,2 ),
+                BlockFixtures.create( 'D', 0,0, 1,0, 1,1, 2,1 ) );
+        SatFitter fitter = new SatFitter();
+
+        //test
+        int[] result = fitter.solve( new PlacementTable( sideLength, blocks ) );
+
+        //assert
+        assertNull( result );
+        assertFalse( fitter.isLimitReached() );
+    }
+}
@@ -0,0 +1,84 @@
+import static org.junit.Assert.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class SolutionStoreTest
+{
+    private static final int sideLength = 4;
+
+    private PlacementTable m_table;
+    private List<int[]> m_solutions;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        List<Block> blocks = new ArrayList<>();
+        for ( int i = 0; i < 8; i++ )
+        {
+            blocks.add( i < 4
+                    ? BlockFixtures.create( (char)( 'A' + i ), 0,0, 1,0 )
+                    : BlockFixtures.create( (char)( 'A' + i ), 0,0, 0,1 ) );
+        }
+        m_table = new PlacementTable( sideLength, blocks );
+
+        m_solutions = new ArrayList<>();
+        new PlacementSearch( m_table ).enumerate( placements -> m_solutions.add( placements.clone() ) );
+    }
+
+    @Test
+    public void testGet_Spilled() throws Exception
+    {
+        Path directory = Files.createTempDirectory( "store" );
+
+        try ( SolutionStore store = new SolutionStore( m_table, 3 * 16, directory ) )
+        {
+            //test
+            new PlacementSearch( m_table ).enumerate( store );
+
+            //assert
+            assertTrue( store.isSpilled() );
+            assertEquals( m_solutions.size(), store.size() );
+            int[] placements = new int[m_table.getPieceCount()];
+            for ( int i = 0; i < m_solutions.size(); i++ )
+            {
+                assertArrayEquals( m_solutions.get( i ), store.get( i, placements ) );
+            }
+        }
+
+        try ( Stream<Path> files = Files.list( directory ) )
+        {
+            assertEquals( 0, files.count() );
+        }
+    }
+
+    @Test
+    public void testDeduplicate() throws Exception
+    {
+        try ( SolutionStore store = new SolutionStore( m_table, 1 << 20, Files.createTempDirectory( "store" ) ) )
+        {
+            m_solutions.forEach( store::add );
+            m_solutions.forEach( store::add );
+            m_solutions.forEach( store::add );
+
+            //test
+            long removed = store.deduplicate();
+
+            //assert
+            assertEquals( 2 * m_solutions.size(), removed );
+            List<int[]> stored = new ArrayList<>();
+            store.forEach( placements -> stored.add( placements.clone() ) );
+            assertEquals( m_solutions.size(), stored.size() );
+            for ( int i = 0; i < stored.size(); i++ )
+            {
+                assertArrayEquals( m_solutions.get( i ), stored.get( i ) );
+            }
+        }
+    }
+}
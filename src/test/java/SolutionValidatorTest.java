@@ -0,0 +1,151 @@
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Test;
+
+public class SolutionValidatorTest
+{
+    private static final int sideLength = 4;
+
+    private final Puzzle m_puzzle = new Puzzle( sideLength, createBlocks(), Collections.emptySet() );
+
+    // A:1,2;2,2;2,3;3,3 B:0,1;0,2;0,3;1,3 C:0,0;1,0;1,1;2,0 D:2,1;3,0;3,1;3,2
+    private final List<Block> m_solution = Arrays.asList(
+            BlockFixtures.create( 'A', 1,2, 2,2, 2,3, 3,3 ),
+            BlockFixtures.create( 'B', 0,1, 0,2, 0,3, 1,3 ),
+            BlockFixtures.create( 'C', 0,0, 1,0, 1,1, 2,0 ),
+            BlockFixtures.create( 'D', 2,1, 3,0, 3,1, 3,2 ) );
+
+    @Test
+    public void testValidate_FitToGridResult() throws Exception
+    {
+        // The fitter moves the points of the blocks it is given
+        FittingResult result = new FitToGrid( sideLength ).fitBlocks( createBlocks() );
+
+        //test
+        Violation violation = new SolutionValidator().validate( m_puzzle, result );
+
+        //assert
+        assertNull( violation );
+    }
+
+    @Test
+    public void testValidate_Violations() throws Exception
+    {
+        SolutionValidator validator = new SolutionValidator();
+
+        //test & assert
+        assertNull( validator.validate( m_puzzle, m_solution ) );
+        assertEquals( Violation.MISSING_BLOCK, validator.validate( m_puzzle, m_solution.subList( 0, 3 ) ) );
+        assertEquals( "D", validator.getViolatingBlock() );
+        assertEquals( Violation.DUPLICATE_BLOCK, validator.validate( m_puzzle, replace( 3, BlockFixtures.create( 'A', 2,1, 3,1, 3,2, 4,2 ) ) ) );
+        assertEquals( Violation.UNKNOWN_BLOCK, validator.validate( m_puzzle, replace( 3, BlockFixtures.create( 'E', 2,1, 3,0, 3,1, 3,2 ) ) ) );
+        // D turned around
+        assertEquals( Violation.NOT_TRANSLATION, validator.validate( m_puzzle, replace( 3, BlockFixtures.create( 'D', 3,1, 2,0, 2,1, 2,2 ) ) ) );
+        assertEquals( Violation.OUTSIDE_GRID, validator.validate( m_puzzle, replace( 3, BlockFixtures.create( 'D', 3,1, 4,0, 4,1, 4,2 ) ) ) );
+        assertEquals( Violation.OVERLAP, validator.validate( m_puzzle, replace( 3, BlockFixtures.create( 'D', 1,1, 2,0, 2,1, 2,2 ) ) ) );
+        assertEquals( "D", validator.getViolatingBlock() );
+    }
+
+    @Test
+    public void testValidate_ResultViolations() throws Exception
+    {
+        SolutionValidator validator = new SolutionValidator();
+        List<List<Block>> solutions = Arrays.asList( m_solution, m_solution.subList( 0, 3 ),
+                replace( 3, BlockFixtures.create( 'A', 2,1, 3,1, 3,2, 4,2 ) ),
+                replace( 3, BlockFixtures.create( 'E', 2,1, 3,0, 3,1, 3,2 ) ),
+                replace( 3, BlockFixtures.create( 'D', 3,1, 2,0, 2,1, 2,2 ) ),
+                replace( 3, BlockFixtures.create( 'D', 3,1, 4,0, 4,1, 4,2 ) ),
+                replace( 3, BlockFixtures.create( 'D', 1,1, 2,0, 2,1, 2,2 ) ) );
+
+        for ( List<Block> solution : solutions )
+        {
+            //test
+            Violation violation = validator.validate( m_puzzle, new FittingResult( sideLength, sideLength, null, solution ) );
+
+            //assert
+            assertEquals( validator.validate( m_puzzle, solution ), violation );
+        }
+    }
+
+    @Test
+    public void testValidate_BlockedAndCoverage() throws Exception
+    {
+        Puzzle puzzle = new Puzzle( 2, Arrays.asList( BlockFixtures.create( 'A', 0,0, 1,0 ) ),
+                                    new HashSet<>( Arrays.asList( new Point( 0, 1 ) ) ) );
+        SolutionValidator validator = new SolutionValidator();
+
+        //test & assert
+        assertNull( validator.validate( puzzle, Arrays.asList( BlockFixtures.create( 'A', 0,0, 1,0 ) ) ) );
+        assertEquals( Violation.BLOCKED_CELL, validator.validate( puzzle, Arrays.asList( BlockFixtures.create( 'A', 0,1, 1,1 ) ) ) );
+        assertEquals( Violation.NOT_COVERED, validator.validate( puzzle, Arrays.asList( BlockFixtures.create( 'A', 0,0, 1,0 ) ), true ) );
+    }
+
+    @Test
+    public void testValidateAll() throws Exception
+    {
+        List<Puzzle> puzzles = new ArrayList<>();
+        List<List<Block>> solutions = new ArrayList<>();
+        for ( int i = 0; i < 5000; i++ )
+        {
+            puzzles.add( m_puzzle );
+            solutions.add( i % 7 == 0 ? m_solution.subList( 1, 4 ) : i % 11 == 0 ? null : m_solution );
+        }
+
+        //test
+        Violation[] violations = SolutionValidator.validateAll( puzzles, solutions, 3 );
+
+        //assert
+        for ( int i = 0; i < violations.length; i++ )
+        {
+            assertEquals( i % 7 == 0 ? Violation.MISSING_BLOCK : null, violations[i] );
+        }
+    }
+
+    @Test
+    public void testValidateResults() throws Exception
+    {
+        List<Puzzle> puzzles = new ArrayList<>();
+        List<FittingResult> results = new ArrayList<>();
+        for ( int i = 0; i < 3000; i++ )
+        {
+            puzzles.add( m_puzzle );
+            results.add( i % 7 == 0 ? null : new FittingResult( sideLength, sideLength, null,
+                                                                 i % 5 == 0 ? m_solution.subList( 1, 4 ) : m_solution ) );
+        }
+
+        //test
+        Violation[] violations = SolutionValidator.validateResults( puzzles, results, 3 );
+
+        //assert
+        for ( int i = 0; i < violations.length; i++ )
+        {
+            assertEquals( i % 7 != 0 && i % 5 == 0 ? Violation.MISSING_BLOCK : null, violations[i] );
+        }
+    }
+
+    //################################################
+    // NOT TESTS
+    //################################################
+
+    private static List<Block> createBlocks()
+    {
+        return Arrays.asList(
+                BlockFixtures.create( 'A', 0,0, 1,0, 1,1, 2,1 ),
+                BlockFixtures.create( 'B', 0,0, 0,1, 0,2, 1,2 ),
+                BlockFixtures.create( 'C', 0,0, 1,0, 2,0, 1,1 ),
+                BlockFixtures.create( 'D', 0,0, 1,0, 1,1, 1,-1 ) );
+    }
+
+    private List<Block> replace( int index, Block block )
+    {
+        List<Block> solution = new ArrayList<>( m_solution );
+        solution.set( index, block );
+        return solution;
+    }
+}
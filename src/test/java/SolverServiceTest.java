@@ -0,0 +1,106 @@
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.Test;
+
+public class SolverServiceTest
+{
+    @Test
+    public void testSubmit_Lanes() throws Exception
+    {
+        PuzzleGenerator generator = new PuzzleGenerator( 3 );
+        List<Puzzle> puzzles = new ArrayList<>();
+        for ( int side = 4; side <= 6; side++ )
+        {
+            generator.setSideLength( side );
+            generator.setPieceCount( side * side / 4 );
+            puzzles.add( generator.generateSolvable() );
+        }
+
+        try ( SolverService service = new SolverService( 1 ) )
+        {
+            service.setSliceNodes( 1 );
+
+            //test
+            List<CompletableFuture<FittingResult>> results = new ArrayList<>();
+            for ( Puzzle puzzle : puzzles )
+            {
+                results.add( service.submit( puzzle, 0, 0 ) );
+            }
+
+            //assert
+            for ( int i = 0; i < puzzles.size(); i++ )
+            {
+                FittingResult result = results.get( i ).get( 10, TimeUnit.SECONDS );
+                assertNull( new SolutionValidator().validate( puzzles.get( i ), result, true ) );
+            }
+            assertEquals( 1, service.getStartedCount( SolverService.Lane.FAST ) );
+            assertEquals( 2, service.getStartedCount( SolverService.Lane.SLOW ) );
+            assertTrue( service.getSliceCount() > puzzles.size() );
+            assertEquals( 0, service.getQueueDepth( SolverService.Lane.FAST ) );
+            assertEquals( 0, service.getQueueDepth( SolverService.Lane.SLOW ) );
+        }
+    }
+
+    @Test
+    public void testSubmit_LargeSearchYields() throws Exception
+    {
+        // Eleven T blocks and a bar don't fit, the search takes tens of thousands of placements
+        List<String> lines = new ArrayList<>( Arrays.asList( "=:7", "Z:0,0;1,0;2,0;3,0" ) );
+        for ( int i = 0; i < 11; i++ )
+        {
+            lines.add( PieceNames.createName( i ) + ":0,0;1,0;2,0;1,1" );
+        }
+        Puzzle large = Puzzle.parse( lines, 4 );
+        Puzzle small = Puzzle.parse( Arrays.asList( "A:0,0;1,0;2,0;3,0", "B:0,0;1,0;2,0;3,0" ), 4 );
+
+        try ( SolverService service = new SolverService( 1 ) )
+        {
+            // Both to the slow lane
+            service.setFastLaneCost( 0 );
+            service.setSliceNodes( 100 );
+
+            //test
+            CompletableFuture<FittingResult> largeResult = service.submit( large, 0, 0 );
+            CompletableFuture<FittingResult> smallResult = service.submit( small, 0, 0 );
+
+            //assert
+            assertEquals( 2, smallResult.get( 10, TimeUnit.SECONDS ).getBlocks().size() );
+            assertFalse( largeResult.isDone() );
+            assertNull( largeResult.get( 60, TimeUnit.SECONDS ) );
+            assertTrue( service.getSliceCount() > 100 );
+            assertTrue( service.getMaxWaitMillis( SolverService.Lane.SLOW ) >= 0 );
+        }
+    }
+
+    @Test
+    public void testSubmit_Deadline() throws Exception
+    {
+        Puzzle puzzle = Puzzle.parse( Arrays.asList( "A:0,0;1,0;2,0;3,0" ), 4 );
+
+        try ( SolverService service = new SolverService( 1 ) )
+        {
+            //test
+            CompletableFuture<FittingResult> result = service.submit( puzzle, 0, System.currentTimeMillis() - 1 );
+
+            //assert
+            try
+            {
+                result.get( 10, TimeUnit.SECONDS );
+            }
+            catch ( ExecutionException e )
+            {
+                assertTrue( e.getCause() instanceof TimeoutException );
+            }
+            assertTrue( result.isCompletedExceptionally() );
+            assertEquals( 1, service.getExpiredCount() );
+        }
+    }
+}
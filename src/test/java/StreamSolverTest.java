@@ -0,0 +1,88 @@
+import static org.junit.Assert.*;
+
+import java.io.BufferedReader;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class StreamSolverTest
+{
+    private static final String PUZZLE = "A:0,0;1,0;1,1;2,1\nB:0,0;0,1;0,2;1,2\nC:0,0;1,0;2,0;1,1\nD:0,0;1,0;1,1;1,-1\n";
+
+    @Test
+    public void testRun_Ordered() throws Exception
+    {
+        StringBuilder input = new StringBuilder();
+        for ( int i = 0; i < 20; i++ )
+        {
+            input.append( ">p" ).append( i ).append( '\n' ).append( i % 5 == 3 ? "A:0,0;5,0\n" : PUZZLE );
+        }
+        StreamSolver solver = new StreamSolver();
+        solver.setThreadCount( 3 );
+        solver.setMaxPending( 2 );
+
+        //test
+        List<List<String>> records = run( solver, input.toString() );
+
+        //assert
+        assertEquals( 20, records.size() );
+        for ( int i = 0; i < 20; i++ )
+        {
+            assertEquals( ">p" + i, records.get( i ).get( 0 ) );
+            assertEquals( i % 5 == 3 ? 2 : 5, records.get( i ).size() );
+        }
+        assertEquals( "A:1,2;2,2;2,3;3,3", records.get( 0 ).get( 1 ) );
+    }
+
+    @Test
+    public void testRun_UnorderedWithoutIds() throws Exception
+    {
+        String input = PUZZLE + "\n\n" + PUZZLE + "\n" + "=:2\nA:0,0;1,0;0,1\n";
+        StreamSolver solver = new StreamSolver();
+        solver.setThreadCount( 2 );
+        solver.setOrdered( false );
+
+        //test
+        List<List<String>> records = run( solver, input );
+
+        //assert
+        List<String> ids = new ArrayList<>();
+        records.forEach( record -> ids.add( record.get( 0 ) ) );
+        ids.sort( null );
+        assertEquals( Arrays.asList( ">1", ">2", ">3" ), ids );
+    }
+
+    //################################################
+    // NOT TESTS
+    //################################################
+
+    private static List<List<String>> run( StreamSolver solver, String input ) throws Exception
+    {
+        StringWriter output = new StringWriter();
+        solver.run( new BufferedReader( new StringReader( input ) ), new PrintWriter( output ) );
+
+        List<List<String>> records = new ArrayList<>();
+        List<String> record = new ArrayList<>();
+        for ( String line : output.toString().split( "\n", -1 ) )
+        {
+            if ( line.isEmpty() )
+            {
+                if ( !record.isEmpty() )
+                {
+                    records.add( record );
+                    record = new ArrayList<>();
+                }
+            }
+            else
+            {
+                record.add( line );
+            }
+        }
+        return records;
+    }
+}
@@ -0,0 +1,85 @@
+import static org.junit.Assert.*;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class StripTilerTest
+{
+    @Test
+    public void testCount_Dominoes() throws Exception
+    {
+        List<Block> dominoes = Arrays.asList(
+                BlockFixtures.create( 'H', 0, 0, 1, 0 ),
+                BlockFixtures.create( 'V', 0, 0, 0, 1 ),
+                BlockFixtures.create( 'W', 5, 5, 6, 5 ) );
+
+        //test
+        BigInteger square = new StripTiler( 8, 8, dominoes, Collections.emptySet() ).count();
+        BigInteger strip = new StripTiler( 100, 2, dominoes, Collections.emptySet() ).count();
+        BigInteger transposed = new StripTiler( 2, 100, dominoes, Collections.emptySet() ).count();
+
+        //assert
+        assertEquals( BigInteger.valueOf( 12988816 ), square );
+        // The Fibonacci number 101, more than a long can hold
+        assertEquals( new BigInteger( "573147844013817084101" ), strip );
+        assertEquals( strip, transposed );
+    }
+
+    @Test
+    public void testFit_LongStrip() throws Exception
+    {
+        List<Block> pieces = Arrays.asList(
+                BlockFixtures.create( 'H', 0, 0, 1, 0 ),
+                BlockFixtures.create( 'V', 0, 0, 0, 1 ),
+                BlockFixtures.create( 'L', 0, 0, 1, 0, 0, 1 ) );
+        Set<Point> blocked = new HashSet<>( Arrays.asList( new Point( 0, 0 ), new Point( 500, 7 ) ) );
+        StripTiler tiler = new StripTiler( 1000, 8, pieces, blocked );
+
+        //test
+        FittingResult result = tiler.fit();
+
+        //assert
+        assertNotNull( result );
+        int covered = 0;
+        for ( int i = 0; i < result.getBlockCount(); i++ )
+        {
+            covered += result.getShape( i ).getSize();
+        }
+        assertEquals( 8000 - 2, covered );
+        for ( int x = 0; x < 1000; x++ )
+        {
+            for ( int y = 0; y < 8; y++ )
+            {
+                assertEquals( blocked.contains( new Point( x, y ) ), result.getOwner( x, y ) == FittingResult.BLOCKED );
+                assertTrue( result.getOwner( x, y ) != FittingResult.EMPTY );
+            }
+        }
+        assertTrue( tiler.getMaxStateCount() < 1000 );
+    }
+
+    @Test
+    public void testFit_NoTiling() throws Exception
+    {
+        StripTiler tiler = new StripTiler( 3, 3, Arrays.asList( BlockFixtures.create( 'H', 0, 0, 1, 0 ) ), Collections.emptySet() );
+
+        //test
+        FittingResult result = tiler.fit();
+
+        //assert
+        assertNull( result );
+        assertEquals( BigInteger.ZERO, tiler.count() );
+    }
+
+    @Test(expected=Exception.class)
+    public void testCreate_FrontierTooLong() throws Exception
+    {
+        //test
+        new StripTiler( 100, 8, Arrays.asList( BlockFixtures.create( 'I', 0, 0, 9, 0 ) ), Collections.emptySet() );
+    }
+}
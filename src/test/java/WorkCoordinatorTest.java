@@ -0,0 +1,225 @@
+import static org.junit.Assert.*;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class WorkCoordinatorTest
+{
+    private static final int sideLength = 4;
+
+    private Puzzle m_puzzle;
+    private long m_expectedCount;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        List<Block> blocks = new ArrayList<>();
+        for ( int i = 0; i < 8; i++ )
+        {
+            blocks.add( i < 4
+                    ? BlockFixtures.create( (char)( 'A' + i ), 0,0, 1,0 )
+                    : BlockFixtures.create( (char)( 'A' + i ), 0,0, 0,1 ) );
+        }
+        m_puzzle = new Puzzle( sideLength, blocks, new HashSet<>() );
+        m_expectedCount = new PlacementSearch( m_puzzle.createPlacementTable() ).count();
+    }
+
+    @Test
+    public void testSplit_PartsCoverSearch() throws Exception
+    {
+        PlacementTable table = m_puzzle.createPlacementTable();
+        long count = 0;
+
+        //test
+        for ( int[] prefix : new PlacementSearch( table ).split( 3 ) )
+        {
+            PlacementSearch search = new PlacementSearch( table );
+            search.setPrefix( prefix );
+            count += search.count();
+        }
+
+        //assert
+        assertEquals( m_expectedCount, count );
+    }
+
+    @Test
+    public void testCount_WorkerProcesses() throws Exception
+    {
+        try ( WorkCoordinator coordinator = new WorkCoordinator( m_puzzle ) )
+        {
+            coordinator.setWorkerCount( 2 );
+
+            //test
+            long count = coordinator.count();
+
+            //assert
+            assertEquals( m_expectedCount, count );
+        }
+    }
+
+    @Test(timeout=60000)
+    public void testCount_Twice() throws Exception
+    {
+        try ( WorkCoordinator coordinator = new WorkCoordinator( m_puzzle ) )
+        {
+            coordinator.setWorkerCount( 2 );
+
+            //test
+            long first = coordinator.count();
+            long second = coordinator.count();
+
+            //assert
+            assertEquals( m_expectedCount, first );
+            assertEquals( m_expectedCount, second );
+        }
+    }
+
+    @Test
+    public void testCount_FailedWorker() throws Exception
+    {
+        ExecutorService executor = Executors.newCachedThreadPool();
+
+        try ( WorkCoordinator coordinator = new WorkCoordinator( m_puzzle ) )
+        {
+            coordinator.setWorkerCount( 0 );
+            Future<Long> count = executor.submit( coordinator::count );
+
+            // A worker that takes a unit and dies before answering
+            try ( Socket socket = new Socket( InetAddress.getLoopbackAddress(), coordinator.getPort() ) )
+            {
+                assertNotNull( takeUnit( socket ) );
+            }
+
+            //test
+            startWorker( executor, coordinator );
+
+            //assert
+            assertEquals( m_expectedCount, (long)count.get() );
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test(timeout=60000)
+    public void testCount_HangingWorker() throws Exception
+    {
+        ExecutorService executor = Executors.newCachedThreadPool();
+
+        try ( WorkCoordinator coordinator = new WorkCoordinator( m_puzzle );
+              Socket socket = new Socket( InetAddress.getLoopbackAddress(), coordinator.getPort() ) )
+        {
+            coordinator.setWorkerCount( 0 );
+            coordinator.setUnitTimeout( 500 );
+            Future<Long> count = executor.submit( coordinator::count );
+
+            // A worker that takes a unit and never answers
+            assertNotNull( takeUnit( socket ) );
+
+            //test
+            startWorker( executor, coordinator );
+
+            //assert
+            assertEquals( m_expectedCount, (long)count.get() );
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testCount_InvalidResult() throws Exception
+    {
+        ExecutorService executor = Executors.newCachedThreadPool();
+
+        try ( WorkCoordinator coordinator = new WorkCoordinator( m_puzzle ) )
+        {
+            coordinator.setWorkerCount( 0 );
+            Future<Long> count = executor.submit( coordinator::count );
+
+            // A worker that answers with a solution of another unit that doesn't fit
+            try ( Socket socket = new Socket( InetAddress.getLoopbackAddress(), coordinator.getPort() ) )
+            {
+                WorkUnit unit = takeUnit( socket );
+                int[] solution = new int[m_puzzle.getBlocks().size()];
+                DataOutputStream out = new DataOutputStream( new BufferedOutputStream( socket.getOutputStream() ) );
+                WorkProtocol.writeResult( out, new WorkResult( unit.getId() + 1, 1, solution ) );
+                out.flush();
+            }
+
+            //test
+            startWorker( executor, coordinator );
+
+            //assert
+            assertEquals( m_expectedCount, (long)count.get() );
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testFindFirst_NoFit() throws Exception
+    {
+        List<Block> blocks = new ArrayList<>();
+        for ( int i = 0; i < 8; i++ )
+        {
+            blocks.add( BlockFixtures.create( (char)( 'A' + i ), 0,0, 1,0, 2,0 ) );
+        }
+        ExecutorService executor = Executors.newCachedThreadPool();
+
+        try ( WorkCoordinator coordinator = new WorkCoordinator( new Puzzle( sideLength, blocks.subList( 0, 5 ), new HashSet<>() ) ) )
+        {
+            coordinator.setWorkerCount( 0 );
+            startWorker( executor, coordinator );
+
+            //test
+            int[] solution = coordinator.findFirst();
+
+            //assert
+            assertNull( solution );
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    //################################################
+    // NOT TESTS
+    //################################################
+
+    /**
+     * Reads the puzzle and the first unit from the coordinator as a worker would.
+     */
+    private WorkUnit takeUnit( Socket socket ) throws Exception
+    {
+        DataInputStream in = new DataInputStream( socket.getInputStream() );
+        WorkProtocol.readHeader( in );
+        PlacementTable table = Puzzle.parse( WorkProtocol.readRows( in ), sideLength ).createPlacementTable();
+        return WorkProtocol.readUnit( in, table );
+    }
+
+    private static void startWorker( ExecutorService executor, WorkCoordinator coordinator )
+    {
+        executor.submit( () -> {
+            SearchWorker.run( InetAddress.getLoopbackAddress().getHostAddress(), coordinator.getPort() );
+            return null;
+        } );
+    }
+}